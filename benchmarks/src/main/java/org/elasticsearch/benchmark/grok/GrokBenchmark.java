@@ -0,0 +1,160 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.benchmark.grok;
+
+import org.elasticsearch.grok.Grok;
+import org.elasticsearch.grok.GrokBuiltinPatterns;
+import org.elasticsearch.grok.GrokCaptureExtracter;
+import org.joni.Matcher;
+import org.joni.Option;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a multi-pattern grok expression, as built by the grok processor, against log lines of different shapes. The
+ * {@code regex} benchmark runs the compiled joni expression directly and serves as the baseline for {@code grok}, which
+ * skips lines that lack the literals the patterns require before running the regex.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@OperationsPerInvocation(GrokBenchmark.NUM_LINES)
+public class GrokBenchmark {
+
+    static final int NUM_LINES = 1024;
+
+    private static final List<String> PATTERNS = List.of(
+        "%{IPORHOST:clientip} %{HTTPDUSER:ident} %{USER:auth} \\[%{HTTPDATE:timestamp}\\] \"%{WORD:verb} %{NOTSPACE:request} "
+            + "HTTP/%{NUMBER:httpversion}\" %{NUMBER:response} (?:%{NUMBER:bytes}|-)",
+        "%{SYSLOGTIMESTAMP:timestamp} %{SYSLOGHOST:logsource} sshd(?:\\[%{POSINT:pid}\\])?: %{DATA:action} for %{USER:user} "
+            + "from %{IP:source} port %{INT:port}",
+        "\\[%{HTTPDERROR_DATE:timestamp}\\] \\[%{LOGLEVEL:loglevel}\\] \\[client %{IPORHOST:clientip}\\] %{GREEDYDATA:message}"
+    );
+
+    /**
+     * {@code matching}: every line matches one of the patterns, {@code unmatched}: no line does, {@code mixed}: half of them do.
+     */
+    @Param({ "matching", "mixed", "unmatched" })
+    public String corpus;
+
+    private static final GrokCaptureExtracter NO_CAPTURES = (utf8Bytes, offset, region) -> {};
+
+    private Grok grok;
+    private byte[][] lines;
+
+    @Setup
+    public void setup() {
+        StringBuilder combined = new StringBuilder();
+        for (String pattern : PATTERNS) {
+            combined.append(combined.isEmpty() ? "" : "|").append("(?:").append(pattern).append(")");
+        }
+        grok = new Grok(GrokBuiltinPatterns.legacyPatterns(), combined.toString(), message -> {});
+        Random random = new Random(42);
+        lines = new byte[NUM_LINES][];
+        for (int i = 0; i < NUM_LINES; i++) {
+            boolean matching = switch (corpus) {
+                case "matching" -> true;
+                case "unmatched" -> false;
+                case "mixed" -> random.nextBoolean();
+                default -> throw new IllegalArgumentException("unknown corpus [" + corpus + "]");
+            };
+            lines[i] = (matching ? matchingLine(random) : unmatchedLine(random)).getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String matchingLine(Random random) {
+        return switch (random.nextInt(3)) {
+            case 0 -> String.format(
+                Locale.ROOT,
+                "10.%d.%d.%d - - [24/Jul/2014:05:35:%02d +0530] \"GET /logs/access-%d.log HTTP/1.1\" 200 %d",
+                random.nextInt(256),
+                random.nextInt(256),
+                random.nextInt(256),
+                random.nextInt(60),
+                random.nextInt(1000),
+                random.nextInt(100000)
+            );
+            case 1 -> String.format(
+                Locale.ROOT,
+                "Jul 24 05:35:%02d host-%d sshd[%d]: Accepted publickey for user%d from 10.0.%d.%d port %d",
+                random.nextInt(60),
+                random.nextInt(100),
+                random.nextInt(65536),
+                random.nextInt(100),
+                random.nextInt(256),
+                random.nextInt(256),
+                random.nextInt(65536)
+            );
+            default -> String.format(
+                Locale.ROOT,
+                "[Thu Jul 24 05:35:%02d 2014] [error] [client 10.0.%d.%d] File does not exist: /var/www/favicon-%d.ico",
+                random.nextInt(60),
+                random.nextInt(256),
+                random.nextInt(256),
+                random.nextInt(1000)
+            );
+        };
+    }
+
+    private static String unmatchedLine(Random random) {
+        return switch (random.nextInt(2)) {
+            case 0 -> String.format(
+                Locale.ROOT,
+                "2014-07-24T05:35:%02d.%03dZ INFO [o.e.c.m.MetadataIndexTemplateService] [node-%d] adding template [logs-%d]",
+                random.nextInt(60),
+                random.nextInt(1000),
+                random.nextInt(10),
+                random.nextInt(1000)
+            );
+            default -> String.format(
+                Locale.ROOT,
+                "{\"level\":\"warn\",\"ts\":%d,\"caller\":\"server/handler.go:%d\",\"msg\":\"slow request\",\"took_ms\":%d}",
+                1406180137000L + random.nextInt(100000),
+                random.nextInt(500),
+                random.nextInt(10000)
+            );
+        };
+    }
+
+    @Benchmark
+    public void grok(Blackhole bh) {
+        for (byte[] line : lines) {
+            bh.consume(grok.match(line, 0, line.length, NO_CAPTURES));
+        }
+    }
+
+    @Benchmark
+    public void regex(Blackhole bh) {
+        for (byte[] line : lines) {
+            Matcher matcher = grok.getCompiledExpression().matcher(line, 0, line.length);
+            bh.consume(matcher.search(0, line.length, Option.DEFAULT));
+        }
+    }
+}
@@ -23,6 +23,7 @@ import org.apache.lucene.util.quantization.QuantizedByteVectorValues;
 import org.apache.lucene.util.quantization.ScalarQuantizer;
 import org.elasticsearch.common.logging.LogConfigurator;
 import org.elasticsearch.core.IOUtils;
+import org.elasticsearch.simdvec.ESVectorUtil;
 import org.elasticsearch.simdvec.VectorScorerFactory;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
@@ -52,7 +53,7 @@ import static org.elasticsearch.simdvec.VectorSimilarityType.EUCLIDEAN;
 @OutputTimeUnit(TimeUnit.MICROSECONDS)
 @State(Scope.Thread)
 /**
- * Benchmark that compares various scalar quantized vector similarity function
+ * Benchmark that compares various scalar and binary quantized vector similarity function
  * implementations;: scalar, lucene's panama-ized, and Elasticsearch's native.
  * Run with ./gradlew -p benchmarks run --args 'VectorScorerBenchmark'
  */
@@ -84,6 +85,10 @@ public class VectorScorerBenchmark {
     RandomVectorScorer luceneDotScorerQuery;
     RandomVectorScorer nativeDotScorerQuery;
 
+    // binary quantized (BBQ) vectors: a 4-bit query and a 1-bit document, rounded up to 64 dimensions
+    byte[] bbqQuery;
+    byte[] bbqDoc;
+
     @Setup
     public void setup() throws IOException {
         var optionalVectorScorerFactory = VectorScorerFactory.instance();
@@ -157,6 +162,16 @@ public class VectorScorerBenchmark {
         if (q1 != q2) {
             throw new AssertionError("query: lucene[" + q1 + "] != " + "native[" + q2 + "]");
         }
+
+        bbqDoc = new byte[(dims + 63) / 64 * 8];
+        bbqQuery = new byte[bbqDoc.length * 4];
+        ThreadLocalRandom.current().nextBytes(bbqDoc);
+        ThreadLocalRandom.current().nextBytes(bbqQuery);
+        var b1 = ipByteBinByte();
+        var b2 = ipByteBinByteScalar();
+        if (b1 != b2) {
+            throw new AssertionError("bbq: vectorized[" + b1 + "] != " + "scalar[" + b2 + "]");
+        }
     }
 
     @TearDown
@@ -217,6 +232,26 @@ public class VectorScorerBenchmark {
         return 1 / (1f + adjustedDistance);
     }
 
+    // -- binary quantized inner product, native or panama depending on the runtime
+
+    @Benchmark
+    public long ipByteBinByte() {
+        return ESVectorUtil.ipByteBinByte(bbqQuery, bbqDoc);
+    }
+
+    @Benchmark
+    public long ipByteBinByteScalar() {
+        long ret = 0;
+        for (int bit = 0; bit < 4; bit++) {
+            long subRet = 0;
+            for (int i = 0; i < bbqDoc.length; i++) {
+                subRet += Integer.bitCount((bbqQuery[bit * bbqDoc.length + i] & bbqDoc[i]) & 0xFF);
+            }
+            ret += subRet << bit;
+        }
+        return ret;
+    }
+
     QuantizedByteVectorValues vectorValues(int dims, int size, IndexInput in, VectorSimilarityFunction sim) throws IOException {
         var sq = new ScalarQuantizer(0.1f, 0.9f, (byte) 7);
         var slice = in.slice("values", 0, in.length());
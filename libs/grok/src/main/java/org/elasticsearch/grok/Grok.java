@@ -57,6 +57,8 @@ public final class Grok {
     private final Regex compiledExpression;
     private final MatcherWatchdog matcherWatchdog;
     private final List<GrokCaptureConfig> captureConfig;
+    // rejects text that lacks literals every match requires before running the regex, null if there are no such literals
+    private final GrokLiteralPrefilter prefilter;
 
     public Grok(PatternBank patternBank, String grokPattern, Consumer<String> logCallBack) {
         this(patternBank, grokPattern, true, MatcherWatchdog.noop(), logCallBack);
@@ -96,6 +98,7 @@ public final class Grok {
             grokCaptureConfigs.add(new GrokCaptureConfig(entry.next()));
         }
         this.captureConfig = List.copyOf(grokCaptureConfigs);
+        this.prefilter = GrokLiteralPrefilter.build(expression);
     }
 
     private static String groupMatch(String name, Region region, String pattern) {
@@ -173,6 +176,7 @@ public final class Grok {
      * @return true if grok expression matches text or there is a timeout, false otherwise.
      */
     public boolean match(String text) {
+        // this always runs the regex, callers rely on it to surface joni's warnings for the pattern
         Matcher matcher = compiledExpression.matcher(text.getBytes(StandardCharsets.UTF_8));
         int result;
         try {
@@ -226,6 +230,9 @@ public final class Grok {
      * @throws RuntimeException if there was a timeout
      */
     public boolean match(byte[] utf8Bytes, int offset, int length, GrokCaptureExtracter extracter) {
+        if (prefilter != null && prefilter.mayMatch(utf8Bytes, offset, length) == false) {
+            return false;
+        }
         Matcher matcher = compiledExpression.matcher(utf8Bytes, offset, offset + length);
         int result;
         try {
@@ -257,4 +264,8 @@ public final class Grok {
         return compiledExpression;
     }
 
+    GrokLiteralPrefilter getPrefilter() {
+        return prefilter;
+    }
+
 }
@@ -0,0 +1,448 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.grok;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A cheap check that rejects text which cannot possibly match a regular expression, based on literal substrings that every match
+ * must contain. The requirements are kept as a conjunction of clauses, each of which is satisfied if the text contains any of its
+ * literals. Alternations like the ones produced by grok processors with multiple patterns become a single clause with one literal per
+ * alternative, so text that none of the patterns can match is rejected without running the regex at all.
+ * <p>
+ * The analysis is conservative: any construct it does not fully understand (inline options such as case insensitivity, unusual
+ * escapes, ...) either contributes no requirement or disables the prefilter entirely, so that it never rejects text the regex would
+ * have matched.
+ */
+final class GrokLiteralPrefilter {
+
+    private final byte[][][] clauses;
+
+    private GrokLiteralPrefilter(byte[][][] clauses) {
+        this.clauses = clauses;
+    }
+
+    /**
+     * Analyzes the given regular expression, using the joni ruby syntax, and returns a prefilter for it or {@code null} if there are
+     * no literals that every match requires.
+     */
+    static GrokLiteralPrefilter build(String regex) {
+        final List<Set<String>> requirements;
+        try {
+            Parser parser = new Parser(regex);
+            requirements = parser.parseAlternation();
+            if (parser.pos != regex.length()) {
+                return null;
+            }
+        } catch (UnsupportedRegexException e) {
+            return null;
+        }
+        List<Set<String>> clauses = new ArrayList<>();
+        for (Set<String> clause : requirements) {
+            if (clauses.contains(clause) == false && isImpliedBySingleLiteral(clause, requirements) == false) {
+                clauses.add(clause);
+            }
+        }
+        if (clauses.isEmpty()) {
+            return null;
+        }
+        // check the most selective clauses first
+        clauses.sort(Comparator.comparingInt(GrokLiteralPrefilter::shortestLiteral).reversed());
+        byte[][][] bytes = new byte[clauses.size()][][];
+        for (int i = 0; i < clauses.size(); i++) {
+            bytes[i] = clauses.get(i).stream().map(literal -> literal.getBytes(StandardCharsets.UTF_8)).toArray(byte[][]::new);
+        }
+        return new GrokLiteralPrefilter(bytes);
+    }
+
+    /**
+     * Whether the clause is always satisfied when another, single literal, clause is, which makes checking it redundant.
+     */
+    private static boolean isImpliedBySingleLiteral(Set<String> clause, List<Set<String>> requirements) {
+        for (Set<String> other : requirements) {
+            if (other != clause && other.size() == 1) {
+                String required = other.iterator().next();
+                for (String literal : clause) {
+                    if (required.contains(literal) && (clause.size() > 1 || required.length() > literal.length())) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static int shortestLiteral(Set<String> clause) {
+        return clause.stream().mapToInt(String::length).min().orElse(0);
+    }
+
+    /**
+     * Returns {@code false} if the given utf-8 encoded text cannot match the regular expression, {@code true} if it may.
+     */
+    boolean mayMatch(byte[] utf8Bytes, int offset, int length) {
+        for (byte[][] clause : clauses) {
+            boolean satisfied = false;
+            for (byte[] literal : clause) {
+                if (contains(utf8Bytes, offset, length, literal)) {
+                    satisfied = true;
+                    break;
+                }
+            }
+            if (satisfied == false) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean contains(byte[] text, int offset, int length, byte[] literal) {
+        final byte first = literal[0];
+        final int last = offset + length - literal.length;
+        outer: for (int i = offset; i <= last; i++) {
+            if (text[i] != first) {
+                continue;
+            }
+            for (int j = 1; j < literal.length; j++) {
+                if (text[i + j] != literal[j]) {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * The literal requirements of the prefilter, exposed for testing.
+     */
+    List<Set<String>> clauses() {
+        List<Set<String>> result = new ArrayList<>(clauses.length);
+        for (byte[][] clause : clauses) {
+            Set<String> literals = new LinkedHashSet<>();
+            for (byte[] literal : clause) {
+                literals.add(new String(literal, StandardCharsets.UTF_8));
+            }
+            result.add(literals);
+        }
+        return result;
+    }
+
+    private static final class UnsupportedRegexException extends RuntimeException {
+        UnsupportedRegexException() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * A recursive descent parser over the subset of the regex syntax that matters for literal extraction. Character classes, escapes
+     * and anchors simply end the current literal run.
+     */
+    private static final class Parser {
+
+        private final String regex;
+        private int pos;
+
+        Parser(String regex) {
+            this.regex = regex;
+        }
+
+        /**
+         * Parses alternatives up to the end of the regex or the closing parenthesis of the enclosing group.
+         */
+        List<Set<String>> parseAlternation() {
+            List<List<Set<String>>> branches = new ArrayList<>();
+            branches.add(parseSequence());
+            while (pos < regex.length() && regex.charAt(pos) == '|') {
+                pos++;
+                branches.add(parseSequence());
+            }
+            if (branches.size() == 1) {
+                return branches.get(0);
+            }
+            // each match goes through one of the branches, so it contains at least one of their most selective requirements
+            Set<String> clause = new LinkedHashSet<>();
+            for (List<Set<String>> branch : branches) {
+                Set<String> best = null;
+                for (Set<String> candidate : branch) {
+                    if (best == null
+                        || candidate.size() < best.size()
+                        || (candidate.size() == best.size() && shortestLiteral(candidate) > shortestLiteral(best))) {
+                        best = candidate;
+                    }
+                }
+                if (best == null) {
+                    return List.of();
+                }
+                clause.addAll(best);
+            }
+            return List.of(clause);
+        }
+
+        private List<Set<String>> parseSequence() {
+            List<Set<String>> clauses = new ArrayList<>();
+            StringBuilder run = new StringBuilder();
+            while (pos < regex.length()) {
+                char c = regex.charAt(pos);
+                if (c == '|' || c == ')') {
+                    break;
+                }
+                int atomStart = run.length();
+                boolean literal = false;
+                List<Set<String>> atomClauses = List.of();
+                switch (c) {
+                    case '\\' -> literal = parseEscape(run);
+                    case '[' -> skipCharClass();
+                    case '(' -> atomClauses = parseGroup();
+                    case '.', '^', '$' -> pos++;
+                    case '*', '+', '?' -> throw new UnsupportedRegexException();
+                    case '{' -> {
+                        if (intervalLength() > 0) {
+                            throw new UnsupportedRegexException();
+                        }
+                        run.append(c);
+                        pos++;
+                        literal = true;
+                    }
+                    default -> {
+                        int codePoint = regex.codePointAt(pos);
+                        run.appendCodePoint(codePoint);
+                        pos += Character.charCount(codePoint);
+                        literal = true;
+                    }
+                }
+                Quantifier quantifier = parseQuantifier();
+                if (quantifier == Quantifier.OPTIONAL) {
+                    if (literal) {
+                        run.setLength(atomStart);
+                    }
+                    atomClauses = List.of();
+                }
+                if (literal == false || quantifier == Quantifier.OPTIONAL || quantifier == Quantifier.REPEATED) {
+                    flush(run, clauses);
+                }
+                clauses.addAll(atomClauses);
+            }
+            flush(run, clauses);
+            return clauses;
+        }
+
+        private static void flush(StringBuilder run, List<Set<String>> clauses) {
+            if (run.length() > 0) {
+                clauses.add(Set.of(run.toString()));
+                run.setLength(0);
+            }
+        }
+
+        /**
+         * Parses an escape sequence, appending it to the run and returning {@code true} if it stands for a literal character.
+         */
+        private boolean parseEscape(StringBuilder run) {
+            pos++;
+            if (pos >= regex.length()) {
+                throw new UnsupportedRegexException();
+            }
+            char c = regex.charAt(pos++);
+            if (Character.isLetterOrDigit(c) == false) {
+                run.append(c);
+                return true;
+            }
+            switch (c) {
+                case 'p', 'P' -> skipDelimited('{', '}');
+                case 'k', 'g' -> {
+                    if (pos < regex.length() && regex.charAt(pos) == '\'') {
+                        skipDelimited('\'', '\'');
+                    } else {
+                        skipDelimited('<', '>');
+                    }
+                }
+                case 'x' -> {
+                    if (pos < regex.length() && regex.charAt(pos) == '{') {
+                        skipDelimited('{', '}');
+                    } else {
+                        skipHexDigits(2);
+                    }
+                }
+                case 'u' -> skipHexDigits(4);
+                case 'c' -> {
+                    if (pos >= regex.length()) {
+                        throw new UnsupportedRegexException();
+                    }
+                    pos++;
+                }
+                case 'M', 'C', 'o', 'Q', 'E' -> throw new UnsupportedRegexException();
+                default -> {
+                    // back references and octal escapes: skipping all following digits can only drop literals, never invent them
+                    if (Character.isDigit(c)) {
+                        while (pos < regex.length() && Character.isDigit(regex.charAt(pos))) {
+                            pos++;
+                        }
+                    }
+                }
+            }
+            return false;
+        }
+
+        private void skipDelimited(char open, char close) {
+            if (pos >= regex.length() || regex.charAt(pos) != open) {
+                throw new UnsupportedRegexException();
+            }
+            int end = regex.indexOf(close, pos + 1);
+            if (end < 0) {
+                throw new UnsupportedRegexException();
+            }
+            pos = end + 1;
+        }
+
+        private void skipHexDigits(int max) {
+            for (int i = 0; i < max && pos < regex.length() && Character.digit(regex.charAt(pos), 16) >= 0; i++) {
+                pos++;
+            }
+        }
+
+        private void skipCharClass() {
+            pos++;
+            if (pos < regex.length() && regex.charAt(pos) == '^') {
+                pos++;
+            }
+            if (pos < regex.length() && regex.charAt(pos) == ']') {
+                pos++;
+            }
+            int depth = 1;
+            while (pos < regex.length()) {
+                char c = regex.charAt(pos++);
+                if (c == '\\') {
+                    pos++;
+                } else if (c == '[') {
+                    depth++;
+                } else if (c == ']' && --depth == 0) {
+                    return;
+                }
+            }
+            throw new UnsupportedRegexException();
+        }
+
+        private List<Set<String>> parseGroup() {
+            pos++;
+            boolean required = true;
+            if (regex.startsWith("?", pos)) {
+                if (regex.startsWith("?:", pos) || regex.startsWith("?>", pos)) {
+                    pos += 2;
+                } else if (regex.startsWith("?=", pos) || regex.startsWith("?!", pos)) {
+                    pos += 2;
+                    required = false;
+                } else if (regex.startsWith("?<=", pos) || regex.startsWith("?<!", pos)) {
+                    pos += 3;
+                    required = false;
+                } else if (regex.startsWith("?<", pos)) {
+                    pos++;
+                    skipDelimited('<', '>');
+                } else if (regex.startsWith("?'", pos)) {
+                    pos++;
+                    skipDelimited('\'', '\'');
+                } else if (regex.startsWith("?#", pos)) {
+                    int end = regex.indexOf(')', pos);
+                    if (end < 0) {
+                        throw new UnsupportedRegexException();
+                    }
+                    pos = end + 1;
+                    return List.of();
+                } else {
+                    // inline options may turn on case insensitive or extended matching, which literals cannot represent
+                    throw new UnsupportedRegexException();
+                }
+            }
+            List<Set<String>> clauses = parseAlternation();
+            if (pos >= regex.length() || regex.charAt(pos) != ')') {
+                throw new UnsupportedRegexException();
+            }
+            pos++;
+            return required ? clauses : List.of();
+        }
+
+        private enum Quantifier {
+            NONE,
+            OPTIONAL,
+            REPEATED
+        }
+
+        private Quantifier parseQuantifier() {
+            if (pos >= regex.length()) {
+                return Quantifier.NONE;
+            }
+            final Quantifier quantifier;
+            char c = regex.charAt(pos);
+            if (c == '*' || c == '?') {
+                pos++;
+                quantifier = Quantifier.OPTIONAL;
+            } else if (c == '+') {
+                pos++;
+                quantifier = Quantifier.REPEATED;
+            } else if (c == '{') {
+                int length = intervalLength();
+                if (length == 0) {
+                    return Quantifier.NONE;
+                }
+                String interval = regex.substring(pos + 1, pos + length - 1);
+                pos += length;
+                String min = interval.contains(",") ? interval.substring(0, interval.indexOf(',')) : interval;
+                if (min.isEmpty() || Integer.parseInt(min) == 0) {
+                    quantifier = Quantifier.OPTIONAL;
+                } else {
+                    quantifier = interval.equals("1") || interval.equals("1,1") ? Quantifier.NONE : Quantifier.REPEATED;
+                }
+            } else {
+                return Quantifier.NONE;
+            }
+            // lazy and possessive modifiers don't change what is required
+            if (pos < regex.length() && (regex.charAt(pos) == '?' || regex.charAt(pos) == '+')) {
+                pos++;
+            }
+            return quantifier;
+        }
+
+        /**
+         * Returns the length of the interval quantifier ({@code {n}}, {@code {n,}}, {@code {n,m}} or {@code {,m}}) starting at the
+         * current position, or 0 if there is none, in which case the brace is a literal.
+         */
+        private int intervalLength() {
+            int i = pos + 1;
+            int digitsBefore = 0;
+            while (i < regex.length() && Character.isDigit(regex.charAt(i))) {
+                i++;
+                digitsBefore++;
+            }
+            int digitsAfter = 0;
+            boolean comma = false;
+            if (i < regex.length() && regex.charAt(i) == ',') {
+                comma = true;
+                i++;
+                while (i < regex.length() && Character.isDigit(regex.charAt(i))) {
+                    i++;
+                    digitsAfter++;
+                }
+            }
+            if (i >= regex.length() || regex.charAt(i) != '}') {
+                return 0;
+            }
+            if (digitsBefore == 0 && (comma == false || digitsAfter == 0)) {
+                return 0;
+            }
+            if (digitsBefore > 9 || digitsAfter > 9) {
+                throw new UnsupportedRegexException();
+            }
+            return i - pos + 1;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.grok;
+
+import org.elasticsearch.test.ESTestCase;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+public class GrokLiteralPrefilterTests extends ESTestCase {
+
+    public void testLiteralRuns() {
+        assertClauses("foo\\d+bar", Set.of("foo"), Set.of("bar"));
+        assertClauses("GET /index\\.html", Set.of("GET /index.html"));
+        assertClauses("ab*c", Set.of("a"), Set.of("c"));
+        assertClauses("ab+c", Set.of("ab"), Set.of("c"));
+        assertClauses("ab?c{2}d{0,3}e", Set.of("a"), Set.of("c"), Set.of("e"));
+        assertClauses("a{1}b", Set.of("ab"));
+        assertClauses("x{,2}y", Set.of("y"));
+        assertClauses("{foo}", Set.of("{foo}"));
+        assertClauses("[a-z]+ERROR[^\\]]*:", Set.of("ERROR"), Set.of(":"));
+        assertClauses("^start.*end$", Set.of("start"), Set.of("end"));
+    }
+
+    public void testGroups() {
+        assertClauses("(?<name>foo)-(?:bar)+", Set.of("foo"), Set.of("-"), Set.of("bar"));
+        assertClauses("(foo)?bar", Set.of("bar"));
+        assertClauses("(?=foo)bar(?!baz)(?<=bar)(?<!qux)", Set.of("bar"));
+        assertClauses("foo(?#comment)bar", Set.of("foo"), Set.of("bar"));
+        assertClauses("(?>atomic)", Set.of("atomic"));
+    }
+
+    public void testAlternation() {
+        assertClauses("(?:foo\\d+|bar\\s+baz)", Set.of("foo", "bar"));
+        assertClauses("foo|bar|qux", Set.of("foo", "bar", "qux"));
+        assertClauses("(?:foo|\\d+)x", Set.of("x"));
+        assertClauses("(?:a|b(?:c|d))", Set.of("a", "b"));
+    }
+
+    public void testRedundantClausesAreDropped() {
+        assertClauses("foo\\d+oo", Set.of("foo"));
+        assertClauses("foo\\d+(?:o|x)", Set.of("foo"));
+    }
+
+    public void testUnsupported() {
+        assertThat(GrokLiteralPrefilter.build("(?i)foo"), nullValue());
+        assertThat(GrokLiteralPrefilter.build("(?i:foo)bar"), nullValue());
+        assertThat(GrokLiteralPrefilter.build("foo)"), nullValue());
+        assertThat(GrokLiteralPrefilter.build("(foo"), nullValue());
+        assertThat(GrokLiteralPrefilter.build("[foo"), nullValue());
+        assertThat(GrokLiteralPrefilter.build("\\d+|foo"), nullValue());
+        assertThat(GrokLiteralPrefilter.build(".*"), nullValue());
+    }
+
+    public void testEscapes() {
+        assertClauses("a\\x41b", Set.of("a"), Set.of("b"));
+        assertClauses("a\\x{263a}b\\p{Alpha}c\\k<name>d\\u00e9e", Set.of("a"), Set.of("b"), Set.of("c"), Set.of("d"), Set.of("e"));
+        assertClauses("a\\12b", Set.of("a"), Set.of("b"));
+        assertClauses("\\[\\]\\\\", Set.of("[]\\"));
+    }
+
+    public void testMayMatch() {
+        GrokLiteralPrefilter prefilter = GrokLiteralPrefilter.build("(?:GET \\S+|POST \\S+) HTTP/\\d\\.\\d");
+        assertThat(prefilter, notNullValue());
+        assertThat(Set.copyOf(prefilter.clauses()), equalTo(Set.of(Set.of("GET ", "POST "), Set.of(" HTTP/"), Set.of("."))));
+        assertTrue(mayMatch(prefilter, "GET /index.html HTTP/1.1"));
+        assertTrue(mayMatch(prefilter, "POST /_bulk HTTP/1.1"));
+        assertFalse(mayMatch(prefilter, "PUT /index HTTP/1.1"));
+        assertFalse(mayMatch(prefilter, "GET /index.html HTTP"));
+        assertFalse(mayMatch(prefilter, ""));
+        byte[] bytes = "xxGET / HTTP/1.1xx".getBytes(StandardCharsets.UTF_8);
+        assertTrue(prefilter.mayMatch(bytes, 2, bytes.length - 4));
+        assertFalse(prefilter.mayMatch(bytes, 3, bytes.length - 4));
+    }
+
+    public void testGrokUsesPrefilter() {
+        Grok grok = new Grok(
+            GrokBuiltinPatterns.legacyPatterns(),
+            "(?:%{IP:client} GET %{URIPATH:path})|(?:%{WORD:verb} failed for %{USER:user})",
+            logger::warn
+        );
+        assertThat(grok.getPrefilter(), notNullValue());
+        assertThat(grok.getPrefilter().clauses(), equalTo(List.of(Set.of(" GET ", " failed for "))));
+        assertThat(grok.captures("10.0.0.1 GET /foo"), equalTo(java.util.Map.of("client", "10.0.0.1", "path", "/foo")));
+        assertThat(grok.captures("login failed for bob"), equalTo(java.util.Map.of("verb", "login", "user", "bob")));
+        assertThat(grok.captures("10.0.0.1 PUT /foo"), nullValue());
+    }
+
+    private static boolean mayMatch(GrokLiteralPrefilter prefilter, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        return prefilter.mayMatch(bytes, 0, bytes.length);
+    }
+
+    @SafeVarargs
+    private static void assertClauses(String regex, Set<String>... expected) {
+        GrokLiteralPrefilter prefilter = GrokLiteralPrefilter.build(regex);
+        assertThat(regex, prefilter, notNullValue());
+        assertThat(regex, Set.copyOf(prefilter.clauses()), equalTo(Set.of(expected)));
+    }
+}
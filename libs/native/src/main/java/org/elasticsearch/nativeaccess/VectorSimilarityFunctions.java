@@ -40,4 +40,18 @@ public interface VectorSimilarityFunctions {
      * vector data bytes. The third argument is the length of the vector data.
      */
     MethodHandle squareDistanceHandle7u();
+
+    /**
+     * Produces a method handle returning the inner product of a 4-bit query vector and a 1-bit document vector, as used by
+     * binary quantized (BBQ) vectors, or {@code null} if the native library does not provide it.
+     *
+     * <p> The query vector stores each of its 4 bits as its own bit vector, so that it is 4 times as long as the document
+     * vector. The result is the sum of the popcounts of the document vector ANDed with every query bit vector, each shifted
+     * by the position of its bit.
+     *
+     * <p> The type of the method handle will have {@code long} as return type, The type of
+     * its first and second arguments will be {@code MemorySegment}, whose contents is the
+     * query and document vector bytes. The third argument is the length of the document vector data.
+     */
+    MethodHandle ipByteBinByteHandle();
 }
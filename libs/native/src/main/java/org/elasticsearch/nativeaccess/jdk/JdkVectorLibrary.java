@@ -21,12 +21,14 @@ import java.lang.invoke.MethodType;
 
 import static java.lang.foreign.ValueLayout.ADDRESS;
 import static java.lang.foreign.ValueLayout.JAVA_INT;
+import static java.lang.foreign.ValueLayout.JAVA_LONG;
 import static org.elasticsearch.nativeaccess.jdk.LinkerHelper.downcallHandle;
 
 public final class JdkVectorLibrary implements VectorLibrary {
 
     static final MethodHandle dot7u$mh;
     static final MethodHandle sqr7u$mh;
+    static final MethodHandle ipbb4$mh;
 
     static final VectorSimilarityFunctions INSTANCE;
 
@@ -60,10 +62,15 @@ public final class JdkVectorLibrary implements VectorLibrary {
                         LinkerHelperUtil.critical()
                     );
                 }
+                // older versions of the native library don't have the binary quantized kernel
+                ipbb4$mh = LinkerHelper.functionExists("ipbb4")
+                    ? downcallHandle("ipbb4", FunctionDescriptor.of(JAVA_LONG, ADDRESS, ADDRESS, JAVA_INT), LinkerHelperUtil.critical())
+                    : null;
                 INSTANCE = new JdkVectorSimilarityFunctions();
             } else {
                 dot7u$mh = null;
                 sqr7u$mh = null;
+                ipbb4$mh = null;
                 INSTANCE = null;
             }
         } catch (Throwable t) {
@@ -119,6 +126,24 @@ public final class JdkVectorLibrary implements VectorLibrary {
             return sqr7u(a, b, length);
         }
 
+        /**
+         * Computes the inner product of a 4-bit query vector, stored as 4 consecutive bit vectors, and a 1-bit document vector.
+         *
+         * @param q      address of the query vector
+         * @param d      address of the document vector
+         * @param length the length of the document vector in bytes
+         */
+        static long ipByteBinByte(MemorySegment q, MemorySegment d, int length) {
+            assert length >= 0;
+            if (q.byteSize() != d.byteSize() * 4) {
+                throw new IllegalArgumentException("vector dimensions incompatible: " + q.byteSize() + "!= 4 x " + d.byteSize());
+            }
+            if (length > d.byteSize()) {
+                throw new IllegalArgumentException("length: " + length + ", greater than vector dimensions: " + d.byteSize());
+            }
+            return ipbb4(q, d, length);
+        }
+
         private static int dot7u(MemorySegment a, MemorySegment b, int length) {
             try {
                 return (int) JdkVectorLibrary.dot7u$mh.invokeExact(a, b, length);
@@ -135,8 +160,17 @@ public final class JdkVectorLibrary implements VectorLibrary {
             }
         }
 
+        private static long ipbb4(MemorySegment q, MemorySegment d, int length) {
+            try {
+                return (long) JdkVectorLibrary.ipbb4$mh.invokeExact(q, d, length);
+            } catch (Throwable t) {
+                throw new AssertionError(t);
+            }
+        }
+
         static final MethodHandle DOT_HANDLE_7U;
         static final MethodHandle SQR_HANDLE_7U;
+        static final MethodHandle IP_BYTE_BIN_BYTE_HANDLE;
 
         static {
             try {
@@ -144,6 +178,13 @@ public final class JdkVectorLibrary implements VectorLibrary {
                 var mt = MethodType.methodType(int.class, MemorySegment.class, MemorySegment.class, int.class);
                 DOT_HANDLE_7U = lookup.findStatic(JdkVectorSimilarityFunctions.class, "dotProduct7u", mt);
                 SQR_HANDLE_7U = lookup.findStatic(JdkVectorSimilarityFunctions.class, "squareDistance7u", mt);
+                IP_BYTE_BIN_BYTE_HANDLE = ipbb4$mh == null
+                    ? null
+                    : lookup.findStatic(
+                        JdkVectorSimilarityFunctions.class,
+                        "ipByteBinByte",
+                        MethodType.methodType(long.class, MemorySegment.class, MemorySegment.class, int.class)
+                    );
             } catch (NoSuchMethodException | IllegalAccessException e) {
                 throw new RuntimeException(e);
             }
@@ -158,5 +199,10 @@ public final class JdkVectorLibrary implements VectorLibrary {
         public MethodHandle squareDistanceHandle7u() {
             return SQR_HANDLE_7U;
         }
+
+        @Override
+        public MethodHandle ipByteBinByteHandle() {
+            return IP_BYTE_BIN_BYTE_HANDLE;
+        }
     }
 }
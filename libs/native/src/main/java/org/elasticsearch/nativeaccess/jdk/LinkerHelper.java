@@ -37,6 +37,10 @@ class LinkerHelper {
         return SYMBOL_LOOKUP.find(function).orElseThrow(() -> new LinkageError("Native function " + function + " could not be found"));
     }
 
+    static boolean functionExists(String function) {
+        return SYMBOL_LOOKUP.find(function).isPresent();
+    }
+
     static MethodHandle downcallHandle(String function, FunctionDescriptor functionDescriptor, Linker.Option... options) {
         return LINKER.downcallHandle(functionAddress(function), functionDescriptor, options);
     }
@@ -96,6 +96,36 @@ public class JDKVectorLibraryTests extends VectorSimilarityFunctionsTests {
         }
     }
 
+    public void testBinaryQuantizedVectors() {
+        assumeTrue(notSupportedMsg(), supported());
+        assumeTrue("native library without binary quantized kernel", getVectorDistance().ipByteBinByteHandle() != null);
+        final int length = size;
+        final int numVecs = randomIntBetween(2, 101);
+        var docs = new byte[numVecs][length];
+        var segment = arena.allocate((long) length * numVecs);
+        for (int i = 0; i < numVecs; i++) {
+            random().nextBytes(docs[i]);
+            MemorySegment.copy(MemorySegment.ofArray(docs[i]), 0L, segment, (long) i * length, length);
+        }
+        var query = new byte[length * 4];
+        random().nextBytes(query);
+        var querySeg = arena.allocate(query.length);
+        MemorySegment.copy(MemorySegment.ofArray(query), 0L, querySeg, 0L, query.length);
+
+        for (int i = 0; i < numVecs; i++) {
+            var nativeSeg = segment.asSlice((long) i * length, length);
+            long expected = ipByteBinByteScalar(query, docs[i]);
+            assertEquals(expected, ipByteBinByte(querySeg, nativeSeg, length));
+            if (testWithHeapSegments()) {
+                assertEquals(expected, ipByteBinByte(MemorySegment.ofArray(query), MemorySegment.ofArray(docs[i]), length));
+                assertEquals(expected, ipByteBinByte(MemorySegment.ofArray(query), nativeSeg, length));
+            }
+        }
+
+        var e = expectThrows(IAE, () -> ipByteBinByte(querySeg, segment.asSlice(0L, length + 1), length));
+        assertThat(e.getMessage(), containsString("vector dimensions incompatible"));
+    }
+
     static boolean testWithHeapSegments() {
         return Runtime.version().feature() >= 22;
     }
@@ -138,6 +168,33 @@ public class JDKVectorLibraryTests extends VectorSimilarityFunctionsTests {
         }
     }
 
+    long ipByteBinByte(MemorySegment q, MemorySegment d, int length) {
+        try {
+            return (long) getVectorDistance().ipByteBinByteHandle().invokeExact(q, d, length);
+        } catch (Throwable e) {
+            if (e instanceof Error err) {
+                throw err;
+            } else if (e instanceof RuntimeException re) {
+                throw re;
+            } else {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /** Computes the inner product of the given 4-bit query vector q and 1-bit document vector d. */
+    static long ipByteBinByteScalar(byte[] q, byte[] d) {
+        long res = 0;
+        for (int bit = 0; bit < 4; bit++) {
+            long count = 0;
+            for (int i = 0; i < d.length; i++) {
+                count += Integer.bitCount((q[bit * d.length + i] & d[i]) & 0xFF);
+            }
+            res += count << bit;
+        }
+        return res;
+    }
+
     /** Computes the dot product of the given vectors a and b. */
     static int dotProductScalar(byte[] a, byte[] b) {
         int res = 0;
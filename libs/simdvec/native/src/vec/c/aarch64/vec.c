@@ -8,6 +8,7 @@
  */
 
 #include <stddef.h>
+#include <stdint.h>
 #include <arm_neon.h>
 #include "vec.h"
 
@@ -19,6 +20,10 @@
 #define SQR7U_STRIDE_BYTES_LEN 16 // Must be a power of 2
 #endif
 
+#ifndef IPBB4_STRIDE_BYTES_LEN
+#define IPBB4_STRIDE_BYTES_LEN 16 // Must be a power of 2
+#endif
+
 #ifdef __linux__
     #include <sys/auxv.h>
     #include <asm/hwcap.h>
@@ -132,3 +137,48 @@ EXPORT int32_t sqr7u(int8_t* a, int8_t* b, size_t dims) {
     }
     return res;
 }
+
+static inline int64_t ipbb4_inner(int8_t *q, int8_t *d, int32_t length, int32_t dims) {
+    // One accumulator per bit of the 4-bit query, each query bit is stored as its own bit vector of `length` bytes.
+    uint32x4_t acc0 = vdupq_n_u32(0);
+    uint32x4_t acc1 = vdupq_n_u32(0);
+    uint32x4_t acc2 = vdupq_n_u32(0);
+    uint32x4_t acc3 = vdupq_n_u32(0);
+
+    for (int i = 0; i < dims; i += IPBB4_STRIDE_BYTES_LEN) {
+        uint8x16_t vd = vld1q_u8((uint8_t *) (d + i));
+        uint8x16_t vq0 = vld1q_u8((uint8_t *) (q + i));
+        uint8x16_t vq1 = vld1q_u8((uint8_t *) (q + length + i));
+        uint8x16_t vq2 = vld1q_u8((uint8_t *) (q + 2 * length + i));
+        uint8x16_t vq3 = vld1q_u8((uint8_t *) (q + 3 * length + i));
+
+        // Count the bits of every byte, then accumulate into 32 bit lanes (adding adjacent lanes).
+        acc0 = vpadalq_u16(acc0, vpaddlq_u8(vcntq_u8(vandq_u8(vq0, vd))));
+        acc1 = vpadalq_u16(acc1, vpaddlq_u8(vcntq_u8(vandq_u8(vq1, vd))));
+        acc2 = vpadalq_u16(acc2, vpaddlq_u8(vcntq_u8(vandq_u8(vq2, vd))));
+        acc3 = vpadalq_u16(acc3, vpaddlq_u8(vcntq_u8(vandq_u8(vq3, vd))));
+    }
+
+    // reduce
+    return (int64_t) vaddvq_u32(acc0)
+        + ((int64_t) vaddvq_u32(acc1) << 1)
+        + ((int64_t) vaddvq_u32(acc2) << 2)
+        + ((int64_t) vaddvq_u32(acc3) << 3);
+}
+
+EXPORT int64_t ipbb4(int8_t *q, int8_t *d, int32_t length) {
+    int64_t res = 0;
+    int i = 0;
+    if (length >= IPBB4_STRIDE_BYTES_LEN) {
+        i += length & ~(IPBB4_STRIDE_BYTES_LEN - 1);
+        res = ipbb4_inner(q, d, length, i);
+    }
+    for (; i < length; i++) {
+        uint8_t vd = (uint8_t) d[i];
+        res += __builtin_popcount((uint8_t) q[i] & vd);
+        res += (int64_t) __builtin_popcount((uint8_t) q[i + length] & vd) << 1;
+        res += (int64_t) __builtin_popcount((uint8_t) q[i + 2 * length] & vd) << 2;
+        res += (int64_t) __builtin_popcount((uint8_t) q[i + 3 * length] & vd) << 3;
+    }
+    return res;
+}
@@ -153,3 +153,71 @@ EXPORT int32_t sqr7u(int8_t* a, int8_t* b, size_t dims) {
     }
     return res;
 }
+
+// Counts the bits of every byte of the given vector using a nibble lookup table (AVX2 has no vector popcount) and
+// sums the counts of every 8 consecutive bytes into 4 64-bit integers
+static inline __m256i popcount_sad(const __m256i v, const __m256i lookup, const __m256i low_mask) {
+    const __m256i lo = _mm256_and_si256(v, low_mask);
+    const __m256i hi = _mm256_and_si256(_mm256_srli_epi16(v, 4), low_mask);
+    const __m256i cnt = _mm256_add_epi8(_mm256_shuffle_epi8(lookup, lo), _mm256_shuffle_epi8(lookup, hi));
+    return _mm256_sad_epu8(cnt, _mm256_setzero_si256());
+}
+
+// Utility function to horizontally add 4 64-bit integers
+static inline int64_t hsum_i64_4(const __m256i a) {
+    const __m128i sum128 = _mm_add_epi64(_mm256_castsi256_si128(a), _mm256_extracti128_si256(a, 1));
+    return _mm_cvtsi128_si64(sum128) + _mm_extract_epi64(sum128, 1);
+}
+
+static inline int popcount8(uint8_t v) {
+    v = v - ((v >> 1) & 0x55);
+    v = (v & 0x33) + ((v >> 2) & 0x33);
+    return (v + (v >> 4)) & 0x0F;
+}
+
+static inline int64_t ipbb4_inner(int8_t *q, int8_t *d, int32_t length, int32_t dims) {
+    const __m256i lookup = _mm256_setr_epi8(
+        0, 1, 1, 2, 1, 2, 2, 3, 1, 2, 2, 3, 2, 3, 3, 4,
+        0, 1, 1, 2, 1, 2, 2, 3, 1, 2, 2, 3, 2, 3, 3, 4
+    );
+    const __m256i low_mask = _mm256_set1_epi8(0x0f);
+
+    // One accumulator per bit of the 4-bit query, each query bit is stored as its own bit vector of `length` bytes.
+    __m256i acc0 = _mm256_setzero_si256();
+    __m256i acc1 = _mm256_setzero_si256();
+    __m256i acc2 = _mm256_setzero_si256();
+    __m256i acc3 = _mm256_setzero_si256();
+
+    for (int i = 0; i < dims; i += STRIDE_BYTES_LEN) {
+        const __m256i vd = _mm256_loadu_si256((const __m256i *) (d + i));
+        const __m256i vq0 = _mm256_loadu_si256((const __m256i *) (q + i));
+        const __m256i vq1 = _mm256_loadu_si256((const __m256i *) (q + length + i));
+        const __m256i vq2 = _mm256_loadu_si256((const __m256i *) (q + 2 * length + i));
+        const __m256i vq3 = _mm256_loadu_si256((const __m256i *) (q + 3 * length + i));
+
+        acc0 = _mm256_add_epi64(acc0, popcount_sad(_mm256_and_si256(vq0, vd), lookup, low_mask));
+        acc1 = _mm256_add_epi64(acc1, popcount_sad(_mm256_and_si256(vq1, vd), lookup, low_mask));
+        acc2 = _mm256_add_epi64(acc2, popcount_sad(_mm256_and_si256(vq2, vd), lookup, low_mask));
+        acc3 = _mm256_add_epi64(acc3, popcount_sad(_mm256_and_si256(vq3, vd), lookup, low_mask));
+    }
+
+    // reduce (horizontally add all)
+    return hsum_i64_4(acc0) + (hsum_i64_4(acc1) << 1) + (hsum_i64_4(acc2) << 2) + (hsum_i64_4(acc3) << 3);
+}
+
+EXPORT int64_t ipbb4(int8_t *q, int8_t *d, int32_t length) {
+    int64_t res = 0;
+    int i = 0;
+    if (length >= STRIDE_BYTES_LEN) {
+        i += length & ~(STRIDE_BYTES_LEN - 1);
+        res = ipbb4_inner(q, d, length, i);
+    }
+    for (; i < length; i++) {
+        uint8_t vd = (uint8_t) d[i];
+        res += popcount8((uint8_t) q[i] & vd);
+        res += (int64_t) popcount8((uint8_t) q[i + length] & vd) << 1;
+        res += (int64_t) popcount8((uint8_t) q[i + 2 * length] & vd) << 2;
+        res += (int64_t) popcount8((uint8_t) q[i + 3 * length] & vd) << 3;
+    }
+    return res;
+}
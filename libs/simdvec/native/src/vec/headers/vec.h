@@ -20,3 +20,5 @@ EXPORT int vec_caps();
 EXPORT int32_t dot7u(int8_t* a, int8_t* b, size_t dims);
 
 EXPORT int32_t sqr7u(int8_t *a, int8_t *b, size_t length);
+
+EXPORT int64_t ipbb4(int8_t *q, int8_t *d, int32_t length);
@@ -23,6 +23,7 @@ public class Similarities {
 
     static final MethodHandle DOT_PRODUCT_7U = DISTANCE_FUNCS.dotProductHandle7u();
     static final MethodHandle SQUARE_DISTANCE_7U = DISTANCE_FUNCS.squareDistanceHandle7u();
+    static final MethodHandle IP_BYTE_BIN_BYTE = DISTANCE_FUNCS.ipByteBinByteHandle();
 
     static int dotProduct7u(MemorySegment a, MemorySegment b, int length) {
         try {
@@ -38,6 +39,29 @@ public class Similarities {
         }
     }
 
+    /**
+     * Computes the inner product of a 4-bit query vector and a 1-bit document vector with the native library. Callers must check
+     * that the native library provides it with {@link #hasIpByteBinByte()}.
+     */
+    public static long ipByteBinByte(MemorySegment q, MemorySegment d, int length) {
+        try {
+            return (long) IP_BYTE_BIN_BYTE.invokeExact(q, d, length);
+        } catch (Throwable e) {
+            if (e instanceof Error err) {
+                throw err;
+            } else if (e instanceof RuntimeException re) {
+                throw re;
+            } else {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /** Whether the native library can compute {@link #ipByteBinByte}. */
+    public static boolean hasIpByteBinByte() {
+        return IP_BYTE_BIN_BYTE != null;
+    }
+
     static int squareDistance7u(MemorySegment a, MemorySegment b, int length) {
         try {
             return (int) SQUARE_DISTANCE_7U.invokeExact(a, b, length);
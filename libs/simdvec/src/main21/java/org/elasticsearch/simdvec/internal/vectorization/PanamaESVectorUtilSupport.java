@@ -17,6 +17,10 @@ import jdk.incubator.vector.VectorShape;
 import jdk.incubator.vector.VectorSpecies;
 
 import org.apache.lucene.util.Constants;
+import org.elasticsearch.nativeaccess.NativeAccess;
+import org.elasticsearch.simdvec.internal.Similarities;
+
+import java.lang.foreign.MemorySegment;
 
 public final class PanamaESVectorUtilSupport implements ESVectorUtilSupport {
 
@@ -25,6 +29,12 @@ public final class PanamaESVectorUtilSupport implements ESVectorUtilSupport {
     /** Whether integer vectors can be trusted to actually be fast. */
     static final boolean HAS_FAST_INTEGER_VECTORS;
 
+    /**
+     * Whether {@link #ipByteBinByte} uses the native kernel. Foreign calls can only read heap arrays since Java 22, and older
+     * native libraries don't provide it.
+     */
+    static final boolean HAS_NATIVE_IP_BYTE_BIN;
+
     static {
         // default to platform supported bitsize
         VECTOR_BITSIZE = VectorShape.preferredShape().vectorBitSize();
@@ -33,11 +43,18 @@ public final class PanamaESVectorUtilSupport implements ESVectorUtilSupport {
         // to be fair, they do document this thing only works well with AVX2/AVX3 and Neon
         boolean isAMD64withoutAVX2 = Constants.OS_ARCH.equals("amd64") && VECTOR_BITSIZE < 256;
         HAS_FAST_INTEGER_VECTORS = isAMD64withoutAVX2 == false;
+
+        HAS_NATIVE_IP_BYTE_BIN = Runtime.version().feature() >= 22
+            && NativeAccess.instance().getVectorSimilarityFunctions().isPresent()
+            && Similarities.hasIpByteBinByte();
     }
 
     @Override
     public long ipByteBinByte(byte[] q, byte[] d) {
         // 128 / 8 == 16
+        if (d.length >= 16 && HAS_NATIVE_IP_BYTE_BIN) {
+            return Similarities.ipByteBinByte(MemorySegment.ofArray(q), MemorySegment.ofArray(d), d.length);
+        }
         if (d.length >= 16 && HAS_FAST_INTEGER_VECTORS) {
             if (VECTOR_BITSIZE >= 256) {
                 return ipByteBin256(q, d);
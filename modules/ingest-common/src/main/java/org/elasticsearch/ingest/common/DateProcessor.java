@@ -48,6 +48,9 @@ public final class DateProcessor extends AbstractProcessor {
     private final String targetField;
     private final List<String> formats;
     private final List<BiFunction<ZoneId, Locale, Function<String, ZonedDateTime>>> dateParsers;
+    // the parsers to use for every document, or null if they depend on the document's timezone or locale
+    @Nullable
+    private final List<Function<String, ZonedDateTime>> constantDateParsers;
     private final String outputFormat;
 
     DateProcessor(
@@ -89,10 +92,46 @@ public final class DateProcessor extends AbstractProcessor {
                 )
             );
         }
+        this.constantDateParsers = resolveConstantDateParsers(timezone, locale, dateParsers);
         this.outputFormat = outputFormat;
         formatter = DateFormatter.forPattern(this.outputFormat);
     }
 
+    /**
+     * When neither the timezone nor the locale are templated, the parsers are the same for every document and are resolved here once,
+     * instead of rendering both properties and looking up each parser in the cache for every document. Returns null if the parsers
+     * depend on the document, or if any of them cannot be resolved so that the per-document path reports the failure as before.
+     */
+    @Nullable
+    private static List<Function<String, ZonedDateTime>> resolveConstantDateParsers(
+        @Nullable TemplateScript.Factory timezone,
+        @Nullable TemplateScript.Factory locale,
+        List<BiFunction<ZoneId, Locale, Function<String, ZonedDateTime>>> dateParsers
+    ) {
+        if (isConstant(timezone) == false || isConstant(locale) == false) {
+            return null;
+        }
+        try {
+            ZoneId constantTimezone = newDateTimeZone(timezone == null ? null : constantValue(timezone));
+            Locale constantLocale = newLocale(locale == null ? null : constantValue(locale));
+            List<Function<String, ZonedDateTime>> parsers = new ArrayList<>(dateParsers.size());
+            for (BiFunction<ZoneId, Locale, Function<String, ZonedDateTime>> dateParser : dateParsers) {
+                parsers.add(dateParser.apply(constantTimezone, constantLocale));
+            }
+            return List.copyOf(parsers);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static boolean isConstant(@Nullable TemplateScript.Factory template) {
+        return template == null || template instanceof ConfigurationUtils.ConstantTemplateScriptFactory;
+    }
+
+    private static String constantValue(TemplateScript.Factory template) {
+        return ((ConfigurationUtils.ConstantTemplateScriptFactory) template).value();
+    }
+
     private static ZoneId newDateTimeZone(String timezone) {
         return timezone == null ? ZoneOffset.UTC : ZoneId.of(timezone);
     }
@@ -110,6 +149,21 @@ public final class DateProcessor extends AbstractProcessor {
             value = obj.toString();
         }
 
+        if (constantDateParsers != null) {
+            ZonedDateTime dateTime = null;
+            Exception lastException = null;
+            for (Function<String, ZonedDateTime> dateParser : constantDateParsers) {
+                try {
+                    dateTime = dateParser.apply(value);
+                    break;
+                } catch (Exception e) {
+                    // try the next parser and keep track of the exceptions
+                    lastException = ExceptionsHelper.useOrSuppress(lastException, e);
+                }
+            }
+            return setDate(ingestDocument, value, dateTime, lastException);
+        }
+
         // run (potential) mustache application just a single time for this document in order to
         // extract the timezone and locale to use for date parsing
         final ZoneId documentTimezone;
@@ -134,6 +188,10 @@ public final class DateProcessor extends AbstractProcessor {
             }
         }
 
+        return setDate(ingestDocument, value, dateTime, lastException);
+    }
+
+    private IngestDocument setDate(IngestDocument ingestDocument, String value, ZonedDateTime dateTime, Exception lastException) {
         if (dateTime == null) {
             throw new IllegalArgumentException("unable to parse date [" + value + "]", lastException);
         }
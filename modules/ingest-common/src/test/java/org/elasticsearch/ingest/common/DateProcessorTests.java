@@ -10,6 +10,7 @@
 package org.elasticsearch.ingest.common;
 
 import org.elasticsearch.core.Strings;
+import org.elasticsearch.ingest.ConfigurationUtils;
 import org.elasticsearch.ingest.IngestDocument;
 import org.elasticsearch.ingest.RandomDocumentPicks;
 import org.elasticsearch.ingest.TestTemplateService;
@@ -64,6 +65,34 @@ public class DateProcessorTests extends ESTestCase {
         assertThat(ingestDocument.getFieldValue("date_as_date", String.class), equalTo("2010-06-12T11:05:15.000+02:00"));
     }
 
+    public void testJavaPatternConstantTimezoneAndLocale() {
+        assumeFalse("Can't run in a FIPS JVM, Joda parse date error", inFipsJvm());
+        DateProcessor dateProcessor = new DateProcessor(
+            randomAlphaOfLength(10),
+            null,
+            new ConfigurationUtils.ConstantTemplateScriptFactory("Europe/Amsterdam"),
+            new ConfigurationUtils.ConstantTemplateScriptFactory("it"),
+            "date_as_string",
+            List.of("yyyy dd MMMM", "yyyy dd MM HH:mm:ss"),
+            "date_as_date"
+        );
+        Map<String, Object> document = new HashMap<>();
+        document.put("date_as_string", "2010 12 giugno");
+        IngestDocument ingestDocument = RandomDocumentPicks.randomIngestDocument(random(), document);
+        dateProcessor.execute(ingestDocument);
+        assertThat(ingestDocument.getFieldValue("date_as_date", String.class), equalTo("2010-06-12T00:00:00.000+02:00"));
+
+        document.put("date_as_string", "2010 12 06 11:05:15");
+        ingestDocument = RandomDocumentPicks.randomIngestDocument(random(), document);
+        dateProcessor.execute(ingestDocument);
+        assertThat(ingestDocument.getFieldValue("date_as_date", String.class), equalTo("2010-06-12T11:05:15.000+02:00"));
+
+        document.put("date_as_string", "not a date");
+        IngestDocument invalidDocument = RandomDocumentPicks.randomIngestDocument(random(), document);
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class, () -> dateProcessor.execute(invalidDocument));
+        assertThat(e.getMessage(), equalTo("unable to parse date [not a date]"));
+    }
+
     public void testJavaPatternMultipleFormats() {
         List<String> matchFormats = new ArrayList<>();
         matchFormats.add("yyyy dd MM");
@@ -15,6 +15,7 @@ import org.elasticsearch.common.logging.DeprecationLogger;
 import org.elasticsearch.core.Assertions;
 import org.elasticsearch.core.Strings;
 import org.elasticsearch.ingest.AbstractProcessor;
+import org.elasticsearch.ingest.BatchProcessor;
 import org.elasticsearch.ingest.IngestDocument;
 import org.elasticsearch.ingest.Processor;
 import org.elasticsearch.ingest.geoip.Database.Property;
@@ -33,7 +34,7 @@ import static org.elasticsearch.ingest.ConfigurationUtils.readBooleanProperty;
 import static org.elasticsearch.ingest.ConfigurationUtils.readOptionalList;
 import static org.elasticsearch.ingest.ConfigurationUtils.readStringProperty;
 
-public final class GeoIpProcessor extends AbstractProcessor {
+public final class GeoIpProcessor extends AbstractProcessor implements BatchProcessor {
 
     private static final DeprecationLogger deprecationLogger = DeprecationLogger.getLogger(GeoIpProcessor.class);
     static final String UNSUPPORTED_DATABASE_DEPRECATION_MESSAGE = "the geoip processor will no longer support database type [{}] "
@@ -108,45 +109,94 @@ public final class GeoIpProcessor extends AbstractProcessor {
         }
 
         try (IpDatabase ipDatabase = this.supplier.get()) {
-            if (ipDatabase == null) {
-                if (ignoreMissing == false) {
-                    tag(document, type, databaseFile);
+            return lookup(document, ip, ipDatabase);
+        }
+    }
+
+    /**
+     * Checks the validity of the database and acquires it once for the whole batch, rather than once per document.
+     */
+    @Override
+    public void executeBatch(List<IngestDocument> documents, IngestDocument[] results, Exception[] failures) {
+        final boolean valid = isValid.get();
+        IpDatabase ipDatabase = null;
+        boolean acquired = false;
+        int lastLookup = -1;
+        try {
+            for (int i = 0; i < documents.size(); i++) {
+                IngestDocument document = documents.get(i);
+                try {
+                    Object ip = document.getFieldValue(field, Object.class, ignoreMissing);
+                    if (valid == false) {
+                        document.appendFieldValue("tags", "_" + type + "_expired_database", false);
+                        results[i] = document;
+                    } else if (ip == null && ignoreMissing) {
+                        results[i] = document;
+                    } else if (ip == null) {
+                        throw new IllegalArgumentException("field [" + field + "] is null, cannot extract geoip information.");
+                    } else {
+                        if (acquired == false) {
+                            ipDatabase = this.supplier.get();
+                            acquired = true;
+                        }
+                        lastLookup = i;
+                        results[i] = lookup(document, ip, ipDatabase);
+                    }
+                } catch (Exception e) {
+                    failures[i] = e;
+                }
+            }
+        } finally {
+            if (ipDatabase != null) {
+                try {
+                    ipDatabase.close();
+                } catch (IOException e) {
+                    // like in execute, the failure to release the database fails the document that released it
+                    results[lastLookup] = null;
+                    failures[lastLookup] = e;
                 }
-                return document;
             }
+        }
+    }
 
-            if (ip instanceof String ipString) {
-                Map<String, Object> data = ipDataLookup.getData(ipDatabase, ipString);
-                if (data.isEmpty() == false) {
-                    document.setFieldValue(targetField, data);
+    private IngestDocument lookup(IngestDocument document, Object ip, IpDatabase ipDatabase) throws IOException {
+        if (ipDatabase == null) {
+            if (ignoreMissing == false) {
+                tag(document, type, databaseFile);
+            }
+            return document;
+        }
+
+        if (ip instanceof String ipString) {
+            Map<String, Object> data = ipDataLookup.getData(ipDatabase, ipString);
+            if (data.isEmpty() == false) {
+                document.setFieldValue(targetField, data);
+            }
+        } else if (ip instanceof List<?> ipList) {
+            boolean match = false;
+            List<Map<String, Object>> dataList = new ArrayList<>(ipList.size());
+            for (Object ipAddr : ipList) {
+                if (ipAddr instanceof String == false) {
+                    throw new IllegalArgumentException("array in field [" + field + "] should only contain strings");
                 }
-            } else if (ip instanceof List<?> ipList) {
-                boolean match = false;
-                List<Map<String, Object>> dataList = new ArrayList<>(ipList.size());
-                for (Object ipAddr : ipList) {
-                    if (ipAddr instanceof String == false) {
-                        throw new IllegalArgumentException("array in field [" + field + "] should only contain strings");
-                    }
-                    Map<String, Object> data = ipDataLookup.getData(ipDatabase, (String) ipAddr);
-                    if (data.isEmpty()) {
-                        dataList.add(null);
-                        continue;
-                    }
-                    if (firstOnly) {
-                        document.setFieldValue(targetField, data);
-                        return document;
-                    }
-                    match = true;
-                    dataList.add(data);
+                Map<String, Object> data = ipDataLookup.getData(ipDatabase, (String) ipAddr);
+                if (data.isEmpty()) {
+                    dataList.add(null);
+                    continue;
                 }
-                if (match) {
-                    document.setFieldValue(targetField, dataList);
+                if (firstOnly) {
+                    document.setFieldValue(targetField, data);
+                    return document;
                 }
-            } else {
-                throw new IllegalArgumentException("field [" + field + "] should contain only string or array of strings");
+                match = true;
+                dataList.add(data);
             }
+            if (match) {
+                document.setFieldValue(targetField, dataList);
+            }
+        } else {
+            throw new IllegalArgumentException("field [" + field + "] should contain only string or array of strings");
         }
-
         return document;
     }
 
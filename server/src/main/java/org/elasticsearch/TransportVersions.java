@@ -204,6 +204,13 @@ public class TransportVersions {
     public static final TransportVersion FAST_REFRESH_RCO_2 = def(8_795_00_0);
     public static final TransportVersion ESQL_ENRICH_RUNTIME_WARNINGS = def(8_796_00_0);
     public static final TransportVersion INGEST_PIPELINE_CONFIGURATION_AS_MAP = def(8_797_00_0);
+    public static final TransportVersion CAN_MATCH_SHARD_FIELD_SUMMARY = def(8_798_00_0);
+    public static final TransportVersion NODE_STATS_SEARCH_ADMISSION = def(8_799_00_0);
+    public static final TransportVersion COLLAPSE_BATCHED_EXPANSION = def(8_800_00_0);
+    public static final TransportVersion KNN_FILTER_STRATEGY_PROFILE = def(8_801_00_0);
+    public static final TransportVersion MAX_SIM_QUERY = def(8_802_00_0);
+    public static final TransportVersion KNN_RESCORE_VECTOR = def(8_803_00_0);
+    public static final TransportVersion ID_FILTER_MEMORY_STATS = def(8_804_00_0);
 
     /*
      * STOP! READ THIS FIRST! No, really,
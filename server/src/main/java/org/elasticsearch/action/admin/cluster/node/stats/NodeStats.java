@@ -33,6 +33,7 @@ import org.elasticsearch.node.AdaptiveSelectionStats;
 import org.elasticsearch.repositories.RepositoriesStats;
 import org.elasticsearch.script.ScriptCacheStats;
 import org.elasticsearch.script.ScriptStats;
+import org.elasticsearch.search.SearchAdmissionStats;
 import org.elasticsearch.threadpool.ThreadPoolStats;
 import org.elasticsearch.transport.TransportStats;
 import org.elasticsearch.xcontent.ToXContent;
@@ -100,6 +101,9 @@ public class NodeStats extends BaseNodeResponse implements ChunkedToXContent {
     @Nullable
     private final NodeAllocationStats nodeAllocationStats;
 
+    @Nullable
+    private final SearchAdmissionStats searchAdmissionStats;
+
     public NodeStats(StreamInput in) throws IOException {
         super(in);
         timestamp = in.readVLong();
@@ -126,6 +130,9 @@ public class NodeStats extends BaseNodeResponse implements ChunkedToXContent {
         nodeAllocationStats = in.getTransportVersion().onOrAfter(TransportVersions.V_8_14_0)
             ? in.readOptionalWriteable(NodeAllocationStats::new)
             : null;
+        searchAdmissionStats = in.getTransportVersion().onOrAfter(TransportVersions.NODE_STATS_SEARCH_ADMISSION)
+            ? in.readOptionalWriteable(SearchAdmissionStats::new)
+            : null;
     }
 
     public NodeStats(
@@ -147,7 +154,8 @@ public class NodeStats extends BaseNodeResponse implements ChunkedToXContent {
         @Nullable ScriptCacheStats scriptCacheStats,
         @Nullable IndexingPressureStats indexingPressureStats,
         @Nullable RepositoriesStats repositoriesStats,
-        @Nullable NodeAllocationStats nodeAllocationStats
+        @Nullable NodeAllocationStats nodeAllocationStats,
+        @Nullable SearchAdmissionStats searchAdmissionStats
     ) {
         super(node);
         this.timestamp = timestamp;
@@ -168,6 +176,7 @@ public class NodeStats extends BaseNodeResponse implements ChunkedToXContent {
         this.indexingPressureStats = indexingPressureStats;
         this.repositoriesStats = repositoriesStats;
         this.nodeAllocationStats = nodeAllocationStats;
+        this.searchAdmissionStats = searchAdmissionStats;
     }
 
     public NodeStats withNodeAllocationStats(
@@ -193,7 +202,8 @@ public class NodeStats extends BaseNodeResponse implements ChunkedToXContent {
             scriptCacheStats,
             indexingPressureStats,
             repositoriesStats,
-            nodeAllocationStats
+            nodeAllocationStats,
+            searchAdmissionStats
         );
     }
 
@@ -309,6 +319,11 @@ public class NodeStats extends BaseNodeResponse implements ChunkedToXContent {
         return nodeAllocationStats;
     }
 
+    @Nullable
+    public SearchAdmissionStats getSearchAdmissionStats() {
+        return searchAdmissionStats;
+    }
+
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         super.writeTo(out);
@@ -338,6 +353,9 @@ public class NodeStats extends BaseNodeResponse implements ChunkedToXContent {
         if (out.getTransportVersion().onOrAfter(TransportVersions.V_8_14_0)) {
             out.writeOptionalWriteable(nodeAllocationStats);
         }
+        if (out.getTransportVersion().onOrAfter(TransportVersions.NODE_STATS_SEARCH_ADMISSION)) {
+            out.writeOptionalWriteable(searchAdmissionStats);
+        }
     }
 
     @Override
@@ -381,6 +399,7 @@ public class NodeStats extends BaseNodeResponse implements ChunkedToXContent {
                 (builder, p) -> builder.value(ifPresent(getIndexingPressureStats()), p)
                     .value(ifPresent(getRepositoriesStats()), p)
                     .value(ifPresent(getNodeAllocationStats()), p)
+                    .value(ifPresent(getSearchAdmissionStats()), p)
             );
     }
 
@@ -165,6 +165,14 @@ public class NodesStatsRequestBuilder extends NodesOperationRequestBuilder<
         return this;
     }
 
+    /**
+     * Should search admission control statistics be returned
+     */
+    public NodesStatsRequestBuilder setSearchAdmission(boolean searchAdmission) {
+        addOrRemoveMetric(searchAdmission, Metric.SEARCH_ADMISSION);
+        return this;
+    }
+
     /**
      * Helper method for adding metrics to a request
      */
@@ -95,7 +95,8 @@ public class NodesStatsRequestParameters implements Writeable {
         SCRIPT_CACHE("script_cache"),
         INDEXING_PRESSURE("indexing_pressure"),
         REPOSITORIES("repositories"),
-        ALLOCATIONS("allocations");
+        ALLOCATIONS("allocations"),
+        SEARCH_ADMISSION("search_admission");
 
         public static final Set<Metric> ALL = Collections.unmodifiableSet(EnumSet.allOf(Metric.class));
         public static final Set<String> ALL_NAMES = ALL.stream().map(Metric::metricName).collect(toUnmodifiableSet());
@@ -117,10 +118,16 @@ public class NodesStatsRequestParameters implements Writeable {
         }
 
         public static void writeSetTo(StreamOutput out, EnumSet<Metric> metrics) throws IOException {
+            EnumSet<Metric> known = metrics;
+            if (out.getTransportVersion().before(TransportVersions.NODE_STATS_SEARCH_ADMISSION) && metrics.contains(SEARCH_ADMISSION)) {
+                // older nodes don't know this metric
+                known = EnumSet.copyOf(metrics);
+                known.remove(SEARCH_ADMISSION);
+            }
             if (out.getTransportVersion().onOrAfter(TransportVersions.NODES_STATS_ENUM_SET)) {
-                out.writeEnumSet(metrics);
+                out.writeEnumSet(known);
             } else {
-                out.writeCollection(metrics, (output, metric) -> output.writeString(metric.metricName));
+                out.writeCollection(known, (output, metric) -> output.writeString(metric.metricName));
             }
         }
 
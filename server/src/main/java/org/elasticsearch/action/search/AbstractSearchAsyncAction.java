@@ -27,8 +27,10 @@ import org.elasticsearch.cluster.routing.GroupShardsIterator;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
 import org.elasticsearch.common.util.concurrent.AtomicArray;
+import org.elasticsearch.core.Nullable;
 import org.elasticsearch.core.Releasable;
 import org.elasticsearch.core.Releasables;
+import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.search.SearchContextMissingException;
 import org.elasticsearch.search.SearchPhaseResult;
@@ -40,6 +42,7 @@ import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.search.internal.ShardSearchContextId;
 import org.elasticsearch.search.internal.ShardSearchRequest;
 import org.elasticsearch.tasks.TaskCancelledException;
+import org.elasticsearch.threadpool.Scheduler;
 import org.elasticsearch.transport.Transport;
 
 import java.util.ArrayList;
@@ -105,6 +108,10 @@ abstract class AbstractSearchAsyncAction<Result extends SearchPhaseResult> exten
     private final Map<String, PendingExecutions> pendingExecutionsPerNode = new ConcurrentHashMap<>();
     private final boolean throttleConcurrentRequests;
     private final AtomicBoolean requestCancelled = new AtomicBoolean();
+    @Nullable
+    private final ShardRequestHedging hedging;
+    @Nullable
+    private final HedgedShard[] hedgedShards;
 
     // protected for tests
     protected final List<Releasable> releasables = new ArrayList<>();
@@ -127,6 +134,48 @@ abstract class AbstractSearchAsyncAction<Result extends SearchPhaseResult> exten
         SearchPhaseResults<Result> resultConsumer,
         int maxConcurrentRequestsPerNode,
         SearchResponse.Clusters clusters
+    ) {
+        this(
+            name,
+            logger,
+            namedWriteableRegistry,
+            searchTransportService,
+            nodeIdToConnection,
+            aliasFilter,
+            concreteIndexBoosts,
+            executor,
+            request,
+            listener,
+            shardsIts,
+            timeProvider,
+            clusterState,
+            task,
+            resultConsumer,
+            maxConcurrentRequestsPerNode,
+            clusters,
+            null
+        );
+    }
+
+    AbstractSearchAsyncAction(
+        String name,
+        Logger logger,
+        NamedWriteableRegistry namedWriteableRegistry,
+        SearchTransportService searchTransportService,
+        BiFunction<String, String, Transport.Connection> nodeIdToConnection,
+        Map<String, AliasFilter> aliasFilter,
+        Map<String, Float> concreteIndexBoosts,
+        Executor executor,
+        SearchRequest request,
+        ActionListener<SearchResponse> listener,
+        GroupShardsIterator<SearchShardIterator> shardsIts,
+        SearchTimeProvider timeProvider,
+        ClusterState clusterState,
+        SearchTask task,
+        SearchPhaseResults<Result> resultConsumer,
+        int maxConcurrentRequestsPerNode,
+        SearchResponse.Clusters clusters,
+        @Nullable ShardRequestHedging hedging
     ) {
         super(name);
         this.namedWriteableRegistry = namedWriteableRegistry;
@@ -179,6 +228,15 @@ abstract class AbstractSearchAsyncAction<Result extends SearchPhaseResult> exten
         // at the end of the search
         addReleasable(resultConsumer);
         this.clusters = clusters;
+        this.hedging = hedging;
+        if (hedging != null) {
+            this.hedgedShards = new HedgedShard[shardIterators.length];
+            for (int i = 0; i < hedgedShards.length; i++) {
+                hedgedShards[i] = new HedgedShard();
+            }
+        } else {
+            this.hedgedShards = null;
+        }
     }
 
     protected void notifyListShards(
@@ -287,23 +345,37 @@ abstract class AbstractSearchAsyncAction<Result extends SearchPhaseResult> exten
     }
 
     protected void performPhaseOnShard(final int shardIndex, final SearchShardIterator shardIt, final SearchShardTarget shard) {
+        final Object attempt = hedgedShards == null ? null : hedgedShards[shardIndex].startAttempt();
+        performPhaseOnShard(shardIndex, shardIt, shard, attempt);
+    }
+
+    private void performPhaseOnShard(int shardIndex, SearchShardIterator shardIt, SearchShardTarget shard, @Nullable Object attempt) {
         if (throttleConcurrentRequests) {
             var pendingExecutions = pendingExecutionsPerNode.computeIfAbsent(
                 shard.getNodeId(),
                 n -> new PendingExecutions(maxConcurrentRequestsPerNode)
             );
-            pendingExecutions.submit(l -> doPerformPhaseOnShard(shardIndex, shardIt, shard, l));
+            pendingExecutions.submit(l -> doPerformPhaseOnShard(shardIndex, shardIt, shard, attempt, l));
         } else {
-            doPerformPhaseOnShard(shardIndex, shardIt, shard, () -> {});
+            doPerformPhaseOnShard(shardIndex, shardIt, shard, attempt, () -> {});
         }
     }
 
-    private void doPerformPhaseOnShard(int shardIndex, SearchShardIterator shardIt, SearchShardTarget shard, Releasable releasable) {
+    private void doPerformPhaseOnShard(
+        int shardIndex,
+        SearchShardIterator shardIt,
+        SearchShardTarget shard,
+        @Nullable Object attempt,
+        Releasable releasable
+    ) {
         var shardListener = new SearchActionListener<Result>(shard, shardIndex) {
             @Override
             public void innerOnResponse(Result result) {
                 try {
                     releasable.close();
+                    if (attempt != null && onHedgedShardResult(shardIndex, attempt, result) == false) {
+                        return;
+                    }
                     onShardResult(result, shardIt);
                 } catch (Exception exc) {
                     onShardFailure(shardIndex, shard, shardIt, exc);
@@ -313,6 +385,9 @@ abstract class AbstractSearchAsyncAction<Result extends SearchPhaseResult> exten
             @Override
             public void onFailure(Exception e) {
                 releasable.close();
+                if (attempt != null && onHedgedShardFailure(shardIndex, attempt, shard, e) == false) {
+                    return;
+                }
                 onShardFailure(shardIndex, shard, shardIt, e);
             }
         };
@@ -323,9 +398,99 @@ abstract class AbstractSearchAsyncAction<Result extends SearchPhaseResult> exten
             shardListener.onFailure(e);
             return;
         }
+        if (attempt != null) {
+            maybeScheduleHedge(shardIndex, shardIt, shard, attempt);
+        }
         executePhaseOnShard(shardIt, connection, shardListener);
     }
 
+    /**
+     * Schedules sending the request to another copy of the shard if the given attempt takes longer than the node it was
+     * sent to usually does to respond.
+     */
+    private void maybeScheduleHedge(int shardIndex, SearchShardIterator shardIt, SearchShardTarget shard, Object attempt) {
+        final TimeValue delay = hedging.hedgeDelay(shard.getNodeId());
+        if (delay == null) {
+            return;
+        }
+        final HedgedShard hedgedShard = hedgedShards[shardIndex];
+        synchronized (hedgedShard) {
+            if (hedgedShard.canHedge(attempt) && hedgedShard.scheduledHedge == null && shardIt.remaining() > 0) {
+                hedgedShard.scheduledHedge = hedging.schedule(() -> hedge(shardIndex, shardIt, shard, attempt), delay);
+            }
+        }
+    }
+
+    private void hedge(int shardIndex, SearchShardIterator shardIt, SearchShardTarget slowShard, Object slowAttempt) {
+        final HedgedShard hedgedShard = hedgedShards[shardIndex];
+        final SearchShardTarget nextShard;
+        final Object attempt;
+        synchronized (hedgedShard) {
+            hedgedShard.scheduledHedge = null;
+            if (hedgedShard.canHedge(slowAttempt) == false || requestCancelled.get()) {
+                return;
+            }
+            nextShard = shardIt.nextOrNull();
+            if (nextShard == null) {
+                return;
+            }
+            hedgedShard.hedged = true;
+            attempt = hedgedShard.startAttempt();
+        }
+        logger.debug("{}: no response from [{}] yet, also sending [{}] to {}", slowShard.getShardId(), slowShard, getName(), nextShard);
+        performPhaseOnShard(shardIndex, shardIt, nextShard, attempt);
+    }
+
+    /**
+     * Returns whether the given result is the first one for its shard and should be processed. Results of copies that
+     * lost the race against a hedged request are discarded and their search contexts released.
+     */
+    private boolean onHedgedShardResult(int shardIndex, Object attempt, Result result) {
+        final int discardedAttempts = hedgedShards[shardIndex].onResult(attempt);
+        if (discardedAttempts < 0) {
+            logger.trace("discarding result of {} since another copy of the shard answered first", result.getSearchShardTarget());
+            if (result.getContextId() != null && isPartOfPointInTime(result.getContextId()) == false) {
+                try {
+                    SearchShardTarget shardTarget = result.getSearchShardTarget();
+                    Transport.Connection connection = getConnection(shardTarget.getClusterAlias(), shardTarget.getNodeId());
+                    sendReleaseSearchContext(result.getContextId(), connection, getOriginalIndices(shardIndex));
+                } catch (Exception e) {
+                    logger.trace("failed to release context", e);
+                }
+            }
+            return false;
+        }
+        if (discardedAttempts > 0) {
+            // the copies that are still running or failed while this one was running no longer count, so account for them now;
+            // this can't complete the phase since the op of the winning copy is only counted once its result is consumed
+            final int xTotalOps = totalOps.addAndGet(discardedAttempts);
+            assert xTotalOps < expectedTotalOps : "unexpected total ops [" + xTotalOps + "] expected less than [" + expectedTotalOps + "]";
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether the given failure should be handled as usual, that is by moving on to the next copy of the shard. This
+     * is not the case if another copy of the shard is still working on the request or has already answered it: the failure
+     * is then left to that copy, which accounts for it once it ends the shard, and is only recorded if that copy fails too.
+     */
+    private boolean onHedgedShardFailure(int shardIndex, Object attempt, SearchShardTarget shard, Exception e) {
+        final List<FailedAttempt> earlierFailures = hedgedShards[shardIndex].onFailure(attempt, shard, e);
+        if (earlierFailures == null) {
+            logger.debug(() -> format("%s: Failed to execute [%s] while another copy is running or has answered", shard, request), e);
+            return false;
+        }
+        if (earlierFailures.isEmpty() == false) {
+            for (FailedAttempt failedAttempt : earlierFailures) {
+                onShardFailure(shardIndex, failedAttempt.shard(), failedAttempt.failure());
+            }
+            // the op of this attempt is only counted by the usual failure handling, so this can't complete the phase
+            final int xTotalOps = totalOps.addAndGet(earlierFailures.size());
+            assert xTotalOps < expectedTotalOps : "unexpected total ops [" + xTotalOps + "] expected less than [" + expectedTotalOps + "]";
+        }
+        return true;
+    }
+
     private void failOnUnavailable(int shardIndex, SearchShardIterator shardIt) {
         assert assertExecuteOnStartThread();
         SearchShardTarget unassignedShard = new SearchShardTarget(null, shardIt.shardId(), shardIt.getClusterAlias());
@@ -806,6 +971,74 @@ abstract class AbstractSearchAsyncAction<Result extends SearchPhaseResult> exten
      */
     protected abstract SearchPhase getNextPhase();
 
+    /**
+     * Tracks the requests that are in flight for a single shard when hedging is enabled. Each request to a copy of the shard
+     * is an attempt; the first attempt to return a result wins and any other attempt that is still running is discarded.
+     */
+    private static final class HedgedShard {
+        private final List<Object> inFlight = new ArrayList<>(2);
+        private final List<FailedAttempt> failedAttempts = new ArrayList<>(1);
+        private boolean hedged;
+        private Scheduler.ScheduledCancellable scheduledHedge;
+
+        synchronized Object startAttempt() {
+            final Object attempt = new Object();
+            inFlight.add(attempt);
+            return attempt;
+        }
+
+        /**
+         * Whether another copy may still be asked on behalf of the given attempt, which is the case if it is the only one
+         * in flight and this shard has not been hedged yet.
+         */
+        synchronized boolean canHedge(Object attempt) {
+            return hedged == false && inFlight.size() == 1 && inFlight.get(0) == attempt;
+        }
+
+        /**
+         * Returns the number of attempts discarded in favour of the given successful attempt, including the attempts that
+         * failed while it was running, or {@code -1} if the given attempt was discarded itself.
+         */
+        synchronized int onResult(Object attempt) {
+            if (inFlight.remove(attempt) == false) {
+                return -1;
+            }
+            final int discarded = inFlight.size() + failedAttempts.size();
+            inFlight.clear();
+            failedAttempts.clear();
+            cancelScheduledHedge();
+            return discarded;
+        }
+
+        /**
+         * Returns the attempts that failed earlier while the given failed attempt was running, which the caller must now
+         * account for, or {@code null} if the given attempt was discarded already or another attempt is still in flight and
+         * will account for the given one once it ends.
+         */
+        synchronized List<FailedAttempt> onFailure(Object attempt, SearchShardTarget shard, Exception e) {
+            if (inFlight.remove(attempt) == false) {
+                return null;
+            }
+            if (inFlight.isEmpty() == false) {
+                failedAttempts.add(new FailedAttempt(shard, e));
+                return null;
+            }
+            cancelScheduledHedge();
+            final List<FailedAttempt> earlierFailures = List.copyOf(failedAttempts);
+            failedAttempts.clear();
+            return earlierFailures;
+        }
+
+        private void cancelScheduledHedge() {
+            if (scheduledHedge != null) {
+                scheduledHedge.cancel();
+                scheduledHedge = null;
+            }
+        }
+    }
+
+    private record FailedAttempt(SearchShardTarget shard, Exception failure) {}
+
     private static final class PendingExecutions {
         private final Semaphore semaphore;
         private final ConcurrentLinkedQueue<Consumer<Releasable>> queue = new ConcurrentLinkedQueue<>();
@@ -22,6 +22,7 @@ import org.elasticsearch.index.query.CoordinatorRewriteContextProvider;
 import org.elasticsearch.search.CanMatchShardResponse;
 import org.elasticsearch.search.SearchService;
 import org.elasticsearch.search.SearchShardTarget;
+import org.elasticsearch.search.ShardFieldSummary;
 import org.elasticsearch.search.internal.AliasFilter;
 import org.elasticsearch.search.internal.ShardSearchRequest;
 import org.elasticsearch.search.sort.FieldSortBuilder;
@@ -158,6 +159,12 @@ final class CanMatchPreFilterSearchPhase {
                     // treat as if shard is still a potential match
                 }
             }
+            if (canMatch && searchShardIterator.getClusterAlias() == null) {
+                final ShardFieldSummary fieldSummary = coordinatorRewriteContextProvider.getShardFieldSummary(request.shardId());
+                if (fieldSummary != null) {
+                    canMatch = fieldSummary.canMatch(request);
+                }
+            }
             if (canMatch) {
                 matchedShardLevelRequests.add(searchShardIterator);
             } else {
@@ -244,6 +251,12 @@ final class CanMatchPreFilterSearchPhase {
                                 CanMatchNodeResponse.ResponseOrFailure response = canMatchNodeResponse.getResponses().get(i);
                                 if (response.getResponse() != null) {
                                     CanMatchShardResponse shardResponse = response.getResponse();
+                                    if (shardResponse.fieldSummary() != null && entry.getKey().clusterAlias == null) {
+                                        coordinatorRewriteContextProvider.putShardFieldSummary(
+                                            shardLevelRequests.get(i).shardId(),
+                                            shardResponse.fieldSummary()
+                                        );
+                                    }
                                     shardResponse.setShardIndex(shardLevelRequests.get(i).getShardRequestIndex());
                                     onOperation(shardResponse.getShardIndex(), shardResponse);
                                 } else {
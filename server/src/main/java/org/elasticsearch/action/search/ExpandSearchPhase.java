@@ -18,11 +18,23 @@ import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHits;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.bucket.missing.Missing;
+import org.elasticsearch.search.aggregations.bucket.missing.MissingAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.elasticsearch.search.aggregations.bucket.terms.TermsAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.TopHits;
+import org.elasticsearch.search.aggregations.metrics.TopHitsAggregationBuilder;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.collapse.CollapseBuilder;
 
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.function.Supplier;
 
 /**
@@ -31,6 +43,10 @@ import java.util.function.Supplier;
  * forwards to the next phase immediately.
  */
 final class ExpandSearchPhase extends SearchPhase {
+    static final String GROUPS_AGG = "groups";
+    static final String MISSING_GROUP_AGG = "missing_group";
+    static final String INNER_HITS_AGG_PREFIX = "inner_hits_";
+
     private final AbstractSearchAsyncAction<?> context;
     private final SearchHits searchHits;
     private final Supplier<SearchPhase> nextPhase;
@@ -62,6 +78,14 @@ final class ExpandSearchPhase extends SearchPhase {
     private void doRun() {
         SearchRequest searchRequest = context.getRequest();
         CollapseBuilder collapseBuilder = searchRequest.source().collapse();
+        if (collapseBuilder.isBatchedExpansion() && canExpandInBatch(collapseBuilder.getInnerHits())) {
+            expandInBatch(searchRequest, collapseBuilder);
+        } else {
+            expandPerGroup(searchRequest, collapseBuilder);
+        }
+    }
+
+    private void expandPerGroup(SearchRequest searchRequest, CollapseBuilder collapseBuilder) {
         final List<InnerHitBuilder> innerHitBuilders = collapseBuilder.getInnerHits();
         MultiSearchRequest multiRequest = new MultiSearchRequest();
         if (collapseBuilder.getMaxConcurrentGroupRequests() > 0) {
@@ -85,15 +109,7 @@ final class ExpandSearchPhase extends SearchPhase {
                     .postFilter(searchRequest.source().postFilter())
                     .runtimeMappings(searchRequest.source().runtimeMappings())
                     .pointInTimeBuilder(searchRequest.source().pointInTimeBuilder());
-                SearchRequest groupRequest = new SearchRequest(searchRequest);
-                if (searchRequest.pointInTimeBuilder() != null) {
-                    // if the original request has a point in time, we propagate it to the inner search request
-                    // and clear the indices and preference from the inner search request
-                    groupRequest.indices(Strings.EMPTY_ARRAY);
-                    groupRequest.preference(null);
-                }
-                groupRequest.source(sourceBuilder);
-                multiRequest.add(groupRequest);
+                multiRequest.add(buildExpandSearchRequest(searchRequest, sourceBuilder));
             }
         }
         context.getSearchTransport().sendExecuteMultiSearch(multiRequest, context.getTask(), ActionListener.wrap(response -> {
@@ -105,23 +121,200 @@ final class ExpandSearchPhase extends SearchPhase {
                         context.onPhaseFailure(this, "failed to expand hits", item.getFailure());
                         return;
                     }
-                    SearchHits innerHits = item.getResponse().getHits();
-                    if (hit.getInnerHits() == null) {
-                        hit.setInnerHits(Maps.newMapWithExpectedSize(innerHitBuilders.size()));
-                    }
-                    if (hit.isPooled() == false) {
-                        // TODO: make this work pooled by forcing the hit itself to become pooled as needed here
-                        innerHits = innerHits.asUnpooled();
-                    }
-                    hit.getInnerHits().put(innerHitBuilder.getName(), innerHits);
-                    assert innerHits.isPooled() == false || hit.isPooled() : "pooled inner hits can only be added to a pooled hit";
-                    innerHits.mustIncRef();
+                    addInnerHits(hit, innerHitBuilders.size(), innerHitBuilder.getName(), item.getResponse().getHits());
                 }
             }
             onPhaseDone();
         }, context::onFailure));
     }
 
+    /**
+     * Inner collapsing can't be expressed with a top hits aggregation, groups with inner collapsing are always expanded one by one.
+     */
+    private static boolean canExpandInBatch(List<InnerHitBuilder> innerHitBuilders) {
+        for (InnerHitBuilder innerHitBuilder : innerHitBuilders) {
+            if (innerHitBuilder.getInnerCollapseBuilder() != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Expands all groups with a single search that matches the documents of all groups and collects the top hits of every group
+     * with a {@code terms} aggregation on the collapse field and a {@code top_hits} sub-aggregation per inner hits definition.
+     * Each shard receives all group keys at once and returns the expanded hits of all groups together. If the search fails or
+     * doesn't return hits for one of the groups, the groups are expanded one by one instead.
+     */
+    private void expandInBatch(SearchRequest searchRequest, CollapseBuilder collapseBuilder) {
+        final String field = collapseBuilder.getField();
+        final List<InnerHitBuilder> innerHitBuilders = collapseBuilder.getInnerHits();
+        Set<Object> groupValues = new LinkedHashSet<>();
+        boolean hasMissingGroup = false;
+        for (SearchHit hit : searchHits.getHits()) {
+            Object collapseValue = hit.field(field).getValue();
+            if (collapseValue != null) {
+                groupValues.add(collapseValue);
+            } else {
+                hasMissingGroup = true;
+            }
+        }
+        BoolQueryBuilder groupsQuery = new BoolQueryBuilder().minimumShouldMatch(1);
+        SearchSourceBuilder sourceBuilder = new SearchSourceBuilder().size(0)
+            .trackTotalHits(false)
+            .runtimeMappings(searchRequest.source().runtimeMappings())
+            .pointInTimeBuilder(searchRequest.source().pointInTimeBuilder());
+        if (groupValues.isEmpty() == false) {
+            groupsQuery.should(QueryBuilders.termsQuery(field, groupValues));
+            TermsAggregationBuilder groups = AggregationBuilders.terms(GROUPS_AGG)
+                .field(field)
+                .size(groupValues.size())
+                .shardSize(groupValues.size());
+            for (int i = 0; i < innerHitBuilders.size(); i++) {
+                groups.subAggregation(buildExpandTopHits(INNER_HITS_AGG_PREFIX + i, innerHitBuilders.get(i)));
+            }
+            sourceBuilder.aggregation(groups);
+        }
+        if (hasMissingGroup) {
+            groupsQuery.should(new BoolQueryBuilder().mustNot(QueryBuilders.existsQuery(field)));
+            MissingAggregationBuilder missingGroup = AggregationBuilders.missing(MISSING_GROUP_AGG).field(field);
+            for (int i = 0; i < innerHitBuilders.size(); i++) {
+                missingGroup.subAggregation(buildExpandTopHits(INNER_HITS_AGG_PREFIX + i, innerHitBuilders.get(i)));
+            }
+            sourceBuilder.aggregation(missingGroup);
+        }
+        BoolQueryBuilder query = new BoolQueryBuilder().filter(groupsQuery);
+        QueryBuilder origQuery = searchRequest.source().query();
+        if (origQuery != null) {
+            query.must(origQuery);
+        }
+        if (searchRequest.source().postFilter() != null) {
+            // the batched search has no aggregations of its own that the post filter must not apply to
+            query.filter(searchRequest.source().postFilter());
+        }
+        sourceBuilder.query(query);
+        MultiSearchRequest multiRequest = new MultiSearchRequest();
+        multiRequest.add(buildExpandSearchRequest(searchRequest, sourceBuilder));
+        context.getSearchTransport().sendExecuteMultiSearch(multiRequest, context.getTask(), ActionListener.wrap(response -> {
+            MultiSearchResponse.Item item = response.getResponses()[0];
+            if (item.isFailure()
+                || item.getResponse().getFailedShards() > 0
+                || addBatchedInnerHits(field, innerHitBuilders, item.getResponse().getAggregations()) == false) {
+                expandPerGroup(searchRequest, collapseBuilder);
+            } else {
+                onPhaseDone();
+            }
+        }, e -> expandPerGroup(searchRequest, collapseBuilder)));
+    }
+
+    /**
+     * Adds the inner hits of the batched expansion to the collapsed hits, returns {@code false} without adding any inner hits if
+     * the hits of a group are missing.
+     */
+    private boolean addBatchedInnerHits(String field, List<InnerHitBuilder> innerHitBuilders, InternalAggregations aggregations) {
+        if (aggregations == null) {
+            return false;
+        }
+        Terms groups = aggregations.get(GROUPS_AGG);
+        Missing missingGroup = aggregations.get(MISSING_GROUP_AGG);
+        Map<Object, InternalAggregations> groupAggregations = new HashMap<>();
+        if (groups != null) {
+            for (Terms.Bucket bucket : groups.getBuckets()) {
+                groupAggregations.put(groupKey(bucket.getKey()), bucket.getAggregations());
+                groupAggregations.put(bucket.getKeyAsString(), bucket.getAggregations());
+            }
+        }
+        SearchHit[] hits = searchHits.getHits();
+        InternalAggregations[] hitAggregations = new InternalAggregations[hits.length];
+        for (int i = 0; i < hits.length; i++) {
+            Object collapseValue = hits[i].field(field).getValue();
+            if (collapseValue == null) {
+                hitAggregations[i] = missingGroup == null ? null : missingGroup.getAggregations();
+            } else {
+                hitAggregations[i] = groupAggregations.get(groupKey(collapseValue));
+            }
+            if (hitAggregations[i] == null) {
+                return false;
+            }
+        }
+        for (int i = 0; i < hits.length; i++) {
+            for (int j = 0; j < innerHitBuilders.size(); j++) {
+                TopHits topHits = hitAggregations[i].get(INNER_HITS_AGG_PREFIX + j);
+                addInnerHits(hits[i], innerHitBuilders.size(), innerHitBuilders.get(j).getName(), topHits.getHits());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Numeric collapse values and bucket keys may be boxed differently, compare them as longs or doubles.
+     */
+    private static Object groupKey(Object value) {
+        if (value instanceof Double || value instanceof Float) {
+            return ((Number) value).doubleValue();
+        } else if (value instanceof Number number) {
+            return number.longValue();
+        }
+        return value;
+    }
+
+    private static void addInnerHits(SearchHit hit, int numInnerHits, String name, SearchHits innerHits) {
+        if (hit.getInnerHits() == null) {
+            hit.setInnerHits(Maps.newMapWithExpectedSize(numInnerHits));
+        }
+        if (hit.isPooled() == false) {
+            // TODO: make this work pooled by forcing the hit itself to become pooled as needed here
+            innerHits = innerHits.asUnpooled();
+        }
+        hit.getInnerHits().put(name, innerHits);
+        assert innerHits.isPooled() == false || hit.isPooled() : "pooled inner hits can only be added to a pooled hit";
+        innerHits.mustIncRef();
+    }
+
+    private static SearchRequest buildExpandSearchRequest(SearchRequest searchRequest, SearchSourceBuilder sourceBuilder) {
+        SearchRequest expandRequest = new SearchRequest(searchRequest);
+        if (searchRequest.pointInTimeBuilder() != null) {
+            // if the original request has a point in time, we propagate it to the inner search request
+            // and clear the indices and preference from the inner search request
+            expandRequest.indices(Strings.EMPTY_ARRAY);
+            expandRequest.preference(null);
+        }
+        expandRequest.source(sourceBuilder);
+        return expandRequest;
+    }
+
+    private static TopHitsAggregationBuilder buildExpandTopHits(String name, InnerHitBuilder options) {
+        TopHitsAggregationBuilder topHits = AggregationBuilders.topHits(name).from(options.getFrom()).size(options.getSize());
+        if (options.getSorts() != null) {
+            topHits.sorts(options.getSorts());
+        }
+        if (options.getFetchSourceContext() != null) {
+            topHits.fetchSource(options.getFetchSourceContext());
+        }
+        if (options.getFetchFields() != null) {
+            options.getFetchFields().forEach(topHits::fetchField);
+        }
+        if (options.getDocValueFields() != null) {
+            options.getDocValueFields().forEach(ff -> topHits.docValueField(ff.field, ff.format));
+        }
+        if (options.getStoredFieldsContext() != null && options.getStoredFieldsContext().fieldNames() != null) {
+            topHits.storedFields(options.getStoredFieldsContext().fieldNames());
+        }
+        if (options.getScriptFields() != null) {
+            for (SearchSourceBuilder.ScriptField field : options.getScriptFields()) {
+                topHits.scriptField(field.fieldName(), field.script(), field.ignoreFailure());
+            }
+        }
+        if (options.getHighlightBuilder() != null) {
+            topHits.highlighter(options.getHighlightBuilder());
+        }
+        topHits.explain(options.isExplain());
+        topHits.trackScores(options.isTrackScores());
+        topHits.version(options.isVersion());
+        topHits.seqNoAndPrimaryTerm(options.isSeqNoAndPrimaryTerm());
+        return topHits;
+    }
+
     private static SearchSourceBuilder buildExpandSearchSourceBuilder(InnerHitBuilder options, CollapseBuilder innerCollapseBuilder) {
         SearchSourceBuilder groupSource = new SearchSourceBuilder();
         groupSource.from(options.getFrom());
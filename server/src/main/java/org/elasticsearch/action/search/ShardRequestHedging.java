@@ -0,0 +1,66 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.action.search;
+
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.node.ResponseCollectorService;
+import org.elasticsearch.threadpool.Scheduler;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Decides when a shard level request should be hedged, that is also sent to another copy of the shard because the node
+ * it was sent to takes longer to answer than it usually does. The threshold is a percentile of the node's recent
+ * response times as recorded by the {@link ResponseCollectorService}, but never less than a minimum delay.
+ *
+ * @see TransportSearchAction#HEDGED_REQUESTS_ENABLED_SETTING
+ */
+final class ShardRequestHedging {
+
+    private final ThreadPool threadPool;
+    private final Executor executor;
+    private final ResponseCollectorService responseCollectorService;
+    private final double percentile;
+    private final TimeValue minDelay;
+
+    ShardRequestHedging(
+        ThreadPool threadPool,
+        Executor executor,
+        ResponseCollectorService responseCollectorService,
+        double percentile,
+        TimeValue minDelay
+    ) {
+        this.threadPool = threadPool;
+        this.executor = executor;
+        this.responseCollectorService = responseCollectorService;
+        this.percentile = percentile;
+        this.minDelay = minDelay;
+    }
+
+    /**
+     * Returns how long to wait for a response from the given node before hedging, or {@code null} if not enough is known
+     * about the node's response times to tell a slow response from a regular one.
+     */
+    TimeValue hedgeDelay(String nodeId) {
+        final long percentileNanos = responseCollectorService.getResponseTimePercentile(nodeId, percentile);
+        if (percentileNanos < 0) {
+            return null;
+        }
+        return TimeValue.timeValueNanos(Math.max(minDelay.nanos(), percentileNanos));
+    }
+
+    /**
+     * Schedules the given hedge to run after the given delay.
+     */
+    Scheduler.ScheduledCancellable schedule(Runnable hedge, TimeValue delay) {
+        return threadPool.schedule(hedge, delay, executor);
+    }
+}
@@ -51,6 +51,7 @@ import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
 import org.elasticsearch.common.logging.DeprecationCategory;
 import org.elasticsearch.common.logging.DeprecationLogger;
 import org.elasticsearch.common.regex.Regex;
+import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.util.ArrayUtils;
@@ -58,6 +59,7 @@ import org.elasticsearch.common.util.CollectionUtils;
 import org.elasticsearch.common.util.Maps;
 import org.elasticsearch.common.util.concurrent.CountDown;
 import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.core.Nullable;
 import org.elasticsearch.core.Predicates;
 import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.index.Index;
@@ -144,6 +146,39 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
         Property.NodeScope
     );
 
+    /**
+     * Whether the query phase of a search hedges slow shard requests by also sending them to another copy of the shard.
+     */
+    public static final Setting<Boolean> HEDGED_REQUESTS_ENABLED_SETTING = Setting.boolSetting(
+        "search.hedged_requests.enabled",
+        false,
+        Property.Dynamic,
+        Property.NodeScope
+    );
+
+    /**
+     * The percentile of a node's recent response times after which a shard request to that node is hedged.
+     */
+    public static final Setting<Double> HEDGED_REQUESTS_PERCENTILE_SETTING = Setting.doubleSetting(
+        "search.hedged_requests.percentile",
+        95.0,
+        50.0,
+        100.0,
+        Property.Dynamic,
+        Property.NodeScope
+    );
+
+    /**
+     * The minimum time to wait for a shard response before hedging the request.
+     */
+    public static final Setting<TimeValue> HEDGED_REQUESTS_MIN_DELAY_SETTING = Setting.timeSetting(
+        "search.hedged_requests.min_delay",
+        TimeValue.timeValueMillis(20),
+        TimeValue.ZERO,
+        Property.Dynamic,
+        Property.NodeScope
+    );
+
     private final ThreadPool threadPool;
     private final ClusterService clusterService;
     private final TransportService transportService;
@@ -1544,7 +1579,8 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
                         clusterState,
                         task,
                         clusters,
-                        client
+                        client,
+                        shardRequestHedging(searchRequest, threadPool)
                     );
                 }
                 success = true;
@@ -1557,6 +1593,27 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
         }
     }
 
+    /**
+     * Returns how to hedge the shard requests of the query phase of the given search, or {@code null} if they should not be
+     * hedged. Scroll and point in time searches are never hedged since their shard contexts are pinned to a single copy.
+     */
+    @Nullable
+    private ShardRequestHedging shardRequestHedging(SearchRequest searchRequest, ThreadPool threadPool) {
+        final ClusterSettings clusterSettings = clusterService.getClusterSettings();
+        if (clusterSettings.get(HEDGED_REQUESTS_ENABLED_SETTING) == false
+            || searchRequest.scroll() != null
+            || searchRequest.pointInTimeBuilder() != null) {
+            return null;
+        }
+        return new ShardRequestHedging(
+            threadPool,
+            threadPool.executor(ThreadPool.Names.SEARCH_COORDINATION),
+            searchService.getResponseCollectorService(),
+            clusterSettings.get(HEDGED_REQUESTS_PERCENTILE_SETTING),
+            clusterSettings.get(HEDGED_REQUESTS_MIN_DELAY_SETTING)
+        );
+    }
+
     private static void validateAndResolveWaitForCheckpoint(
         ClusterState clusterState,
         IndexNameExpressionResolver resolver,
@@ -0,0 +1,92 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.common.lucene.uid;
+
+import org.apache.lucene.index.FilterLeafReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The {@code _id} filters of the segments of a single engine, keyed by segment core. Segment cores are immutable so a filter
+ * is built at most once per segment, lazily by the first version lookup that reaches it, and then shared by all threads and
+ * point-in-time readers over that segment. Filters are dropped when their segment core is closed.
+ */
+public final class IdFilters {
+
+    final ConcurrentMap<IndexReader.CacheKey, Entry> filters = ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency();
+
+    // Evict this segment from filters once its core is closed:
+    private final IndexReader.ClosedListener removeFilter = key -> filters.remove(key);
+
+    /**
+     * The {@code _id} filter of a segment core, built at most once: concurrent callers wait for the first build instead of
+     * building the same filter again.
+     */
+    static final class Entry {
+        private volatile Optional<IdXorFilter> filter;
+
+        IdXorFilter get(LeafReader segmentReader) throws IOException {
+            Optional<IdXorFilter> result = filter;
+            if (result == null) {
+                synchronized (this) {
+                    result = filter;
+                    if (result == null) {
+                        filter = result = Optional.ofNullable(IdXorFilter.build(segmentReader));
+                    }
+                }
+            }
+            return result.orElse(null);
+        }
+
+        long ramBytesUsed() {
+            Optional<IdXorFilter> result = filter;
+            return result == null ? 0L : result.map(IdXorFilter::ramBytesUsed).orElse(0L);
+        }
+    }
+
+    /**
+     * Returns the {@code _id} filter of the given segment, building it if it has not been seen yet, or {@code null} if the
+     * segment cannot be filtered.
+     */
+    IdXorFilter get(LeafReader reader) throws IOException {
+        // build from the unwrapped segment so that wrappers hiding documents or terms can never cause false negatives
+        final LeafReader segmentReader = FilterLeafReader.unwrap(reader);
+        final IndexReader.CacheHelper cacheHelper = segmentReader.getCoreCacheHelper();
+        if (cacheHelper == null) {
+            return null;
+        }
+        Entry entry = filters.get(cacheHelper.getKey());
+        if (entry == null) {
+            entry = filters.computeIfAbsent(cacheHelper.getKey(), key -> {
+                // only the thread that registers the entry adds the listener that removes it
+                cacheHelper.addClosedListener(removeFilter);
+                return new Entry();
+            });
+        }
+        return entry.get(segmentReader);
+    }
+
+    /**
+     * Returns the memory used by the {@code _id} filter of the given segment, or {@code 0} if it has none.
+     */
+    public long ramBytesUsed(LeafReader reader) {
+        final IndexReader.CacheHelper cacheHelper = FilterLeafReader.unwrap(reader).getCoreCacheHelper();
+        if (cacheHelper == null) {
+            return 0L;
+        }
+        final Entry entry = filters.get(cacheHelper.getKey());
+        return entry == null ? 0L : entry.ramBytesUsed();
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.common.lucene.uid;
+
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.common.hash.MurmurHash3;
+import org.elasticsearch.index.mapper.IdFieldMapper;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * An immutable xor filter (see Graf and Lemire, "Xor Filters: Faster and Smaller Than Bloom and Cuckoo Filters") over
+ * the {@code _id} terms of a single segment. It answers "definitely absent" or "maybe present" using about 9.84 bits
+ * per id and has a false positive rate of roughly 0.4%, which lets the version lookup skip the terms dictionary of
+ * most segments that do not contain a given id.
+ */
+final class IdXorFilter implements Accountable {
+
+    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(IdXorFilter.class);
+
+    /**
+     * Segments with more ids than this are not filtered: building needs about 32 bytes of transient heap per id and
+     * large merged segments are rarely the ones that make lookups expensive.
+     */
+    static final int MAX_KEYS = 1 << 20;
+
+    private static final int MAX_BUILD_ATTEMPTS = 64;
+
+    private final long seed;
+    private final int blockLength;
+    private final byte[] fingerprints;
+
+    private IdXorFilter(long seed, int blockLength, byte[] fingerprints) {
+        this.seed = seed;
+        this.blockLength = blockLength;
+        this.fingerprints = fingerprints;
+    }
+
+    /**
+     * Builds a filter over all {@code _id} terms of the given segment, or returns {@code null} if the segment has no
+     * ids, has more than {@link #MAX_KEYS} of them or a filter could not be constructed.
+     */
+    static IdXorFilter build(LeafReader reader) throws IOException {
+        final Terms terms = reader.terms(IdFieldMapper.NAME);
+        if (terms == null) {
+            return null;
+        }
+        final long size = terms.size();
+        if (size <= 0 || size > MAX_KEYS) {
+            return null;
+        }
+        final long[] keys = new long[(int) size];
+        final MurmurHash3.Hash128 hash = new MurmurHash3.Hash128();
+        final TermsEnum termsEnum = terms.iterator();
+        int count = 0;
+        for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
+            keys[count++] = hashId(term, hash);
+        }
+        assert count == size : "expected [" + size + "] terms but got [" + count + "]";
+        return build(keys, count);
+    }
+
+    /**
+     * Builds a filter over the given 64 bit keys. Only the first {@code length} entries are used and the array is
+     * modified in place.
+     */
+    static IdXorFilter build(long[] keys, int length) {
+        // duplicated keys can never be peeled, so remove the (vanishingly rare) 64 bit hash collisions up front
+        Arrays.sort(keys, 0, length);
+        int size = 0;
+        for (int i = 0; i < length; i++) {
+            if (size == 0 || keys[size - 1] != keys[i]) {
+                keys[size++] = keys[i];
+            }
+        }
+        if (size == 0) {
+            return null;
+        }
+        final int capacity = (32 + (int) Math.ceil(1.23 * size)) / 3 * 3;
+        final int blockLength = capacity / 3;
+        final long[] reverseOrder = new long[size];
+        final byte[] reverseH = new byte[size];
+        final long[] t2 = new long[capacity];
+        final byte[] t2count = new byte[capacity];
+        final int[] alone = new int[capacity];
+        long seed = 0;
+        int attempt = 0;
+        int reverseOrderPos = 0;
+        while (reverseOrderPos != size) {
+            if (attempt++ == MAX_BUILD_ATTEMPTS) {
+                return null;
+            }
+            seed = MurmurHash3.murmur64(seed + attempt);
+            Arrays.fill(t2, 0L);
+            Arrays.fill(t2count, (byte) 0);
+            reverseOrderPos = 0;
+            for (int i = 0; i < size; i++) {
+                final long h = mix(keys[i], seed);
+                for (int hi = 0; hi < 3; hi++) {
+                    final int index = position(h, hi, blockLength);
+                    t2[index] ^= h;
+                    t2count[index]++;
+                }
+            }
+            int alonePos = 0;
+            for (int i = 0; i < capacity; i++) {
+                if (t2count[i] == 1) {
+                    alone[alonePos++] = i;
+                }
+            }
+            while (alonePos > 0) {
+                final int i = alone[--alonePos];
+                if (t2count[i] == 0) {
+                    continue;
+                }
+                final long h = t2[i];
+                byte found = -1;
+                for (int hi = 0; hi < 3; hi++) {
+                    final int index = position(h, hi, blockLength);
+                    if (index == i) {
+                        found = (byte) hi;
+                    }
+                    t2count[index]--;
+                    t2[index] ^= h;
+                    if (t2count[index] == 1) {
+                        alone[alonePos++] = index;
+                    }
+                }
+                assert found >= 0;
+                reverseOrder[reverseOrderPos] = h;
+                reverseH[reverseOrderPos] = found;
+                reverseOrderPos++;
+            }
+        }
+        final byte[] fingerprints = new byte[capacity];
+        for (int i = reverseOrderPos - 1; i >= 0; i--) {
+            final long h = reverseOrder[i];
+            final int found = reverseH[i];
+            int change = -1;
+            int xor = fingerprint(h);
+            for (int hi = 0; hi < 3; hi++) {
+                final int index = position(h, hi, blockLength);
+                if (found == hi) {
+                    change = index;
+                } else {
+                    xor ^= fingerprints[index];
+                }
+            }
+            fingerprints[change] = (byte) xor;
+        }
+        return new IdXorFilter(seed, blockLength, fingerprints);
+    }
+
+    /**
+     * Returns {@code false} if the given id is definitely not in the segment, {@code true} if it may be.
+     */
+    boolean mayContain(BytesRef id, MurmurHash3.Hash128 scratch) {
+        return mayContain(hashId(id, scratch));
+    }
+
+    boolean mayContain(long key) {
+        final long h = mix(key, seed);
+        final int f = fingerprint(h) ^ fingerprints[position(h, 0, blockLength)] ^ fingerprints[position(h, 1, blockLength)]
+            ^ fingerprints[position(h, 2, blockLength)];
+        return (f & 0xFF) == 0;
+    }
+
+    static long hashId(BytesRef id, MurmurHash3.Hash128 scratch) {
+        return MurmurHash3.hash128(id.bytes, id.offset, id.length, 0, scratch).h1;
+    }
+
+    private static long mix(long key, long seed) {
+        return MurmurHash3.murmur64(key + seed);
+    }
+
+    private static int fingerprint(long h) {
+        return (int) (h ^ (h >>> 32)) & 0xFF;
+    }
+
+    private static int position(long h, int index, int blockLength) {
+        final long r = Long.rotateLeft(h, 21 * index);
+        return (int) (((r & 0xFFFFFFFFL) * blockLength) >>> 32) + index * blockLength;
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return BASE_RAM_BYTES_USED + RamUsageEstimator.sizeOf(fingerprints);
+    }
+}
@@ -21,6 +21,7 @@ import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.cluster.metadata.DataStream;
+import org.elasticsearch.common.hash.MurmurHash3;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.lucene.uid.VersionsAndSeqNoResolver.DocIdAndSeqNo;
 import org.elasticsearch.common.lucene.uid.VersionsAndSeqNoResolver.DocIdAndVersion;
@@ -52,6 +53,15 @@ final class PerThreadIDVersionAndSeqNoLookup {
     /** Reused for iteration (when the term exists) */
     private PostingsEnum docsEnum;
 
+    /** Filter over the segment's ids, used to skip the terms dictionary for absent ids; may be null */
+    private IdXorFilter idFilter;
+
+    /** Whether {@link #idFilter} has been resolved, possibly to null if the segment cannot be filtered */
+    boolean idFilterLoaded;
+
+    /** Reused for hashing ids when probing the {@link #idFilter} */
+    private final MurmurHash3.Hash128 idHash = new MurmurHash3.Hash128();
+
     /** used for assertions to make sure class usage meets assumptions */
     private final Object readerKey;
 
@@ -63,6 +73,17 @@ final class PerThreadIDVersionAndSeqNoLookup {
      * Initialize lookup for the provided segment
      */
     PerThreadIDVersionAndSeqNoLookup(LeafReader reader, boolean trackReaderKey, boolean loadTimestampRange) throws IOException {
+        this(reader, trackReaderKey, loadTimestampRange, null);
+    }
+
+    /**
+     * Initialize lookup for the provided segment, consulting the given {@code _id} filter (if not null) before
+     * seeking the terms dictionary. The filter must have been built over all ids of the same segment.
+     */
+    PerThreadIDVersionAndSeqNoLookup(LeafReader reader, boolean trackReaderKey, boolean loadTimestampRange, IdXorFilter idFilter)
+        throws IOException {
+        this.idFilter = idFilter;
+        this.idFilterLoaded = idFilter != null;
         final Terms terms = reader.terms(IdFieldMapper.NAME);
         if (terms == null) {
             // If a segment contains only no-ops, it does not have _uid but has both _soft_deletes and _tombstone fields.
@@ -109,6 +130,20 @@ final class PerThreadIDVersionAndSeqNoLookup {
         this(reader, true, loadTimestampRange);
     }
 
+    PerThreadIDVersionAndSeqNoLookup(LeafReader reader, boolean loadTimestampRange, IdXorFilter idFilter) throws IOException {
+        this(reader, true, loadTimestampRange, idFilter);
+    }
+
+    /**
+     * Sets the filter over the segment's ids, or null if the segment cannot be filtered. The filter must have been built over
+     * all ids of the same segment.
+     */
+    void setIdFilter(IdXorFilter idFilter) {
+        assert idFilterLoaded == false : "id filter already loaded";
+        this.idFilter = idFilter;
+        this.idFilterLoaded = true;
+    }
+
     /** Return null if id is not found.
      * We pass the {@link LeafReaderContext} as an argument so that things
      * still work with reader wrappers that hide some documents while still
@@ -143,7 +178,7 @@ final class PerThreadIDVersionAndSeqNoLookup {
      * */
     private int getDocID(BytesRef id, LeafReaderContext context) throws IOException {
         // termsEnum can possibly be null here if this leaf contains only no-ops.
-        if (termsEnum != null && termsEnum.seekExact(id)) {
+        if (termsEnum != null && (idFilter == null || idFilter.mayContain(id, idHash)) && termsEnum.seekExact(id)) {
             final Bits liveDocs = context.reader().getLiveDocs();
             int docID = DocIdSetIterator.NO_MORE_DOCS;
             // there may be more than one matching docID, in the case of nested docs, so we want the last one:
@@ -37,7 +37,8 @@ public final class VersionsAndSeqNoResolver {
         }
     };
 
-    private static PerThreadIDVersionAndSeqNoLookup[] getLookupState(IndexReader reader, boolean loadTimestampRange) throws IOException {
+    private static PerThreadIDVersionAndSeqNoLookup[] getLookupState(IndexReader reader, boolean loadTimestampRange, IdFilters idFilters)
+        throws IOException {
         // We cache on the top level
         // This means cache entries have a shorter lifetime, maybe as low as 1s with the
         // default refresh interval and a steady indexing rate, but on the other hand it
@@ -86,6 +87,16 @@ public final class VersionsAndSeqNoResolver {
             throw new AssertionError("Mismatched numbers of leaves: " + lookupState.length + " != " + reader.leaves().size());
         }
 
+        if (idFilters != null) {
+            // the cached lookups may have been created by callers that do not use filters
+            for (LeafReaderContext leaf : reader.leaves()) {
+                final PerThreadIDVersionAndSeqNoLookup lookup = lookupState[leaf.ord];
+                if (lookup.idFilterLoaded == false) {
+                    lookup.setIdFilter(idFilters.get(leaf.reader()));
+                }
+            }
+        }
+
         return lookupState;
     }
 
@@ -130,7 +141,16 @@ public final class VersionsAndSeqNoResolver {
      * </ul>
      */
     public static DocIdAndVersion timeSeriesLoadDocIdAndVersion(IndexReader reader, BytesRef term, boolean loadSeqNo) throws IOException {
-        PerThreadIDVersionAndSeqNoLookup[] lookups = getLookupState(reader, false);
+        return timeSeriesLoadDocIdAndVersion(reader, term, loadSeqNo, null);
+    }
+
+    /**
+     * Same as {@link #timeSeriesLoadDocIdAndVersion(IndexReader, BytesRef, boolean)}, but consults the given {@code _id} filters
+     * (if not null) to skip segments that cannot contain the uid.
+     */
+    public static DocIdAndVersion timeSeriesLoadDocIdAndVersion(IndexReader reader, BytesRef term, boolean loadSeqNo, IdFilters idFilters)
+        throws IOException {
+        PerThreadIDVersionAndSeqNoLookup[] lookups = getLookupState(reader, false, idFilters);
         List<LeafReaderContext> leaves = reader.leaves();
         // iterate backwards to optimize for the frequently updated documents
         // which are likely to be in the last segments
@@ -163,13 +183,27 @@ public final class VersionsAndSeqNoResolver {
      */
     public static DocIdAndVersion timeSeriesLoadDocIdAndVersion(IndexReader reader, BytesRef uid, String id, boolean loadSeqNo)
         throws IOException {
+        return timeSeriesLoadDocIdAndVersion(reader, uid, id, loadSeqNo, null);
+    }
+
+    /**
+     * Same as {@link #timeSeriesLoadDocIdAndVersion(IndexReader, BytesRef, String, boolean)}, but consults the given {@code _id}
+     * filters (if not null) to skip segments that cannot contain the uid.
+     */
+    public static DocIdAndVersion timeSeriesLoadDocIdAndVersion(
+        IndexReader reader,
+        BytesRef uid,
+        String id,
+        boolean loadSeqNo,
+        IdFilters idFilters
+    ) throws IOException {
         byte[] idAsBytes = Base64.getUrlDecoder().decode(id);
         assert idAsBytes.length == 20;
         // id format: [4 bytes (basic hash routing fields), 8 bytes prefix of 128 murmurhash dimension fields, 8 bytes
         // @timestamp)
         long timestamp = ByteUtils.readLongBE(idAsBytes, 12);
 
-        PerThreadIDVersionAndSeqNoLookup[] lookups = getLookupState(reader, true);
+        PerThreadIDVersionAndSeqNoLookup[] lookups = getLookupState(reader, true, idFilters);
         List<LeafReaderContext> leaves = reader.leaves();
         // iterate in default order, the segments should be sorted by DataStream#TIMESERIES_LEAF_READERS_SORTER
         long prevMaxTimestamp = Long.MAX_VALUE;
@@ -210,7 +244,15 @@ public final class VersionsAndSeqNoResolver {
      * The result is either null or the live and latest version of the given uid.
      */
     public static DocIdAndSeqNo loadDocIdAndSeqNo(IndexReader reader, BytesRef term) throws IOException {
-        final PerThreadIDVersionAndSeqNoLookup[] lookups = getLookupState(reader, false);
+        return loadDocIdAndSeqNo(reader, term, null);
+    }
+
+    /**
+     * Same as {@link #loadDocIdAndSeqNo(IndexReader, BytesRef)}, but consults the given {@code _id} filters (if not null) to skip
+     * segments that cannot contain the uid.
+     */
+    public static DocIdAndSeqNo loadDocIdAndSeqNo(IndexReader reader, BytesRef term, IdFilters idFilters) throws IOException {
+        final PerThreadIDVersionAndSeqNoLookup[] lookups = getLookupState(reader, false, idFilters);
         final List<LeafReaderContext> leaves = reader.leaves();
         // iterate backwards to optimize for the frequently updated documents
         // which are likely to be in the last segments
@@ -124,6 +124,14 @@ public final class IndexModule {
         Property.NodeScope
     );
 
+    /** Whether to read the vector search files of new segments into the file-system cache in the background, so that the first
+     *  kNN searches after a shard is opened or relocated do not have to fetch them from disk. */
+    public static final Setting<Boolean> INDEX_STORE_WARM_VECTORS_SETTING = Setting.boolSetting(
+        "index.store.vectors.warm",
+        false,
+        Property.IndexScope
+    );
+
     public static final String SIMILARITY_SETTINGS_PREFIX = "index.similarity";
 
     // whether to use the query cache
@@ -575,6 +575,17 @@ public final class IndexSettings {
         Setting.Property.IndexScope,
         Property.DeprecatedWarning
     );
+
+    /**
+     * Enables in-memory filters over the _id terms of each segment, which let version lookups on the write path skip segments that
+     * cannot contain the id. The filters are built lazily by lookups of operations with user-provided ids and their memory is
+     * reported in segment stats.
+     */
+    public static final Setting<Boolean> ID_FILTER_ENABLED_SETTING = Setting.boolSetting(
+        "index.id_filter.enabled",
+        false,
+        Property.IndexScope
+    );
     public static final String LIFECYCLE_ORIGINATION_DATE = "index.lifecycle.origination_date";
     public static final Setting<Long> LIFECYCLE_ORIGINATION_DATE_SETTING = Setting.longSetting(
         LIFECYCLE_ORIGINATION_DATE,
@@ -11,7 +11,19 @@ package org.elasticsearch.index;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SegmentReader;
+import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.ReadAdvice;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.lucene.index.ElasticsearchDirectoryReader;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.util.concurrent.ThrottledTaskRunner;
+import org.elasticsearch.core.Releasable;
 import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.index.fielddata.FieldDataContext;
 import org.elasticsearch.index.fielddata.IndexFieldData;
@@ -20,13 +32,19 @@ import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.index.mapper.MapperService;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.IndexShardState;
+import org.elasticsearch.index.store.LuceneFilesExtensions;
+import org.elasticsearch.index.store.Store;
 import org.elasticsearch.threadpool.ThreadPool;
 
+import java.io.FileNotFoundException;
+import java.nio.file.NoSuchFileException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
@@ -41,6 +59,8 @@ public final class IndexWarmer {
         ArrayList<Listener> list = new ArrayList<>();
         final Executor executor = threadPool.executor(ThreadPool.Names.WARMER);
         list.add(new FieldDataWarmer(executor, indexFieldDataService));
+        // the vector files are read outside of the warmer thread pool, which refreshes wait for
+        list.add(new VectorFilesWarmer(threadPool.generic()));
 
         Collections.addAll(list, listeners);
         this.listeners = Collections.unmodifiableList(list);
@@ -149,4 +169,132 @@ public final class IndexWarmer {
         }
     }
 
+    /**
+     * Reads the vector search files of new segments into the file system cache when {@link IndexModule#INDEX_STORE_WARM_VECTORS_SETTING}
+     * is enabled, so that the first kNN searches after a shard is opened, relocated or recovered do not page fault their way through
+     * the graph and the quantized vectors. The files are read in the background, one segment at a time per index, on the generic
+     * thread pool: refreshes do not wait for them and they never hold the threads of the warmer thread pool. The raw vectors of
+     * segments that have quantized vectors are only needed for rescoring and merges and are left to be read on demand.
+     */
+    static class VectorFilesWarmer implements IndexWarmer.Listener {
+
+        private static final int BUFFER_SIZE = 64 * 1024;
+
+        private final ThrottledTaskRunner taskRunner;
+        private final Set<IndexReader.CacheKey> warmedSegments = ConcurrentCollections.newConcurrentSet();
+
+        VectorFilesWarmer(Executor executor) {
+            this.taskRunner = new ThrottledTaskRunner("vector-files-warmer", 1, executor);
+        }
+
+        @Override
+        public TerminationHandle warmReader(final IndexShard indexShard, final ElasticsearchDirectoryReader reader) {
+            if (indexShard.indexSettings().getValue(IndexModule.INDEX_STORE_WARM_VECTORS_SETTING) == false) {
+                return TerminationHandle.NO_WAIT;
+            }
+            for (LeafReaderContext ctx : reader.leaves()) {
+                final SegmentReader segmentReader = Lucene.segmentReader(ctx.reader());
+                final IndexReader.CacheHelper cacheHelper = segmentReader.getCoreCacheHelper();
+                if (warmedSegments.add(cacheHelper.getKey()) == false) {
+                    // already warmed by a previous reader
+                    continue;
+                }
+                cacheHelper.addClosedListener(warmedSegments::remove);
+                final List<String> files = vectorFilesToWarm(segmentReader.getSegmentInfo().files());
+                if (files.isEmpty() == false) {
+                    final String segmentName = segmentReader.getSegmentName();
+                    taskRunner.enqueueTask(new ActionListener<>() {
+                        @Override
+                        public void onResponse(Releasable releasable) {
+                            try (releasable) {
+                                warmFiles(indexShard, segmentName, files);
+                            }
+                        }
+
+                        @Override
+                        public void onFailure(Exception e) {
+                            indexShard.warmerService()
+                                .logger()
+                                .debug(() -> "skipped warm-up of vector files for segment [" + segmentName + "]", e);
+                        }
+                    });
+                }
+            }
+            return TerminationHandle.NO_WAIT;
+        }
+
+        /**
+         * Returns the files of the segment that are read by kNN searches: the graph, the quantized vectors, the centroids and posting
+         * lists of IVF segments and, if the segment has no quantized vectors, the raw vectors.
+         */
+        static List<String> vectorFilesToWarm(Collection<String> segmentFiles) {
+            boolean hasQuantizedVectors = false;
+            for (String file : segmentFiles) {
+                LuceneFilesExtensions extension = LuceneFilesExtensions.fromFile(file);
+                if (extension == LuceneFilesExtensions.VEQ
+                    || extension == LuceneFilesExtensions.VEB
+                    || extension == LuceneFilesExtensions.PIVF) {
+                    hasQuantizedVectors = true;
+                    break;
+                }
+            }
+            final List<String> files = new ArrayList<>();
+            for (String file : segmentFiles) {
+                LuceneFilesExtensions extension = LuceneFilesExtensions.fromFile(file);
+                if (extension == LuceneFilesExtensions.VEX
+                    || extension == LuceneFilesExtensions.VEQ
+                    || extension == LuceneFilesExtensions.VEB
+                    || extension == LuceneFilesExtensions.CIVF
+                    || extension == LuceneFilesExtensions.PIVF
+                    || (extension == LuceneFilesExtensions.VEC && hasQuantizedVectors == false)) {
+                    files.add(file);
+                }
+            }
+            return files;
+        }
+
+        private static void warmFiles(IndexShard indexShard, String segmentName, List<String> files) {
+            final Store store = indexShard.store();
+            if (store.tryIncRef() == false) {
+                return;
+            }
+            try {
+                final long start = System.nanoTime();
+                final byte[] buffer = new byte[BUFFER_SIZE];
+                long bytes = 0;
+                for (String file : files) {
+                    if (indexShard.state() == IndexShardState.CLOSED) {
+                        return;
+                    }
+                    try (IndexInput input = store.directory().openInput(file, IOContext.READONCE.withReadAdvice(ReadAdvice.SEQUENTIAL))) {
+                        long remaining = input.length();
+                        while (remaining > 0) {
+                            int length = (int) Math.min(buffer.length, remaining);
+                            input.readBytes(buffer, 0, length);
+                            remaining -= length;
+                        }
+                        bytes += input.length();
+                    }
+                }
+                if (indexShard.warmerService().logger().isTraceEnabled()) {
+                    indexShard.warmerService()
+                        .logger()
+                        .trace(
+                            "warmed [{}] bytes of vector files {} for segment [{}], took [{}]",
+                            bytes,
+                            files,
+                            segmentName,
+                            TimeValue.timeValueNanos(System.nanoTime() - start)
+                        );
+                }
+            } catch (NoSuchFileException | FileNotFoundException | AlreadyClosedException e) {
+                // the segment was merged away or the shard was closed in the meantime
+                indexShard.warmerService().logger().debug(() -> "skipped warm-up of vector files for segment [" + segmentName + "]", e);
+            } catch (Exception e) {
+                indexShard.warmerService().logger().warn(() -> "failed to warm-up vector files for segment [" + segmentName + "]", e);
+            } finally {
+                store.decRef();
+            }
+        }
+    }
 }
@@ -79,6 +79,13 @@ public class IndexingPressure {
         Setting.Property.NodeScope
     );
 
+    // Splits incremental bulks at this size regardless of memory pressure, 0 disables it
+    public static final Setting<ByteSizeValue> SPLIT_BULK_STREAMING_SIZE = Setting.byteSizeSetting(
+        "indexing_pressure.memory.split_bulk.streaming.bulk_size",
+        ByteSizeValue.ZERO,
+        Setting.Property.NodeScope
+    );
+
     private static final Logger logger = LogManager.getLogger(IndexingPressure.class);
 
     private final AtomicLong currentCombinedCoordinatingAndPrimaryBytes = new AtomicLong(0);
@@ -109,6 +116,7 @@ public class IndexingPressure {
     private final long lowWatermarkSize;
     private final long highWatermark;
     private final long highWatermarkSize;
+    private final long streamingSize;
     private final long coordinatingLimit;
     private final long primaryLimit;
     private final long replicaLimit;
@@ -118,6 +126,7 @@ public class IndexingPressure {
         this.lowWatermarkSize = SPLIT_BULK_LOW_WATERMARK_SIZE.get(settings).getBytes();
         this.highWatermark = SPLIT_BULK_HIGH_WATERMARK.get(settings).getBytes();
         this.highWatermarkSize = SPLIT_BULK_HIGH_WATERMARK_SIZE.get(settings).getBytes();
+        this.streamingSize = SPLIT_BULK_STREAMING_SIZE.get(settings).getBytes();
         this.coordinatingLimit = MAX_COORDINATING_BYTES.get(settings).getBytes();
         this.primaryLimit = MAX_PRIMARY_BYTES.get(settings).getBytes();
         this.replicaLimit = MAX_REPLICA_BYTES.get(settings).getBytes();
@@ -264,6 +273,9 @@ public class IndexingPressure {
     }
 
     public boolean shouldSplitBulk(long size) {
+        if (streamingSize > 0 && size >= streamingSize) {
+            return true;
+        }
         long currentUsage = (currentCombinedCoordinatingAndPrimaryBytes.get() + currentReplicaBytes.get());
         return (currentUsage >= lowWatermark && size >= lowWatermarkSize) || (currentUsage >= highWatermark && size >= highWatermarkSize);
     }
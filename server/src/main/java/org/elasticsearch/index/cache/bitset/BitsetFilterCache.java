@@ -24,6 +24,8 @@ import org.apache.lucene.search.join.BitSetProducer;
 import org.apache.lucene.util.Accountable;
 import org.apache.lucene.util.BitDocIdSet;
 import org.apache.lucene.util.BitSet;
+import org.apache.lucene.util.BitSetIterator;
+import org.apache.lucene.util.FixedBitSet;
 import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.node.DiscoveryNodeRole;
@@ -47,6 +49,8 @@ import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.shard.ShardUtils;
 import org.elasticsearch.lucene.util.BitSets;
+import org.elasticsearch.lucene.util.MatchAllBitSet;
+import org.elasticsearch.lucene.util.RoaringBitSet;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.Closeable;
@@ -79,6 +83,11 @@ public final class BitsetFilterCache
 
     private static final Logger logger = LogManager.getLogger(BitsetFilterCache.class);
 
+    /**
+     * Segments smaller than a block of a {@link RoaringBitSet} don't use enough memory for the encoding to matter.
+     */
+    static final int MIN_ROARING_LENGTH = 1 << 16;
+
     private final boolean loadRandomAccessFiltersEagerly;
 
     /**
@@ -118,8 +127,32 @@ public final class BitsetFilterCache
         if (s == null) {
             return null;
         } else {
-            return BitSets.of(s.iterator(), context.reader().maxDoc());
+            return compact(BitSets.of(s.iterator(), context.reader().maxDoc()));
+        }
+    }
+
+    /**
+     * Re-encode the given bit set as a {@link RoaringBitSet} if that saves at least a quarter of its memory. Dense bit sets
+     * stay {@link FixedBitSet}s, but sparse ones or those made of long runs of documents are much smaller as roaring bit sets.
+     * At two bytes per match, saving a quarter of the one bit per document of a {@link FixedBitSet} takes matching at most
+     * 3 documents in 64, so parent filters of nested documents are sparse enough once parents have more than about 20 nested
+     * documents on average.
+     * The roaring bit set is only built if the cardinality or the number of runs of the bit set suggest that it is smaller.
+     */
+    static BitSet compact(BitSet bitSet) throws IOException {
+        if (bitSet instanceof MatchAllBitSet || bitSet.length() < MIN_ROARING_LENGTH) {
+            return bitSet;
+        }
+        final long maxBytes = bitSet.ramBytesUsed() * 3 / 4;
+        // sorted arrays take two bytes per match, runs four bytes per run
+        final boolean sparse = (long) bitSet.approximateCardinality() * Character.BYTES <= maxBytes;
+        if (sparse == false) {
+            if (bitSet instanceof FixedBitSet == false || RoaringBitSet.countRuns((FixedBitSet) bitSet) * 2 * Character.BYTES > maxBytes) {
+                return bitSet;
+            }
         }
+        final RoaringBitSet roaring = RoaringBitSet.of(new BitSetIterator(bitSet, bitSet.approximateCardinality()), bitSet.length());
+        return roaring.ramBytesUsed() <= bitSet.ramBytesUsed() * 3 / 4 ? roaring : bitSet;
     }
 
     public IndexWarmer.Listener createListener(ThreadPool threadPool) {
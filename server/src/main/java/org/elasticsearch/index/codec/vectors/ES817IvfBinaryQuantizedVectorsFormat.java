@@ -0,0 +1,111 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.index.codec.vectors;
+
+import org.apache.lucene.codecs.KnnVectorsFormat;
+import org.apache.lucene.codecs.KnnVectorsReader;
+import org.apache.lucene.codecs.KnnVectorsWriter;
+import org.apache.lucene.codecs.hnsw.FlatVectorScorerUtil;
+import org.apache.lucene.codecs.hnsw.FlatVectorsFormat;
+import org.apache.lucene.codecs.lucene99.Lucene99FlatVectorsFormat;
+import org.apache.lucene.index.SegmentReadState;
+import org.apache.lucene.index.SegmentWriteState;
+
+import java.io.IOException;
+
+import static org.elasticsearch.index.mapper.vectors.DenseVectorFieldMapper.MAX_DIMS_COUNT;
+
+/**
+ * An inverted file (IVF) vectors format. At flush and merge time the vectors of each field are partitioned with k-means,
+ * and every partition is written as a contiguous posting list of binary quantized (BBQ) vectors, quantized against the
+ * centroid of their partition. Searches only read the centroids and the posting lists of the partitions that are closest
+ * to the query, sequentially, and rescore the best candidates against the raw vectors. Unlike HNSW, which needs random
+ * access to the graph and vectors, this keeps the working set of a search small enough for indices that are much larger
+ * than the available memory.
+ */
+public class ES817IvfBinaryQuantizedVectorsFormat extends KnnVectorsFormat {
+
+    public static final String NAME = "ES817IvfBinaryQuantizedVectorsFormat";
+
+    public static final int DEFAULT_VECTORS_PER_CLUSTER = 512;
+    public static final int MIN_VECTORS_PER_CLUSTER = 64;
+    public static final int MAX_VECTORS_PER_CLUSTER = 1 << 16;
+
+    static final int VERSION_START = 0;
+    static final int VERSION_CURRENT = VERSION_START;
+    static final String META_CODEC_NAME = "ES817IvfBinaryQuantizedVectorsFormatMeta";
+    static final String CENTROIDS_CODEC_NAME = "ES817IvfBinaryQuantizedVectorsFormatCentroids";
+    static final String POSTINGS_CODEC_NAME = "ES817IvfBinaryQuantizedVectorsFormatPostings";
+    static final String META_EXTENSION = "mivf";
+    static final String CENTROIDS_EXTENSION = "civf";
+    static final String POSTINGS_EXTENSION = "pivf";
+
+    /** The raw vectors are kept to rescore the best candidates of a search and to re-cluster on merge */
+    private static final FlatVectorsFormat rawVectorFormat = new Lucene99FlatVectorsFormat(
+        FlatVectorScorerUtil.getLucene99FlatVectorsScorer()
+    );
+
+    /**
+     * The targeted number of vectors per partition. Smaller partitions mean more centroids to compare with the query,
+     * larger ones mean more quantized vectors to score in every probed partition.
+     */
+    private final int vectorsPerCluster;
+
+    /** Constructs a format using the default number of vectors per partition */
+    public ES817IvfBinaryQuantizedVectorsFormat() {
+        this(DEFAULT_VECTORS_PER_CLUSTER);
+    }
+
+    /**
+     * Constructs a format using the given number of vectors per partition.
+     *
+     * @param vectorsPerCluster the targeted number of vectors per partition
+     */
+    public ES817IvfBinaryQuantizedVectorsFormat(int vectorsPerCluster) {
+        super(NAME);
+        if (vectorsPerCluster < MIN_VECTORS_PER_CLUSTER || vectorsPerCluster > MAX_VECTORS_PER_CLUSTER) {
+            throw new IllegalArgumentException(
+                "vectorsPerCluster must be between "
+                    + MIN_VECTORS_PER_CLUSTER
+                    + " and "
+                    + MAX_VECTORS_PER_CLUSTER
+                    + "; vectorsPerCluster="
+                    + vectorsPerCluster
+            );
+        }
+        this.vectorsPerCluster = vectorsPerCluster;
+    }
+
+    @Override
+    public KnnVectorsWriter fieldsWriter(SegmentWriteState state) throws IOException {
+        return new ES817IvfBinaryQuantizedVectorsWriter(state, rawVectorFormat.fieldsWriter(state), vectorsPerCluster);
+    }
+
+    @Override
+    public KnnVectorsReader fieldsReader(SegmentReadState state) throws IOException {
+        return new ES817IvfBinaryQuantizedVectorsReader(state, rawVectorFormat.fieldsReader(state));
+    }
+
+    @Override
+    public int getMaxDimensions(String fieldName) {
+        return MAX_DIMS_COUNT;
+    }
+
+    @Override
+    public String toString() {
+        return "ES817IvfBinaryQuantizedVectorsFormat(name="
+            + NAME
+            + ", vectorsPerCluster="
+            + vectorsPerCluster
+            + ", rawVectorFormat="
+            + rawVectorFormat
+            + ")";
+    }
+}
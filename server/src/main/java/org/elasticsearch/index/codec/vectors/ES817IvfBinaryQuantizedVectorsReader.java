@@ -0,0 +1,449 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.index.codec.vectors;
+
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.codecs.KnnVectorsReader;
+import org.apache.lucene.codecs.hnsw.FlatVectorsReader;
+import org.apache.lucene.index.ByteVectorValues;
+import org.apache.lucene.index.CorruptIndexException;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.FieldInfos;
+import org.apache.lucene.index.FloatVectorValues;
+import org.apache.lucene.index.IndexFileNames;
+import org.apache.lucene.index.KnnVectorValues;
+import org.apache.lucene.index.SegmentReadState;
+import org.apache.lucene.index.VectorEncoding;
+import org.apache.lucene.index.VectorSimilarityFunction;
+import org.apache.lucene.search.KnnCollector;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.VectorScorer;
+import org.apache.lucene.store.ChecksumIndexInput;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.PriorityQueue;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.lucene.util.VectorUtil;
+import org.apache.lucene.util.hnsw.RandomVectorScorer;
+import org.elasticsearch.core.SuppressForbidden;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.apache.lucene.codecs.lucene99.Lucene99HnswVectorsReader.readSimilarityFunction;
+import static org.apache.lucene.codecs.lucene99.Lucene99HnswVectorsReader.readVectorEncoding;
+import static org.apache.lucene.index.VectorSimilarityFunction.COSINE;
+import static org.apache.lucene.index.VectorSimilarityFunction.EUCLIDEAN;
+
+/**
+ * Reads the partitions written by {@link ES817IvfBinaryQuantizedVectorsWriter}. A search compares the query with all
+ * centroids of a field, scores the quantized vectors of the closest partitions and rescores the best of them with the
+ * raw vectors.
+ */
+@SuppressForbidden(reason = "Lucene classes")
+public class ES817IvfBinaryQuantizedVectorsReader extends KnnVectorsReader {
+
+    private static final long SHALLOW_SIZE = RamUsageEstimator.shallowSizeOfInstance(ES817IvfBinaryQuantizedVectorsReader.class);
+
+    /** How many candidates, as a multiple of the number of requested neighbors, are rescored with the raw vectors */
+    static final int RESCORE_OVERSAMPLE = 3;
+
+    private final Map<String, FieldEntry> fields = new HashMap<>();
+    private final IndexInput centroids, postings;
+    private final FlatVectorsReader rawVectorsReader;
+
+    ES817IvfBinaryQuantizedVectorsReader(SegmentReadState state, FlatVectorsReader rawVectorsReader) throws IOException {
+        this.rawVectorsReader = rawVectorsReader;
+        int versionMeta = -1;
+        String metaFileName = IndexFileNames.segmentFileName(
+            state.segmentInfo.name,
+            state.segmentSuffix,
+            ES817IvfBinaryQuantizedVectorsFormat.META_EXTENSION
+        );
+        boolean success = false;
+        IndexInput centroids = null;
+        IndexInput postings = null;
+        try (ChecksumIndexInput meta = state.directory.openChecksumInput(metaFileName)) {
+            Throwable priorE = null;
+            try {
+                versionMeta = CodecUtil.checkIndexHeader(
+                    meta,
+                    ES817IvfBinaryQuantizedVectorsFormat.META_CODEC_NAME,
+                    ES817IvfBinaryQuantizedVectorsFormat.VERSION_START,
+                    ES817IvfBinaryQuantizedVectorsFormat.VERSION_CURRENT,
+                    state.segmentInfo.getId(),
+                    state.segmentSuffix
+                );
+                readFields(meta, state.fieldInfos);
+            } catch (Throwable exception) {
+                priorE = exception;
+            } finally {
+                CodecUtil.checkFooter(meta, priorE);
+            }
+            centroids = openDataInput(
+                state,
+                versionMeta,
+                ES817IvfBinaryQuantizedVectorsFormat.CENTROIDS_EXTENSION,
+                ES817IvfBinaryQuantizedVectorsFormat.CENTROIDS_CODEC_NAME
+            );
+            postings = openDataInput(
+                state,
+                versionMeta,
+                ES817IvfBinaryQuantizedVectorsFormat.POSTINGS_EXTENSION,
+                ES817IvfBinaryQuantizedVectorsFormat.POSTINGS_CODEC_NAME
+            );
+            success = true;
+        } finally {
+            if (success == false) {
+                IOUtils.closeWhileHandlingException(centroids, postings, rawVectorsReader);
+            }
+        }
+        this.centroids = centroids;
+        this.postings = postings;
+    }
+
+    private void readFields(ChecksumIndexInput meta, FieldInfos infos) throws IOException {
+        for (int fieldNumber = meta.readInt(); fieldNumber != -1; fieldNumber = meta.readInt()) {
+            FieldInfo info = infos.fieldInfo(fieldNumber);
+            if (info == null) {
+                throw new CorruptIndexException("Invalid field number: " + fieldNumber, meta);
+            }
+            fields.put(info.name, readField(meta, info));
+        }
+    }
+
+    private static FieldEntry readField(IndexInput input, FieldInfo info) throws IOException {
+        VectorEncoding vectorEncoding = readVectorEncoding(input);
+        VectorSimilarityFunction similarityFunction = readSimilarityFunction(input);
+        if (similarityFunction != info.getVectorSimilarityFunction()) {
+            throw new IllegalStateException(
+                "Inconsistent vector similarity function for field=\""
+                    + info.name
+                    + "\"; "
+                    + similarityFunction
+                    + " != "
+                    + info.getVectorSimilarityFunction()
+            );
+        }
+        int dimension = input.readVInt();
+        if (dimension != info.getVectorDimension()) {
+            throw new IllegalStateException(
+                "Inconsistent vector dimension for field=\"" + info.name + "\"; " + dimension + " != " + info.getVectorDimension()
+            );
+        }
+        return new FieldEntry(
+            similarityFunction,
+            vectorEncoding,
+            dimension,
+            input.readVInt(),
+            input.readVInt(),
+            input.readVLong(),
+            input.readVLong(),
+            input.readVLong(),
+            input.readVLong()
+        );
+    }
+
+    private static IndexInput openDataInput(SegmentReadState state, int versionMeta, String fileExtension, String codecName)
+        throws IOException {
+        String fileName = IndexFileNames.segmentFileName(state.segmentInfo.name, state.segmentSuffix, fileExtension);
+        // posting lists are read sequentially, but which ones depends on the query
+        IndexInput in = state.directory.openInput(fileName, state.context);
+        boolean success = false;
+        try {
+            int versionVectorData = CodecUtil.checkIndexHeader(
+                in,
+                codecName,
+                ES817IvfBinaryQuantizedVectorsFormat.VERSION_START,
+                ES817IvfBinaryQuantizedVectorsFormat.VERSION_CURRENT,
+                state.segmentInfo.getId(),
+                state.segmentSuffix
+            );
+            if (versionMeta != versionVectorData) {
+                throw new CorruptIndexException(
+                    "Format versions mismatch: meta=" + versionMeta + ", " + codecName + "=" + versionVectorData,
+                    in
+                );
+            }
+            CodecUtil.retrieveChecksum(in);
+            success = true;
+            return in;
+        } finally {
+            if (success == false) {
+                IOUtils.closeWhileHandlingException(in);
+            }
+        }
+    }
+
+    @Override
+    public void checkIntegrity() throws IOException {
+        rawVectorsReader.checkIntegrity();
+        CodecUtil.checksumEntireFile(centroids);
+        CodecUtil.checksumEntireFile(postings);
+    }
+
+    @Override
+    public FloatVectorValues getFloatVectorValues(String field) throws IOException {
+        return rawVectorsReader.getFloatVectorValues(field);
+    }
+
+    @Override
+    public ByteVectorValues getByteVectorValues(String field) throws IOException {
+        return rawVectorsReader.getByteVectorValues(field);
+    }
+
+    @Override
+    public void search(String field, byte[] target, KnnCollector knnCollector, Bits acceptDocs) throws IOException {
+        rawVectorsReader.search(field, target, knnCollector, acceptDocs);
+    }
+
+    @Override
+    public void search(String field, float[] target, KnnCollector knnCollector, Bits acceptDocs) throws IOException {
+        FieldEntry entry = fields.get(field);
+        if (knnCollector.k() == 0 || entry == null || entry.size == 0) {
+            return;
+        }
+        if (entry.vectorEncoding != VectorEncoding.FLOAT32) {
+            throw new IllegalArgumentException(
+                "field=\"" + field + "\" is encoded as: " + entry.vectorEncoding + " expected: " + VectorEncoding.FLOAT32
+            );
+        }
+        float[] query = target;
+        if (entry.similarityFunction == COSINE) {
+            query = VectorUtil.l2normalize(ArrayUtil.copyOfSubArray(target, 0, target.length));
+        }
+        IndexInput centroidsInput = centroids.slice("centroids", entry.centroidsOffset, entry.centroidsLength);
+        IndexInput postingsInput = postings.slice("postings", entry.postingsOffset, entry.postingsLength);
+
+        // rank the partitions by the similarity of their centroid to the query, using the similarity of the field: for inner
+        // products the partitions whose centroid has the largest inner product with the query hold the best candidates, even
+        // though k-means assigned the vectors to their closest centroid
+        float[] centroid = new float[entry.dimension];
+        long[] partitions = new long[entry.numCentroids];
+        for (int c = 0; c < entry.numCentroids; c++) {
+            centroidsInput.readFloats(centroid, 0, entry.dimension);
+            float score = entry.similarityFunction.compare(query, centroid);
+            if (Float.isNaN(score)) {
+                // the cosine of an all zero centroid
+                score = 0f;
+            }
+            // scores are non-negative and non-negative floats sort like their bits, the best partitions come first
+            partitions[c] = ((long) (Integer.MAX_VALUE - Float.floatToIntBits(score)) << 32) | c;
+        }
+        Arrays.sort(partitions);
+
+        // probe at least sqrt(#partitions) partitions, and more until there are enough candidates to rescore
+        int minProbes = (int) Math.ceil(Math.sqrt(entry.numCentroids));
+        int numCandidates = (int) Math.min(entry.size, (long) knnCollector.k() * RESCORE_OVERSAMPLE);
+        CandidateQueue candidates = new CandidateQueue(numCandidates);
+        PostingListValues postingList = new PostingListValues(entry);
+        int probed = 0;
+        long visited = 0;
+        while (probed < partitions.length && (probed < minProbes || visited < numCandidates)) {
+            if (knnCollector.earlyTerminated()) {
+                break;
+            }
+            int partition = (int) partitions[probed++];
+            centroidsInput.seek((long) partition * entry.dimension * Float.BYTES);
+            centroidsInput.readFloats(centroid, 0, entry.dimension);
+            centroidsInput.seek((long) entry.numCentroids * entry.dimension * Float.BYTES + (long) partition * Long.BYTES);
+            postingsInput.seek(centroidsInput.readLong());
+            postingList.read(postingsInput, centroid);
+
+            byte[] quantized = new byte[BQSpaceUtils.B_QUERY * postingList.discretizedDimensions() / 8];
+            BinaryQuantizer.QueryFactors factors = postingList.getQuantizer().quantizeForQuery(query, quantized, centroid);
+            RandomVectorScorer scorer = new ES816BinaryFlatVectorsScorer.BinarizedRandomVectorScorer(
+                new ES816BinaryFlatVectorsScorer.BinaryQueryVector(quantized, factors),
+                postingList,
+                entry.similarityFunction
+            );
+            int scored = 0;
+            for (int ord = 0; ord < postingList.size(); ord++) {
+                int doc = postingList.docs[ord];
+                if (acceptDocs == null || acceptDocs.get(doc)) {
+                    candidates.insertWithOverflow(new ScoreDoc(doc, scorer.score(ord)));
+                    scored++;
+                }
+            }
+            visited += scored;
+            knnCollector.incVisitedCount(scored);
+        }
+
+        // rescore the best candidates with the raw vectors, in doc order
+        int[] docs = new int[candidates.size()];
+        for (int i = 0; i < docs.length; i++) {
+            docs[i] = candidates.pop().doc;
+        }
+        Arrays.sort(docs);
+        FloatVectorValues rawValues = rawVectorsReader.getFloatVectorValues(field);
+        KnnVectorValues.DocIndexIterator iterator = rawValues.iterator();
+        for (int doc : docs) {
+            if (iterator.docID() < doc) {
+                iterator.advance(doc);
+            }
+            assert iterator.docID() == doc;
+            knnCollector.collect(doc, entry.similarityFunction.compare(target, rawValues.vectorValue(iterator.index())));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOUtils.close(centroids, postings, rawVectorsReader);
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        long size = SHALLOW_SIZE;
+        size += RamUsageEstimator.sizeOfMap(fields, RamUsageEstimator.shallowSizeOfInstance(FieldEntry.class));
+        size += rawVectorsReader.ramBytesUsed();
+        return size;
+    }
+
+    private record FieldEntry(
+        VectorSimilarityFunction similarityFunction,
+        VectorEncoding vectorEncoding,
+        int dimension,
+        int size,
+        int numCentroids,
+        long centroidsOffset,
+        long centroidsLength,
+        long postingsOffset,
+        long postingsLength
+    ) {}
+
+    /** Keeps the candidates with the best estimated scores */
+    private static class CandidateQueue extends PriorityQueue<ScoreDoc> {
+        CandidateQueue(int maxSize) {
+            super(maxSize);
+        }
+
+        @Override
+        protected boolean lessThan(ScoreDoc a, ScoreDoc b) {
+            return a.score < b.score || (a.score == b.score && a.doc > b.doc);
+        }
+    }
+
+    /** The quantized vectors of one partition, quantized against its centroid. Ordinals are positions in the posting list. */
+    private static class PostingListValues extends BinarizedByteVectorValues {
+        private final int dimension;
+        private final int correctionsCount;
+        private final BinaryQuantizer quantizer;
+        private final byte[] vector;
+        private int[] docs = new int[0];
+        private byte[] codes = new byte[0];
+        private float[] corrections = new float[0];
+        private float[] centroid;
+        private float centroidDp;
+        private int size;
+
+        PostingListValues(FieldEntry entry) {
+            this.dimension = entry.dimension;
+            this.correctionsCount = entry.similarityFunction != EUCLIDEAN ? 3 : 2;
+            this.quantizer = new BinaryQuantizer(dimension, BQVectorUtils.discretize(dimension, 64), entry.similarityFunction);
+            this.vector = new byte[BQVectorUtils.discretize(dimension, 64) / 8];
+        }
+
+        void read(IndexInput input, float[] centroid) throws IOException {
+            this.centroid = centroid;
+            this.centroidDp = VectorUtil.dotProduct(centroid, centroid);
+            size = input.readVInt();
+            docs = ArrayUtil.growNoCopy(docs, size);
+            int doc = 0;
+            for (int i = 0; i < size; i++) {
+                doc += input.readVInt();
+                docs[i] = doc;
+            }
+            codes = ArrayUtil.growNoCopy(codes, size * vector.length);
+            input.readBytes(codes, 0, size * vector.length);
+            corrections = ArrayUtil.growNoCopy(corrections, size * correctionsCount);
+            input.readFloats(corrections, 0, size * correctionsCount);
+        }
+
+        @Override
+        public float[] getCorrectiveTerms(int vectorOrd) {
+            return ArrayUtil.copyOfSubArray(corrections, vectorOrd * correctionsCount, (vectorOrd + 1) * correctionsCount);
+        }
+
+        @Override
+        public int dimension() {
+            return dimension;
+        }
+
+        @Override
+        public float getCentroidDistance(int vectorOrd) {
+            return corrections[vectorOrd * correctionsCount];
+        }
+
+        @Override
+        public float getVectorMagnitude(int vectorOrd) {
+            return corrections[vectorOrd * correctionsCount + 1];
+        }
+
+        @Override
+        public float getOOQ(int targetOrd) {
+            return corrections[targetOrd * correctionsCount];
+        }
+
+        @Override
+        public float getNormOC(int targetOrd) {
+            return corrections[targetOrd * correctionsCount + 1];
+        }
+
+        @Override
+        public float getODotC(int targetOrd) {
+            return corrections[targetOrd * correctionsCount + 2];
+        }
+
+        @Override
+        public BinaryQuantizer getQuantizer() {
+            return quantizer;
+        }
+
+        @Override
+        public float[] getCentroid() {
+            return centroid;
+        }
+
+        @Override
+        float getCentroidDP() {
+            return centroidDp;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public byte[] vectorValue(int ord) {
+            System.arraycopy(codes, ord * vector.length, vector, 0, vector.length);
+            return vector;
+        }
+
+        @Override
+        public VectorScorer scorer(float[] query) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public PostingListValues copy() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public DocIndexIterator iterator() {
+            return createDenseIterator();
+        }
+    }
+}
@@ -0,0 +1,396 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.index.codec.vectors;
+
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.codecs.KnnFieldVectorsWriter;
+import org.apache.lucene.codecs.KnnVectorsWriter;
+import org.apache.lucene.codecs.hnsw.FlatFieldVectorsWriter;
+import org.apache.lucene.codecs.hnsw.FlatVectorsWriter;
+import org.apache.lucene.index.DocsWithFieldSet;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.FloatVectorValues;
+import org.apache.lucene.index.IndexFileNames;
+import org.apache.lucene.index.KnnVectorValues;
+import org.apache.lucene.index.MergeState;
+import org.apache.lucene.index.SegmentWriteState;
+import org.apache.lucene.index.Sorter;
+import org.apache.lucene.index.VectorEncoding;
+import org.apache.lucene.index.VectorSimilarityFunction;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.VectorUtil;
+import org.elasticsearch.core.SuppressForbidden;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.apache.lucene.index.VectorSimilarityFunction.COSINE;
+import static org.apache.lucene.index.VectorSimilarityFunction.EUCLIDEAN;
+import static org.apache.lucene.search.DocIdSetIterator.NO_MORE_DOCS;
+import static org.apache.lucene.util.RamUsageEstimator.shallowSizeOfInstance;
+
+/**
+ * Writes the partitions of {@link ES817IvfBinaryQuantizedVectorsFormat}. Each field is written as:
+ * <ul>
+ *     <li>the centroids of its partitions followed by the offsets of their posting lists, in the centroids file</li>
+ *     <li>one posting list per partition in the postings file: the number of vectors, their delta-encoded doc ids, their
+ *     binary quantized codes and then their corrective terms</li>
+ * </ul>
+ * The raw vectors are written by the delegate flat vectors writer.
+ */
+@SuppressForbidden(reason = "Lucene classes")
+public class ES817IvfBinaryQuantizedVectorsWriter extends KnnVectorsWriter {
+
+    private static final long SHALLOW_RAM_BYTES_USED = shallowSizeOfInstance(ES817IvfBinaryQuantizedVectorsWriter.class);
+    private static final long CLUSTERING_SEED = 42L;
+
+    private final SegmentWriteState segmentWriteState;
+    private final List<FieldWriter> fields = new ArrayList<>();
+    private final IndexOutput meta, centroids, postings;
+    private final FlatVectorsWriter rawVectorDelegate;
+    private final int vectorsPerCluster;
+    private boolean finished;
+
+    ES817IvfBinaryQuantizedVectorsWriter(SegmentWriteState state, FlatVectorsWriter rawVectorDelegate, int vectorsPerCluster)
+        throws IOException {
+        this.segmentWriteState = state;
+        this.rawVectorDelegate = rawVectorDelegate;
+        this.vectorsPerCluster = vectorsPerCluster;
+        String metaFileName = IndexFileNames.segmentFileName(
+            state.segmentInfo.name,
+            state.segmentSuffix,
+            ES817IvfBinaryQuantizedVectorsFormat.META_EXTENSION
+        );
+        String centroidsFileName = IndexFileNames.segmentFileName(
+            state.segmentInfo.name,
+            state.segmentSuffix,
+            ES817IvfBinaryQuantizedVectorsFormat.CENTROIDS_EXTENSION
+        );
+        String postingsFileName = IndexFileNames.segmentFileName(
+            state.segmentInfo.name,
+            state.segmentSuffix,
+            ES817IvfBinaryQuantizedVectorsFormat.POSTINGS_EXTENSION
+        );
+        boolean success = false;
+        try {
+            meta = state.directory.createOutput(metaFileName, state.context);
+            centroids = state.directory.createOutput(centroidsFileName, state.context);
+            postings = state.directory.createOutput(postingsFileName, state.context);
+            CodecUtil.writeIndexHeader(
+                meta,
+                ES817IvfBinaryQuantizedVectorsFormat.META_CODEC_NAME,
+                ES817IvfBinaryQuantizedVectorsFormat.VERSION_CURRENT,
+                state.segmentInfo.getId(),
+                state.segmentSuffix
+            );
+            CodecUtil.writeIndexHeader(
+                centroids,
+                ES817IvfBinaryQuantizedVectorsFormat.CENTROIDS_CODEC_NAME,
+                ES817IvfBinaryQuantizedVectorsFormat.VERSION_CURRENT,
+                state.segmentInfo.getId(),
+                state.segmentSuffix
+            );
+            CodecUtil.writeIndexHeader(
+                postings,
+                ES817IvfBinaryQuantizedVectorsFormat.POSTINGS_CODEC_NAME,
+                ES817IvfBinaryQuantizedVectorsFormat.VERSION_CURRENT,
+                state.segmentInfo.getId(),
+                state.segmentSuffix
+            );
+            success = true;
+        } finally {
+            if (success == false) {
+                IOUtils.closeWhileHandlingException(this);
+            }
+        }
+    }
+
+    @Override
+    public KnnFieldVectorsWriter<?> addField(FieldInfo fieldInfo) throws IOException {
+        FlatFieldVectorsWriter<?> rawVectorDelegate = this.rawVectorDelegate.addField(fieldInfo);
+        if (fieldInfo.getVectorEncoding().equals(VectorEncoding.FLOAT32)) {
+            @SuppressWarnings("unchecked")
+            FlatFieldVectorsWriter<float[]> floatWriter = (FlatFieldVectorsWriter<float[]>) rawVectorDelegate;
+            fields.add(new FieldWriter(fieldInfo, floatWriter));
+        }
+        // the raw vectors writer copies and buffers the vectors, which are partitioned on flush
+        return rawVectorDelegate;
+    }
+
+    @Override
+    public void flush(int maxDoc, Sorter.DocMap sortMap) throws IOException {
+        rawVectorDelegate.flush(maxDoc, sortMap);
+        for (FieldWriter field : fields) {
+            List<float[]> vectors = field.flatFieldVectorsWriter.getVectors();
+            DocsWithFieldSet docsWithField = field.flatFieldVectorsWriter.getDocsWithFieldSet();
+            // pairs of (doc, ord), sorted by doc so that posting lists can be delta-encoded
+            long[] docsAndOrds = new long[vectors.size()];
+            DocIdSetIterator iterator = docsWithField.iterator();
+            int ord = 0;
+            for (int doc = iterator.nextDoc(); doc != NO_MORE_DOCS; doc = iterator.nextDoc()) {
+                int newDoc = sortMap == null ? doc : sortMap.oldToNew(doc);
+                docsAndOrds[ord] = ((long) newDoc << 32) | ord;
+                ord++;
+            }
+            if (sortMap != null) {
+                Arrays.sort(docsAndOrds);
+            }
+            int[] docs = new int[docsAndOrds.length];
+            int[] ordMap = new int[docsAndOrds.length];
+            for (int i = 0; i < docsAndOrds.length; i++) {
+                docs[i] = (int) (docsAndOrds[i] >>> 32);
+                ordMap[i] = (int) docsAndOrds[i];
+            }
+            writeField(field.fieldInfo, new OnHeapVectors(vectors, ordMap, field.fieldInfo), docs);
+        }
+    }
+
+    @Override
+    public void mergeOneField(FieldInfo fieldInfo, MergeState mergeState) throws IOException {
+        rawVectorDelegate.mergeOneField(fieldInfo, mergeState);
+        if (fieldInfo.getVectorEncoding().equals(VectorEncoding.FLOAT32) == false) {
+            return;
+        }
+        // the merged vectors are spilled to a temporary file rather than buffered, the clustering needs several passes
+        IndexOutput tempVectors = segmentWriteState.directory.createTempOutput(postings.getName(), "temp", segmentWriteState.context);
+        IndexInput vectorsInput = null;
+        boolean success = false;
+        try {
+            FloatVectorValues floatVectorValues = KnnVectorsWriter.MergedVectorValues.mergeFloatVectorValues(fieldInfo, mergeState);
+            int[] docs = new int[floatVectorValues.size()];
+            int count = 0;
+            ByteBuffer buffer = ByteBuffer.allocate(fieldInfo.getVectorDimension() * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            float[] normalized = fieldInfo.getVectorSimilarityFunction() == COSINE ? new float[fieldInfo.getVectorDimension()] : null;
+            KnnVectorValues.DocIndexIterator iterator = floatVectorValues.iterator();
+            for (int doc = iterator.nextDoc(); doc != NO_MORE_DOCS; doc = iterator.nextDoc()) {
+                float[] vector = floatVectorValues.vectorValue(iterator.index());
+                if (normalized != null) {
+                    System.arraycopy(vector, 0, normalized, 0, vector.length);
+                    vector = VectorUtil.l2normalize(normalized);
+                }
+                buffer.asFloatBuffer().put(vector);
+                tempVectors.writeBytes(buffer.array(), buffer.array().length);
+                docs = ArrayUtil.grow(docs, count + 1);
+                docs[count++] = doc;
+            }
+            CodecUtil.writeFooter(tempVectors);
+            IOUtils.close(tempVectors);
+            vectorsInput = segmentWriteState.directory.openInput(tempVectors.getName(), segmentWriteState.context);
+            writeField(fieldInfo, new OffHeapVectors(vectorsInput, fieldInfo.getVectorDimension(), count), Arrays.copyOf(docs, count));
+            success = true;
+        } finally {
+            if (success) {
+                IOUtils.close(vectorsInput);
+            } else {
+                IOUtils.closeWhileHandlingException(tempVectors, vectorsInput);
+            }
+            IOUtils.deleteFilesIgnoringExceptions(segmentWriteState.directory, tempVectors.getName());
+        }
+    }
+
+    /**
+     * Partitions the vectors of a field and writes its centroids, posting lists and metadata.
+     *
+     * @param vectors the vectors to write, normalized for cosine similarity
+     * @param docs the doc id of every vector, in increasing order
+     */
+    private void writeField(FieldInfo fieldInfo, KMeans.Vectors vectors, int[] docs) throws IOException {
+        VectorSimilarityFunction similarityFunction = fieldInfo.getVectorSimilarityFunction();
+        int dimension = fieldInfo.getVectorDimension();
+        KMeans.Result clusters = KMeans.cluster(vectors, vectorsPerCluster, CLUSTERING_SEED);
+        float[][] clusterCenters = clusters.centroids();
+        if (similarityFunction == COSINE) {
+            for (float[] centroid : clusterCenters) {
+                VectorUtil.l2normalize(centroid);
+            }
+        }
+        if (segmentWriteState.infoStream.isEnabled(ES816BinaryQuantizedVectorsFormat.BINARIZED_VECTOR_COMPONENT)) {
+            segmentWriteState.infoStream.message(
+                ES816BinaryQuantizedVectorsFormat.BINARIZED_VECTOR_COMPONENT,
+                "Vectors' count:" + docs.length + ", partitions:" + clusterCenters.length
+            );
+        }
+
+        // group ordinals by partition, they stay sorted by doc within each partition
+        int[] starts = new int[clusterCenters.length + 1];
+        for (int assignment : clusters.assignments()) {
+            starts[assignment + 1]++;
+        }
+        for (int c = 0; c < clusterCenters.length; c++) {
+            starts[c + 1] += starts[c];
+        }
+        int[] ordsByCluster = new int[docs.length];
+        int[] next = Arrays.copyOf(starts, clusterCenters.length);
+        for (int ord = 0; ord < docs.length; ord++) {
+            ordsByCluster[next[clusters.assignments()[ord]]++] = ord;
+        }
+
+        BinaryQuantizer quantizer = new BinaryQuantizer(dimension, BQVectorUtils.discretize(dimension, 64), similarityFunction);
+        byte[] code = new byte[BQVectorUtils.discretize(dimension, 64) / 8];
+        int correctionsCount = similarityFunction != EUCLIDEAN ? 3 : 2;
+        long postingsOffset = postings.getFilePointer();
+        long[] postingOffsets = new long[clusterCenters.length];
+        float[] corrections = new float[0];
+        for (int c = 0; c < clusterCenters.length; c++) {
+            postingOffsets[c] = postings.getFilePointer() - postingsOffset;
+            int size = starts[c + 1] - starts[c];
+            postings.writeVInt(size);
+            int previousDoc = 0;
+            for (int i = starts[c]; i < starts[c + 1]; i++) {
+                int doc = docs[ordsByCluster[i]];
+                postings.writeVInt(doc - previousDoc);
+                previousDoc = doc;
+            }
+            if (corrections.length < size * correctionsCount) {
+                corrections = new float[size * correctionsCount];
+            }
+            for (int i = starts[c]; i < starts[c + 1]; i++) {
+                float[] vectorCorrections = quantizer.quantizeForIndex(vectors.vector(ordsByCluster[i]), code, clusterCenters[c]);
+                postings.writeBytes(code, code.length);
+                System.arraycopy(vectorCorrections, 0, corrections, (i - starts[c]) * correctionsCount, correctionsCount);
+            }
+            for (int i = 0; i < size * correctionsCount; i++) {
+                postings.writeInt(Float.floatToIntBits(corrections[i]));
+            }
+        }
+        long postingsLength = postings.getFilePointer() - postingsOffset;
+
+        long centroidsOffset = centroids.alignFilePointer(Float.BYTES);
+        ByteBuffer buffer = ByteBuffer.allocate(dimension * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (float[] centroid : clusterCenters) {
+            buffer.asFloatBuffer().put(centroid);
+            centroids.writeBytes(buffer.array(), buffer.array().length);
+        }
+        for (long postingOffset : postingOffsets) {
+            centroids.writeLong(postingOffset);
+        }
+        long centroidsLength = centroids.getFilePointer() - centroidsOffset;
+
+        meta.writeInt(fieldInfo.number);
+        meta.writeInt(fieldInfo.getVectorEncoding().ordinal());
+        meta.writeInt(similarityFunction.ordinal());
+        meta.writeVInt(dimension);
+        meta.writeVInt(docs.length);
+        meta.writeVInt(clusterCenters.length);
+        meta.writeVLong(centroidsOffset);
+        meta.writeVLong(centroidsLength);
+        meta.writeVLong(postingsOffset);
+        meta.writeVLong(postingsLength);
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (finished) {
+            throw new IllegalStateException("already finished");
+        }
+        finished = true;
+        rawVectorDelegate.finish();
+        if (meta != null) {
+            // write end of fields marker
+            meta.writeInt(-1);
+            CodecUtil.writeFooter(meta);
+        }
+        if (centroids != null) {
+            CodecUtil.writeFooter(centroids);
+        }
+        if (postings != null) {
+            CodecUtil.writeFooter(postings);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOUtils.close(meta, centroids, postings, rawVectorDelegate);
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        // the raw vectors writer accounts for the buffered vectors
+        return SHALLOW_RAM_BYTES_USED + rawVectorDelegate.ramBytesUsed();
+    }
+
+    private record FieldWriter(FieldInfo fieldInfo, FlatFieldVectorsWriter<float[]> flatFieldVectorsWriter) {}
+
+    /** The buffered vectors of a flushed field, in the order of their (possibly sorted) doc ids */
+    private static class OnHeapVectors implements KMeans.Vectors {
+        private final List<float[]> vectors;
+        private final int[] ordMap;
+        private final int dimension;
+        private final float[] normalized;
+
+        OnHeapVectors(List<float[]> vectors, int[] ordMap, FieldInfo fieldInfo) {
+            this.vectors = vectors;
+            this.ordMap = ordMap;
+            this.dimension = fieldInfo.getVectorDimension();
+            this.normalized = fieldInfo.getVectorSimilarityFunction() == COSINE ? new float[fieldInfo.getVectorDimension()] : null;
+        }
+
+        @Override
+        public int size() {
+            return ordMap.length;
+        }
+
+        @Override
+        public int dimension() {
+            return dimension;
+        }
+
+        @Override
+        public float[] vector(int ord) {
+            float[] vector = vectors.get(ordMap[ord]);
+            if (normalized == null) {
+                return vector;
+            }
+            // the buffered vectors are the raw vectors, don't normalize them in place
+            System.arraycopy(vector, 0, normalized, 0, vector.length);
+            return VectorUtil.l2normalize(normalized);
+        }
+    }
+
+    /** The merged vectors of a field, spilled to a temporary file */
+    private static class OffHeapVectors implements KMeans.Vectors {
+        private final IndexInput input;
+        private final int dimension;
+        private final int size;
+        private final float[] vector;
+
+        OffHeapVectors(IndexInput input, int dimension, int size) {
+            this.input = input;
+            this.dimension = dimension;
+            this.size = size;
+            this.vector = new float[dimension];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public int dimension() {
+            return dimension;
+        }
+
+        @Override
+        public float[] vector(int ord) throws IOException {
+            input.seek((long) ord * dimension * Float.BYTES);
+            input.readFloats(vector, 0, dimension);
+            return vector;
+        }
+    }
+}
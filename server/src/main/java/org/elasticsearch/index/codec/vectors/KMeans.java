@@ -0,0 +1,199 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.index.codec.vectors;
+
+import org.apache.lucene.util.VectorUtil;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Hierarchical k-means used to partition the vectors of {@link ES817IvfBinaryQuantizedVectorsFormat}. Vectors are split
+ * in at most {@link #MAX_BRANCHING} clusters at a time, trained on a sample, and clusters that are still too large are
+ * split again. This bounds the cost of assigning a vector to {@code MAX_BRANCHING} comparisons per level rather than one
+ * comparison per final partition, and only ever keeps the training sample on heap.
+ */
+final class KMeans {
+
+    static final int MAX_BRANCHING = 64;
+    static final int SAMPLES_PER_CLUSTER = 64;
+    static final int ITERATIONS = 8;
+
+    /** Random access to the vectors to cluster. The returned array may be reused between calls. */
+    interface Vectors {
+        int size();
+
+        int dimension();
+
+        float[] vector(int ord) throws IOException;
+    }
+
+    /**
+     * @param centroids the centroids of the partitions
+     * @param assignments the partition of every vector, indexed by ordinal
+     */
+    record Result(float[][] centroids, int[] assignments) {}
+
+    private KMeans() {}
+
+    /**
+     * Partitions the given vectors in clusters of at most {@code vectorsPerCluster} vectors, unless a cluster cannot be
+     * split any further, for instance because all its vectors are equal.
+     */
+    static Result cluster(Vectors vectors, int vectorsPerCluster, long seed) throws IOException {
+        int[] ords = new int[vectors.size()];
+        for (int i = 0; i < ords.length; i++) {
+            ords[i] = i;
+        }
+        List<float[]> centroids = new ArrayList<>();
+        int[] assignments = new int[vectors.size()];
+        if (ords.length > 0) {
+            split(vectors, ords, vectorsPerCluster, new Random(seed), centroids, assignments);
+        }
+        return new Result(centroids.toArray(new float[0][]), assignments);
+    }
+
+    private static void split(Vectors vectors, int[] ords, int vectorsPerCluster, Random random, List<float[]> centroids, int[] assignments)
+        throws IOException {
+        if (ords.length <= vectorsPerCluster) {
+            addLeaf(mean(vectors, ords), ords, centroids, assignments);
+            return;
+        }
+        int k = (int) Math.min(MAX_BRANCHING, ((long) ords.length + vectorsPerCluster - 1) / vectorsPerCluster);
+        float[][] centers = train(vectors, ords, k, random);
+        int[] counts = new int[k];
+        int[] nearest = new int[ords.length];
+        for (int i = 0; i < ords.length; i++) {
+            nearest[i] = nearest(centers, vectors.vector(ords[i]));
+            counts[nearest[i]]++;
+        }
+        int[][] clusters = new int[k][];
+        for (int c = 0; c < k; c++) {
+            clusters[c] = new int[counts[c]];
+        }
+        Arrays.fill(counts, 0);
+        for (int i = 0; i < ords.length; i++) {
+            // ordinals stay sorted within each cluster so that they are read in order
+            clusters[nearest[i]][counts[nearest[i]]++] = ords[i];
+        }
+        for (int c = 0; c < k; c++) {
+            if (clusters[c].length == 0) {
+                continue;
+            }
+            if (clusters[c].length == ords.length) {
+                // the vectors could not be told apart, there is no point in splitting further
+                addLeaf(mean(vectors, clusters[c]), clusters[c], centroids, assignments);
+            } else {
+                split(vectors, clusters[c], vectorsPerCluster, random, centroids, assignments);
+            }
+        }
+    }
+
+    private static void addLeaf(float[] centroid, int[] ords, List<float[]> centroids, int[] assignments) {
+        int id = centroids.size();
+        centroids.add(centroid);
+        for (int ord : ords) {
+            assignments[ord] = id;
+        }
+    }
+
+    /** Runs Lloyd's algorithm on a sample of the given vectors */
+    private static float[][] train(Vectors vectors, int[] ords, int k, Random random) throws IOException {
+        int[] sampleOrds = ords;
+        int sampleSize = Math.min(ords.length, k * SAMPLES_PER_CLUSTER);
+        if (sampleSize < ords.length) {
+            // reservoir sampling, then sort to read the sample in order
+            sampleOrds = Arrays.copyOf(ords, sampleSize);
+            for (int i = sampleSize; i < ords.length; i++) {
+                int j = random.nextInt(i + 1);
+                if (j < sampleSize) {
+                    sampleOrds[j] = ords[i];
+                }
+            }
+            Arrays.sort(sampleOrds);
+        }
+        float[][] sample = new float[sampleSize][];
+        for (int i = 0; i < sampleSize; i++) {
+            sample[i] = vectors.vector(sampleOrds[i]).clone();
+        }
+
+        // initialize the centers with distinct random samples
+        float[][] centers = new float[k][];
+        int[] shuffled = new int[sampleSize];
+        for (int i = 0; i < sampleSize; i++) {
+            shuffled[i] = i;
+        }
+        for (int c = 0; c < k; c++) {
+            int j = c + random.nextInt(sampleSize - c);
+            int tmp = shuffled[c];
+            shuffled[c] = shuffled[j];
+            shuffled[j] = tmp;
+            centers[c] = sample[shuffled[c]].clone();
+        }
+
+        int dimension = vectors.dimension();
+        float[][] sums = new float[k][dimension];
+        int[] counts = new int[k];
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            for (int c = 0; c < k; c++) {
+                Arrays.fill(sums[c], 0f);
+            }
+            Arrays.fill(counts, 0);
+            for (float[] vector : sample) {
+                int c = nearest(centers, vector);
+                counts[c]++;
+                float[] sum = sums[c];
+                for (int d = 0; d < dimension; d++) {
+                    sum[d] += vector[d];
+                }
+            }
+            for (int c = 0; c < k; c++) {
+                // empty clusters keep their previous center
+                if (counts[c] > 0) {
+                    for (int d = 0; d < dimension; d++) {
+                        centers[c][d] = sums[c][d] / counts[c];
+                    }
+                }
+            }
+        }
+        return centers;
+    }
+
+    private static float[] mean(Vectors vectors, int[] ords) throws IOException {
+        float[] mean = new float[vectors.dimension()];
+        for (int ord : ords) {
+            float[] vector = vectors.vector(ord);
+            for (int d = 0; d < mean.length; d++) {
+                mean[d] += vector[d];
+            }
+        }
+        for (int d = 0; d < mean.length; d++) {
+            mean[d] /= ords.length;
+        }
+        return mean;
+    }
+
+    /** Returns the index of the center that is the closest to the given vector */
+    static int nearest(float[][] centers, float[] vector) {
+        int nearest = 0;
+        float nearestDistance = Float.MAX_VALUE;
+        for (int c = 0; c < centers.length; c++) {
+            float distance = VectorUtil.squareDistance(centers[c], vector);
+            if (distance < nearestDistance) {
+                nearest = c;
+                nearestDistance = distance;
+            }
+        }
+        return nearest;
+    }
+}
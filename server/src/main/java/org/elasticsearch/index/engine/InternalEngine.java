@@ -23,6 +23,7 @@ import org.apache.lucene.index.MergePolicy;
 import org.apache.lucene.index.MergeScheduler;
 import org.apache.lucene.index.SegmentCommitInfo;
 import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.SegmentReader;
 import org.apache.lucene.index.SoftDeletesRetentionMergePolicy;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.BooleanClause;
@@ -53,6 +54,7 @@ import org.elasticsearch.common.lucene.LoggerInfoStream;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.lucene.index.ElasticsearchDirectoryReader;
 import org.elasticsearch.common.lucene.search.Queries;
+import org.elasticsearch.common.lucene.uid.IdFilters;
 import org.elasticsearch.common.lucene.uid.Versions;
 import org.elasticsearch.common.lucene.uid.VersionsAndSeqNoResolver;
 import org.elasticsearch.common.lucene.uid.VersionsAndSeqNoResolver.DocIdAndSeqNo;
@@ -212,6 +214,13 @@ public class InternalEngine extends Engine {
 
     private final int maxDocs;
 
+    /**
+     * Filters over the {@code _id} terms of the segments of this engine, built lazily by version lookups, or {@code null} if
+     * {@link IndexSettings#ID_FILTER_ENABLED_SETTING} is disabled.
+     */
+    @Nullable
+    private final IdFilters idFilters;
+
     @Nullable
     private final String historyUUID;
 
@@ -239,6 +248,9 @@ public class InternalEngine extends Engine {
     InternalEngine(EngineConfig engineConfig, int maxDocs, BiFunction<Long, Long, LocalCheckpointTracker> localCheckpointTrackerSupplier) {
         super(engineConfig);
         this.maxDocs = maxDocs;
+        this.idFilters = IndexSettings.ID_FILTER_ENABLED_SETTING.get(engineConfig.getIndexSettings().getSettings())
+            ? new IdFilters()
+            : null;
         this.relativeTimeInNanosSupplier = config().getRelativeTimeInNanosSupplier();
         this.lastFlushTimestamp = relativeTimeInNanosSupplier.getAsLong(); // default to creation timestamp
         this.liveVersionMapArchive = createLiveVersionMapArchive();
@@ -995,7 +1007,11 @@ public class InternalEngine extends Engine {
             // load from index
             assert incrementIndexVersionLookup();
             try (Searcher searcher = acquireSearcher("load_seq_no", SearcherScope.INTERNAL)) {
-                final DocIdAndSeqNo docAndSeqNo = VersionsAndSeqNoResolver.loadDocIdAndSeqNo(searcher.getIndexReader(), op.uid());
+                final DocIdAndSeqNo docAndSeqNo = VersionsAndSeqNoResolver.loadDocIdAndSeqNo(
+                    searcher.getIndexReader(),
+                    op.uid(),
+                    idFiltersFor(op)
+                );
                 if (docAndSeqNo == null) {
                     status = OpVsLuceneDocStatus.LUCENE_DOC_NOT_FOUND;
                 } else if (op.seqNo() > docAndSeqNo.seqNo) {
@@ -1012,6 +1028,19 @@ public class InternalEngine extends Engine {
         return status;
     }
 
+    /**
+     * Returns the {@code _id} filters to consult when looking up the given operation in the index. Operations with auto-generated
+     * ids are only looked up when they are retried, so they never trigger filter builds: an index that only uses auto-generated
+     * ids does not pay for the filters.
+     */
+    @Nullable
+    private IdFilters idFiltersFor(final Operation op) {
+        if (op instanceof Index index && index.getAutoGeneratedIdTimestamp() != IndexRequest.UNSET_AUTO_GENERATED_TIMESTAMP) {
+            return null;
+        }
+        return idFilters;
+    }
+
     /** resolves the current version of the document, returning null if not found */
     private VersionValue resolveDocVersion(final Operation op, boolean loadSeqNo) throws IOException {
         assert incrementVersionLookup(); // used for asserting in tests
@@ -1026,13 +1055,15 @@ public class InternalEngine extends Engine {
                         searcher.getIndexReader(),
                         op.uid(),
                         op.id(),
-                        loadSeqNo
+                        loadSeqNo,
+                        idFiltersFor(op)
                     );
                 } else {
                     docIdAndVersion = VersionsAndSeqNoResolver.timeSeriesLoadDocIdAndVersion(
                         searcher.getIndexReader(),
                         op.uid(),
-                        loadSeqNo
+                        loadSeqNo,
+                        idFiltersFor(op)
                     );
                 }
             }
@@ -2580,6 +2611,14 @@ public class InternalEngine extends Engine {
         return lastCommittedSegmentInfos;
     }
 
+    @Override
+    protected void fillSegmentStats(SegmentReader segmentReader, boolean includeSegmentFileSizes, SegmentsStats stats) {
+        super.fillSegmentStats(segmentReader, includeSegmentFileSizes, stats);
+        if (idFilters != null) {
+            stats.addIdFilterMemoryInBytes(idFilters.ramBytesUsed(segmentReader));
+        }
+    }
+
     @Override
     protected final void writerSegmentStats(SegmentsStats stats) {
         stats.addVersionMapMemoryInBytes(versionMap.ramBytesUsed());
@@ -32,6 +32,7 @@ public class SegmentsStats implements Writeable, ToXContentFragment {
     private long versionMapMemoryInBytes;
     private long maxUnsafeAutoIdTimestamp = Long.MIN_VALUE;
     private long bitsetMemoryInBytes;
+    private long idFilterMemoryInBytes;
     private final Map<String, FileStats> files;
 
     public SegmentsStats() {
@@ -53,6 +54,9 @@ public class SegmentsStats implements Writeable, ToXContentFragment {
         versionMapMemoryInBytes = in.readLong();
         bitsetMemoryInBytes = in.readLong();
         maxUnsafeAutoIdTimestamp = in.readLong();
+        if (in.getTransportVersion().onOrAfter(TransportVersions.ID_FILTER_MEMORY_STATS)) {
+            idFilterMemoryInBytes = in.readLong();
+        }
         files = in.readMapValues(FileStats::new, FileStats::getExt);
     }
 
@@ -76,6 +80,10 @@ public class SegmentsStats implements Writeable, ToXContentFragment {
         this.bitsetMemoryInBytes += bitsetMemoryInBytes;
     }
 
+    public void addIdFilterMemoryInBytes(long idFilterMemoryInBytes) {
+        this.idFilterMemoryInBytes += idFilterMemoryInBytes;
+    }
+
     public void addFiles(Map<String, FileStats> newFiles) {
         newFiles.forEach((k, v) -> files.merge(k, v, FileStats::merge));
     }
@@ -89,6 +97,7 @@ public class SegmentsStats implements Writeable, ToXContentFragment {
         addIndexWriterMemoryInBytes(mergeStats.indexWriterMemoryInBytes);
         addVersionMapMemoryInBytes(mergeStats.versionMapMemoryInBytes);
         addBitsetMemoryInBytes(mergeStats.bitsetMemoryInBytes);
+        addIdFilterMemoryInBytes(mergeStats.idFilterMemoryInBytes);
         addFiles(mergeStats.files);
     }
 
@@ -132,6 +141,17 @@ public class SegmentsStats implements Writeable, ToXContentFragment {
         return ByteSizeValue.ofBytes(bitsetMemoryInBytes);
     }
 
+    /**
+     * Estimation of how much the per-segment filters over {@code _id} terms, used by version lookups, are taking.
+     */
+    public long getIdFilterMemoryInBytes() {
+        return idFilterMemoryInBytes;
+    }
+
+    public ByteSizeValue getIdFilterMemory() {
+        return ByteSizeValue.ofBytes(idFilterMemoryInBytes);
+    }
+
     /**
      * Returns a mapping of file extension to statistics about files of that type.
      *
@@ -163,6 +183,7 @@ public class SegmentsStats implements Writeable, ToXContentFragment {
         builder.humanReadableField(Fields.INDEX_WRITER_MEMORY_IN_BYTES, Fields.INDEX_WRITER_MEMORY, getIndexWriterMemory());
         builder.humanReadableField(Fields.VERSION_MAP_MEMORY_IN_BYTES, Fields.VERSION_MAP_MEMORY, getVersionMapMemory());
         builder.humanReadableField(Fields.FIXED_BIT_SET_MEMORY_IN_BYTES, Fields.FIXED_BIT_SET, getBitsetMemory());
+        builder.humanReadableField(Fields.ID_FILTER_MEMORY_IN_BYTES, Fields.ID_FILTER_MEMORY, getIdFilterMemory());
         builder.field(Fields.MAX_UNSAFE_AUTO_ID_TIMESTAMP, maxUnsafeAutoIdTimestamp);
         builder.startObject(Fields.FILE_SIZES);
         for (Map.Entry<String, FileStats> entry : files.entrySet()) {
@@ -183,12 +204,21 @@ public class SegmentsStats implements Writeable, ToXContentFragment {
             && versionMapMemoryInBytes == that.versionMapMemoryInBytes
             && maxUnsafeAutoIdTimestamp == that.maxUnsafeAutoIdTimestamp
             && bitsetMemoryInBytes == that.bitsetMemoryInBytes
+            && idFilterMemoryInBytes == that.idFilterMemoryInBytes
             && Objects.equals(files, that.files);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(count, indexWriterMemoryInBytes, versionMapMemoryInBytes, maxUnsafeAutoIdTimestamp, bitsetMemoryInBytes, files);
+        return Objects.hash(
+            count,
+            indexWriterMemoryInBytes,
+            versionMapMemoryInBytes,
+            maxUnsafeAutoIdTimestamp,
+            bitsetMemoryInBytes,
+            idFilterMemoryInBytes,
+            files
+        );
     }
 
     static final class Fields {
@@ -215,6 +245,8 @@ public class SegmentsStats implements Writeable, ToXContentFragment {
         static final String MAX_UNSAFE_AUTO_ID_TIMESTAMP = "max_unsafe_auto_id_timestamp";
         static final String FIXED_BIT_SET = "fixed_bit_set";
         static final String FIXED_BIT_SET_MEMORY_IN_BYTES = "fixed_bit_set_memory_in_bytes";
+        static final String ID_FILTER_MEMORY = "id_filter_memory";
+        static final String ID_FILTER_MEMORY_IN_BYTES = "id_filter_memory_in_bytes";
         static final String FILE_SIZES = "file_sizes";
     }
 
@@ -234,6 +266,9 @@ public class SegmentsStats implements Writeable, ToXContentFragment {
         out.writeLong(versionMapMemoryInBytes);
         out.writeLong(bitsetMemoryInBytes);
         out.writeLong(maxUnsafeAutoIdTimestamp);
+        if (out.getTransportVersion().onOrAfter(TransportVersions.ID_FILTER_MEMORY_STATS)) {
+            out.writeLong(idFilterMemoryInBytes);
+        }
 
         out.writeCollection(files.values());
     }
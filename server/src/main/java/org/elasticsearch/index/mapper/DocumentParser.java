@@ -1052,7 +1052,7 @@ public final class DocumentParser {
                 ObjectMapper.Dynamic.getRootDynamic(mappingLookup)
             );
             if (mappingLookup.getMapping().getRoot().subobjects() == ObjectMapper.Subobjects.ENABLED) {
-                this.parser = DotExpandingXContentParser.expandDots(parser, this.path);
+                this.parser = DotExpandingXContentParser.expandDots(parser, this.path, mappingLookup.dottedFieldNames());
             } else {
                 this.parser = parser;
             }
@@ -41,10 +41,12 @@ class DotExpandingXContentParser extends FilterXContentParserWrapper {
     private static final class WrappingParser extends FilterXContentParser {
 
         private final ContentPath contentPath;
+        private final Map<String, String[]> knownSubpaths;
         final Deque<XContentParser> parsers = new ArrayDeque<>();
 
-        WrappingParser(XContentParser in, ContentPath contentPath) throws IOException {
+        WrappingParser(XContentParser in, ContentPath contentPath, Map<String, String[]> knownSubpaths) throws IOException {
             this.contentPath = contentPath;
+            this.knownSubpaths = knownSubpaths;
             parsers.push(in);
             if (in.currentToken() == Token.FIELD_NAME) {
                 expandDots(in);
@@ -86,6 +88,13 @@ class DotExpandingXContentParser extends FilterXContentParserWrapper {
             if (dotCount == 0) {
                 return;
             }
+            // names of mapped fields are split ahead of time into their interned leaf names, which saves allocating
+            // substrings and makes the following object mapper lookups hit cached hashes and identity equality
+            final String[] subpaths = knownSubpaths.get(field);
+            if (subpaths != null) {
+                pushSubParser(delegate, subpaths);
+                return;
+            }
             doExpandDots(delegate, field, dotCount);
         }
 
@@ -243,7 +252,19 @@ class DotExpandingXContentParser extends FilterXContentParserWrapper {
      * @return  the wrapped XContentParser
      */
     static XContentParser expandDots(XContentParser in, ContentPath contentPath) throws IOException {
-        return new WrappingParser(in, contentPath);
+        return expandDots(in, contentPath, Map.of());
+    }
+
+    /**
+     * Wraps an XContentParser such that it re-interprets dots in field names as an object structure, using pre-computed splits
+     * for known dotted field names
+     * @param in                the parser to wrap
+     * @param knownSubpaths     dotted field names mapped to their already validated parts, see {@link MappingLookup#dottedFieldNames()}
+     * @return  the wrapped XContentParser
+     */
+    static XContentParser expandDots(XContentParser in, ContentPath contentPath, Map<String, String[]> knownSubpaths)
+        throws IOException {
+        return new WrappingParser(in, contentPath, knownSubpaths);
     }
 
     private enum State {
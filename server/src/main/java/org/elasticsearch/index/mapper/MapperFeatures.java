@@ -53,7 +53,8 @@ public class MapperFeatures implements FeatureSpecification {
             SourceFieldMapper.SYNTHETIC_SOURCE_COPY_TO_INSIDE_OBJECTS_FIX,
             TimeSeriesRoutingHashFieldMapper.TS_ROUTING_HASH_FIELD_PARSES_BYTES_REF,
             FlattenedFieldMapper.IGNORE_ABOVE_WITH_ARRAYS_SUPPORT,
-            DenseVectorFieldMapper.BBQ_FORMAT
+            DenseVectorFieldMapper.BBQ_FORMAT,
+            DenseVectorFieldMapper.IVF_BBQ_FORMAT
         );
     }
 
@@ -18,6 +18,7 @@ import org.elasticsearch.index.analysis.NamedAnalyzer;
 import org.elasticsearch.inference.InferenceService;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -50,6 +51,7 @@ public final class MappingLookup {
     /** Full field name to mapper */
     private final Map<String, Mapper> fieldMappers;
     private final Map<String, ObjectMapper> objectMappers;
+    private final Map<String, String[]> dottedFieldNames;
     private final Map<String, InferenceFieldMetadata> inferenceFields;
     private final int runtimeFieldMappersCount;
     private final NestedLookup nestedLookup;
@@ -213,11 +215,42 @@ public final class MappingLookup {
         this.indexAnalyzersMap = Map.copyOf(indexAnalyzersMap);
         this.completionFields = Set.copyOf(completionFields);
         this.indexTimeScriptMappers = List.copyOf(indexTimeScriptMappers);
+        this.dottedFieldNames = buildDottedFieldNames(this.fieldMappers.keySet(), this.objectMappers.keySet());
 
         runtimeFields.stream().flatMap(RuntimeField::asMappedFieldTypes).map(MappedFieldType::name).forEach(this::validateDoesNotShadow);
         assert assertMapperNamesInterned(this.fieldMappers, this.objectMappers);
     }
 
+    /**
+     * Splits every dotted suffix of the given paths into its parts, so that e.g. {@code a.b.c} yields entries for {@code a.b.c} and
+     * {@code b.c}. These are exactly the dotted field names a document can use to address a mapped field or object from any of its
+     * parent objects.
+     */
+    private static Map<String, String[]> buildDottedFieldNames(Set<String> fieldPaths, Set<String> objectPaths) {
+        Map<String, String[]> dottedFieldNames = new HashMap<>();
+        for (Set<String> paths : List.of(fieldPaths, objectPaths)) {
+            for (String path : paths) {
+                if (path.indexOf('.') < 0) {
+                    continue;
+                }
+                String[] parts = path.split("\\.");
+                boolean valid = parts.length == FieldTypeLookup.dotCount(path) + 1;
+                for (int i = 0; valid && i < parts.length; i++) {
+                    valid = parts[i].isBlank() == false;
+                    parts[i] = Mapper.internFieldName(parts[i]);
+                }
+                if (valid == false) {
+                    // leave empty or blank parts to the parser, which knows how to reject or strip them
+                    continue;
+                }
+                for (int i = 0, offset = 0; i < parts.length - 1; offset += parts[i].length() + 1, i++) {
+                    dottedFieldNames.putIfAbsent(path.substring(offset), Arrays.copyOfRange(parts, i, parts.length));
+                }
+            }
+        }
+        return Map.copyOf(dottedFieldNames);
+    }
+
     private static boolean assertMapperNamesInterned(Map<String, Mapper> mappers, Map<String, ObjectMapper> objectMappers) {
         mappers.forEach(MappingLookup::assertNamesInterned);
         objectMappers.forEach(MappingLookup::assertNamesInterned);
@@ -382,6 +415,13 @@ public final class MappingLookup {
         }
     }
 
+    /**
+     * Returns all dotted field names that address a mapped field or object, mapped to their parts.
+     */
+    Map<String, String[]> dottedFieldNames() {
+        return dottedFieldNames;
+    }
+
     public Map<String, ObjectMapper> objectMappers() {
         return objectMappers;
     }
@@ -38,6 +38,7 @@ import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.VectorUtil;
 import org.elasticsearch.common.ParsingException;
 import org.elasticsearch.common.xcontent.support.XContentMapValues;
+import org.elasticsearch.core.Nullable;
 import org.elasticsearch.features.NodeFeature;
 import org.elasticsearch.index.IndexVersion;
 import org.elasticsearch.index.IndexVersions;
@@ -48,6 +49,7 @@ import org.elasticsearch.index.codec.vectors.ES815BitFlatVectorFormat;
 import org.elasticsearch.index.codec.vectors.ES815HnswBitVectorsFormat;
 import org.elasticsearch.index.codec.vectors.ES816BinaryQuantizedVectorsFormat;
 import org.elasticsearch.index.codec.vectors.ES816HnswBinaryQuantizedVectorsFormat;
+import org.elasticsearch.index.codec.vectors.ES817IvfBinaryQuantizedVectorsFormat;
 import org.elasticsearch.index.fielddata.FieldDataContext;
 import org.elasticsearch.index.fielddata.IndexFieldData;
 import org.elasticsearch.index.mapper.ArraySourceValueFetcher;
@@ -70,6 +72,9 @@ import org.elasticsearch.search.vectors.ESDiversifyingChildrenByteKnnVectorQuery
 import org.elasticsearch.search.vectors.ESDiversifyingChildrenFloatKnnVectorQuery;
 import org.elasticsearch.search.vectors.ESKnnByteVectorQuery;
 import org.elasticsearch.search.vectors.ESKnnFloatVectorQuery;
+import org.elasticsearch.search.vectors.KnnVectorQueryBuilder;
+import org.elasticsearch.search.vectors.RescoreKnnVectorQuery;
+import org.elasticsearch.search.vectors.RescoreVectorBuilder;
 import org.elasticsearch.search.vectors.VectorData;
 import org.elasticsearch.search.vectors.VectorSimilarityQuery;
 import org.elasticsearch.xcontent.ToXContent;
@@ -110,6 +115,7 @@ public class DenseVectorFieldMapper extends FieldMapper {
     public static final NodeFeature INT4_QUANTIZATION = new NodeFeature("mapper.vectors.int4_quantization");
     public static final NodeFeature BIT_VECTORS = new NodeFeature("mapper.vectors.bit_vectors");
     public static final NodeFeature BBQ_FORMAT = new NodeFeature("mapper.vectors.bbq");
+    public static final NodeFeature IVF_BBQ_FORMAT = new NodeFeature("mapper.vectors.ivf_bbq");
 
     public static final IndexVersion MAGNITUDE_STORED_INDEX_VERSION = IndexVersions.V_7_5_0;
     public static final IndexVersion INDEXED_BY_DEFAULT_INDEX_VERSION = IndexVersions.FIRST_DETACHED_INDEX_VERSION;
@@ -1216,7 +1222,7 @@ public class DenseVectorFieldMapper extends FieldMapper {
     }
 
     private enum VectorIndexType {
-        HNSW("hnsw") {
+        HNSW("hnsw", false) {
             @Override
             public IndexOptions parseIndexOptions(String fieldName, Map<String, ?> indexOptionsMap) {
                 Object mNode = indexOptionsMap.remove("m");
@@ -1243,7 +1249,7 @@ public class DenseVectorFieldMapper extends FieldMapper {
                 return true;
             }
         },
-        INT8_HNSW("int8_hnsw") {
+        INT8_HNSW("int8_hnsw", true) {
             @Override
             public IndexOptions parseIndexOptions(String fieldName, Map<String, ?> indexOptionsMap) {
                 Object mNode = indexOptionsMap.remove("m");
@@ -1275,7 +1281,7 @@ public class DenseVectorFieldMapper extends FieldMapper {
                 return true;
             }
         },
-        INT4_HNSW("int4_hnsw") {
+        INT4_HNSW("int4_hnsw", true) {
             public IndexOptions parseIndexOptions(String fieldName, Map<String, ?> indexOptionsMap) {
                 Object mNode = indexOptionsMap.remove("m");
                 Object efConstructionNode = indexOptionsMap.remove("ef_construction");
@@ -1306,7 +1312,7 @@ public class DenseVectorFieldMapper extends FieldMapper {
                 return dims % 2 == 0;
             }
         },
-        FLAT("flat") {
+        FLAT("flat", false) {
             @Override
             public IndexOptions parseIndexOptions(String fieldName, Map<String, ?> indexOptionsMap) {
                 MappingParser.checkNoRemainingFields(fieldName, indexOptionsMap);
@@ -1323,7 +1329,7 @@ public class DenseVectorFieldMapper extends FieldMapper {
                 return true;
             }
         },
-        INT8_FLAT("int8_flat") {
+        INT8_FLAT("int8_flat", true) {
             @Override
             public IndexOptions parseIndexOptions(String fieldName, Map<String, ?> indexOptionsMap) {
                 Object confidenceIntervalNode = indexOptionsMap.remove("confidence_interval");
@@ -1345,7 +1351,7 @@ public class DenseVectorFieldMapper extends FieldMapper {
                 return true;
             }
         },
-        INT4_FLAT("int4_flat") {
+        INT4_FLAT("int4_flat", true) {
             @Override
             public IndexOptions parseIndexOptions(String fieldName, Map<String, ?> indexOptionsMap) {
                 Object confidenceIntervalNode = indexOptionsMap.remove("confidence_interval");
@@ -1367,7 +1373,7 @@ public class DenseVectorFieldMapper extends FieldMapper {
                 return dims % 2 == 0;
             }
         },
-        BBQ_HNSW("bbq_hnsw") {
+        BBQ_HNSW("bbq_hnsw", true) {
             @Override
             public IndexOptions parseIndexOptions(String fieldName, Map<String, ?> indexOptionsMap) {
                 Object mNode = indexOptionsMap.remove("m");
@@ -1394,7 +1400,7 @@ public class DenseVectorFieldMapper extends FieldMapper {
                 return dims >= BBQ_MIN_DIMS;
             }
         },
-        BBQ_FLAT("bbq_flat") {
+        BBQ_FLAT("bbq_flat", true) {
             @Override
             public IndexOptions parseIndexOptions(String fieldName, Map<String, ?> indexOptionsMap) {
                 MappingParser.checkNoRemainingFields(fieldName, indexOptionsMap);
@@ -1406,6 +1412,28 @@ public class DenseVectorFieldMapper extends FieldMapper {
                 return elementType == ElementType.FLOAT;
             }
 
+            @Override
+            public boolean supportsDimension(int dims) {
+                return dims >= BBQ_MIN_DIMS;
+            }
+        },
+        IVF_BBQ("ivf_bbq", true) {
+            @Override
+            public IndexOptions parseIndexOptions(String fieldName, Map<String, ?> indexOptionsMap) {
+                Object vectorsPerClusterNode = indexOptionsMap.remove("vectors_per_cluster");
+                if (vectorsPerClusterNode == null) {
+                    vectorsPerClusterNode = ES817IvfBinaryQuantizedVectorsFormat.DEFAULT_VECTORS_PER_CLUSTER;
+                }
+                int vectorsPerCluster = XContentMapValues.nodeIntegerValue(vectorsPerClusterNode);
+                MappingParser.checkNoRemainingFields(fieldName, indexOptionsMap);
+                return new IvfBBQIndexOptions(vectorsPerCluster);
+            }
+
+            @Override
+            public boolean supportsElementType(ElementType elementType) {
+                return elementType == ElementType.FLOAT;
+            }
+
             @Override
             public boolean supportsDimension(int dims) {
                 return dims >= BBQ_MIN_DIMS;
@@ -1417,9 +1445,11 @@ public class DenseVectorFieldMapper extends FieldMapper {
         }
 
         private final String name;
+        private final boolean quantized;
 
-        VectorIndexType(String name) {
+        VectorIndexType(String name, boolean quantized) {
             this.name = name;
+            this.quantized = quantized;
         }
 
         abstract IndexOptions parseIndexOptions(String fieldName, Map<String, ?> indexOptionsMap);
@@ -1428,6 +1458,13 @@ public class DenseVectorFieldMapper extends FieldMapper {
 
         public abstract boolean supportsDimension(int dims);
 
+        /**
+         * Whether the vectors are searched with a quantized copy, while the raw vectors are kept for rescoring and merges.
+         */
+        public boolean isQuantized() {
+            return quantized;
+        }
+
         @Override
         public String toString() {
             return name;
@@ -1871,6 +1908,66 @@ public class DenseVectorFieldMapper extends FieldMapper {
         }
     }
 
+    static class IvfBBQIndexOptions extends IndexOptions {
+        private final int vectorsPerCluster;
+
+        IvfBBQIndexOptions(int vectorsPerCluster) {
+            super(VectorIndexType.IVF_BBQ);
+            if (vectorsPerCluster < ES817IvfBinaryQuantizedVectorsFormat.MIN_VECTORS_PER_CLUSTER
+                || vectorsPerCluster > ES817IvfBinaryQuantizedVectorsFormat.MAX_VECTORS_PER_CLUSTER) {
+                throw new IllegalArgumentException(
+                    "[vectors_per_cluster] must be between "
+                        + ES817IvfBinaryQuantizedVectorsFormat.MIN_VECTORS_PER_CLUSTER
+                        + " and "
+                        + ES817IvfBinaryQuantizedVectorsFormat.MAX_VECTORS_PER_CLUSTER
+                        + "; provided="
+                        + vectorsPerCluster
+                );
+            }
+            this.vectorsPerCluster = vectorsPerCluster;
+        }
+
+        @Override
+        KnnVectorsFormat getVectorsFormat(ElementType elementType) {
+            assert elementType == ElementType.FLOAT;
+            return new ES817IvfBinaryQuantizedVectorsFormat(vectorsPerCluster);
+        }
+
+        @Override
+        boolean updatableTo(IndexOptions update) {
+            // the partitions of existing segments are re-clustered with the new size when they are merged
+            return update.type.equals(this.type);
+        }
+
+        @Override
+        boolean doEquals(IndexOptions other) {
+            IvfBBQIndexOptions that = (IvfBBQIndexOptions) other;
+            return vectorsPerCluster == that.vectorsPerCluster;
+        }
+
+        @Override
+        int doHashCode() {
+            return Objects.hash(vectorsPerCluster);
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            builder.startObject();
+            builder.field("type", type);
+            builder.field("vectors_per_cluster", vectorsPerCluster);
+            builder.endObject();
+            return builder;
+        }
+
+        @Override
+        public void validateDimension(int dim) {
+            if (type.supportsDimension(dim)) {
+                return;
+            }
+            throw new IllegalArgumentException(type.name + " does not support dimensions fewer than " + BBQ_MIN_DIMS + "; provided=" + dim);
+        }
+    }
+
     public static final TypeParser PARSER = new TypeParser(
         (n, c) -> new Builder(n, c.indexVersionCreated()),
         notInMultiFields(CONTENT_TYPE)
@@ -2003,6 +2100,23 @@ public class DenseVectorFieldMapper extends FieldMapper {
             Query filter,
             Float similarityThreshold,
             BitSetProducer parentFilter
+        ) {
+            return createKnnQuery(queryVector, k, numCands, filter, similarityThreshold, parentFilter, null);
+        }
+
+        /**
+         * Creates a kNN query on this field. If {@code rescoreVectorBuilder} is provided and the vectors of this field are quantized,
+         * the query gathers {@code k * oversample} candidates with the quantized vectors and rescores them with the raw vectors.
+         * It has no effect on fields that index the raw vectors.
+         */
+        public Query createKnnQuery(
+            VectorData queryVector,
+            Integer k,
+            int numCands,
+            Query filter,
+            Float similarityThreshold,
+            BitSetProducer parentFilter,
+            @Nullable RescoreVectorBuilder rescoreVectorBuilder
         ) {
             if (isIndexed() == false) {
                 throw new IllegalArgumentException(
@@ -2011,7 +2125,15 @@ public class DenseVectorFieldMapper extends FieldMapper {
             }
             return switch (getElementType()) {
                 case BYTE -> createKnnByteQuery(queryVector.asByteVector(), k, numCands, filter, similarityThreshold, parentFilter);
-                case FLOAT -> createKnnFloatQuery(queryVector.asFloatVector(), k, numCands, filter, similarityThreshold, parentFilter);
+                case FLOAT -> createKnnFloatQuery(
+                    queryVector.asFloatVector(),
+                    k,
+                    numCands,
+                    filter,
+                    similarityThreshold,
+                    parentFilter,
+                    rescoreVectorBuilder
+                );
                 case BIT -> createKnnBitQuery(queryVector.asByteVector(), k, numCands, filter, similarityThreshold, parentFilter);
             };
         }
@@ -2071,7 +2193,8 @@ public class DenseVectorFieldMapper extends FieldMapper {
             int numCands,
             Query filter,
             Float similarityThreshold,
-            BitSetProducer parentFilter
+            BitSetProducer parentFilter,
+            RescoreVectorBuilder rescoreVectorBuilder
         ) {
             elementType.checkDimensions(dims, queryVector.length);
             elementType.checkVectorBounds(queryVector);
@@ -2088,9 +2211,33 @@ public class DenseVectorFieldMapper extends FieldMapper {
                     }
                 }
             }
-            Query knnQuery = parentFilter != null
-                ? new ESDiversifyingChildrenFloatKnnVectorQuery(name(), queryVector, filter, k, numCands, parentFilter)
-                : new ESKnnFloatVectorQuery(name(), queryVector, k, numCands, filter);
+            Query knnQuery;
+            if (rescoreVectorBuilder != null && isQuantized()) {
+                int rescoreK = k == null ? numCands : k;
+                int oversampledK = rescoreVectorBuilder.numCandidates(rescoreK, KnnVectorQueryBuilder.NUM_CANDS_LIMIT);
+                int oversampledNumCands = Math.max(numCands, oversampledK);
+                knnQuery = parentFilter != null
+                    ? new ESDiversifyingChildrenFloatKnnVectorQuery(
+                        name(),
+                        queryVector,
+                        filter,
+                        oversampledK,
+                        oversampledNumCands,
+                        parentFilter
+                    )
+                    : new ESKnnFloatVectorQuery(name(), queryVector, oversampledK, oversampledNumCands, filter);
+                knnQuery = new RescoreKnnVectorQuery(
+                    name(),
+                    queryVector,
+                    similarity.vectorSimilarityFunction(indexVersionCreated, elementType),
+                    rescoreK,
+                    knnQuery
+                );
+            } else {
+                knnQuery = parentFilter != null
+                    ? new ESDiversifyingChildrenFloatKnnVectorQuery(name(), queryVector, filter, k, numCands, parentFilter)
+                    : new ESKnnFloatVectorQuery(name(), queryVector, k, numCands, filter);
+            }
             if (similarityThreshold != null) {
                 knnQuery = new VectorSimilarityQuery(
                     knnQuery,
@@ -2105,6 +2252,10 @@ public class DenseVectorFieldMapper extends FieldMapper {
             return similarity;
         }
 
+        boolean isQuantized() {
+            return indexOptions != null && indexOptions.type.isQuantized();
+        }
+
         int getVectorDimensions() {
             return dims;
         }
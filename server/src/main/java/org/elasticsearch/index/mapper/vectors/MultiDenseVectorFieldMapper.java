@@ -13,6 +13,7 @@ import org.apache.lucene.document.BinaryDocValuesField;
 import org.apache.lucene.index.BinaryDocValues;
 import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.search.FieldExistsQuery;
+import org.apache.lucene.search.MatchNoDocsQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.common.util.FeatureFlag;
@@ -34,6 +35,7 @@ import org.elasticsearch.index.mapper.ValueFetcher;
 import org.elasticsearch.index.query.SearchExecutionContext;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.aggregations.support.CoreValuesSourceType;
+import org.elasticsearch.search.vectors.MaxSimQuery;
 import org.elasticsearch.search.vectors.VectorData;
 import org.elasticsearch.xcontent.XContentBuilder;
 import org.elasticsearch.xcontent.XContentParser;
@@ -220,6 +222,39 @@ public class MultiDenseVectorFieldMapper extends FieldMapper {
             throw new IllegalArgumentException("Field [" + name() + "] of type [" + typeName() + "] doesn't support term queries");
         }
 
+        /**
+         * Creates a query that scores every document that has vectors for this field with the sum, over the query vectors,
+         * of their maximum similarity with the document vectors.
+         */
+        public Query createMaxSimQuery(List<VectorData> queryVectors) {
+            if (dims == null) {
+                return new MatchNoDocsQuery("No data has been indexed for field [" + name() + "]");
+            }
+            if (queryVectors.isEmpty()) {
+                throw new IllegalArgumentException("at least one query vector is required to query field [" + name() + "]");
+            }
+            return switch (elementType) {
+                case FLOAT -> {
+                    float[][] vectors = new float[queryVectors.size()][];
+                    for (int i = 0; i < vectors.length; i++) {
+                        vectors[i] = queryVectors.get(i).asFloatVector();
+                        elementType.checkDimensions(dims, vectors[i].length);
+                    }
+                    yield new MaxSimQuery.Floats(name(), vectors);
+                }
+                case BYTE, BIT -> {
+                    byte[][] vectors = new byte[queryVectors.size()][];
+                    for (int i = 0; i < vectors.length; i++) {
+                        vectors[i] = queryVectors.get(i).asByteVector();
+                        elementType.checkDimensions(dims, vectors[i].length);
+                    }
+                    yield elementType == DenseVectorFieldMapper.ElementType.BYTE
+                        ? new MaxSimQuery.Bytes(name(), vectors)
+                        : new MaxSimQuery.Bits(name(), vectors);
+                }
+            };
+        }
+
         int getVectorDimensions() {
             return dims;
         }
@@ -11,11 +11,15 @@ package org.elasticsearch.index.query;
 
 import org.elasticsearch.client.internal.Client;
 import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.metadata.IndexMetadata;
+import org.elasticsearch.common.cache.Cache;
 import org.elasticsearch.core.Nullable;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.mapper.DateFieldMapper;
 import org.elasticsearch.index.shard.IndexLongFieldRange;
+import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.indices.DateFieldRangeInfo;
+import org.elasticsearch.search.ShardFieldSummary;
 import org.elasticsearch.xcontent.XContentParserConfiguration;
 
 import java.util.function.Function;
@@ -28,6 +32,8 @@ public class CoordinatorRewriteContextProvider {
     private final LongSupplier nowInMillis;
     private final Supplier<ClusterState> clusterStateSupplier;
     private final Function<Index, DateFieldRangeInfo> mappingSupplier;
+    @Nullable
+    private final Cache<ShardId, ShardFieldSummary> shardFieldSummaries;
 
     public CoordinatorRewriteContextProvider(
         XContentParserConfiguration parserConfig,
@@ -35,12 +41,51 @@ public class CoordinatorRewriteContextProvider {
         LongSupplier nowInMillis,
         Supplier<ClusterState> clusterStateSupplier,
         Function<Index, DateFieldRangeInfo> mappingSupplier
+    ) {
+        this(parserConfig, client, nowInMillis, clusterStateSupplier, mappingSupplier, null);
+    }
+
+    public CoordinatorRewriteContextProvider(
+        XContentParserConfiguration parserConfig,
+        Client client,
+        LongSupplier nowInMillis,
+        Supplier<ClusterState> clusterStateSupplier,
+        Function<Index, DateFieldRangeInfo> mappingSupplier,
+        @Nullable Cache<ShardId, ShardFieldSummary> shardFieldSummaries
     ) {
         this.parserConfig = parserConfig;
         this.client = client;
         this.nowInMillis = nowInMillis;
         this.clusterStateSupplier = clusterStateSupplier;
         this.mappingSupplier = mappingSupplier;
+        this.shardFieldSummaries = shardFieldSummaries;
+    }
+
+    /**
+     * Returns the field summary that a data node reported for the given shard, or {@code null} if there is none or the
+     * index's settings or mappings changed since it was built.
+     */
+    @Nullable
+    public ShardFieldSummary getShardFieldSummary(ShardId shardId) {
+        if (shardFieldSummaries == null) {
+            return null;
+        }
+        final ShardFieldSummary summary = shardFieldSummaries.get(shardId);
+        if (summary == null) {
+            return null;
+        }
+        final IndexMetadata indexMetadata = clusterStateSupplier.get().metadata().index(shardId.getIndex());
+        if (indexMetadata == null || summary.isValidFor(indexMetadata) == false) {
+            shardFieldSummaries.invalidate(shardId, summary);
+            return null;
+        }
+        return summary;
+    }
+
+    public void putShardFieldSummary(ShardId shardId, ShardFieldSummary summary) {
+        if (shardFieldSummaries != null) {
+            shardFieldSummaries.put(shardId, summary);
+        }
     }
 
     @Nullable
@@ -475,6 +475,14 @@ public class SearchExecutionContext extends QueryRewriteContext {
         };
     }
 
+    /**
+     * Return the index-time analyzer of a single field
+     * @param unindexedFieldAnalyzer    a function that builds an analyzer for unindexed fields
+     */
+    public NamedAnalyzer getIndexAnalyzer(String field, Function<String, NamedAnalyzer> unindexedFieldAnalyzer) {
+        return mappingLookup.indexAnalyzer(field, unindexedFieldAnalyzer);
+    }
+
     public void setAllowedFields(Predicate<String> allowedFields) {
         this.allowedFields = allowedFields;
     }
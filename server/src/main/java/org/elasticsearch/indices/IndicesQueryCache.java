@@ -12,13 +12,18 @@ package org.elasticsearch.indices;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.BulkScorer;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.Explanation;
 import org.apache.lucene.search.LRUQueryCache;
+import org.apache.lucene.search.LeafCollector;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.QueryCache;
 import org.apache.lucene.search.QueryCachingPolicy;
+import org.apache.lucene.search.Scorable;
 import org.apache.lucene.search.ScorerSupplier;
 import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.RoaringDocIdSet;
 import org.elasticsearch.common.lucene.ShardCoreKeyMap;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Setting.Property;
@@ -61,8 +66,25 @@ public class IndicesQueryCache implements QueryCache, Closeable {
         false,
         Property.NodeScope
     );
+    // once the cache is full, only admit queries whose cached sets save enough work per byte, see QueryCacheAdmissionPolicy
+    public static final Setting<Boolean> INDICES_QUERIES_CACHE_COST_AWARE_ADMISSION_SETTING = Setting.boolSetting(
+        "indices.queries.cache.cost_aware_admission",
+        false,
+        Property.NodeScope
+    );
+
+    /**
+     * With cost aware admission, doc id sets with a density below {@code 1/ROARING_DENSITY_DIVISOR} or above
+     * {@code 1 - 1/ROARING_DENSITY_DIVISOR} are cached as a {@link RoaringDocIdSet}, which stores such blocks of docs as short
+     * arrays of (non-)matching docs and is smaller than a bitset at these densities. Lucene only does so below a density of 1%.
+     */
+    static final int ROARING_DENSITY_DIVISOR = 16;
 
     private final LRUQueryCache cache;
+    @Nullable
+    private final QueryCacheAdmissionPolicy admissionPolicy;
+    // the query and build time of the doc id set that the current thread is about to cache, see onDocIdSetCache
+    private final ThreadLocal<PendingBuild> pendingBuild = ThreadLocal.withInitial(PendingBuild::new);
     private final ShardCoreKeyMap shardKeyMap = new ShardCoreKeyMap();
     private final Map<ShardId, Stats> shardStats = new ConcurrentHashMap<>();
     private volatile long sharedRamBytesUsed;
@@ -82,6 +104,11 @@ public class IndicesQueryCache implements QueryCache, Closeable {
         } else {
             cache = new ElasticsearchLRUQueryCache(count, size.getBytes());
         }
+        if (INDICES_QUERIES_CACHE_COST_AWARE_ADMISSION_SETTING.get(settings)) {
+            admissionPolicy = new QueryCacheAdmissionPolicy(cache::getRamBytesUsed, size.getBytes(), System::nanoTime);
+        } else {
+            admissionPolicy = null;
+        }
         sharedRamBytesUsed = 0;
     }
 
@@ -144,12 +171,33 @@ public class IndicesQueryCache implements QueryCache, Closeable {
         while (weight instanceof CachingWeightWrapper) {
             weight = ((CachingWeightWrapper) weight).in;
         }
-        final Weight in = cache.doCache(weight, policy);
+        final QueryCachingPolicy cachingPolicy = admissionPolicy == null ? policy : new AdmissionCachingPolicy(policy, admissionPolicy);
+        final Weight in = cache.doCache(weight, cachingPolicy);
         // We wrap the weight to track the readers it sees and map them with
         // the shards they belong to
         return new CachingWeightWrapper(in);
     }
 
+    /**
+     * Only caches what both the shard's caching policy and the node's admission policy agree on.
+     */
+    private record AdmissionCachingPolicy(QueryCachingPolicy in, QueryCacheAdmissionPolicy admissionPolicy) implements QueryCachingPolicy {
+        @Override
+        public void onUse(Query query) {
+            in.onUse(query);
+        }
+
+        @Override
+        public boolean shouldCache(Query query) throws IOException {
+            return in.shouldCache(query) && admissionPolicy.admit(query);
+        }
+    }
+
+    private static class PendingBuild {
+        Query query;
+        long buildNanos = -1;
+    }
+
     private class CachingWeightWrapper extends Weight {
 
         private final Weight in;
@@ -321,9 +369,47 @@ public class IndicesQueryCache implements QueryCache, Closeable {
             sharedRamBytesUsed -= ramBytesUsed;
         }
 
+        @Override
+        protected CacheAndCount cacheImpl(BulkScorer scorer, int maxDoc) throws IOException {
+            if (admissionPolicy == null) {
+                return super.cacheImpl(scorer, maxDoc);
+            }
+            final long startNanos = System.nanoTime();
+            final CacheAndCount cached = buildCache(scorer, maxDoc);
+            pendingBuild.get().buildNanos = System.nanoTime() - startNanos;
+            return cached;
+        }
+
+        private CacheAndCount buildCache(BulkScorer scorer, int maxDoc) throws IOException {
+            final long scaledCost = scorer.cost() * ROARING_DENSITY_DIVISOR;
+            if (scaledCost >= maxDoc && scaledCost <= (long) maxDoc * (ROARING_DENSITY_DIVISOR - 1)) {
+                return super.cacheImpl(scorer, maxDoc);
+            }
+            final RoaringDocIdSet.Builder builder = new RoaringDocIdSet.Builder(maxDoc);
+            scorer.score(new LeafCollector() {
+                @Override
+                public void setScorer(Scorable scorer) {}
+
+                @Override
+                public void collect(int doc) {
+                    builder.add(doc);
+                }
+            }, null, 0, DocIdSetIterator.NO_MORE_DOCS);
+            final RoaringDocIdSet docIdSet = builder.build();
+            return new CacheAndCount(docIdSet, docIdSet.cardinality());
+        }
+
         @Override
         protected void onDocIdSetCache(Object readerCoreKey, long ramBytesUsed) {
             super.onDocIdSetCache(readerCoreKey, ramBytesUsed);
+            if (admissionPolicy != null) {
+                final PendingBuild build = pendingBuild.get();
+                if (build.query != null && build.buildNanos >= 0) {
+                    admissionPolicy.onBuild(build.query, build.buildNanos, ramBytesUsed);
+                }
+                build.query = null;
+                build.buildNanos = -1;
+            }
             final Stats shardStats = getOrCreateStats(readerCoreKey);
             shardStats.cacheSize += 1;
             shardStats.cacheCount += 1;
@@ -365,6 +451,9 @@ public class IndicesQueryCache implements QueryCache, Closeable {
             super.onHit(readerCoreKey, filter);
             final Stats shardStats = getStats(readerCoreKey);
             shardStats.hitCount += 1;
+            if (admissionPolicy != null) {
+                admissionPolicy.onHit(filter);
+            }
         }
 
         @Override
@@ -372,6 +461,12 @@ public class IndicesQueryCache implements QueryCache, Closeable {
             super.onMiss(readerCoreKey, filter);
             final Stats shardStats = getOrCreateStats(readerCoreKey);
             shardStats.missCount += 1;
+            if (admissionPolicy != null) {
+                // a miss is followed by building and caching the doc id set on the same thread if the query is admitted
+                final PendingBuild build = pendingBuild.get();
+                build.query = filter;
+                build.buildNanos = -1;
+            }
         }
     }
 }
@@ -18,22 +18,32 @@ import org.elasticsearch.common.cache.Cache;
 import org.elasticsearch.common.cache.CacheBuilder;
 import org.elasticsearch.common.cache.CacheLoader;
 import org.elasticsearch.common.cache.RemovalNotification;
+import org.elasticsearch.common.cache.RemovalNotification.RemovalReason;
 import org.elasticsearch.common.lucene.index.ElasticsearchDirectoryReader;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.core.IOUtils;
+import org.elasticsearch.core.Nullable;
 import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.index.mapper.MappingLookup;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * The indices request cache allows to cache a shard level request stage responses, helping with improving
@@ -45,6 +55,10 @@ import java.util.concurrent.ConcurrentMap;
  * Currently, the cache is only enabled for count requests, and can only be opted in on an index
  * level setting that can be dynamically changed and defaults to false.
  * <p>
+ * If {@link #INDICES_CACHE_QUERY_DISK_SIZE} is set, entries that are evicted from the heap are spilled to a
+ * {@link RequestCacheDiskTier} and served from there until their reader is closed or the disk tier evicts them. The files
+ * of the disk tier are written on a dedicated executor so that neither searches nor the cache's locks wait for the disk.
+ * <p>
  * There are still several TODOs left in this class, some easily addressable, some more complex, but the support
  * is functional.
  */
@@ -70,26 +84,139 @@ public final class IndicesRequestCache implements Closeable {
         new TimeValue(0),
         Property.NodeScope
     );
+    /**
+     * The size of the on-disk tier that entries evicted from the heap are spilled to. Defaults to {@code 0b}, which disables it.
+     */
+    public static final Setting<ByteSizeValue> INDICES_CACHE_QUERY_DISK_SIZE = Setting.byteSizeSetting(
+        "indices.requests.cache.disk.size",
+        ByteSizeValue.ZERO,
+        Property.NodeScope
+    );
+
+    /**
+     * The name of the directory below the node data path that holds the on-disk tier.
+     */
+    static final String DISK_TIER_FOLDER = "request_cache";
+
+    /**
+     * The maximum number of evicted entries that wait to be written to the disk tier. Entries that are evicted while the disk
+     * falls behind are dropped rather than held on heap.
+     */
+    static final int MAX_PENDING_SPILLS = 1024;
 
     private final ConcurrentMap<CleanupKey, Boolean> registeredClosedListeners = ConcurrentCollections.newConcurrentMap();
     private final Set<CleanupKey> keysToClean = ConcurrentCollections.newConcurrentSet();
     private final Cache<Key, BytesReference> cache;
+    @Nullable
+    private final RequestCacheDiskTier diskTier;
+    private final Executor spillExecutor;
+    // evicted entries are spilled outside the cache's locks, see #spillEvictedEntries
+    private final ConcurrentMap<Key, BytesReference> pendingSpills = ConcurrentCollections.newConcurrentMap();
+    private final AtomicBoolean spilling = new AtomicBoolean();
 
     IndicesRequestCache(Settings settings) {
+        this(settings, null, EsExecutors.DIRECT_EXECUTOR_SERVICE);
+    }
+
+    /**
+     * @param dataPath the node data path to keep the on-disk tier under, or {@code null} if the node has none
+     * @param spillExecutor the executor that writes evicted entries to the on-disk tier
+     */
+    IndicesRequestCache(Settings settings, @Nullable Path dataPath, Executor spillExecutor) {
+        this.spillExecutor = Objects.requireNonNull(spillExecutor);
         TimeValue expire = INDICES_CACHE_QUERY_EXPIRE.exists(settings) ? INDICES_CACHE_QUERY_EXPIRE.get(settings) : null;
+        long diskSize = INDICES_CACHE_QUERY_DISK_SIZE.get(settings).getBytes();
+        if (diskSize > 0 && dataPath != null) {
+            try {
+                diskTier = new RequestCacheDiskTier(dataPath.resolve(DISK_TIER_FOLDER), diskSize);
+            } catch (IOException e) {
+                throw new UncheckedIOException("failed to create the request cache disk tier", e);
+            }
+        } else {
+            diskTier = null;
+        }
         CacheBuilder<Key, BytesReference> cacheBuilder = CacheBuilder.<Key, BytesReference>builder()
             .setMaximumWeight(INDICES_CACHE_QUERY_SIZE.get(settings).getBytes())
             .weigher((k, v) -> k.ramBytesUsed() + v.ramBytesUsed())
-            .removalListener(notification -> notification.getKey().entity.onRemoval(notification));
+            .removalListener(this::onRemoval);
         if (expire != null) {
             cacheBuilder.setExpireAfterAccess(expire);
         }
         cache = cacheBuilder.build();
     }
 
+    private void onRemoval(RemovalNotification<Key, BytesReference> notification) {
+        notification.getKey().entity.onRemoval(notification);
+        if (diskTier != null
+            && notification.getRemovalReason() == RemovalReason.EVICTED
+            && pendingSpills.size() < MAX_PENDING_SPILLS) {
+            pendingSpills.put(notification.getKey(), notification.getValue());
+        }
+    }
+
+    /**
+     * Hands the entries that were evicted from the heap to the spill executor, unless it is working on them already. This is
+     * done after the fact rather than in the removal listener since the latter is called while holding the cache's LRU lock.
+     */
+    private void maybeSpillEvictedEntries() {
+        if (diskTier != null && pendingSpills.isEmpty() == false && spilling.compareAndSet(false, true)) {
+            try {
+                spillExecutor.execute(this::spillEvictedEntries);
+            } catch (EsRejectedExecutionException e) {
+                // the node is shutting down
+                pendingSpills.clear();
+                spilling.set(false);
+            }
+        }
+    }
+
+    /**
+     * Writes the entries that were evicted from the heap to the disk tier. An entry only becomes visible in the disk tier while
+     * it is still pending, and {@link #invalidate} removes the pending entry before the disk tier one, so an invalidated entry
+     * is never brought back by a spill that raced with the invalidation.
+     */
+    private void spillEvictedEntries() {
+        try {
+            for (Map.Entry<Key, BytesReference> evicted : pendingSpills.entrySet()) {
+                final Key key = evicted.getKey();
+                final BytesReference value = evicted.getValue();
+                if (key.entity.isOpen() == false
+                    || registeredClosedListeners.containsKey(new CleanupKey(key.entity, key.readerCacheKey)) == false) {
+                    pendingSpills.remove(key, value);
+                    continue;
+                }
+                final RequestCacheDiskTier.Entry entry = diskTier.write(key, value);
+                if (entry == null) {
+                    pendingSpills.remove(key, value);
+                    continue;
+                }
+                final boolean[] added = new boolean[1];
+                pendingSpills.computeIfPresent(key, (k, pending) -> {
+                    if (pending != value) {
+                        // evicted again in the meantime, the new value is spilled on the next pass
+                        return pending;
+                    }
+                    diskTier.add(k, entry);
+                    added[0] = true;
+                    return null;
+                });
+                if (added[0] == false) {
+                    diskTier.discard(entry);
+                }
+            }
+        } finally {
+            spilling.set(false);
+        }
+        maybeSpillEvictedEntries();
+    }
+
     @Override
     public void close() {
         cache.invalidateAll();
+        if (diskTier != null) {
+            pendingSpills.clear();
+            IOUtils.closeWhileHandlingException(diskTier);
+        }
     }
 
     void clear(CacheEntity entity) {
@@ -107,10 +234,14 @@ public final class IndicesRequestCache implements Closeable {
         final ESCacheHelper cacheHelper = ElasticsearchDirectoryReader.getESReaderCacheHelper(reader);
         assert cacheHelper != null;
         final Key key = new Key(cacheEntity, mappingCacheKey, cacheHelper.getKey(), cacheKey);
-        Loader cacheLoader = new Loader(cacheEntity, loader);
+        Loader cacheLoader = new Loader(cacheEntity, loader, diskTier);
         BytesReference value = cache.computeIfAbsent(key, cacheLoader);
         if (cacheLoader.isLoaded()) {
-            key.entity.onMiss();
+            if (cacheLoader.isLoadedFromDisk()) {
+                key.entity.onHit();
+            } else {
+                key.entity.onMiss();
+            }
             // see if its the first time we see this reader, and make sure to register a cleanup key
             CleanupKey cleanupKey = new CleanupKey(cacheEntity, cacheHelper.getKey());
             if (registeredClosedListeners.containsKey(cleanupKey) == false) {
@@ -131,6 +262,7 @@ public final class IndicesRequestCache implements Closeable {
         } else {
             key.entity.onHit();
         }
+        maybeSpillEvictedEntries();
         return value;
     }
 
@@ -142,27 +274,46 @@ public final class IndicesRequestCache implements Closeable {
      */
     void invalidate(CacheEntity cacheEntity, MappingLookup.CacheKey mappingCacheKey, DirectoryReader reader, BytesReference cacheKey) {
         assert reader.getReaderCacheHelper() != null;
-        cache.invalidate(new Key(cacheEntity, mappingCacheKey, reader.getReaderCacheHelper().getKey(), cacheKey));
+        final Key key = new Key(cacheEntity, mappingCacheKey, reader.getReaderCacheHelper().getKey(), cacheKey);
+        cache.invalidate(key);
+        if (diskTier != null) {
+            // the pending spill must go first, see #spillEvictedEntries
+            pendingSpills.remove(key);
+            diskTier.invalidate(key);
+        }
     }
 
     private static class Loader implements CacheLoader<Key, BytesReference> {
 
         private final CacheEntity entity;
         private final CheckedSupplier<BytesReference, IOException> loader;
+        @Nullable
+        private final RequestCacheDiskTier diskTier;
         private boolean loaded;
+        private boolean loadedFromDisk;
 
-        Loader(CacheEntity entity, CheckedSupplier<BytesReference, IOException> loader) {
+        Loader(CacheEntity entity, CheckedSupplier<BytesReference, IOException> loader, @Nullable RequestCacheDiskTier diskTier) {
             this.entity = entity;
             this.loader = loader;
+            this.diskTier = diskTier;
         }
 
         public boolean isLoaded() {
             return this.loaded;
         }
 
+        public boolean isLoadedFromDisk() {
+            return this.loadedFromDisk;
+        }
+
         @Override
         public BytesReference load(Key key) throws Exception {
-            BytesReference value = loader.get();
+            BytesReference value = diskTier == null ? null : diskTier.get(key);
+            if (value != null) {
+                loadedFromDisk = true;
+            } else {
+                value = loader.get();
+            }
             entity.onCached(key, value);
             loaded = true;
             return value;
@@ -313,19 +464,31 @@ public final class IndicesRequestCache implements Closeable {
             }
         }
         if (currentKeysToClean.isEmpty() == false || currentFullClean.isEmpty() == false) {
-            for (Iterator<Key> iterator = cache.keys().iterator(); iterator.hasNext();) {
-                Key key = iterator.next();
-                if (currentFullClean.contains(key.entity.getCacheIdentity())) {
-                    iterator.remove();
-                } else {
-                    if (currentKeysToClean.contains(new CleanupKey(key.entity, key.readerCacheKey))) {
-                        iterator.remove();
-                    }
-                }
+            cleanKeys(cache.keys(), currentKeysToClean, currentFullClean);
+            if (diskTier != null) {
+                cleanKeys(pendingSpills.keySet(), currentKeysToClean, currentFullClean);
+                cleanKeys(diskTier.keys(), currentKeysToClean, currentFullClean);
             }
         }
 
         cache.refresh();
+        if (diskTier != null) {
+            maybeSpillEvictedEntries();
+            diskTier.deleteRemovedFiles();
+        }
+    }
+
+    private void cleanKeys(Iterable<Key> keys, Set<CleanupKey> currentKeysToClean, Set<Object> currentFullClean) {
+        for (Iterator<Key> iterator = keys.iterator(); iterator.hasNext();) {
+            Key key = iterator.next();
+            if (currentFullClean.contains(key.entity.getCacheIdentity())) {
+                iterator.remove();
+            } else {
+                if (currentKeysToClean.contains(new CleanupKey(key.entity, key.readerCacheKey))) {
+                    iterator.remove();
+                }
+            }
+        }
     }
 
     /**
@@ -339,6 +502,13 @@ public final class IndicesRequestCache implements Closeable {
         return cache.keys();
     }
 
+    /**
+     * Returns the number of entries in the disk tier
+     */
+    int diskCount() {
+        return diskTier == null ? 0 : diskTier.count();
+    }
+
     int numRegisteredCloseListeners() { // for testing
         return registeredClosedListeners.size();
     }
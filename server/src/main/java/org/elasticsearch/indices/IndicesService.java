@@ -46,6 +46,8 @@ import org.elasticsearch.common.CheckedBiConsumer;
 import org.elasticsearch.common.CheckedSupplier;
 import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
 import org.elasticsearch.common.io.FileSystemUtils;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
@@ -136,6 +138,7 @@ import org.elasticsearch.plugins.IndexStorePlugin;
 import org.elasticsearch.plugins.PluginsService;
 import org.elasticsearch.repositories.RepositoriesService;
 import org.elasticsearch.script.ScriptService;
+import org.elasticsearch.search.ShardFieldSummary;
 import org.elasticsearch.search.aggregations.support.ValuesSourceRegistry;
 import org.elasticsearch.search.builder.PointInTimeBuilder;
 import org.elasticsearch.search.internal.AliasFilter;
@@ -152,6 +155,7 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -209,6 +213,11 @@ public class IndicesService extends AbstractLifecycleComponent
         Setting.Property.NodeScope
     );
 
+    /**
+     * The maximum number of shard field summaries that this node keeps for coordinating can_match phases.
+     */
+    private static final long MAX_SHARD_FIELD_SUMMARIES = 65536;
+
     /**
      * The node's settings.
      */
@@ -253,6 +262,8 @@ public class IndicesService extends AbstractLifecycleComponent
 
     @Nullable
     private final EsThreadPoolExecutor danglingIndicesThreadPoolExecutor;
+    @Nullable
+    private final EsThreadPoolExecutor requestCacheSpillExecutor;
     private final Set<Index> danglingIndicesToWrite = ConcurrentCollections.newConcurrentSet();
     private final boolean nodeWriteDanglingIndicesInfo;
     private final ValuesSourceRegistry valuesSourceRegistry;
@@ -261,6 +272,9 @@ public class IndicesService extends AbstractLifecycleComponent
     private final MapperMetrics mapperMetrics;
     private final PostRecoveryMerger postRecoveryMerger;
     private final List<SearchOperationListener> searchOperationListeners;
+    private final Cache<ShardId, ShardFieldSummary> shardFieldSummaries = CacheBuilder.<ShardId, ShardFieldSummary>builder()
+        .setMaximumWeight(MAX_SHARD_FIELD_SUMMARIES)
+        .build();
 
     @Override
     protected void doStart() {
@@ -282,7 +296,24 @@ public class IndicesService extends AbstractLifecycleComponent
         this.valuesSourceRegistry = builder.valuesSourceRegistry;
         this.analysisRegistry = builder.analysisRegistry;
         this.indexNameExpressionResolver = builder.indexNameExpressionResolver;
-        this.indicesRequestCache = new IndicesRequestCache(settings);
+        final Path requestCacheDiskTierPath = requestCacheDiskTierPath(settings, nodeEnv);
+        this.requestCacheSpillExecutor = requestCacheDiskTierPath == null
+            ? null
+            : EsExecutors.newScaling(
+                Objects.requireNonNull(Node.NODE_NAME_SETTING.get(settings)) + "/" + REQUEST_CACHE_SPILL_THREAD_NAME,
+                0,
+                1,
+                60,
+                TimeUnit.SECONDS,
+                true,
+                daemonThreadFactory(settings, REQUEST_CACHE_SPILL_THREAD_NAME),
+                threadPool.getThreadContext()
+            );
+        this.indicesRequestCache = new IndicesRequestCache(
+            settings,
+            requestCacheDiskTierPath,
+            requestCacheSpillExecutor == null ? EsExecutors.DIRECT_EXECUTOR_SERVICE : requestCacheSpillExecutor
+        );
         this.indicesQueryCache = new IndicesQueryCache(settings);
         this.mapperRegistry = builder.mapperRegistry;
         this.namedWriteableRegistry = builder.namedWriteableRegistry;
@@ -342,6 +373,7 @@ public class IndicesService extends AbstractLifecycleComponent
                     indexingMemoryController,
                     indicesFieldDataCache,
                     cacheCleaner,
+                    () -> ThreadPool.terminate(requestCacheSpillExecutor, 10, TimeUnit.SECONDS),
                     indicesRequestCache,
                     indicesQueryCache
                 );
@@ -382,6 +414,45 @@ public class IndicesService extends AbstractLifecycleComponent
     }
 
     private static final String DANGLING_INDICES_UPDATE_THREAD_NAME = "DanglingIndices#updateTask";
+    private static final String REQUEST_CACHE_SPILL_THREAD_NAME = "IndicesRequestCache#spill";
+
+    /**
+     * Picks the data path that holds the on-disk tier of the request cache, or returns {@code null} if the tier is disabled.
+     * The tier only holds entries of open readers and is wiped on startup, so it needs a single path rather than being spread
+     * over all of them like shard data. Since it competes with shard data for space, the path with the most usable space at
+     * startup is picked. A different path may have been picked by a previous run, so the tier is removed from the others.
+     */
+    @Nullable
+    private static Path requestCacheDiskTierPath(Settings settings, NodeEnvironment nodeEnv) {
+        if (IndicesRequestCache.INDICES_CACHE_QUERY_DISK_SIZE.get(settings).getBytes() <= 0 || nodeEnv.hasNodeFile() == false) {
+            return null;
+        }
+        NodeEnvironment.DataPath selected = null;
+        long selectedUsableSpace = -1;
+        for (NodeEnvironment.DataPath dataPath : nodeEnv.dataPaths()) {
+            long usableSpace;
+            try {
+                usableSpace = dataPath.fileStore.getUsableSpace();
+            } catch (IOException e) {
+                logger.debug(() -> "failed to read the usable space of [" + dataPath.path + "]", e);
+                usableSpace = 0;
+            }
+            if (usableSpace > selectedUsableSpace) {
+                selected = dataPath;
+                selectedUsableSpace = usableSpace;
+            }
+        }
+        for (NodeEnvironment.DataPath dataPath : nodeEnv.dataPaths()) {
+            if (dataPath != selected) {
+                try {
+                    IOUtils.rm(dataPath.path.resolve(IndicesRequestCache.DISK_TIER_FOLDER));
+                } catch (IOException e) {
+                    logger.warn(() -> "failed to remove a stale request cache disk tier from [" + dataPath.path + "]", e);
+                }
+            }
+        }
+        return selected.path;
+    }
 
     public ClusterService clusterService() {
         return clusterService;
@@ -1778,7 +1849,8 @@ public class IndicesService extends AbstractLifecycleComponent
             client,
             nowInMillis,
             clusterService::state,
-            this::getTimestampFieldTypeInfo
+            this::getTimestampFieldTypeInfo,
+            shardFieldSummaries
         );
     }
 
@@ -0,0 +1,204 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.indices;
+
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryVisitor;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Decides which queries may add entries to a full {@link IndicesQueryCache}. It tracks, per query shape, how long the
+ * cached doc id sets took to build, how large they are and how often they were reused, and only admits shapes that save
+ * at least a fraction of the work per cached byte that the cache saves on average. A shape is the query class plus the
+ * fields the query targets, so for instance all term queries on the same keyword field share their statistics.
+ * <p>
+ * While the cache has room to spare, or a shape has not been built often enough to be judged, everything is admitted.
+ */
+final class QueryCacheAdmissionPolicy {
+
+    /** Shapes beyond this number are not tracked and always admitted. */
+    static final int MAX_SHAPES = 1024;
+    /** The number of builds after which a shape is judged on its statistics. */
+    static final int MIN_BUILDS = 8;
+    /** The number of builds after which the statistics of a shape are halved, so that they follow changes in the workload. */
+    static final int DECAY_BUILDS = 1024;
+    /** The fraction of the average benefit per byte that a shape must reach to be admitted into a full cache. */
+    static final double MIN_RELATIVE_BENEFIT = 0.5;
+    /** The fraction of the cache's capacity below which everything is admitted. */
+    static final double FULL_RATIO = 0.9;
+    /** One in this many rejected builds of a shape is admitted anyway, so that its statistics can recover. */
+    static final int EXPLORE_INTERVAL = 16;
+
+    private static final long AVERAGE_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final ConcurrentMap<Shape, ShapeStats> shapes = ConcurrentCollections.newConcurrentMap();
+    private final LongSupplier ramBytesUsed;
+    private final long maxRamBytesUsed;
+    private final LongSupplier relativeNanoTime;
+
+    // the caching policy is consulted for every segment that a query runs on, so remember the shape of the last query per thread
+    private final ThreadLocal<QueryAndShape> lastShape = new ThreadLocal<>();
+
+    private volatile double averageBenefitPerByte = Double.NaN;
+    private volatile long averageComputedNanos;
+
+    QueryCacheAdmissionPolicy(LongSupplier ramBytesUsed, long maxRamBytesUsed, LongSupplier relativeNanoTime) {
+        this.ramBytesUsed = ramBytesUsed;
+        this.maxRamBytesUsed = maxRamBytesUsed;
+        this.relativeNanoTime = relativeNanoTime;
+    }
+
+    /**
+     * Returns whether a doc id set built for the given query may be added to the cache.
+     */
+    boolean admit(Query query) {
+        if (ramBytesUsed.getAsLong() < maxRamBytesUsed * FULL_RATIO) {
+            return true;
+        }
+        final ShapeStats stats = shapes.get(shapeOf(query));
+        if (stats == null || stats.builds.sum() < MIN_BUILDS) {
+            return true;
+        }
+        final double average = averageBenefitPerByte();
+        if (Double.isNaN(average) || stats.benefitPerByte() >= average * MIN_RELATIVE_BENEFIT) {
+            return true;
+        }
+        return stats.rejections.incrementAndGet() % EXPLORE_INTERVAL == 0;
+    }
+
+    /**
+     * Called when a cached doc id set was reused for the given query.
+     */
+    void onHit(Query query) {
+        final ShapeStats stats = shapes.get(shapeOf(query));
+        if (stats != null) {
+            stats.hits.increment();
+        }
+    }
+
+    /**
+     * Called when a doc id set was built for the given query and added to the cache.
+     */
+    void onBuild(Query query, long buildNanos, long ramBytesUsed) {
+        final Shape shape = shapeOf(query);
+        ShapeStats stats = shapes.get(shape);
+        if (stats == null) {
+            if (shapes.size() >= MAX_SHAPES) {
+                return;
+            }
+            stats = shapes.computeIfAbsent(shape, s -> new ShapeStats());
+        }
+        stats.onBuild(buildNanos, ramBytesUsed);
+    }
+
+    /**
+     * Returns the shape of the given query, only visiting the query if it differs from the last one seen by this thread.
+     */
+    private Shape shapeOf(Query query) {
+        QueryAndShape last = lastShape.get();
+        if (last == null || (last.query() != query && last.query().equals(query) == false)) {
+            last = new QueryAndShape(query, Shape.of(query));
+            lastShape.set(last);
+        }
+        return last.shape();
+    }
+
+    /**
+     * Returns the benefit per byte across all shapes, recomputed at most once per second.
+     */
+    private double averageBenefitPerByte() {
+        final long now = relativeNanoTime.getAsLong();
+        if (Double.isNaN(averageBenefitPerByte) || now - averageComputedNanos > AVERAGE_REFRESH_NANOS) {
+            double savedNanos = 0;
+            double bytes = 0;
+            for (ShapeStats stats : shapes.values()) {
+                final long builds = stats.builds.sum();
+                if (builds > 0) {
+                    savedNanos += (double) stats.hits.sum() * stats.buildNanos.sum() / builds;
+                    bytes += stats.bytes.sum();
+                }
+            }
+            averageBenefitPerByte = bytes == 0 ? Double.NaN : savedNanos / bytes;
+            averageComputedNanos = now;
+        }
+        return averageBenefitPerByte;
+    }
+
+    int numShapes() {
+        return shapes.size();
+    }
+
+    /**
+     * The query class plus the sorted, comma separated names of the fields the query targets.
+     */
+    record Shape(Class<? extends Query> type, String fields) {
+        static Shape of(Query query) {
+            final Set<String> fields = new TreeSet<>();
+            query.visit(new QueryVisitor() {
+                @Override
+                public boolean acceptField(String field) {
+                    fields.add(field);
+                    return false;
+                }
+            });
+            return new Shape(query.getClass(), String.join(",", fields));
+        }
+    }
+
+    private record QueryAndShape(Query query, Shape shape) {}
+
+    private static final class ShapeStats {
+        final LongAdder hits = new LongAdder();
+        final LongAdder builds = new LongAdder();
+        final LongAdder buildNanos = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+        final AtomicLong rejections = new AtomicLong();
+
+        void onBuild(long nanos, long ramBytesUsed) {
+            builds.increment();
+            buildNanos.add(nanos);
+            bytes.add(ramBytesUsed);
+            if (builds.sum() >= DECAY_BUILDS) {
+                synchronized (this) {
+                    if (builds.sum() >= DECAY_BUILDS) {
+                        halve(hits);
+                        halve(builds);
+                        halve(buildNanos);
+                        halve(bytes);
+                    }
+                }
+            }
+        }
+
+        /**
+         * The build time that reusing the cached sets of this shape saved, per cached byte.
+         */
+        double benefitPerByte() {
+            final long builds = this.builds.sum();
+            final long bytes = this.bytes.sum();
+            if (builds == 0 || bytes == 0) {
+                return 0;
+            }
+            return (double) hits.sum() * buildNanos.sum() / builds / bytes;
+        }
+
+        private static void halve(LongAdder adder) {
+            adder.add(-(adder.sum() / 2));
+        }
+    }
+}
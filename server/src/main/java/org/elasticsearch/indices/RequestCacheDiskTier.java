@@ -0,0 +1,162 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.indices;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.core.IOUtils;
+import org.elasticsearch.core.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The on-disk second tier of the {@link IndicesRequestCache}. Entries evicted from the heap tier are written to a file of
+ * their own below a node data path while their keys stay on heap, so that a later request can read the response back
+ * instead of executing it again. The tier has its own byte budget and evicts the least recently used entries first.
+ * <p>
+ * Keys reference in-memory reader cache keys, so nothing stored by this tier survives a restart and its directory is
+ * wiped when the tier is created.
+ */
+final class RequestCacheDiskTier implements Closeable {
+
+    private static final Logger logger = LogManager.getLogger(RequestCacheDiskTier.class);
+
+    private final Path path;
+    private final AtomicLong nextFileId = new AtomicLong();
+    private final Cache<IndicesRequestCache.Key, Entry> entries;
+    // files are deleted outside the cache's locks, see #deleteRemovedFiles
+    private final Queue<Path> filesToDelete = ConcurrentCollections.newQueue();
+    private volatile boolean closed;
+
+    RequestCacheDiskTier(Path path, long maxSizeInBytes) throws IOException {
+        IOUtils.rm(path);
+        Files.createDirectories(path);
+        this.path = path;
+        this.entries = CacheBuilder.<IndicesRequestCache.Key, Entry>builder()
+            .setMaximumWeight(maxSizeInBytes)
+            .weigher((k, v) -> v.length)
+            .removalListener(notification -> filesToDelete.add(notification.getValue().file))
+            .build();
+    }
+
+    /**
+     * Writes the given value to a file of its own, unless an entry for the key exists already. The returned entry is not visible
+     * until it is passed to {@link #add}, or must be passed to {@link #discard} otherwise.
+     *
+     * @return the written entry or {@code null} if there is nothing to add
+     */
+    @Nullable
+    Entry write(IndicesRequestCache.Key key, BytesReference value) {
+        if (closed || entries.get(key) != null) {
+            return null;
+        }
+        final Path file = path.resolve(Long.toString(nextFileId.incrementAndGet()));
+        try (OutputStream out = Files.newOutputStream(file)) {
+            value.writeTo(out);
+        } catch (IOException e) {
+            logger.debug(() -> "failed to write request cache entry to [" + file + "]", e);
+            discard(new Entry(file, value.length()));
+            return null;
+        }
+        return new Entry(file, value.length());
+    }
+
+    /**
+     * Makes an entry returned by {@link #write} visible.
+     */
+    void add(IndicesRequestCache.Key key, Entry entry) {
+        entries.put(key, entry);
+        deleteRemovedFiles();
+    }
+
+    /**
+     * Deletes the file of an entry returned by {@link #write} that is not going to be added.
+     */
+    void discard(Entry entry) {
+        filesToDelete.add(entry.file);
+        deleteRemovedFiles();
+    }
+
+    /**
+     * Returns the value stored for the given key or {@code null} if there is none.
+     */
+    @Nullable
+    BytesReference get(IndicesRequestCache.Key key) {
+        final Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        try {
+            final byte[] bytes = Files.readAllBytes(entry.file);
+            if (bytes.length == entry.length) {
+                return new BytesArray(bytes);
+            }
+        } catch (IOException e) {
+            // the entry was removed concurrently or the file is unreadable, either way it is a miss
+            logger.trace(() -> "failed to read request cache entry from [" + entry.file + "]", e);
+        }
+        entries.invalidate(key, entry);
+        deleteRemovedFiles();
+        return null;
+    }
+
+    void invalidate(IndicesRequestCache.Key key) {
+        entries.invalidate(key);
+        deleteRemovedFiles();
+    }
+
+    /**
+     * Returns the keys of this tier. Removing a key through the iterator removes its entry, call {@link #deleteRemovedFiles}
+     * once done.
+     */
+    Iterable<IndicesRequestCache.Key> keys() {
+        return entries.keys();
+    }
+
+    int count() {
+        return entries.count();
+    }
+
+    long sizeInBytes() {
+        return entries.weight();
+    }
+
+    void deleteRemovedFiles() {
+        Path file;
+        while ((file = filesToDelete.poll()) != null) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                logger.debug("failed to delete request cache entry [" + file + "]", e);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        entries.invalidateAll();
+        filesToDelete.clear();
+        IOUtils.rm(path);
+    }
+
+    record Entry(Path file, int length) {}
+}
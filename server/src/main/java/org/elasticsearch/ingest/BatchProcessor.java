@@ -0,0 +1,43 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.ingest;
+
+import java.util.List;
+
+/**
+ * A synchronous processor that can process a batch of documents in a single call. When batch execution is enabled (see
+ * {@link IngestSettings#BATCH_EXECUTION_ENABLED}), the top level processors of a pipeline that implement this interface are
+ * called once for all the documents of a bulk request that go through the pipeline, so that the dispatch, metrics and any
+ * per call setup of the processor are paid once per batch instead of once per document. Processors that are wrapped, for
+ * example by a condition or an {@code on_failure} handler, still run one document at a time.
+ * <p>
+ * Only processors that actually share work across the documents of a batch should implement this interface: the default
+ * {@link #executeBatch} gives no benefit over running the processor one document at a time.
+ */
+public interface BatchProcessor extends Processor {
+
+    /**
+     * Executes this processor on each of the given documents. For the document at position {@code i}, implementations either
+     * set {@code results[i]} to the processed document, leave it {@code null} to drop the document, or set {@code failures[i]}
+     * to the exception processing the document failed with. The failure of one document must not prevent the other documents
+     * from being processed.
+     * <p>
+     * The default implementation calls {@link #execute(IngestDocument)} for each document.
+     */
+    default void executeBatch(List<IngestDocument> documents, IngestDocument[] results, Exception[] failures) {
+        for (int i = 0; i < documents.size(); i++) {
+            try {
+                results[i] = execute(documents.get(i));
+            } catch (Exception e) {
+                failures[i] = e;
+            }
+        }
+    }
+}
@@ -10,6 +10,7 @@
 package org.elasticsearch.ingest;
 
 import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.common.TriConsumer;
 import org.elasticsearch.core.Tuple;
 
 import java.util.ArrayList;
@@ -220,6 +221,93 @@ public class CompoundProcessor implements Processor {
         }
     }
 
+    /**
+     * Executes the processors on a batch of documents, one processor at a time: processors that implement {@link BatchProcessor}
+     * are called once with all the documents that are still in flight, the others once per document. Failures, drops, reroutes
+     * and terminations only affect the document they happen to, with the same semantics as {@link #execute(IngestDocument,
+     * BiConsumer)}. The handler is called once per document, with its position in the batch, when the document is done.
+     * Must not be called if there are async processors.
+     */
+    void executeBatch(List<IngestDocument> documents, TriConsumer<Integer, IngestDocument, Exception> handler) {
+        assert isAsync == false; // must not be executed if there are async processors
+
+        final IngestDocument[] current = documents.toArray(new IngestDocument[0]);
+        // the positions of the documents that still have to go through the next processor
+        int[] inFlight = new int[current.length];
+        for (int i = 0; i < inFlight.length; i++) {
+            inFlight[i] = i;
+        }
+        int numInFlight = inFlight.length;
+        for (int currentProcessor = 0; currentProcessor < processorsWithMetrics.size() && numInFlight > 0; currentProcessor++) {
+            int next = 0;
+            for (int i = 0; i < numInFlight; i++) {
+                final int slot = inFlight[i];
+                if (current[slot].isReroute() || current[slot].isTerminate()) {
+                    handler.apply(slot, current[slot], null);
+                } else {
+                    inFlight[next++] = slot;
+                }
+            }
+            numInFlight = next;
+            if (numInFlight == 0) {
+                break;
+            }
+
+            final Processor processor = processorsWithMetrics.get(currentProcessor).v1();
+            final IngestMetric metric = processorsWithMetrics.get(currentProcessor).v2();
+            final IngestDocument[] results = new IngestDocument[numInFlight];
+            final Exception[] failures = new Exception[numInFlight];
+            if (processor instanceof BatchProcessor batchProcessor) {
+                final List<IngestDocument> batch = new ArrayList<>(numInFlight);
+                for (int i = 0; i < numInFlight; i++) {
+                    batch.add(current[inFlight[i]]);
+                }
+                metric.preIngest(numInFlight);
+                final long startTimeInNanos = relativeTimeProvider.getAsLong();
+                batchProcessor.executeBatch(batch, results, failures);
+                metric.postIngest(numInFlight, relativeTimeProvider.getAsLong() - startTimeInNanos);
+            } else {
+                for (int i = 0; i < numInFlight; i++) {
+                    metric.preIngest();
+                    final long startTimeInNanos = relativeTimeProvider.getAsLong();
+                    try {
+                        results[i] = processor.execute(current[inFlight[i]]);
+                    } catch (Exception e) {
+                        failures[i] = e;
+                    }
+                    metric.postIngest(relativeTimeProvider.getAsLong() - startTimeInNanos);
+                }
+            }
+
+            next = 0;
+            for (int i = 0; i < numInFlight; i++) {
+                final int slot = inFlight[i];
+                if (failures[i] != null) {
+                    metric.ingestFailed();
+                    if (ignoreFailure) {
+                        inFlight[next++] = slot;
+                    } else {
+                        IngestProcessorException exception = newCompoundProcessorException(failures[i], processor, current[slot]);
+                        if (onFailureProcessors.isEmpty()) {
+                            handler.apply(slot, null, exception);
+                        } else {
+                            executeOnFailure(0, current[slot], exception, (result, e) -> handler.apply(slot, result, e));
+                        }
+                    }
+                } else if (results[i] == null) {
+                    handler.apply(slot, null, null);
+                } else {
+                    current[slot] = results[i];
+                    inFlight[next++] = slot;
+                }
+            }
+            numInFlight = next;
+        }
+        for (int i = 0; i < numInFlight; i++) {
+            handler.apply(inFlight[i], current[inFlight[i]], null);
+        }
+    }
+
     private void executeOnFailureOuter(
         int currentProcessor,
         IngestDocument ingestDocument,
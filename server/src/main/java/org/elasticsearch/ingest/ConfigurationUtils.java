@@ -541,18 +541,31 @@ public final class ConfigurationUtils {
                 Script script = new Script(ScriptType.INLINE, DEFAULT_TEMPLATE_LANG, propertyValue, Map.of());
                 return scriptService.compile(script, TemplateScript.CONTEXT);
             } else {
-                return (params) -> new TemplateScript(params) {
-                    @Override
-                    public String execute() {
-                        return propertyValue;
-                    }
-                };
+                return new ConstantTemplateScriptFactory(propertyValue);
             }
         } catch (Exception e) {
             throw ConfigurationUtils.newConfigurationException(processorType, processorTag, propertyName, e);
         }
     }
 
+    /**
+     * A {@link TemplateScript.Factory} for a property value that contains no template expressions and therefore renders to the same
+     * string for every document. Processors can check for this type to resolve such properties once at construction time rather
+     * than once per document.
+     */
+    public record ConstantTemplateScriptFactory(String value) implements TemplateScript.Factory {
+
+        @Override
+        public TemplateScript newInstance(Map<String, Object> params) {
+            return new TemplateScript(params) {
+                @Override
+                public String execute() {
+                    return value;
+                }
+            };
+        }
+    }
+
     private static void addMetadataToException(
         ElasticsearchException exception,
         String processorType,
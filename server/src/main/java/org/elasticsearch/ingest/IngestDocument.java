@@ -717,6 +717,9 @@ public final class IngestDocument {
      * @return a literal string field path
      */
     public String renderTemplate(TemplateScript.Factory template) {
+        if (template instanceof ConfigurationUtils.ConstantTemplateScriptFactory constant) {
+            return constant.value();
+        }
         return template.newInstance(templateModel).execute();
     }
 
@@ -861,6 +864,46 @@ public final class IngestDocument {
         }
     }
 
+    /**
+     * Executes the given pipeline on a batch of documents with {@link Pipeline#executeBatch}, calling each handler exactly as
+     * {@link #executePipeline(Pipeline, BiConsumer)} would for the document at the same position. Documents that are already
+     * executing a pipeline are not batched.
+     */
+    static void executePipeline(Pipeline pipeline, List<IngestDocument> documents, List<BiConsumer<IngestDocument, Exception>> handlers) {
+        assert documents.size() == handlers.size();
+        final List<IngestDocument> batch = new ArrayList<>(documents.size());
+        final List<BiConsumer<IngestDocument, Exception>> batchHandlers = new ArrayList<>(documents.size());
+        for (int i = 0; i < documents.size(); i++) {
+            IngestDocument document = documents.get(i);
+            if (pipeline.getProcessors().isEmpty() || document.executedPipelines.isEmpty() == false) {
+                document.executePipeline(pipeline, handlers.get(i));
+            } else {
+                batch.add(document);
+                batchHandlers.add(handlers.get(i));
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        final Object[] previousPipelines = new Object[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            IngestDocument document = batch.get(i);
+            document.executedPipelines.add(pipeline.getId());
+            previousPipelines[i] = document.ingestMetadata.put("pipeline", pipeline.getId());
+        }
+        pipeline.executeBatch(batch, (slot, result, e) -> {
+            IngestDocument document = batch.get(slot);
+            document.executedPipelines.remove(pipeline.getId());
+            if (previousPipelines[slot] != null) {
+                document.ingestMetadata.put("pipeline", previousPipelines[slot]);
+            } else {
+                document.ingestMetadata.remove("pipeline");
+            }
+            batchHandlers.get(slot).accept(result, e);
+        });
+    }
+
     /**
      * @return a pipeline stack; all pipelines that are in execution by this document in reverse order
      */
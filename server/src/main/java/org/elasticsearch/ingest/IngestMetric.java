@@ -75,6 +75,29 @@ class IngestMetric {
         ingestCount.inc();
     }
 
+    /**
+     * Call this prior to an ingest action over a batch of {@code count} items.
+     */
+    void preIngest(long count) {
+        ingestCurrent.addAndGet(count);
+    }
+
+    /**
+     * Call this after performing an ingest action over a batch of {@code count} items, even if the action failed for some of them.
+     * @param ingestTimeInNanos The time it took to perform the action over the whole batch.
+     */
+    void postIngest(long count, long ingestTimeInNanos) {
+        long current = ingestCurrent.addAndGet(-count);
+        if (current < 0) {
+            // see postIngest(long)
+            logger.warn("Current ingest counter decremented below 0", new RuntimeException());
+            assert false : "ingest metric current count double-decremented";
+            ingestCurrent.addAndGet(count);
+        }
+        this.ingestTimeInNanos.inc(ingestTimeInNanos);
+        ingestCount.inc(count);
+    }
+
     /**
      * Call this if the ingest action failed.
      */
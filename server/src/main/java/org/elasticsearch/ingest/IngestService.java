@@ -50,6 +50,7 @@ import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.logging.DeprecationCategory;
 import org.elasticsearch.common.logging.DeprecationLogger;
 import org.elasticsearch.common.regex.Regex;
+import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.CollectionUtils;
 import org.elasticsearch.common.util.concurrent.AbstractRunnable;
@@ -81,6 +82,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
@@ -130,6 +132,7 @@ public class IngestService implements ClusterStateApplier, ReportingService<Inge
     private final FailureStoreMetrics failureStoreMetrics;
     private final List<Consumer<ClusterState>> ingestClusterStateListeners = new CopyOnWriteArrayList<>();
     private volatile ClusterState state;
+    private volatile boolean batchExecutionEnabled;
 
     private static BiFunction<Long, Runnable, Scheduler.ScheduledCancellable> createScheduler(ThreadPool threadPool) {
         return (delay, command) -> threadPool.schedule(command, TimeValue.timeValueMillis(delay), threadPool.generic());
@@ -223,6 +226,9 @@ public class IngestService implements ClusterStateApplier, ReportingService<Inge
         this.threadPool = threadPool;
         this.taskQueue = clusterService.createTaskQueue("ingest-pipelines", Priority.NORMAL, PIPELINE_TASK_EXECUTOR);
         this.failureStoreMetrics = failureStoreMetrics;
+        final ClusterSettings clusterSettings = clusterService.getClusterSettings();
+        this.batchExecutionEnabled = clusterSettings.get(IngestSettings.BATCH_EXECUTION_ENABLED);
+        clusterSettings.addSettingsUpdateConsumer(IngestSettings.BATCH_EXECUTION_ENABLED, this::setBatchExecutionEnabled);
     }
 
     /**
@@ -239,6 +245,11 @@ public class IngestService implements ClusterStateApplier, ReportingService<Inge
         this.pipelines = ingestService.pipelines;
         this.state = ingestService.state;
         this.failureStoreMetrics = ingestService.failureStoreMetrics;
+        this.batchExecutionEnabled = ingestService.batchExecutionEnabled;
+    }
+
+    private void setBatchExecutionEnabled(boolean batchExecutionEnabled) {
+        this.batchExecutionEnabled = batchExecutionEnabled;
     }
 
     private static Map<String, Processor.Factory> processorFactories(List<IngestPlugin> ingestPlugins, Processor.Parameters parameters) {
@@ -780,6 +791,7 @@ public class IngestService implements ClusterStateApplier, ReportingService<Inge
             @Override
             protected void doRun() {
                 final Thread originalThread = Thread.currentThread();
+                final PipelineBatches batches = batchExecutionEnabled ? new PipelineBatches() : null;
                 try (var refs = new RefCountingRunnable(() -> onCompletion.accept(originalThread, null))) {
                     int i = 0;
                     for (DocWriteRequest<?> actionRequest : actionRequests) {
@@ -844,11 +856,21 @@ public class IngestService implements ClusterStateApplier, ReportingService<Inge
                             }
                         );
 
-                        executePipelines(pipelines, indexRequest, ingestDocument, resolveFailureStore, documentListener);
+                        executePipelines(
+                            pipelines,
+                            indexRequest,
+                            ingestDocument,
+                            resolveFailureStore,
+                            documentListener,
+                            batches != null ? batches : IngestService::executePipeline
+                        );
                         assert actionRequest.index() != null;
 
                         i++;
                     }
+                    if (batches != null) {
+                        batches.executeAll();
+                    }
                 }
             }
         });
@@ -935,7 +957,8 @@ public class IngestService implements ClusterStateApplier, ReportingService<Inge
         final IndexRequest indexRequest,
         final IngestDocument ingestDocument,
         final Function<String, Boolean> resolveFailureStore,
-        final ActionListener<IngestPipelinesExecutionResult> listener
+        final ActionListener<IngestPipelinesExecutionResult> listener,
+        final PipelineRunner pipelineRunner
     ) {
         assert pipelines.hasNext();
         PipelineSlot slot = pipelines.next();
@@ -972,7 +995,7 @@ public class IngestService implements ClusterStateApplier, ReportingService<Inge
                 throw new IllegalArgumentException("pipeline with id [" + pipelineId + "] does not exist");
             }
             indexRequest.addPipeline(pipelineId);
-            executePipeline(ingestDocument, pipeline, (keep, e) -> {
+            pipelineRunner.run(ingestDocument, pipeline, (keep, e) -> {
                 assert keep != null;
 
                 if (e != null) {
@@ -1095,7 +1118,15 @@ public class IngestService implements ClusterStateApplier, ReportingService<Inge
                 }
 
                 if (newPipelines.hasNext()) {
-                    executePipelines(newPipelines, indexRequest, ingestDocument, resolveFailureStore, listener);
+                    // pipelines after the first one run one document at a time
+                    executePipelines(
+                        newPipelines,
+                        indexRequest,
+                        ingestDocument,
+                        resolveFailureStore,
+                        listener,
+                        IngestService::executePipeline
+                    );
                 } else {
                     // update the index request's source and (potentially) cache the timestamp for TSDB
                     updateIndexRequestSource(indexRequest, ingestDocument);
@@ -1117,16 +1148,93 @@ public class IngestService implements ClusterStateApplier, ReportingService<Inge
         final Pipeline pipeline,
         final BiConsumer<Boolean, Exception> handler
     ) {
-        // adapt our {@code BiConsumer<Boolean, Exception>} handler shape to the
-        // {@code BiConsumer<IngestDocument, Exception>} handler shape used internally
-        // by ingest pipelines and processors
-        ingestDocument.executePipeline(pipeline, (result, e) -> {
+        ingestDocument.executePipeline(pipeline, adaptHandler(handler));
+    }
+
+    /**
+     * Adapts our {@code BiConsumer<Boolean, Exception>} handler shape to the {@code BiConsumer<IngestDocument, Exception>} handler
+     * shape used internally by ingest pipelines and processors.
+     */
+    private static BiConsumer<IngestDocument, Exception> adaptHandler(final BiConsumer<Boolean, Exception> handler) {
+        return (result, e) -> {
             if (e != null) {
                 handler.accept(true, e);
             } else {
                 handler.accept(result != null, null);
             }
-        });
+        };
+    }
+
+    /**
+     * Runs a pipeline on a document, and calls the handler with whether the document should be kept or with the failure.
+     */
+    @FunctionalInterface
+    private interface PipelineRunner {
+        void run(IngestDocument ingestDocument, Pipeline pipeline, BiConsumer<Boolean, Exception> handler);
+    }
+
+    /**
+     * Groups the documents of a bulk request by their first pipeline so that pipelines that support batch execution run once
+     * over many documents, see {@link BatchProcessor}. Documents whose pipeline does not support it run right away.
+     */
+    private static final class PipelineBatches implements PipelineRunner {
+
+        /**
+         * Bounds the number of documents whose source is parsed and held while their batch is not full.
+         */
+        static final int MAX_BATCH_SIZE = 256;
+
+        private final Map<Pipeline, Batch> batches = new LinkedHashMap<>();
+
+        private record Batch(List<IngestDocument> documents, List<BiConsumer<IngestDocument, Exception>> handlers) {
+            Batch() {
+                this(new ArrayList<>(), new ArrayList<>());
+            }
+        }
+
+        @Override
+        public void run(IngestDocument ingestDocument, Pipeline pipeline, BiConsumer<Boolean, Exception> handler) {
+            if (pipeline.supportsBatchExecution() == false) {
+                executePipeline(ingestDocument, pipeline, handler);
+                return;
+            }
+            Batch batch = batches.computeIfAbsent(pipeline, p -> new Batch());
+            batch.documents().add(ingestDocument);
+            batch.handlers().add(adaptHandler(handler));
+            if (batch.documents().size() >= MAX_BATCH_SIZE) {
+                batches.remove(pipeline);
+                execute(pipeline, batch);
+            }
+        }
+
+        void executeAll() {
+            for (Map.Entry<Pipeline, Batch> entry : batches.entrySet()) {
+                execute(entry.getKey(), entry.getValue());
+            }
+            batches.clear();
+        }
+
+        private static void execute(Pipeline pipeline, Batch batch) {
+            final boolean[] completed = new boolean[batch.documents().size()];
+            final List<BiConsumer<IngestDocument, Exception>> handlers = new ArrayList<>(completed.length);
+            for (int i = 0; i < completed.length; i++) {
+                final int slot = i;
+                handlers.add((result, e) -> {
+                    completed[slot] = true;
+                    batch.handlers().get(slot).accept(result, e);
+                });
+            }
+            try {
+                IngestDocument.executePipeline(pipeline, batch.documents(), handlers);
+            } catch (Exception e) {
+                // never leave a document of the batch without an outcome
+                for (int i = 0; i < completed.length; i++) {
+                    if (completed[i] == false) {
+                        batch.handlers().get(i).accept(null, e);
+                    }
+                }
+            }
+        }
     }
 
     public IngestStats stats() {
@@ -29,4 +29,15 @@ public final class IngestSettings {
         Setting.Property.NodeScope
     );
 
+    /**
+     * Whether the documents of a bulk request that go through the same pipeline are processed as a batch by the processors that
+     * implement {@link BatchProcessor}, rather than one document at a time.
+     */
+    public static final Setting<Boolean> BATCH_EXECUTION_ENABLED = Setting.boolSetting(
+        "ingest.batch_execution.enabled",
+        false,
+        Setting.Property.NodeScope,
+        Setting.Property.Dynamic
+    );
+
 }
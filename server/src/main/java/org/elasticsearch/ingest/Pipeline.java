@@ -10,6 +10,7 @@
 package org.elasticsearch.ingest;
 
 import org.elasticsearch.ElasticsearchParseException;
+import org.elasticsearch.common.TriConsumer;
 import org.elasticsearch.core.Nullable;
 import org.elasticsearch.script.ScriptService;
 
@@ -43,6 +44,7 @@ public final class Pipeline {
     private final LongSupplier relativeTimeProvider;
     @Nullable
     private final Boolean deprecated;
+    private final boolean supportsBatchExecution;
 
     public Pipeline(
         String id,
@@ -83,6 +85,8 @@ public final class Pipeline {
         this.metrics = new IngestPipelineMetric();
         this.relativeTimeProvider = relativeTimeProvider;
         this.deprecated = deprecated;
+        this.supportsBatchExecution = compoundProcessor.isAsync() == false
+            && compoundProcessor.getProcessors().stream().anyMatch(processor -> processor instanceof BatchProcessor);
     }
 
     public static Pipeline create(
@@ -140,6 +144,40 @@ public final class Pipeline {
         });
     }
 
+    /**
+     * Whether this pipeline benefits from {@link #executeBatch}: all its processors are synchronous and some of them are
+     * {@link BatchProcessor}s.
+     */
+    public boolean supportsBatchExecution() {
+        return supportsBatchExecution;
+    }
+
+    /**
+     * Executes this pipeline on a batch of documents, see {@link CompoundProcessor#executeBatch}. The handler is called once per
+     * document, with its position in the batch and the same arguments {@link #execute} would pass. Must only be called if
+     * {@link #supportsBatchExecution()} returns true.
+     */
+    void executeBatch(List<IngestDocument> documents, TriConsumer<Integer, IngestDocument, Exception> handler) {
+        assert supportsBatchExecution;
+        final IngestDocument[] results = new IngestDocument[documents.size()];
+        final Exception[] failures = new Exception[documents.size()];
+        final long startTimeInNanos = relativeTimeProvider.getAsLong();
+        metrics.preIngest(documents.size());
+        compoundProcessor.executeBatch(documents, (slot, result, e) -> {
+            results[slot] = result;
+            failures[slot] = e;
+        });
+        metrics.postIngest(documents.size(), relativeTimeProvider.getAsLong() - startTimeInNanos);
+        for (int i = 0; i < documents.size(); i++) {
+            if (failures[i] != null) {
+                metrics.ingestFailed();
+            }
+            // Reset the terminate status now that pipeline execution is complete, see execute
+            documents.get(i).resetTerminate();
+            handler.apply(i, results[i], failures[i]);
+        }
+    }
+
     /**
      * The unique id of this pipeline
      */
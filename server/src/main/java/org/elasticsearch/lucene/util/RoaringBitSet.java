@@ -0,0 +1,467 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.lucene.util;
+
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.BitSet;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.RamUsageEstimator;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A read-only {@link BitSet} that follows the layout of roaring bitmaps: documents are split in blocks of 65536 and every block
+ * that has matches is stored in whichever of a sorted array of documents, a bitmap or a list of runs of consecutive documents is
+ * the smallest. This makes it much more compact than a {@link FixedBitSet} for filters that are either sparse or made of long
+ * runs, while still supporting {@link #nextSetBit} and {@link #prevSetBit} in logarithmic time within a block. A sorted array
+ * takes two bytes per match where a bitmap takes one bit per document, so sparse filters only get smaller than a
+ * {@link FixedBitSet} when they match less than one document in 16.
+ */
+public final class RoaringBitSet extends BitSet {
+    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(RoaringBitSet.class);
+
+    static final int BLOCK_SHIFT = 16;
+    static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+    static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+    private final int numBits;
+    private final int cardinality;
+    /**
+     * One container per block, {@code null} for blocks without any match.
+     */
+    private final Container[] containers;
+    private final long ramBytesUsed;
+
+    private RoaringBitSet(int numBits, int cardinality, Container[] containers) {
+        this.numBits = numBits;
+        this.cardinality = cardinality;
+        this.containers = containers;
+        long ramBytesUsed = BASE_RAM_BYTES_USED + RamUsageEstimator.shallowSizeOf(containers);
+        for (Container container : containers) {
+            if (container != null) {
+                ramBytesUsed += container.ramBytesUsed();
+            }
+        }
+        this.ramBytesUsed = ramBytesUsed;
+    }
+
+    /**
+     * Counts the runs of consecutive set bits of the given bit set. A {@link RoaringBitSet} with the same bits doesn't have
+     * more runs than that plus one per block, as runs are split at block boundaries.
+     */
+    public static long countRuns(FixedBitSet bitSet) {
+        final long[] words = bitSet.getBits();
+        final int numWords = FixedBitSet.bits2words(bitSet.length());
+        long numRuns = 0;
+        long previous = 0;
+        for (int i = 0; i < numWords; i++) {
+            numRuns += runStarts(words[i], previous);
+            previous = words[i];
+        }
+        return numRuns;
+    }
+
+    /**
+     * The number of runs that start in {@code word}: a run starts on every set bit whose preceding bit is clear.
+     */
+    private static int runStarts(long word, long previousWord) {
+        return Long.bitCount(word & ~((word << 1) | (previousWord >>> 63)));
+    }
+
+    /**
+     * Build a {@link RoaringBitSet} from the content of the provided {@link DocIdSetIterator}.
+     */
+    public static RoaringBitSet of(DocIdSetIterator iter, int maxDoc) throws IOException {
+        final Container[] containers = new Container[(maxDoc + BLOCK_MASK) >>> BLOCK_SHIFT];
+        final long[] words = new long[BLOCK_SIZE / Long.SIZE];
+        int cardinality = 0;
+        int block = -1;
+        int blockCardinality = 0;
+        for (int doc = iter.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = iter.nextDoc()) {
+            assert doc < maxDoc : doc + " >= " + maxDoc;
+            final int docBlock = doc >>> BLOCK_SHIFT;
+            if (docBlock != block) {
+                if (block >= 0) {
+                    containers[block] = Container.of(words, blockCardinality);
+                    Arrays.fill(words, 0L);
+                }
+                block = docBlock;
+                blockCardinality = 0;
+            }
+            words[(doc & BLOCK_MASK) >>> 6] |= 1L << doc;
+            blockCardinality++;
+            cardinality++;
+        }
+        if (block >= 0) {
+            containers[block] = Container.of(words, blockCardinality);
+        }
+        return new RoaringBitSet(maxDoc, cardinality, containers);
+    }
+
+    @Override
+    public boolean get(int index) {
+        assert index >= 0 && index < numBits : "index=" + index + ", numBits=" + numBits;
+        final Container container = containers[index >>> BLOCK_SHIFT];
+        return container != null && container.get(index & BLOCK_MASK);
+    }
+
+    @Override
+    public int nextSetBit(int index) {
+        return nextSetBit(index, numBits);
+    }
+
+    @Override
+    public int nextSetBit(int start, int upperBound) {
+        assert start >= 0 && start < numBits : "start=" + start + ", numBits=" + numBits;
+        assert start < upperBound && upperBound <= numBits : "start=" + start + ", upperBound=" + upperBound;
+        final int lastBlock = (upperBound - 1) >>> BLOCK_SHIFT;
+        int block = start >>> BLOCK_SHIFT;
+        int offset = start & BLOCK_MASK;
+        while (true) {
+            final Container container = containers[block];
+            if (container != null) {
+                final int next = container.next(offset);
+                if (next != -1) {
+                    final int doc = (block << BLOCK_SHIFT) | next;
+                    return doc < upperBound ? doc : DocIdSetIterator.NO_MORE_DOCS;
+                }
+            }
+            if (++block > lastBlock) {
+                return DocIdSetIterator.NO_MORE_DOCS;
+            }
+            offset = 0;
+        }
+    }
+
+    @Override
+    public int prevSetBit(int index) {
+        assert index >= 0 && index < numBits : "index=" + index + ", numBits=" + numBits;
+        int block = index >>> BLOCK_SHIFT;
+        int offset = index & BLOCK_MASK;
+        while (block >= 0) {
+            final Container container = containers[block];
+            if (container != null) {
+                final int prev = container.prev(offset);
+                if (prev != -1) {
+                    return (block << BLOCK_SHIFT) | prev;
+                }
+            }
+            block--;
+            offset = BLOCK_MASK;
+        }
+        return -1;
+    }
+
+    @Override
+    public int cardinality() {
+        return cardinality;
+    }
+
+    @Override
+    public int approximateCardinality() {
+        return cardinality;
+    }
+
+    @Override
+    public int length() {
+        return numBits;
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return ramBytesUsed;
+    }
+
+    @Override
+    public void set(int i) {
+        assert false : "RoaringBitSet is read-only";
+        throw new UnsupportedOperationException("RoaringBitSet is read-only");
+    }
+
+    @Override
+    public boolean getAndSet(int i) {
+        assert false : "RoaringBitSet is read-only";
+        throw new UnsupportedOperationException("RoaringBitSet is read-only");
+    }
+
+    @Override
+    public void clear(int i) {
+        assert false : "RoaringBitSet is read-only";
+        throw new UnsupportedOperationException("RoaringBitSet is read-only");
+    }
+
+    @Override
+    public void clear(int startIndex, int endIndex) {
+        assert false : "RoaringBitSet is read-only";
+        throw new UnsupportedOperationException("RoaringBitSet is read-only");
+    }
+
+    /**
+     * The matches of a single block, as offsets between {@code 0} and {@link #BLOCK_MASK}. Containers are never empty.
+     */
+    abstract static class Container {
+
+        /**
+         * Encode the matches of a block, given as a bitmap, with the representation that uses the least memory.
+         */
+        static Container of(long[] words, int cardinality) {
+            assert cardinality > 0;
+            int numRuns = 0;
+            long previous = 0;
+            for (long word : words) {
+                numRuns += runStarts(word, previous);
+                previous = word;
+            }
+            final long bitmapBytes = (long) words.length * Long.BYTES;
+            final long arrayBytes = (long) cardinality * Character.BYTES;
+            final long runBytes = (long) numRuns * 2 * Character.BYTES;
+            if (bitmapBytes <= arrayBytes && bitmapBytes <= runBytes) {
+                return new BitmapContainer(words.clone(), cardinality);
+            } else if (arrayBytes <= runBytes) {
+                return ArrayContainer.of(words, cardinality);
+            } else {
+                return RunContainer.of(words, numRuns, cardinality);
+            }
+        }
+
+        abstract boolean get(int offset);
+
+        /**
+         * The first match at or after {@code offset}, or {@code -1} if there is none.
+         */
+        abstract int next(int offset);
+
+        /**
+         * The last match at or before {@code offset}, or {@code -1} if there is none.
+         */
+        abstract int prev(int offset);
+
+        abstract int cardinality();
+
+        abstract long ramBytesUsed();
+    }
+
+    static final class BitmapContainer extends Container {
+        private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(BitmapContainer.class);
+
+        private final long[] words;
+        private final int cardinality;
+
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        boolean get(int offset) {
+            return (words[offset >>> 6] & (1L << offset)) != 0;
+        }
+
+        @Override
+        int next(int offset) {
+            return nextSetBit(words, offset);
+        }
+
+        @Override
+        int prev(int offset) {
+            int i = offset >>> 6;
+            final long word = words[i] << (63 - (offset & 63));
+            if (word != 0) {
+                return offset - Long.numberOfLeadingZeros(word);
+            }
+            while (--i >= 0) {
+                if (words[i] != 0) {
+                    return (i << 6) + 63 - Long.numberOfLeadingZeros(words[i]);
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        long ramBytesUsed() {
+            return BASE_RAM_BYTES_USED + RamUsageEstimator.sizeOf(words);
+        }
+
+        static int nextSetBit(long[] words, int offset) {
+            int i = offset >>> 6;
+            final long word = words[i] >>> offset;
+            if (word != 0) {
+                return offset + Long.numberOfTrailingZeros(word);
+            }
+            while (++i < words.length) {
+                if (words[i] != 0) {
+                    return (i << 6) + Long.numberOfTrailingZeros(words[i]);
+                }
+            }
+            return -1;
+        }
+
+        static int nextClearBit(long[] words, int offset) {
+            int i = offset >>> 6;
+            final long word = ~words[i] >>> offset;
+            if (word != 0) {
+                return offset + Long.numberOfTrailingZeros(word);
+            }
+            while (++i < words.length) {
+                if (words[i] != -1L) {
+                    return (i << 6) + Long.numberOfTrailingZeros(~words[i]);
+                }
+            }
+            return words.length << 6;
+        }
+    }
+
+    static final class ArrayContainer extends Container {
+        private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(ArrayContainer.class);
+
+        /**
+         * The sorted offsets of the matches.
+         */
+        private final char[] values;
+
+        ArrayContainer(char[] values) {
+            this.values = values;
+        }
+
+        static ArrayContainer of(long[] words, int cardinality) {
+            final char[] values = new char[cardinality];
+            int i = 0;
+            int offset = BitmapContainer.nextSetBit(words, 0);
+            while (offset != -1) {
+                values[i++] = (char) offset;
+                offset = offset < BLOCK_MASK ? BitmapContainer.nextSetBit(words, offset + 1) : -1;
+            }
+            assert i == cardinality;
+            return new ArrayContainer(values);
+        }
+
+        @Override
+        boolean get(int offset) {
+            return Arrays.binarySearch(values, (char) offset) >= 0;
+        }
+
+        @Override
+        int next(int offset) {
+            final int index = Arrays.binarySearch(values, (char) offset);
+            if (index >= 0) {
+                return offset;
+            }
+            final int insertionPoint = -1 - index;
+            return insertionPoint < values.length ? values[insertionPoint] : -1;
+        }
+
+        @Override
+        int prev(int offset) {
+            final int index = Arrays.binarySearch(values, (char) offset);
+            if (index >= 0) {
+                return offset;
+            }
+            final int insertionPoint = -1 - index;
+            return insertionPoint > 0 ? values[insertionPoint - 1] : -1;
+        }
+
+        @Override
+        int cardinality() {
+            return values.length;
+        }
+
+        @Override
+        long ramBytesUsed() {
+            return BASE_RAM_BYTES_USED + RamUsageEstimator.sizeOf(values);
+        }
+    }
+
+    static final class RunContainer extends Container {
+        private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(RunContainer.class);
+
+        /**
+         * Pairs of the first and the last (inclusive) offsets of each run, sorted by first offset.
+         */
+        private final char[] runs;
+        private final int cardinality;
+
+        RunContainer(char[] runs, int cardinality) {
+            this.runs = runs;
+            this.cardinality = cardinality;
+        }
+
+        static RunContainer of(long[] words, int numRuns, int cardinality) {
+            final char[] runs = new char[numRuns * 2];
+            int i = 0;
+            int start = BitmapContainer.nextSetBit(words, 0);
+            while (start != -1) {
+                final int end = BitmapContainer.nextClearBit(words, start);
+                runs[i++] = (char) start;
+                runs[i++] = (char) (end - 1);
+                start = end < BLOCK_SIZE ? BitmapContainer.nextSetBit(words, end) : -1;
+            }
+            assert i == runs.length;
+            return new RunContainer(runs, cardinality);
+        }
+
+        /**
+         * The index of the last run that starts at or before {@code offset}, or {@code -1} if there is none.
+         */
+        private int run(int offset) {
+            int lo = 0;
+            int hi = runs.length / 2 - 1;
+            while (lo <= hi) {
+                final int mid = (lo + hi) >>> 1;
+                if (runs[mid << 1] <= offset) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            return hi;
+        }
+
+        @Override
+        boolean get(int offset) {
+            final int run = run(offset);
+            return run >= 0 && offset <= runs[(run << 1) + 1];
+        }
+
+        @Override
+        int next(int offset) {
+            final int run = run(offset);
+            if (run >= 0 && offset <= runs[(run << 1) + 1]) {
+                return offset;
+            }
+            final int nextRun = run + 1;
+            return nextRun < runs.length / 2 ? runs[nextRun << 1] : -1;
+        }
+
+        @Override
+        int prev(int offset) {
+            final int run = run(offset);
+            if (run < 0) {
+                return -1;
+            }
+            return Math.min(offset, runs[(run << 1) + 1]);
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        long ramBytesUsed() {
+            return BASE_RAM_BYTES_USED + RamUsageEstimator.sizeOf(runs);
+        }
+    }
+}
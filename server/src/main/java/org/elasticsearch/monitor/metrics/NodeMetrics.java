@@ -718,6 +718,7 @@ public class NodeMetrics extends AbstractLifecycleComponent {
             false,
             false,
             true,
+            false,
             false
         );
     }
@@ -776,6 +777,7 @@ public class NodeMetrics extends AbstractLifecycleComponent {
             null,
             null,
             null,
+            null,
             null
         );
         private boolean refresh;
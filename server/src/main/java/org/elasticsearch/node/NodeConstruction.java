@@ -712,6 +712,7 @@ class NodeConstruction {
             settingsModule.getSettings(),
             settingsModule.getClusterSettings()
         );
+        searchModule.getHighlightOffsetsCache().setCircuitBreaker(circuitBreakerService.getBreaker(CircuitBreaker.FIELDDATA));
         PageCacheRecycler pageCacheRecycler = serviceProvider.newPageCacheRecycler(pluginsService, settings);
         BigArrays bigArrays = serviceProvider.newBigArrays(pluginsService, pageCacheRecycler, circuitBreakerService);
 
@@ -1061,6 +1062,22 @@ class NodeConstruction {
             compatibilityVersions,
             featureService
         );
+
+        final SearchService searchService = serviceProvider.newSearchService(
+            pluginsService,
+            clusterService,
+            indicesService,
+            threadPool,
+            scriptService,
+            bigArrays,
+            searchModule.getRankFeatureShardPhase(),
+            searchModule.getFetchPhase(),
+            responseCollectorService,
+            circuitBreakerService,
+            systemIndices.getExecutorSelector(),
+            telemetryProvider.getTracer()
+        );
+
         nodeService = new NodeService(
             settings,
             threadPool,
@@ -1077,6 +1094,7 @@ class NodeConstruction {
             settingsModule.getSettingsFilter(),
             responseCollectorService,
             searchTransportService,
+            searchService,
             indexingLimits,
             searchModule.getValuesSourceRegistry().getUsageService(),
             repositoriesService,
@@ -1087,21 +1105,6 @@ class NodeConstruction {
         final NodeMetrics nodeMetrics = new NodeMetrics(telemetryProvider.getMeterRegistry(), nodeService, metricsInterval);
         final IndicesMetrics indicesMetrics = new IndicesMetrics(telemetryProvider.getMeterRegistry(), indicesService, metricsInterval);
 
-        final SearchService searchService = serviceProvider.newSearchService(
-            pluginsService,
-            clusterService,
-            indicesService,
-            threadPool,
-            scriptService,
-            bigArrays,
-            searchModule.getRankFeatureShardPhase(),
-            searchModule.getFetchPhase(),
-            responseCollectorService,
-            circuitBreakerService,
-            systemIndices.getExecutorSelector(),
-            telemetryProvider.getTracer()
-        );
-
         final ShutdownPrepareService shutdownPrepareService = new ShutdownPrepareService(settings, httpServerTransport, terminationHandler);
 
         modules.add(
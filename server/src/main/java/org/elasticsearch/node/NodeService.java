@@ -35,6 +35,7 @@ import org.elasticsearch.monitor.MonitorService;
 import org.elasticsearch.plugins.PluginsService;
 import org.elasticsearch.repositories.RepositoriesService;
 import org.elasticsearch.script.ScriptService;
+import org.elasticsearch.search.SearchService;
 import org.elasticsearch.search.aggregations.support.AggregationUsageService;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.TransportService;
@@ -60,6 +61,7 @@ public class NodeService implements Closeable {
     private final HttpServerTransport httpServerTransport;
     private final ResponseCollectorService responseCollectorService;
     private final SearchTransportService searchTransportService;
+    private final SearchService searchService;
     private final IndexingPressure indexingPressure;
     private final AggregationUsageService aggregationUsageService;
     private final Coordinator coordinator;
@@ -83,6 +85,7 @@ public class NodeService implements Closeable {
         SettingsFilter settingsFilter,
         ResponseCollectorService responseCollectorService,
         SearchTransportService searchTransportService,
+        SearchService searchService,
         IndexingPressure indexingPressure,
         AggregationUsageService aggregationUsageService,
         RepositoriesService repositoriesService,
@@ -102,6 +105,7 @@ public class NodeService implements Closeable {
         this.scriptService = scriptService;
         this.responseCollectorService = responseCollectorService;
         this.searchTransportService = searchTransportService;
+        this.searchService = searchService;
         this.indexingPressure = indexingPressure;
         this.aggregationUsageService = aggregationUsageService;
         this.repositoriesService = repositoriesService;
@@ -178,7 +182,8 @@ public class NodeService implements Closeable {
         boolean adaptiveSelection,
         boolean scriptCache,
         boolean indexingPressure,
-        boolean repositoriesStats
+        boolean repositoriesStats,
+        boolean searchAdmission
     ) {
         // for indices stats we want to include previous allocated shards stats as well (it will
         // only be applied to the sensible ones to use, like refresh/merge/flush/indexing stats)
@@ -201,7 +206,8 @@ public class NodeService implements Closeable {
             scriptCache ? scriptService.cacheStats() : null,
             indexingPressure ? this.indexingPressure.stats() : null,
             repositoriesStats ? this.repositoriesService.getRepositoriesThrottlingStats() : null,
-            null
+            null,
+            searchAdmission ? searchService.getAdmissionController().stats() : null
         );
     }
 
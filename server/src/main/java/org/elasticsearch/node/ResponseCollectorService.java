@@ -21,6 +21,7 @@ import org.elasticsearch.common.util.Maps;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
@@ -38,7 +39,18 @@ public final class ResponseCollectorService implements ClusterStateListener {
      */
     public static final double ALPHA = 0.3;
 
+    /**
+     * The number of most recent response times kept per node to compute response time percentiles.
+     */
+    static final int RESPONSE_TIME_SAMPLES = 128;
+
+    /**
+     * The minimum number of response times that must have been recorded for a node before percentiles are reported for it.
+     */
+    static final int MIN_RESPONSE_TIME_SAMPLES = 16;
+
     private final ConcurrentMap<String, NodeStatistics> nodeIdToStats = ConcurrentCollections.newConcurrentMap();
+    private final ConcurrentMap<String, ResponseTimeSamples> nodeIdToResponseTimes = ConcurrentCollections.newConcurrentMap();
 
     public ResponseCollectorService(ClusterService clusterService) {
         clusterService.addListener(this);
@@ -55,6 +67,7 @@ public final class ResponseCollectorService implements ClusterStateListener {
 
     void removeNode(String nodeId) {
         nodeIdToStats.remove(nodeId);
+        nodeIdToResponseTimes.remove(nodeId);
     }
 
     public void addNodeStatistics(String nodeId, int queueSize, long responseTimeNanos, long avgServiceTimeNanos) {
@@ -72,6 +85,25 @@ public final class ResponseCollectorService implements ClusterStateListener {
         });
     }
 
+    /**
+     * Records the response time of a single shard level request that was executed on the given node. Unlike
+     * {@link #addNodeStatistics} this is only ever called with observed response times, so that the recorded
+     * samples can be used for percentiles.
+     */
+    public void addResponseTimeSample(String nodeId, long responseTimeNanos) {
+        nodeIdToResponseTimes.computeIfAbsent(nodeId, id -> new ResponseTimeSamples()).add(responseTimeNanos);
+    }
+
+    /**
+     * Returns the given percentile (between 0 and 100) of the most recent response times recorded for the given node,
+     * in nanoseconds, or {@code -1} if too few response times have been recorded for the node.
+     */
+    public long getResponseTimePercentile(String nodeId, double percentile) {
+        assert percentile >= 0 && percentile <= 100 : percentile;
+        final ResponseTimeSamples samples = nodeIdToResponseTimes.get(nodeId);
+        return samples == null ? -1 : samples.percentile(percentile);
+    }
+
     public Map<String, ComputedNodeStats> getAllNodeStatistics() {
         final int clientNum = nodeIdToStats.size();
         // Transform the mutable object internally used for accounting into the computed version
@@ -220,4 +252,32 @@ public final class ResponseCollectorService implements ClusterStateListener {
             this.serviceTime = serviceTimeEWMA;
         }
     }
+
+    /**
+     * A fixed size ring of the most recent response times of a node.
+     */
+    private static class ResponseTimeSamples {
+        private final long[] samples = new long[RESPONSE_TIME_SAMPLES];
+        private int size;
+        private int next;
+
+        synchronized void add(long responseTimeNanos) {
+            samples[next] = responseTimeNanos;
+            next = (next + 1) % samples.length;
+            size = Math.min(size + 1, samples.length);
+        }
+
+        long percentile(double percentile) {
+            final long[] sorted;
+            synchronized (this) {
+                if (size < MIN_RESPONSE_TIME_SAMPLES) {
+                    return -1;
+                }
+                sorted = Arrays.copyOf(samples, size);
+            }
+            Arrays.sort(sorted);
+            final int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+            return sorted[Math.max(0, Math.min(sorted.length, rank) - 1)];
+        }
+    }
 }
@@ -40,6 +40,10 @@ public final class SearchCapabilities {
     private static final String NESTED_RETRIEVER_INNER_HITS_SUPPORT = "nested_retriever_inner_hits_support";
     /** Support multi-dense-vector script field access. */
     private static final String MULTI_DENSE_VECTOR_SCRIPT_ACCESS = "multi_dense_vector_script_access";
+    /** Support the max_sim query on multi-dense-vector fields. */
+    private static final String MULTI_DENSE_VECTOR_MAX_SIM_QUERY = "multi_dense_vector_max_sim_query";
+    /** Support rescoring the hits of kNN searches on quantized vectors with the raw vectors, including in the knn retriever. */
+    private static final String KNN_QUANTIZED_VECTOR_RESCORE = "knn_quantized_vector_rescore";
 
     private static final String RANDOM_SAMPLER_WITH_SCORED_SUBAGGS = "random_sampler_with_scored_subaggs";
 
@@ -53,9 +57,11 @@ public final class SearchCapabilities {
         capabilities.add(TRANSFORM_RANK_RRF_TO_RETRIEVER);
         capabilities.add(NESTED_RETRIEVER_INNER_HITS_SUPPORT);
         capabilities.add(RANDOM_SAMPLER_WITH_SCORED_SUBAGGS);
+        capabilities.add(KNN_QUANTIZED_VECTOR_RESCORE);
         if (MultiDenseVectorFieldMapper.FEATURE_FLAG.isEnabled()) {
             capabilities.add(MULTI_DENSE_VECTOR_FIELD_MAPPER);
             capabilities.add(MULTI_DENSE_VECTOR_SCRIPT_ACCESS);
+            capabilities.add(MULTI_DENSE_VECTOR_MAX_SIM_QUERY);
         }
         if (Build.current().isSnapshot()) {
             capabilities.add(KQL_QUERY_SUPPORTED);
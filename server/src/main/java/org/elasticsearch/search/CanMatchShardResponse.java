@@ -9,8 +9,10 @@
 
 package org.elasticsearch.search;
 
+import org.elasticsearch.TransportVersions;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.core.Nullable;
 import org.elasticsearch.search.sort.MinAndMax;
 
 import java.io.IOException;
@@ -21,22 +23,37 @@ import java.io.IOException;
 public final class CanMatchShardResponse extends SearchPhaseResult {
     private final boolean canMatch;
     private final MinAndMax<?> estimatedMinAndMax;
+    @Nullable
+    private final ShardFieldSummary fieldSummary;
 
     public CanMatchShardResponse(StreamInput in) throws IOException {
         super(in);
         this.canMatch = in.readBoolean();
         estimatedMinAndMax = in.readOptionalWriteable(MinAndMax::new);
+        if (in.getTransportVersion().onOrAfter(TransportVersions.CAN_MATCH_SHARD_FIELD_SUMMARY)) {
+            fieldSummary = in.readOptionalWriteable(ShardFieldSummary::new);
+        } else {
+            fieldSummary = null;
+        }
     }
 
     public CanMatchShardResponse(boolean canMatch, MinAndMax<?> estimatedMinAndMax) {
+        this(canMatch, estimatedMinAndMax, null);
+    }
+
+    public CanMatchShardResponse(boolean canMatch, MinAndMax<?> estimatedMinAndMax, @Nullable ShardFieldSummary fieldSummary) {
         this.canMatch = canMatch;
         this.estimatedMinAndMax = estimatedMinAndMax;
+        this.fieldSummary = fieldSummary;
     }
 
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         out.writeBoolean(canMatch);
         out.writeOptionalWriteable(estimatedMinAndMax);
+        if (out.getTransportVersion().onOrAfter(TransportVersions.CAN_MATCH_SHARD_FIELD_SUMMARY)) {
+            out.writeOptionalWriteable(fieldSummary);
+        }
     }
 
     public boolean canMatch() {
@@ -46,4 +63,12 @@ public final class CanMatchShardResponse extends SearchPhaseResult {
     public MinAndMax<?> estimatedMinAndMax() {
         return estimatedMinAndMax;
     }
+
+    /**
+     * A summary of the shard's values for the fields that its index configures, see {@link ShardFieldSummary}.
+     */
+    @Nullable
+    public ShardFieldSummary fieldSummary() {
+        return fieldSummary;
+    }
 }
@@ -155,6 +155,8 @@ final class DefaultSearchContext extends SearchContext {
     private final Map<String, SearchExtBuilder> searchExtBuilders = new HashMap<>();
     private final SearchExecutionContext searchExecutionContext;
     private final FetchPhase fetchPhase;
+    @Nullable
+    private final Executor fetchPhaseExecutor;
 
     DefaultSearchContext(
         ReaderContext readerContext,
@@ -167,6 +169,7 @@ final class DefaultSearchContext extends SearchContext {
         Executor executor,
         SearchService.ResultsType resultsType,
         boolean enableQueryPhaseParallelCollection,
+        boolean enableFetchPhaseParallelFetch,
         int minimumDocsPerSlice
     ) throws IOException {
         this.readerContext = readerContext;
@@ -207,6 +210,7 @@ final class DefaultSearchContext extends SearchContext {
                     minimumDocsPerSlice
                 );
             }
+            this.fetchPhaseExecutor = determineFetchPhaseExecutor(executor, resultsType, enableFetchPhaseParallelFetch);
             releasables.addAll(List.of(engineSearcher, searcher));
             this.relativeTimeSupplier = relativeTimeSupplier;
             this.timeout = timeout;
@@ -297,6 +301,22 @@ final class DefaultSearchContext extends SearchContext {
                 : 1;
     }
 
+    /**
+     * Returns the executor to fetch large pages of hits concurrently on, see {@link FetchPhase}. Like slicing in the query phase,
+     * this is skipped if the executor is falling behind.
+     */
+    @Nullable
+    static Executor determineFetchPhaseExecutor(
+        Executor executor,
+        SearchService.ResultsType resultsType,
+        boolean enableFetchPhaseParallelFetch
+    ) {
+        return resultsType == SearchService.ResultsType.FETCH
+            && enableFetchPhaseParallelFetch
+            && executor instanceof ThreadPoolExecutor tpe
+            && tpe.getQueue().size() <= tpe.getMaximumPoolSize() ? executor : null;
+    }
+
     static boolean isParallelCollectionSupportedForResults(
         SearchService.ResultsType resultsType,
         SearchSourceBuilder source,
@@ -882,6 +902,11 @@ final class DefaultSearchContext extends SearchContext {
         return fetchPhase;
     }
 
+    @Override
+    public Executor fetchPhaseExecutor() {
+        return fetchPhaseExecutor;
+    }
+
     @Override
     public FetchSearchResult fetchResult() {
         return fetchResult;
@@ -0,0 +1,446 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.search;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.common.ExponentiallyWeightedMovingAverage;
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.core.Nullable;
+import org.elasticsearch.core.Releasable;
+import org.elasticsearch.core.Releasables;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.BoostingQueryBuilder;
+import org.elasticsearch.index.query.ConstantScoreQueryBuilder;
+import org.elasticsearch.index.query.DisMaxQueryBuilder;
+import org.elasticsearch.index.query.NestedQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.functionscore.FunctionScoreQueryBuilder;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.builder.SubSearchSourceBuilder;
+import org.elasticsearch.search.internal.ShardSearchRequest;
+import org.elasticsearch.tasks.CancellableTask;
+import org.elasticsearch.threadpool.Scheduler;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Estimates what the query phase of a shard request will cost before it runs, and limits how many query phases that are
+ * estimated to be expensive run concurrently, so that a handful of pathological queries can't occupy every thread of the
+ * search pool. Expensive requests beyond the limit are deferred until a running one completes, and rejected once too many
+ * are deferred already or once they waited for longer than {@link #MAX_DEFER_TIME_SETTING}. Deferred requests whose task
+ * is cancelled stop waiting right away. Cheap requests are always admitted.
+ * <p>
+ * Estimates are based on how long the query phase took for earlier requests of the same shape, that is requests against
+ * the same index using the same kinds of queries. Shapes without enough history are considered expensive if they contain
+ * query types that are known to be costly in general, such as scripts or wildcards.
+ */
+public final class SearchAdmissionController {
+
+    public static final Setting<Boolean> ENABLED_SETTING = Setting.boolSetting(
+        "search.admission_control.enabled",
+        false,
+        Property.NodeScope,
+        Property.Dynamic
+    );
+
+    /**
+     * Query phases that are estimated to take at least this long are considered expensive.
+     */
+    public static final Setting<TimeValue> EXPENSIVE_THRESHOLD_SETTING = Setting.timeSetting(
+        "search.admission_control.expensive_threshold",
+        TimeValue.timeValueSeconds(1),
+        TimeValue.timeValueMillis(1),
+        Property.NodeScope,
+        Property.Dynamic
+    );
+
+    /**
+     * The fraction of the threads of the search pool that may run expensive query phases at the same time.
+     */
+    public static final Setting<Double> MAX_EXPENSIVE_RATIO_SETTING = Setting.doubleSetting(
+        "search.admission_control.max_expensive_ratio",
+        0.5,
+        0.0,
+        1.0,
+        Property.NodeScope,
+        Property.Dynamic
+    );
+
+    /**
+     * The number of expensive requests that may wait for others to complete before further ones are rejected.
+     */
+    public static final Setting<Integer> MAX_DEFERRED_SETTING = Setting.intSetting(
+        "search.admission_control.max_deferred",
+        100,
+        0,
+        Property.NodeScope,
+        Property.Dynamic
+    );
+
+    /**
+     * How long an expensive request may be deferred before it is rejected.
+     */
+    public static final Setting<TimeValue> MAX_DEFER_TIME_SETTING = Setting.timeSetting(
+        "search.admission_control.max_defer_time",
+        TimeValue.timeValueSeconds(30),
+        TimeValue.timeValueMillis(1),
+        Property.NodeScope,
+        Property.Dynamic
+    );
+
+    /** The number of shapes whose history is kept, beyond that the least recently used shapes are forgotten. */
+    static final int MAX_SHAPES = 1024;
+    /** The number of query phases after which the estimate of a shape is based on its history. */
+    static final int MIN_SAMPLES = 5;
+    /** The number of shapes with the highest estimates that are reported in the stats. */
+    static final int TOP_ESTIMATES = 10;
+
+    private static final double EWMA_ALPHA = 0.3;
+    private static final Set<String> EXPENSIVE_QUERIES = Set.of(
+        "fuzzy",
+        "percolate",
+        "query_string",
+        "regexp",
+        "script",
+        "script_score",
+        "wildcard"
+    );
+
+    private final ThreadPool threadPool;
+    private final int searchThreads;
+    private final Cache<Shape, ShapeStats> shapes = CacheBuilder.<Shape, ShapeStats>builder().setMaximumWeight(MAX_SHAPES).build();
+    private final Deque<DeferredRequest> deferred = new ArrayDeque<>(); // guarded by this
+    private int runningExpensive; // guarded by this
+
+    private final LongAdder admittedCheap = new LongAdder();
+    private final LongAdder admittedExpensive = new LongAdder();
+    private final LongAdder deferredTotal = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    private volatile boolean enabled;
+    private volatile long expensiveThresholdNanos;
+    private volatile double maxExpensiveRatio;
+    private volatile int maxDeferred;
+    private volatile TimeValue maxDeferTime;
+
+    public SearchAdmissionController(Settings settings, ClusterSettings clusterSettings, ThreadPool threadPool, int searchThreads) {
+        this.threadPool = threadPool;
+        this.searchThreads = searchThreads;
+        this.enabled = ENABLED_SETTING.get(settings);
+        this.expensiveThresholdNanos = EXPENSIVE_THRESHOLD_SETTING.get(settings).nanos();
+        this.maxExpensiveRatio = MAX_EXPENSIVE_RATIO_SETTING.get(settings);
+        this.maxDeferred = MAX_DEFERRED_SETTING.get(settings);
+        this.maxDeferTime = MAX_DEFER_TIME_SETTING.get(settings);
+        clusterSettings.addSettingsUpdateConsumer(ENABLED_SETTING, this::setEnabled);
+        clusterSettings.addSettingsUpdateConsumer(EXPENSIVE_THRESHOLD_SETTING, v -> expensiveThresholdNanos = v.nanos());
+        clusterSettings.addSettingsUpdateConsumer(MAX_EXPENSIVE_RATIO_SETTING, v -> maxExpensiveRatio = v);
+        clusterSettings.addSettingsUpdateConsumer(MAX_DEFERRED_SETTING, v -> maxDeferred = v);
+        clusterSettings.addSettingsUpdateConsumer(MAX_DEFER_TIME_SETTING, v -> maxDeferTime = v);
+    }
+
+    private void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (enabled == false) {
+            admitAllDeferred();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Estimates the cost of the query phase of the given, already rewritten, request.
+     */
+    public CostEstimate estimate(ShardSearchRequest request) {
+        final Shape shape = Shape.of(request);
+        final ShapeStats stats = shapes.get(shape);
+        final long estimatedNanos = stats == null ? -1 : stats.estimatedNanos();
+        final boolean expensive = estimatedNanos >= 0 ? estimatedNanos >= expensiveThresholdNanos : shape.expensiveQueries();
+        return new CostEstimate(shape, estimatedNanos, expensive);
+    }
+
+    /**
+     * Admits a query phase with the given estimate. The listener is either completed right away, or once a running expensive
+     * query phase completes, with a releasable that must be released once the query phase completed. It is failed with an
+     * {@link EsRejectedExecutionException} if the request is expensive and too many others are waiting already or it waited
+     * for too long, and with a {@link org.elasticsearch.tasks.TaskCancelledException} if the task is cancelled while waiting.
+     */
+    public void admit(CostEstimate estimate, @Nullable CancellableTask task, ActionListener<Releasable> listener) {
+        if (enabled == false || estimate.expensive() == false) {
+            admittedCheap.increment();
+            listener.onResponse(() -> {});
+            return;
+        }
+        final DeferredRequest deferredRequest;
+        boolean reject = false;
+        synchronized (this) {
+            if (runningExpensive < maxExpensive()) {
+                runningExpensive++;
+                deferredRequest = null;
+            } else if (deferred.size() < maxDeferred) {
+                final TimeValue timeout = maxDeferTime;
+                deferredRequest = new DeferredRequest(listener);
+                deferredRequest.timeout = threadPool.schedule(
+                    () -> rejectDeferred(
+                        deferredRequest,
+                        new EsRejectedExecutionException(
+                            "rejected expensive search request of shape ["
+                                + estimate.shape().description()
+                                + "], it was deferred for longer than ["
+                                + timeout
+                                + "]"
+                        )
+                    ),
+                    timeout,
+                    EsExecutors.DIRECT_EXECUTOR_SERVICE
+                );
+                deferred.add(deferredRequest);
+                deferredTotal.increment();
+            } else {
+                deferredRequest = null;
+                reject = true;
+            }
+        }
+        if (reject) {
+            rejected.increment();
+            listener.onFailure(
+                new EsRejectedExecutionException(
+                    "rejected expensive search request of shape ["
+                        + estimate.shape().description()
+                        + "], too many expensive requests are running or waiting already"
+                )
+            );
+        } else if (deferredRequest == null) {
+            admittedExpensive.increment();
+            listener.onResponse(Releasables.releaseOnce(this::releaseExpensive));
+        } else if (task != null) {
+            // notified right away if the task is cancelled already
+            task.addListener(() -> {
+                if (removeDeferred(deferredRequest)) {
+                    task.notifyIfCancelled(deferredRequest.listener);
+                }
+            });
+        }
+    }
+
+    private void rejectDeferred(DeferredRequest request, Exception e) {
+        if (removeDeferred(request)) {
+            rejected.increment();
+            request.listener.onFailure(e);
+        }
+    }
+
+    /**
+     * Removes a request that no longer waits for admission, returns {@code false} if it was admitted or removed already.
+     */
+    private boolean removeDeferred(DeferredRequest request) {
+        synchronized (this) {
+            if (deferred.remove(request) == false) {
+                return false;
+            }
+        }
+        request.timeout.cancel();
+        return true;
+    }
+
+    private int maxExpensive() {
+        return Math.max(1, (int) (searchThreads * maxExpensiveRatio));
+    }
+
+    private void releaseExpensive() {
+        final DeferredRequest next;
+        synchronized (this) {
+            next = deferred.poll();
+            if (next == null) {
+                runningExpensive--;
+                return;
+            }
+            // the slot is handed over to the deferred request
+        }
+        next.admit();
+    }
+
+    private void admitAllDeferred() {
+        final List<DeferredRequest> toAdmit;
+        synchronized (this) {
+            toAdmit = List.copyOf(deferred);
+            deferred.clear();
+            runningExpensive += toAdmit.size();
+        }
+        for (DeferredRequest request : toAdmit) {
+            request.admit();
+        }
+    }
+
+    /**
+     * Records how long the query phase of a request with the given estimate took.
+     */
+    public void onQueryPhase(CostEstimate estimate, long tookNanos) {
+        final ShapeStats stats;
+        try {
+            stats = shapes.computeIfAbsent(estimate.shape(), s -> new ShapeStats(tookNanos));
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e); // cannot happen, creating the stats doesn't throw
+        }
+        stats.onQueryPhase(tookNanos);
+    }
+
+    /**
+     * Forgets the history of all shapes of the given index.
+     */
+    public void onIndexRemoved(String index) {
+        for (Iterator<Shape> iterator = shapes.keys().iterator(); iterator.hasNext();) {
+            if (iterator.next().index().equals(index)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    public SearchAdmissionStats stats() {
+        final List<SearchAdmissionStats.ShapeEstimate> all = new ArrayList<>();
+        shapes.forEach((shape, stats) -> {
+            final long estimatedNanos = stats.estimatedNanos();
+            if (estimatedNanos >= 0) {
+                all.add(new SearchAdmissionStats.ShapeEstimate(shape.index(), shape.description(), estimatedNanos, stats.samples.sum()));
+            }
+        });
+        final List<SearchAdmissionStats.ShapeEstimate> estimates = all.stream()
+            .sorted(Comparator.comparingLong(SearchAdmissionStats.ShapeEstimate::estimatedNanos).reversed())
+            .limit(TOP_ESTIMATES)
+            .toList();
+        final int currentExpensive;
+        final int currentDeferred;
+        synchronized (this) {
+            currentExpensive = runningExpensive;
+            currentDeferred = deferred.size();
+        }
+        return new SearchAdmissionStats(
+            admittedCheap.sum(),
+            admittedExpensive.sum(),
+            deferredTotal.sum(),
+            rejected.sum(),
+            currentExpensive,
+            currentDeferred,
+            estimates
+        );
+    }
+
+    /**
+     * The estimated cost of a query phase, {@code estimatedNanos} is {@code -1} if there is not enough history yet.
+     */
+    public record CostEstimate(Shape shape, long estimatedNanos, boolean expensive) {}
+
+    /**
+     * The index a request targets plus the sorted, comma separated names of the queries it uses, and whether it aggregates.
+     */
+    record Shape(String index, String description, boolean expensiveQueries) {
+        static Shape of(ShardSearchRequest request) {
+            final Set<String> names = new TreeSet<>();
+            final SearchSourceBuilder source = request.source();
+            boolean aggregations = false;
+            if (source != null) {
+                collect(source.query(), names);
+                for (SubSearchSourceBuilder subSearch : source.subSearches()) {
+                    collect(subSearch.getQueryBuilder(), names);
+                }
+                if (source.knnSearch().isEmpty() == false) {
+                    names.add("knn");
+                }
+                aggregations = source.aggregations() != null;
+            }
+            final boolean expensiveQueries = names.stream().anyMatch(EXPENSIVE_QUERIES::contains);
+            final String description = (names.isEmpty() ? "match_all" : String.join(",", names)) + (aggregations ? "+aggs" : "");
+            return new Shape(request.shardId().getIndexName(), description, expensiveQueries);
+        }
+
+        private static void collect(QueryBuilder query, Set<String> names) {
+            if (query == null) {
+                return;
+            }
+            names.add(query.getName());
+            if (query instanceof BoolQueryBuilder bool) {
+                bool.must().forEach(q -> collect(q, names));
+                bool.filter().forEach(q -> collect(q, names));
+                bool.should().forEach(q -> collect(q, names));
+                bool.mustNot().forEach(q -> collect(q, names));
+            } else if (query instanceof ConstantScoreQueryBuilder constantScore) {
+                collect(constantScore.innerQuery(), names);
+            } else if (query instanceof DisMaxQueryBuilder disMax) {
+                disMax.innerQueries().forEach(q -> collect(q, names));
+            } else if (query instanceof BoostingQueryBuilder boosting) {
+                collect(boosting.positiveQuery(), names);
+                collect(boosting.negativeQuery(), names);
+            } else if (query instanceof NestedQueryBuilder nested) {
+                collect(nested.query(), names);
+            } else if (query instanceof FunctionScoreQueryBuilder functionScore) {
+                collect(functionScore.query(), names);
+                for (FunctionScoreQueryBuilder.FilterFunctionBuilder function : functionScore.filterFunctionBuilders()) {
+                    collect(function.getFilter(), names);
+                    names.add(function.getScoreFunction().getName());
+                }
+            }
+        }
+    }
+
+    private final class DeferredRequest {
+        final ActionListener<Releasable> listener;
+        Scheduler.ScheduledCancellable timeout; // set before the request is visible to others
+
+        DeferredRequest(ActionListener<Releasable> listener) {
+            this.listener = listener;
+        }
+
+        /**
+         * Called once the request was removed from the deferred requests and a slot was reserved for it.
+         */
+        void admit() {
+            timeout.cancel();
+            admittedExpensive.increment();
+            listener.onResponse(Releasables.releaseOnce(SearchAdmissionController.this::releaseExpensive));
+        }
+    }
+
+    private static final class ShapeStats {
+        final LongAdder samples = new LongAdder();
+        final ExponentiallyWeightedMovingAverage tookNanos;
+
+        ShapeStats(long initialNanos) {
+            this.tookNanos = new ExponentiallyWeightedMovingAverage(EWMA_ALPHA, initialNanos);
+        }
+
+        void onQueryPhase(long nanos) {
+            tookNanos.addValue(nanos);
+            samples.increment();
+        }
+
+        long estimatedNanos() {
+            return samples.sum() >= MIN_SAMPLES ? (long) tookNanos.getAverage() : -1;
+        }
+    }
+}
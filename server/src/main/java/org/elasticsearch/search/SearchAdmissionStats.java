@@ -0,0 +1,101 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.search;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.xcontent.ToXContentFragment;
+import org.elasticsearch.xcontent.ToXContentObject;
+import org.elasticsearch.xcontent.XContentBuilder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Statistics of the {@link SearchAdmissionController} of a node, including the shapes of requests with the highest estimated
+ * query phase cost.
+ */
+public record SearchAdmissionStats(
+    long admittedCheap,
+    long admittedExpensive,
+    long deferred,
+    long rejected,
+    int currentExpensive,
+    int currentDeferred,
+    List<ShapeEstimate> estimates
+) implements Writeable, ToXContentFragment {
+
+    public SearchAdmissionStats(StreamInput in) throws IOException {
+        this(
+            in.readVLong(),
+            in.readVLong(),
+            in.readVLong(),
+            in.readVLong(),
+            in.readVInt(),
+            in.readVInt(),
+            in.readCollectionAsImmutableList(ShapeEstimate::new)
+        );
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVLong(admittedCheap);
+        out.writeVLong(admittedExpensive);
+        out.writeVLong(deferred);
+        out.writeVLong(rejected);
+        out.writeVInt(currentExpensive);
+        out.writeVInt(currentDeferred);
+        out.writeCollection(estimates);
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject("search_admission");
+        builder.field("admitted_cheap", admittedCheap);
+        builder.field("admitted_expensive", admittedExpensive);
+        builder.field("deferred", deferred);
+        builder.field("rejected", rejected);
+        builder.field("current_expensive", currentExpensive);
+        builder.field("current_deferred", currentDeferred);
+        builder.xContentList("estimates", estimates, params);
+        return builder.endObject();
+    }
+
+    /**
+     * The estimated query phase time of requests of a shape, see {@link SearchAdmissionController}.
+     */
+    public record ShapeEstimate(String index, String shape, long estimatedNanos, long samples) implements Writeable, ToXContentObject {
+
+        public ShapeEstimate(StreamInput in) throws IOException {
+            this(in.readString(), in.readString(), in.readVLong(), in.readVLong());
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeString(index);
+            out.writeString(shape);
+            out.writeVLong(estimatedNanos);
+            out.writeVLong(samples);
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            builder.startObject();
+            builder.field("index", index);
+            builder.field("shape", shape);
+            builder.humanReadableField("estimated_time_in_nanos", "estimated_time", new TimeValue(estimatedNanos, TimeUnit.NANOSECONDS));
+            builder.field("samples", samples);
+            return builder.endObject();
+        }
+    }
+}
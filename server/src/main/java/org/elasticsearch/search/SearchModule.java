@@ -21,6 +21,7 @@ import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.core.Nullable;
 import org.elasticsearch.core.RestApiVersion;
+import org.elasticsearch.index.mapper.vectors.MultiDenseVectorFieldMapper;
 import org.elasticsearch.index.query.AbstractQueryBuilder;
 import org.elasticsearch.index.query.BoolQueryBuilder;
 import org.elasticsearch.index.query.BoostingQueryBuilder;
@@ -224,6 +225,7 @@ import org.elasticsearch.search.fetch.subphase.SeqNoPrimaryTermPhase;
 import org.elasticsearch.search.fetch.subphase.StoredFieldsPhase;
 import org.elasticsearch.search.fetch.subphase.highlight.DefaultHighlighter;
 import org.elasticsearch.search.fetch.subphase.highlight.FastVectorHighlighter;
+import org.elasticsearch.search.fetch.subphase.highlight.HighlightOffsetsCache;
 import org.elasticsearch.search.fetch.subphase.highlight.HighlightPhase;
 import org.elasticsearch.search.fetch.subphase.highlight.Highlighter;
 import org.elasticsearch.search.fetch.subphase.highlight.PlainHighlighter;
@@ -260,6 +262,7 @@ import org.elasticsearch.search.suggest.term.TermSuggestionBuilder;
 import org.elasticsearch.search.vectors.ExactKnnQueryBuilder;
 import org.elasticsearch.search.vectors.KnnScoreDocQueryBuilder;
 import org.elasticsearch.search.vectors.KnnVectorQueryBuilder;
+import org.elasticsearch.search.vectors.MaxSimQueryBuilder;
 import org.elasticsearch.search.vectors.QueryVectorBuilder;
 import org.elasticsearch.telemetry.TelemetryProvider;
 import org.elasticsearch.xcontent.NamedXContentRegistry;
@@ -320,6 +323,7 @@ public class SearchModule {
      */
     private final TelemetryProvider telemetryProvider;
 
+    private final HighlightOffsetsCache highlightOffsetsCache;
     private final Map<String, Highlighter> highlighters;
 
     private final List<FetchSubPhase> fetchSubPhases = new ArrayList<>();
@@ -351,7 +355,8 @@ public class SearchModule {
         this.settings = settings;
         this.telemetryProvider = telemetryProvider;
         registerSuggesters(plugins);
-        highlighters = setupHighlighters(settings, plugins);
+        highlightOffsetsCache = new HighlightOffsetsCache(settings);
+        highlighters = setupHighlighters(settings, highlightOffsetsCache, plugins);
         registerScoreFunctions(plugins);
         registerRetrieverParsers(plugins);
         registerQueryParsers(plugins);
@@ -395,6 +400,13 @@ public class SearchModule {
         return highlighters;
     }
 
+    /**
+     * Returns the node level cache of the tokens of highlighted values that the built-in highlighters share.
+     */
+    public HighlightOffsetsCache getHighlightOffsetsCache() {
+        return highlightOffsetsCache;
+    }
+
     private ValuesSourceRegistry registerAggregations(List<SearchPlugin> plugins) {
         ValuesSourceRegistry.Builder builder = new ValuesSourceRegistry.Builder(telemetryProvider.getMeterRegistry());
 
@@ -931,11 +943,15 @@ public class SearchModule {
         );
     }
 
-    private static Map<String, Highlighter> setupHighlighters(Settings settings, List<SearchPlugin> plugins) {
+    private static Map<String, Highlighter> setupHighlighters(
+        Settings settings,
+        HighlightOffsetsCache offsetsCache,
+        List<SearchPlugin> plugins
+    ) {
         NamedRegistry<Highlighter> highlighters = new NamedRegistry<>("highlighter");
         highlighters.register("fvh", new FastVectorHighlighter(settings));
-        highlighters.register("plain", new PlainHighlighter());
-        highlighters.register("unified", new DefaultHighlighter());
+        highlighters.register("plain", new PlainHighlighter(offsetsCache));
+        highlighters.register("unified", new DefaultHighlighter(offsetsCache));
         highlighters.extractAndRegister(plugins, SearchPlugin::getHighlighters);
 
         return unmodifiableMap(highlighters.getRegistry());
@@ -1202,6 +1218,9 @@ public class SearchModule {
         registerQuery(new QuerySpec<>(ExactKnnQueryBuilder.NAME, ExactKnnQueryBuilder::new, parser -> {
             throw new IllegalArgumentException("[exact_knn] queries cannot be provided directly");
         }));
+        if (MultiDenseVectorFieldMapper.FEATURE_FLAG.isEnabled()) {
+            registerQuery(new QuerySpec<>(MaxSimQueryBuilder.NAME, MaxSimQueryBuilder::new, MaxSimQueryBuilder::fromXContent));
+        }
 
         registerFromPlugin(plugins, SearchPlugin::getQueries, this::registerQuery);
 
@@ -12,6 +12,7 @@ package org.elasticsearch.search;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.Query;
@@ -26,6 +27,7 @@ import org.elasticsearch.action.search.SearchShardTask;
 import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.action.support.TransportActions;
 import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.metadata.IndexMetadata;
 import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.CheckedSupplier;
@@ -34,6 +36,7 @@ import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
 import org.elasticsearch.common.logging.LoggerMessageFormat;
 import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.lucene.index.ElasticsearchDirectoryReader;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.settings.Settings;
@@ -46,6 +49,7 @@ import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.core.IOUtils;
+import org.elasticsearch.core.Nullable;
 import org.elasticsearch.core.RefCounted;
 import org.elasticsearch.core.Releasable;
 import org.elasticsearch.core.Releasables;
@@ -69,6 +73,7 @@ import org.elasticsearch.index.shard.IndexEventListener;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.SearchOperationListener;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.indices.ESCacheHelper;
 import org.elasticsearch.indices.ExecutorSelector;
 import org.elasticsearch.indices.IndicesService;
 import org.elasticsearch.indices.breaker.CircuitBreakerService;
@@ -239,6 +244,13 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
         Property.Dynamic
     );
 
+    public static final Setting<Boolean> FETCH_PHASE_PARALLEL_FETCH_ENABLED = Setting.boolSetting(
+        "search.fetch_phase_parallel_fetch_enabled",
+        false,
+        Property.NodeScope,
+        Property.Dynamic
+    );
+
     public static final Setting<Integer> MAX_OPEN_SCROLL_CONTEXT = Setting.intSetting(
         "search.max_open_scroll_context",
         500,
@@ -289,6 +301,7 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
     private final RankFeatureShardPhase rankFeatureShardPhase;
     private volatile Executor searchExecutor;
     private volatile boolean enableQueryPhaseParallelCollection;
+    private volatile boolean enableFetchPhaseParallelFetch;
 
     private volatile long defaultKeepAlive;
 
@@ -311,9 +324,13 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
     private final AtomicLong idGenerator = new AtomicLong();
 
     private final Map<Long, ReaderContext> activeReaders = ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency();
+    // the field summaries of local shards by reader cache key, see #buildShardFieldSummary
+    private final Map<Object, ShardFieldSummary> shardFieldSummaries = ConcurrentCollections.newConcurrentMap();
 
     private final MultiBucketConsumerService multiBucketConsumerService;
 
+    private final SearchAdmissionController admissionController;
+
     private final AtomicInteger openScrollContexts = new AtomicInteger();
     private final String sessionId = UUIDs.randomBase64UUID();
 
@@ -348,6 +365,13 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
         );
         this.executorSelector = executorSelector;
         this.tracer = tracer;
+        final ThreadPool.Info searchPoolInfo = threadPool.info(Names.SEARCH);
+        this.admissionController = new SearchAdmissionController(
+            settings,
+            clusterService.getClusterSettings(),
+            threadPool,
+            searchPoolInfo == null ? 1 : searchPoolInfo.getMax()
+        );
 
         TimeValue keepAliveInterval = KEEPALIVE_INTERVAL_SETTING.get(settings);
         setKeepAlives(DEFAULT_KEEPALIVE_SETTING.get(settings), MAX_KEEPALIVE_SETTING.get(settings));
@@ -390,6 +414,10 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
         enableQueryPhaseParallelCollection = QUERY_PHASE_PARALLEL_COLLECTION_ENABLED.get(settings);
         clusterService.getClusterSettings()
             .addSettingsUpdateConsumer(QUERY_PHASE_PARALLEL_COLLECTION_ENABLED, this::setEnableQueryPhaseParallelCollection);
+
+        enableFetchPhaseParallelFetch = FETCH_PHASE_PARALLEL_FETCH_ENABLED.get(settings);
+        clusterService.getClusterSettings()
+            .addSettingsUpdateConsumer(FETCH_PHASE_PARALLEL_FETCH_ENABLED, this::setEnableFetchPhaseParallelFetch);
     }
 
     private void setEnableSearchWorkerThreads(boolean enableSearchWorkerThreads) {
@@ -404,6 +432,10 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
         this.enableQueryPhaseParallelCollection = enableQueryPhaseParallelCollection;
     }
 
+    private void setEnableFetchPhaseParallelFetch(boolean enableFetchPhaseParallelFetch) {
+        this.enableFetchPhaseParallelFetch = enableFetchPhaseParallelFetch;
+    }
+
     private static void validateKeepAlives(TimeValue defaultKeepAlive, TimeValue maxKeepAlive) {
         if (defaultKeepAlive.millis() > maxKeepAlive.millis()) {
             throw new IllegalArgumentException(
@@ -461,6 +493,7 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
         // to release memory and let references to the filesystem go etc.
         if (reason == IndexRemovalReason.DELETED || reason == IndexRemovalReason.CLOSED || reason == IndexRemovalReason.REOPENED) {
             freeAllContextForIndex(index);
+            admissionController.onIndexRemoved(index.getName());
         }
     }
 
@@ -571,7 +604,26 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
             }
             // TODO: i think it makes sense to always do a canMatch here and
             // return an empty response (not null response) in case canMatch is false?
-            ensureAfterSeqNoRefreshed(shard, orig, () -> executeQueryPhase(orig, task), l);
+            if (admissionController.isEnabled() == false || shard.isSystem() || shard.indexSettings().isSearchThrottled()) {
+                ensureAfterSeqNoRefreshed(shard, orig, () -> executeQueryPhase(orig, task), l);
+                return;
+            }
+            // only admit once the shard is refreshed so that waiting for the refresh doesn't hold on to an expensive slot
+            final SearchAdmissionController.CostEstimate estimate = admissionController.estimate(orig);
+            final Executor executor = getExecutor(shard);
+            runAfterSeqNoRefreshed(
+                shard,
+                orig,
+                () -> admissionController.admit(estimate, task, l.delegateFailure((admitted, permit) -> runAsync(executor, () -> {
+                    try (permit) {
+                        final long startNanos = System.nanoTime();
+                        final SearchPhaseResult result = executeQueryPhase(orig, task);
+                        admissionController.onQueryPhase(estimate, System.nanoTime() - startNanos);
+                        return result;
+                    }
+                }, ActionListener.runBefore(admitted, permit::close)))),
+                l
+            );
         }));
     }
 
@@ -581,11 +633,18 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
         CheckedSupplier<T, Exception> executable,
         ActionListener<T> listener
     ) {
-        final long waitForCheckpoint = request.waitForCheckpoint();
         final Executor executor = getExecutor(shard);
+        runAfterSeqNoRefreshed(shard, request, () -> runAsync(executor, executable, listener), listener);
+    }
+
+    /**
+     * Runs {@code onRefreshed} once the shard is refreshed up to the checkpoint the request waits for, or fails the listener.
+     */
+    private void runAfterSeqNoRefreshed(IndexShard shard, ShardSearchRequest request, Runnable onRefreshed, ActionListener<?> listener) {
+        final long waitForCheckpoint = request.waitForCheckpoint();
         try {
             if (waitForCheckpoint <= UNASSIGNED_SEQ_NO) {
-                runAsync(executor, executable, listener);
+                onRefreshed.run();
                 return;
             }
             if (shard.indexSettings().getRefreshInterval().getMillis() <= 0) {
@@ -661,7 +720,7 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
                         if (timeoutTask != null) {
                             timeoutTask.cancel();
                         }
-                        runAsync(executor, executable, listener);
+                        onRefreshed.run();
                     }
                 }
             });
@@ -1141,6 +1200,7 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
                 searchExecutor,
                 resultsType,
                 enableQueryPhaseParallelCollection,
+                enableFetchPhaseParallelFetch,
                 minimumDocsPerSlice
             );
             // we clone the query shard context here just for rewriting otherwise we
@@ -1542,6 +1602,10 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
         return this.responseCollectorService;
     }
 
+    public SearchAdmissionController getAdmissionController() {
+        return admissionController;
+    }
+
     public long getDefaultKeepAliveInMillis() {
         return defaultKeepAlive;
     }
@@ -1716,13 +1780,53 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
                 } else {
                     minMax = null;
                 }
-                return new CanMatchShardResponse(canMatch || hasRefreshPending, minMax);
+                // summaries are only built from point-in-time-free requests against a reader that sees all documents
+                final ShardFieldSummary fieldSummary = request.readerId() == null && hasRefreshPending == false
+                    ? buildShardFieldSummary(indexService, canMatchSearcher)
+                    : null;
+                return new CanMatchShardResponse(canMatch || hasRefreshPending, minMax, fieldSummary);
             }
         } finally {
             Releasables.close(releasable);
         }
     }
 
+    /**
+     * Returns the summary of the shard that the given searcher reads, building it only if there is none yet for the reader or
+     * the index's settings or mappings changed since. Summaries describe the whole shard, so they are built from the reader
+     * below any reader wrapper, which may hide documents from the current request.
+     */
+    @Nullable
+    private ShardFieldSummary buildShardFieldSummary(IndexService indexService, Engine.Searcher searcher) {
+        final IndexMetadata indexMetadata = indexService.getMetadata();
+        if (ShardFieldSummary.isEnabled(indexMetadata) == false) {
+            return null;
+        }
+        final DirectoryReader reader = ElasticsearchDirectoryReader.getElasticsearchDirectoryReader(searcher.getDirectoryReader());
+        if (reader == null) {
+            return null;
+        }
+        try {
+            if (reader.isCurrent() == false) {
+                // writes that made it in before the block are not visible yet
+                return null;
+            }
+            final ESCacheHelper cacheHelper = ElasticsearchDirectoryReader.getESReaderCacheHelper(reader);
+            ShardFieldSummary summary = shardFieldSummaries.get(cacheHelper.getKey());
+            if (summary != null && summary.isValidFor(indexMetadata)) {
+                return summary;
+            }
+            summary = ShardFieldSummary.build(indexMetadata, indexService.mapperService()::fieldType, reader);
+            if (shardFieldSummaries.put(cacheHelper.getKey(), summary) == null) {
+                cacheHelper.addClosedListener(shardFieldSummaries::remove);
+            }
+            return summary;
+        } catch (IOException e) {
+            logger.debug(() -> "failed to summarize fields of shard [" + indexService.index() + "]", e);
+            return null;
+        }
+    }
+
     /**
      * This method tries to rewrite a query without using a {@link SearchExecutionContext}. It takes advantage of the fact that
      * we can skip some shards in the query phase because we have enough information in the index mapping to decide the 'can match'
@@ -0,0 +1,437 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.search;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PointValues;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.sandbox.document.HalfFloatPoint;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.cluster.metadata.IndexMetadata;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.lucene.BytesRefs;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.core.Nullable;
+import org.elasticsearch.index.mapper.KeywordFieldMapper;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.NumberFieldMapper;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.ConstantScoreQueryBuilder;
+import org.elasticsearch.index.query.ExistsQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.RangeQueryBuilder;
+import org.elasticsearch.index.query.TermQueryBuilder;
+import org.elasticsearch.index.query.TermsQueryBuilder;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.internal.ShardSearchRequest;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+/**
+ * A compact summary of the values that some fields of a shard hold: the min and max value of numeric and keyword fields,
+ * plus the distinct terms of keyword fields that only have a few of them. Data nodes return it with their can_match
+ * responses and coordinating nodes keep it, so that later searches can skip the shard for term, terms, range and exists
+ * filters on these fields without reaching out to the data node at all.
+ * <p>
+ * Any write could invalidate a summary, so summaries are only built for indices that are blocked for writes and are tied
+ * to the settings and mapping versions of the index they were built for. Removing the block bumps the settings version.
+ */
+public final class ShardFieldSummary implements Writeable {
+
+    /**
+     * The fields to summarize for coordinating nodes, only numeric and keyword fields without normalizer are supported.
+     */
+    public static final Setting<List<String>> FIELDS_SETTING = Setting.stringListSetting(
+        "index.search.coordinator_field_summaries",
+        Property.IndexScope,
+        Property.Dynamic
+    );
+
+    /** At most this many fields are summarized per shard. */
+    static final int MAX_FIELDS = 16;
+    /** Keyword fields with more distinct terms than this are only summarized by their min and max term. */
+    static final int MAX_TERMS = 32;
+
+    private final long settingsVersion;
+    private final long mappingVersion;
+    private final Map<String, FieldSummary> fields;
+
+    ShardFieldSummary(long settingsVersion, long mappingVersion, Map<String, FieldSummary> fields) {
+        this.settingsVersion = settingsVersion;
+        this.mappingVersion = mappingVersion;
+        this.fields = fields;
+    }
+
+    public ShardFieldSummary(StreamInput in) throws IOException {
+        this.settingsVersion = in.readVLong();
+        this.mappingVersion = in.readVLong();
+        this.fields = in.readMap(FieldSummary::readFrom);
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVLong(settingsVersion);
+        out.writeVLong(mappingVersion);
+        out.writeMap(fields, (o, summary) -> summary.writeTo(o));
+    }
+
+    /**
+     * Whether shards of the given index should be summarized, that is whether fields to summarize are configured and the
+     * index is blocked for writes.
+     */
+    public static boolean isEnabled(IndexMetadata indexMetadata) {
+        return FIELDS_SETTING.get(indexMetadata.getSettings()).isEmpty() == false
+            && (IndexMetadata.INDEX_BLOCKS_WRITE_SETTING.get(indexMetadata.getSettings())
+                || IndexMetadata.INDEX_READ_ONLY_SETTING.get(indexMetadata.getSettings()));
+    }
+
+    /**
+     * Whether this summary still describes the shard's data given the current metadata of its index.
+     */
+    public boolean isValidFor(IndexMetadata indexMetadata) {
+        return isEnabled(indexMetadata)
+            && indexMetadata.getSettingsVersion() == settingsVersion
+            && indexMetadata.getMappingVersion() == mappingVersion;
+    }
+
+    /**
+     * Summarizes the configured fields of a shard. The given reader must see all documents of the shard.
+     */
+    public static ShardFieldSummary build(IndexMetadata indexMetadata, Function<String, MappedFieldType> fieldTypes, IndexReader reader)
+        throws IOException {
+        assert isEnabled(indexMetadata);
+        Map<String, FieldSummary> fields = new HashMap<>();
+        for (String field : FIELDS_SETTING.get(indexMetadata.getSettings())) {
+            if (fields.size() >= MAX_FIELDS) {
+                break;
+            }
+            FieldSummary summary = summarize(fieldTypes.apply(field), reader);
+            if (summary != null) {
+                fields.put(field, summary);
+            }
+        }
+        return new ShardFieldSummary(indexMetadata.getSettingsVersion(), indexMetadata.getMappingVersion(), Map.copyOf(fields));
+    }
+
+    @Nullable
+    private static FieldSummary summarize(@Nullable MappedFieldType fieldType, IndexReader reader) throws IOException {
+        if (fieldType == null) {
+            // may be an object field, whose sub-fields exist queries would match
+            return null;
+        }
+        if (fieldType instanceof KeywordFieldMapper.KeywordFieldType keywordFieldType) {
+            if (keywordFieldType.isIndexed() == false || keywordFieldType.hasNormalizer()) {
+                // normalized terms can't be compared with the values of queries before they were normalized
+                return null;
+            }
+            return summarizeTerms(fieldType.name(), reader);
+        }
+        if (fieldType instanceof NumberFieldMapper.NumberFieldType numberFieldType) {
+            return numberFieldType.isIndexed() ? summarizePoints(fieldType.name(), numberFieldType, reader) : null;
+        }
+        return null;
+    }
+
+    private static FieldSummary summarizeTerms(String field, IndexReader reader) throws IOException {
+        BytesRef min = null;
+        BytesRef max = null;
+        TreeSet<BytesRef> distinctTerms = new TreeSet<>();
+        for (LeafReaderContext leaf : reader.leaves()) {
+            Terms terms = leaf.reader().terms(field);
+            if (terms == null) {
+                continue;
+            }
+            BytesRef leafMin = terms.getMin();
+            BytesRef leafMax = terms.getMax();
+            if (leafMin == null || leafMax == null) {
+                continue;
+            }
+            if (min == null || leafMin.compareTo(min) < 0) {
+                min = BytesRef.deepCopyOf(leafMin);
+            }
+            if (max == null || leafMax.compareTo(max) > 0) {
+                max = BytesRef.deepCopyOf(leafMax);
+            }
+            if (distinctTerms != null) {
+                TermsEnum termsEnum = terms.iterator();
+                for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
+                    distinctTerms.add(BytesRef.deepCopyOf(term));
+                    if (distinctTerms.size() > MAX_TERMS) {
+                        distinctTerms = null;
+                        break;
+                    }
+                }
+            }
+        }
+        if (min == null) {
+            return FieldSummary.ABSENT;
+        }
+        return new KeywordSummary(min, max, distinctTerms == null ? null : List.copyOf(distinctTerms));
+    }
+
+    private static FieldSummary summarizePoints(String field, NumberFieldMapper.NumberFieldType fieldType, IndexReader reader)
+        throws IOException {
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        NumberFieldMapper.NumberType type = fieldType.numberType();
+        for (LeafReaderContext leaf : reader.leaves()) {
+            PointValues points = leaf.reader().getPointValues(field);
+            if (points == null || points.size() == 0) {
+                continue;
+            }
+            min = Math.min(min, lowerBound(type, fieldType.parsePoint(points.getMinPackedValue())));
+            max = Math.max(max, upperBound(type, fieldType.parsePoint(points.getMaxPackedValue())));
+        }
+        if (min > max) {
+            return FieldSummary.ABSENT;
+        }
+        return new NumericSummary(min, max);
+    }
+
+    // longs may not be exactly representable as doubles, round outwards so that the summarized range covers all values. Query
+    // values are rounded to the field's type before matching, so a float or half_float value also stands for every double that
+    // rounds to it, for instance 0.1 for 0.1f, and its bounds are widened by one ulp of the field's type.
+
+    private static double lowerBound(NumberFieldMapper.NumberType type, Number value) {
+        double bound = value.doubleValue();
+        if (value instanceof Long l && (long) bound > l) {
+            bound = Math.nextDown(bound);
+        } else if (type == NumberFieldMapper.NumberType.HALF_FLOAT) {
+            bound = HalfFloatPoint.nextDown(value.floatValue());
+        } else if (type == NumberFieldMapper.NumberType.FLOAT) {
+            bound = Math.nextDown(value.floatValue());
+        }
+        return bound;
+    }
+
+    private static double upperBound(NumberFieldMapper.NumberType type, Number value) {
+        double bound = value.doubleValue();
+        if (value instanceof Long l && (long) bound < l) {
+            bound = Math.nextUp(bound);
+        } else if (type == NumberFieldMapper.NumberType.HALF_FLOAT) {
+            bound = HalfFloatPoint.nextUp(value.floatValue());
+        } else if (type == NumberFieldMapper.NumberType.FLOAT) {
+            bound = Math.nextUp(value.floatValue());
+        }
+        return bound;
+    }
+
+    /**
+     * Returns {@code false} if the given request cannot match any document of the shard according to this summary, and
+     * {@code true} if it may match. Mirrors {@link SearchService#queryStillMatchesAfterRewrite}. Fields that the runtime
+     * mappings of the request define, directly or as sub-fields of a composite runtime field, shadow the indexed fields of the
+     * same name, so they are not looked up in this summary.
+     */
+    public boolean canMatch(ShardSearchRequest request) {
+        Map<String, Object> runtimeMappings = request.getRuntimeMappings();
+        Map<String, FieldSummary> fields = runtimeMappings.isEmpty() ? this.fields : withoutRuntimeFields(runtimeMappings.keySet());
+        QueryBuilder aliasFilter = request.getAliasFilter().getQueryBuilder();
+        if (aliasFilter != null && canMatch(aliasFilter, fields) == false) {
+            return false;
+        }
+        SearchSourceBuilder source = request.source();
+        return SearchService.canRewriteToMatchNone(source) == false
+            || source.subSearches().stream().anyMatch(subSearch -> canMatch(subSearch.getQueryBuilder(), fields));
+    }
+
+    private Map<String, FieldSummary> withoutRuntimeFields(Set<String> runtimeFields) {
+        Map<String, FieldSummary> fields = new HashMap<>(this.fields);
+        fields.keySet().removeIf(field -> {
+            for (String runtimeField : runtimeFields) {
+                if (field.equals(runtimeField) || field.startsWith(runtimeField + ".")) {
+                    return true;
+                }
+            }
+            return false;
+        });
+        return fields;
+    }
+
+    /**
+     * Returns {@code false} if the given query cannot match any document of the shard according to this summary, and
+     * {@code true} if it may match. Only conjunctions of term, terms, range and exists queries are looked into.
+     */
+    boolean canMatch(QueryBuilder query) {
+        return canMatch(query, fields);
+    }
+
+    private static boolean canMatch(QueryBuilder query, Map<String, FieldSummary> fields) {
+        if (query instanceof BoolQueryBuilder bool) {
+            return bool.must().stream().allMatch(q -> canMatch(q, fields)) && bool.filter().stream().allMatch(q -> canMatch(q, fields));
+        } else if (query instanceof ConstantScoreQueryBuilder constantScore) {
+            return canMatch(constantScore.innerQuery(), fields);
+        } else if (query instanceof TermQueryBuilder term) {
+            FieldSummary summary = fields.get(term.fieldName());
+            return summary == null || term.caseInsensitive() || summary.mayContain(term.value());
+        } else if (query instanceof TermsQueryBuilder terms) {
+            FieldSummary summary = fields.get(terms.fieldName());
+            return summary == null || terms.termsLookup() != null || terms.values().stream().anyMatch(summary::mayContain);
+        } else if (query instanceof RangeQueryBuilder range) {
+            FieldSummary summary = fields.get(range.fieldName());
+            return summary == null || range.format() != null || summary.mayIntersect(range.from(), range.to());
+        } else if (query instanceof ExistsQueryBuilder exists) {
+            return fields.get(exists.fieldName()) != FieldSummary.ABSENT;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ShardFieldSummary that = (ShardFieldSummary) o;
+        return settingsVersion == that.settingsVersion && mappingVersion == that.mappingVersion && fields.equals(that.fields);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(settingsVersion, mappingVersion, fields);
+    }
+
+    @Override
+    public String toString() {
+        return "ShardFieldSummary{settingsVersion=" + settingsVersion + ", mappingVersion=" + mappingVersion + ", fields=" + fields + "}";
+    }
+
+    sealed interface FieldSummary permits Absent, KeywordSummary, NumericSummary {
+
+        FieldSummary ABSENT = new Absent();
+
+        byte ABSENT_TYPE = 0;
+        byte KEYWORD_TYPE = 1;
+        byte NUMERIC_TYPE = 2;
+
+        /**
+         * Whether a document may hold the given value, {@code false} only if it certainly does not.
+         */
+        boolean mayContain(Object value);
+
+        /**
+         * Whether a document may hold a value between the given bounds, {@code false} only if it certainly does not.
+         * Null bounds are unbounded.
+         */
+        boolean mayIntersect(@Nullable Object from, @Nullable Object to);
+
+        void writeTo(StreamOutput out) throws IOException;
+
+        static FieldSummary readFrom(StreamInput in) throws IOException {
+            byte type = in.readByte();
+            return switch (type) {
+                case ABSENT_TYPE -> ABSENT;
+                case KEYWORD_TYPE -> new KeywordSummary(
+                    in.readBytesRef(),
+                    in.readBytesRef(),
+                    in.readBoolean() ? in.readCollectionAsImmutableList(StreamInput::readBytesRef) : null
+                );
+                case NUMERIC_TYPE -> new NumericSummary(in.readDouble(), in.readDouble());
+                default -> throw new IllegalStateException("unknown field summary type [" + type + "]");
+            };
+        }
+    }
+
+    /**
+     * The field has no values in the shard.
+     */
+    record Absent() implements FieldSummary {
+        @Override
+        public boolean mayContain(Object value) {
+            return false;
+        }
+
+        @Override
+        public boolean mayIntersect(Object from, Object to) {
+            return false;
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeByte(ABSENT_TYPE);
+        }
+    }
+
+    /**
+     * The range of terms of a keyword field and, if there are only a few, the terms themselves.
+     */
+    record KeywordSummary(BytesRef min, BytesRef max, @Nullable List<BytesRef> terms) implements FieldSummary {
+        @Override
+        public boolean mayContain(Object value) {
+            BytesRef term = BytesRefs.toBytesRef(value);
+            if (term.compareTo(min) < 0 || term.compareTo(max) > 0) {
+                return false;
+            }
+            return terms == null || terms.contains(term);
+        }
+
+        @Override
+        public boolean mayIntersect(Object from, Object to) {
+            return (from == null || BytesRefs.toBytesRef(from).compareTo(max) <= 0)
+                && (to == null || BytesRefs.toBytesRef(to).compareTo(min) >= 0);
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeByte(KEYWORD_TYPE);
+            out.writeBytesRef(min);
+            out.writeBytesRef(max);
+            out.writeBoolean(terms != null);
+            if (terms != null) {
+                out.writeCollection(terms, StreamOutput::writeBytesRef);
+            }
+        }
+    }
+
+    /**
+     * The range of values of a numeric field, rounded outwards to doubles.
+     */
+    record NumericSummary(double min, double max) implements FieldSummary {
+        @Override
+        public boolean mayContain(Object value) {
+            double number = toDouble(value);
+            // NaN, that is an unparseable value, compares false and is left to the data node
+            return (number < min || number > max) == false;
+        }
+
+        @Override
+        public boolean mayIntersect(Object from, Object to) {
+            // the bounds are treated as inclusive, which is conservative for exclusive ones
+            return (from == null || (toDouble(from) > max) == false) && (to == null || (toDouble(to) < min) == false);
+        }
+
+        private static double toDouble(Object value) {
+            if (value instanceof Number number) {
+                return number.doubleValue();
+            }
+            try {
+                return Double.parseDouble(value instanceof BytesRef bytes ? bytes.utf8ToString() : value.toString());
+            } catch (NumberFormatException e) {
+                return Double.NaN;
+            }
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeByte(NUMERIC_TYPE);
+            out.writeDouble(min);
+            out.writeDouble(max);
+        }
+    }
+}
@@ -8,6 +8,7 @@
  */
 package org.elasticsearch.search.collapse;
 
+import org.elasticsearch.TransportVersions;
 import org.elasticsearch.common.ParsingException;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.io.stream.StreamInput;
@@ -37,11 +38,13 @@ public class CollapseBuilder implements Writeable, ToXContentObject {
     public static final ParseField FIELD_FIELD = new ParseField("field");
     public static final ParseField INNER_HITS_FIELD = new ParseField("inner_hits");
     public static final ParseField MAX_CONCURRENT_GROUP_REQUESTS_FIELD = new ParseField("max_concurrent_group_searches");
+    public static final ParseField BATCHED_EXPANSION_FIELD = new ParseField("batched_expansion");
     private static final ObjectParser<CollapseBuilder, Void> PARSER = new ObjectParser<>("collapse", CollapseBuilder::new);
 
     static {
         PARSER.declareString(CollapseBuilder::setField, FIELD_FIELD);
         PARSER.declareInt(CollapseBuilder::setMaxConcurrentGroupRequests, MAX_CONCURRENT_GROUP_REQUESTS_FIELD);
+        PARSER.declareBoolean(CollapseBuilder::setBatchedExpansion, BATCHED_EXPANSION_FIELD);
         PARSER.declareField((parser, builder, context) -> {
             XContentParser.Token currentToken = parser.currentToken();
             if (currentToken == XContentParser.Token.START_OBJECT) {
@@ -64,6 +67,7 @@ public class CollapseBuilder implements Writeable, ToXContentObject {
     private String field;
     private List<InnerHitBuilder> innerHits = Collections.emptyList();
     private int maxConcurrentGroupRequests = 0;
+    private boolean batchedExpansion = false;
 
     private CollapseBuilder() {}
 
@@ -80,6 +84,9 @@ public class CollapseBuilder implements Writeable, ToXContentObject {
         this.field = in.readString();
         this.maxConcurrentGroupRequests = in.readVInt();
         this.innerHits = in.readCollectionAsList(InnerHitBuilder::new);
+        if (in.getTransportVersion().onOrAfter(TransportVersions.COLLAPSE_BATCHED_EXPANSION)) {
+            this.batchedExpansion = in.readBoolean();
+        }
     }
 
     @Override
@@ -87,6 +94,9 @@ public class CollapseBuilder implements Writeable, ToXContentObject {
         out.writeString(field);
         out.writeVInt(maxConcurrentGroupRequests);
         out.writeCollection(innerHits);
+        if (out.getTransportVersion().onOrAfter(TransportVersions.COLLAPSE_BATCHED_EXPANSION)) {
+            out.writeBoolean(batchedExpansion);
+        }
     }
 
     public static CollapseBuilder fromXContent(XContentParser parser) {
@@ -130,6 +140,15 @@ public class CollapseBuilder implements Writeable, ToXContentObject {
         return this;
     }
 
+    /**
+     * Whether the inner hits of all groups should be expanded with a single search that collects the top hits of every
+     * group at once on each shard, rather than with one search per group and inner hits definition.
+     */
+    public CollapseBuilder setBatchedExpansion(boolean batchedExpansion) {
+        this.batchedExpansion = batchedExpansion;
+        return this;
+    }
+
     /**
      * The name of the field to collapse against
      */
@@ -151,6 +170,13 @@ public class CollapseBuilder implements Writeable, ToXContentObject {
         return maxConcurrentGroupRequests;
     }
 
+    /**
+     * Returns whether the inner hits of all groups should be expanded with a single search.
+     */
+    public boolean isBatchedExpansion() {
+        return batchedExpansion;
+    }
+
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, ToXContent.Params params) throws IOException {
         builder.startObject();
@@ -164,6 +190,9 @@ public class CollapseBuilder implements Writeable, ToXContentObject {
         if (maxConcurrentGroupRequests > 0) {
             builder.field(MAX_CONCURRENT_GROUP_REQUESTS_FIELD.getPreferredName(), maxConcurrentGroupRequests);
         }
+        if (batchedExpansion) {
+            builder.field(BATCHED_EXPANSION_FIELD.getPreferredName(), batchedExpansion);
+        }
         if (innerHits.isEmpty() == false) {
             if (innerHits.size() == 1) {
                 builder.field(INNER_HITS_FIELD.getPreferredName(), innerHits.get(0));
@@ -185,6 +214,7 @@ public class CollapseBuilder implements Writeable, ToXContentObject {
         CollapseBuilder that = (CollapseBuilder) o;
 
         if (maxConcurrentGroupRequests != that.maxConcurrentGroupRequests) return false;
+        if (batchedExpansion != that.batchedExpansion) return false;
         if (field.equals(that.field) == false) return false;
         return Objects.equals(innerHits, that.innerHits);
     }
@@ -193,6 +223,7 @@ public class CollapseBuilder implements Writeable, ToXContentObject {
     public int hashCode() {
         int result = Objects.hash(field, innerHits);
         result = 31 * result + maxConcurrentGroupRequests;
+        result = 31 * result + Boolean.hashCode(batchedExpansion);
         return result;
     }
 
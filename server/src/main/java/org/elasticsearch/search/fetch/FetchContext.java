@@ -38,6 +38,7 @@ import java.util.List;
 public class FetchContext {
 
     private final SearchContext searchContext;
+    private final SearchExecutionContext searchExecutionContext;
     private final SourceLoader sourceLoader;
     private final FetchSourceContext fetchSourceContext;
     private final StoredFieldsContext storedFieldsContext;
@@ -46,7 +47,16 @@ public class FetchContext {
      * Create a FetchContext based on a SearchContext
      */
     public FetchContext(SearchContext searchContext) {
+        this(searchContext, searchContext.getSearchExecutionContext());
+    }
+
+    /**
+     * Create a FetchContext based on a SearchContext that resolves fields and lookups against its own
+     * {@link SearchExecutionContext}, used by the slices of a concurrent fetch
+     */
+    FetchContext(SearchContext searchContext, SearchExecutionContext searchExecutionContext) {
         this.searchContext = searchContext;
+        this.searchExecutionContext = searchExecutionContext;
         this.sourceLoader = searchContext.newSourceLoader();
         this.storedFieldsContext = buildStoredFieldsContext(searchContext);
         this.fetchSourceContext = buildFetchSourceContext(searchContext);
@@ -187,7 +197,7 @@ public class FetchContext {
             String name = searchContext.collapse().getFieldName();
             if (dvContext == null) {
                 return new FetchDocValuesContext(
-                    searchContext.getSearchExecutionContext(),
+                    searchExecutionContext,
                     Collections.singletonList(new FieldAndFormat(name, null))
                 );
             } else if (searchContext.docValuesContext().fields().stream().map(ff -> ff.field).noneMatch(name::equals)) {
@@ -255,7 +265,7 @@ public class FetchContext {
     }
 
     public SearchExecutionContext getSearchExecutionContext() {
-        return searchContext.getSearchExecutionContext();
+        return searchExecutionContext;
     }
 
     /**
@@ -12,11 +12,13 @@ package org.elasticsearch.search.fetch;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.TaskExecutor;
 import org.apache.lucene.search.TotalHits;
 import org.elasticsearch.index.fieldvisitor.LeafStoredFieldLoader;
 import org.elasticsearch.index.fieldvisitor.StoredFieldLoader;
 import org.elasticsearch.index.mapper.IdLoader;
 import org.elasticsearch.index.mapper.SourceLoader;
+import org.elasticsearch.index.query.SearchExecutionContext;
 import org.elasticsearch.search.LeafNestedDocuments;
 import org.elasticsearch.search.NestedDocuments;
 import org.elasticsearch.search.SearchContextSourcePrinter;
@@ -43,6 +45,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Supplier;
 
 /**
@@ -52,6 +55,11 @@ import java.util.function.Supplier;
 public final class FetchPhase {
     private static final Logger LOGGER = LogManager.getLogger(FetchPhase.class);
 
+    /**
+     * The minimum number of hits that each slice of a concurrent fetch holds, smaller pages are fetched on the calling thread.
+     */
+    static final int MIN_DOCS_PER_FETCH_SLICE = 512;
+
     private final FetchSubPhase[] fetchSubPhases;
 
     public FetchPhase(List<FetchSubPhase> fetchSubPhases) {
@@ -111,8 +119,9 @@ public final class FetchPhase {
         PreloadedSourceProvider sourceProvider = new PreloadedSourceProvider();
         PreloadedFieldLookupProvider fieldLookupProvider = new PreloadedFieldLookupProvider();
         // The following relies on the fact that we fetch sequentially one segment after another, from a single thread
-        // This needs to be revised once we add concurrency to the fetch phase, and needs a work-around for situations
-        // where we run fetch as part of the query phase, where inter-segment concurrency is leveraged.
+        // When fetching concurrently, only the first slice uses the shared execution context, every other slice gets a copy
+        // with providers of its own, see below. This needs a work-around for situations where we run fetch as part of the
+        // query phase, where inter-segment concurrency is leveraged.
         // One problem is the global setLookupProviders call against the shared execution context.
         // Another problem is that the above provider implementations are not thread-safe
         context.getSearchExecutionContext().setLookupProviders(sourceProvider, ctx -> fieldLookupProvider);
@@ -124,79 +133,67 @@ public final class FetchPhase {
         // the getProcessors call to before the setLookupProviders call, which causes weird issues in InnerHitsPhase.
         // setLookupProviders resets the SearchLookup used throughout the rest of the fetch phase, which StoredValueFetchers rely on
         // to retrieve stored fields, and InnerHitsPhase is the last sub-fetch phase and re-runs the entire fetch phase.
-        fieldLookupProvider.setPreloadedStoredFieldNames(storedFieldsSpec.requiredStoredFields());
+        Set<String> requiredStoredFields = storedFieldsSpec.requiredStoredFields();
+        fieldLookupProvider.setPreloadedStoredFieldNames(requiredStoredFields);
 
         StoredFieldLoader storedFieldLoader = profiler.storedFields(StoredFieldLoader.fromSpec(storedFieldsSpec));
-        IdLoader idLoader = context.newIdLoader();
         boolean requiresSource = storedFieldsSpec.requiresSource();
-
         NestedDocuments nestedDocuments = context.getSearchExecutionContext().getNestedDocuments();
 
-        FetchPhaseDocsIterator docsIterator = new FetchPhaseDocsIterator() {
-
-            LeafReaderContext ctx;
-            LeafNestedDocuments leafNestedDocuments;
-            LeafStoredFieldLoader leafStoredFieldLoader;
-            SourceLoader.Leaf leafSourceLoader;
-            IdLoader.Leaf leafIdLoader;
-
-            @Override
-            protected void setNextReader(LeafReaderContext ctx, int[] docsInLeaf) throws IOException {
-                Timer timer = profiler.startNextReader();
-                this.ctx = ctx;
-                this.leafNestedDocuments = nestedDocuments.getLeafNestedDocuments(ctx);
-                this.leafStoredFieldLoader = storedFieldLoader.getLoader(ctx, docsInLeaf);
-                this.leafSourceLoader = sourceLoader.leaf(ctx.reader(), docsInLeaf);
-                this.leafIdLoader = idLoader.leaf(leafStoredFieldLoader, ctx.reader(), docsInLeaf);
-                fieldLookupProvider.setNextReader(ctx);
-                for (FetchSubPhaseProcessor processor : processors) {
-                    processor.setNextReader(ctx);
-                }
-                if (timer != null) {
-                    timer.stop();
-                }
-            }
+        DocsIterator docsIterator = new DocsIterator(
+            context,
+            profiler,
+            rankDocs,
+            processors,
+            storedFieldLoader,
+            sourceLoader,
+            context.newIdLoader(),
+            requiresSource,
+            nestedDocuments,
+            sourceProvider,
+            fieldLookupProvider
+        );
 
-            @Override
-            protected SearchHit nextDoc(int doc) throws IOException {
-                if (context.isCancelled()) {
-                    throw new TaskCancelledException("cancelled");
+        SearchHit[] hits;
+        if (isConcurrentFetchSupported(context, docIdsToLoad, profiler)) {
+            hits = docsIterator.iterateConcurrently(
+                context.shardTarget(),
+                context.searcher().getIndexReader(),
+                docIdsToLoad,
+                context.request().allowPartialSearchResults(),
+                new TaskExecutor(context.fetchPhaseExecutor()),
+                MIN_DOCS_PER_FETCH_SLICE,
+                () -> {
+                    // sub-phase processors, loaders and lookup providers keep per-segment state, so every slice needs its own,
+                    // and gets an execution context of its own that its processors resolve lookups against
+                    PreloadedSourceProvider sliceSourceProvider = new PreloadedSourceProvider();
+                    PreloadedFieldLookupProvider sliceFieldLookupProvider = new PreloadedFieldLookupProvider();
+                    sliceFieldLookupProvider.setPreloadedStoredFieldNames(requiredStoredFields);
+                    SearchExecutionContext sliceExecutionContext = new SearchExecutionContext(context.getSearchExecutionContext());
+                    sliceExecutionContext.setLookupProviders(sliceSourceProvider, ctx -> sliceFieldLookupProvider);
+                    return new DocsIterator(
+                        context,
+                        profiler,
+                        rankDocs,
+                        getProcessors(context.shardTarget(), new FetchContext(context, sliceExecutionContext), profiler),
+                        storedFieldLoader,
+                        context.newSourceLoader(),
+                        context.newIdLoader(),
+                        requiresSource,
+                        nestedDocuments,
+                        sliceSourceProvider,
+                        sliceFieldLookupProvider
+                    );
                 }
-                HitContext hit = prepareHitContext(
-                    context,
-                    requiresSource,
-                    profiler,
-                    leafNestedDocuments,
-                    leafStoredFieldLoader,
-                    doc,
-                    ctx,
-                    leafSourceLoader,
-                    leafIdLoader,
-                    rankDocs == null ? null : rankDocs.get(doc)
-                );
-                boolean success = false;
-                try {
-                    sourceProvider.source = hit.source();
-                    fieldLookupProvider.setPreloadedStoredFieldValues(hit.hit().getId(), hit.loadedFields());
-                    for (FetchSubPhaseProcessor processor : processors) {
-                        processor.process(hit);
-                    }
-                    success = true;
-                    return hit.hit();
-                } finally {
-                    if (success == false) {
-                        hit.hit().decRef();
-                    }
-                }
-            }
-        };
-
-        SearchHit[] hits = docsIterator.iterate(
-            context.shardTarget(),
-            context.searcher().getIndexReader(),
-            docIdsToLoad,
-            context.request().allowPartialSearchResults()
-        );
+            );
+        } else {
+            hits = docsIterator.iterate(
+                context.shardTarget(),
+                context.searcher().getIndexReader(),
+                docIdsToLoad,
+                context.request().allowPartialSearchResults()
+            );
+        }
 
         if (docsIterator.isTimedOut()) {
             context.queryResult().searchTimedOut(true);
@@ -214,6 +211,121 @@ public final class FetchPhase {
         return new SearchHits(hits, totalHits, context.getMaxScore());
     }
 
+    /**
+     * Whether the hits can be fetched concurrently, by slices of segments, on the {@link SearchContext#fetchPhaseExecutor()},
+     * which is only set if {@code search.fetch_phase_parallel_fetch_enabled} is. This is only worth it for large pages of
+     * hits. Profiling is not thread-safe, inner hits re-run the fetch phase against a shared execution context and script
+     * fields hold a lookup that was built before the fetch phase, so requests using any of them are fetched sequentially.
+     */
+    static boolean isConcurrentFetchSupported(SearchContext context, int[] docIdsToLoad, Profiler profiler) {
+        return context.fetchPhaseExecutor() != null
+            && docIdsToLoad.length >= 2 * MIN_DOCS_PER_FETCH_SLICE
+            && context.hasScriptFields() == false
+            && profiler == Profiler.NOOP
+            && context instanceof InnerHitsContext.InnerHitSubContext == false
+            && context.innerHits().getInnerHits().isEmpty();
+    }
+
+    /**
+     * Fetches the docs of one or more leaves, one leaf after the other. When fetching concurrently, each slice has its own.
+     */
+    private static class DocsIterator extends FetchPhaseDocsIterator {
+
+        private final SearchContext context;
+        private final Profiler profiler;
+        private final RankDocShardInfo rankDocs;
+        private final List<FetchSubPhaseProcessor> processors;
+        private final StoredFieldLoader storedFieldLoader;
+        private final SourceLoader sourceLoader;
+        private final IdLoader idLoader;
+        private final boolean requiresSource;
+        private final NestedDocuments nestedDocuments;
+        private final PreloadedSourceProvider sourceProvider;
+        private final PreloadedFieldLookupProvider fieldLookupProvider;
+
+        private LeafReaderContext ctx;
+        private LeafNestedDocuments leafNestedDocuments;
+        private LeafStoredFieldLoader leafStoredFieldLoader;
+        private SourceLoader.Leaf leafSourceLoader;
+        private IdLoader.Leaf leafIdLoader;
+
+        DocsIterator(
+            SearchContext context,
+            Profiler profiler,
+            RankDocShardInfo rankDocs,
+            List<FetchSubPhaseProcessor> processors,
+            StoredFieldLoader storedFieldLoader,
+            SourceLoader sourceLoader,
+            IdLoader idLoader,
+            boolean requiresSource,
+            NestedDocuments nestedDocuments,
+            PreloadedSourceProvider sourceProvider,
+            PreloadedFieldLookupProvider fieldLookupProvider
+        ) {
+            this.context = context;
+            this.profiler = profiler;
+            this.rankDocs = rankDocs;
+            this.processors = processors;
+            this.storedFieldLoader = storedFieldLoader;
+            this.sourceLoader = sourceLoader;
+            this.idLoader = idLoader;
+            this.requiresSource = requiresSource;
+            this.nestedDocuments = nestedDocuments;
+            this.sourceProvider = sourceProvider;
+            this.fieldLookupProvider = fieldLookupProvider;
+        }
+
+        @Override
+        protected void setNextReader(LeafReaderContext ctx, int[] docsInLeaf) throws IOException {
+            Timer timer = profiler.startNextReader();
+            this.ctx = ctx;
+            this.leafNestedDocuments = nestedDocuments.getLeafNestedDocuments(ctx);
+            this.leafStoredFieldLoader = storedFieldLoader.getLoader(ctx, docsInLeaf);
+            this.leafSourceLoader = sourceLoader.leaf(ctx.reader(), docsInLeaf);
+            this.leafIdLoader = idLoader.leaf(leafStoredFieldLoader, ctx.reader(), docsInLeaf);
+            fieldLookupProvider.setNextReader(ctx);
+            for (FetchSubPhaseProcessor processor : processors) {
+                processor.setNextReader(ctx);
+            }
+            if (timer != null) {
+                timer.stop();
+            }
+        }
+
+        @Override
+        protected SearchHit nextDoc(int doc) throws IOException {
+            if (context.isCancelled()) {
+                throw new TaskCancelledException("cancelled");
+            }
+            HitContext hit = prepareHitContext(
+                context,
+                requiresSource,
+                profiler,
+                leafNestedDocuments,
+                leafStoredFieldLoader,
+                doc,
+                ctx,
+                leafSourceLoader,
+                leafIdLoader,
+                rankDocs == null ? null : rankDocs.get(doc)
+            );
+            boolean success = false;
+            try {
+                sourceProvider.source = hit.source();
+                fieldLookupProvider.setPreloadedStoredFieldValues(hit.hit().getId(), hit.loadedFields());
+                for (FetchSubPhaseProcessor processor : processors) {
+                    processor.process(hit);
+                }
+                success = true;
+                return hit.hit();
+            } finally {
+                if (success == false) {
+                    hit.hit().decRef();
+                }
+            }
+        }
+    }
+
     List<FetchSubPhaseProcessor> getProcessors(SearchShardTarget target, FetchContext context, Profiler profiler) {
         try {
             List<FetchSubPhaseProcessor> processors = new ArrayList<>();
@@ -12,6 +12,7 @@ package org.elasticsearch.search.fetch;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.search.TaskExecutor;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHits;
 import org.elasticsearch.search.SearchShardTarget;
@@ -19,14 +20,20 @@ import org.elasticsearch.search.internal.ContextIndexSearcher;
 import org.elasticsearch.search.query.SearchTimeoutException;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
 
 /**
  * Given a set of doc ids and an index reader, sorts the docs by id, splits the sorted
  * docs by leaf reader, and iterates through them calling abstract methods
  * {@link #setNextReader(LeafReaderContext, int[])} for each new leaf reader and
  * {@link #nextDoc(int)} for each document; then collects the resulting {@link SearchHit}s
- * into an array and returns them in the order of the original doc ids.
+ * into an array and returns them in the order of the original doc ids. Large sets of docs
+ * may be fetched concurrently, see {@link #iterateConcurrently}.
  */
 abstract class FetchPhaseDocsIterator {
 
@@ -55,57 +62,127 @@ abstract class FetchPhaseDocsIterator {
      */
     public final SearchHit[] iterate(SearchShardTarget shardTarget, IndexReader indexReader, int[] docIds, boolean allowPartialResults) {
         SearchHit[] searchHits = new SearchHit[docIds.length];
-        DocIdToIndex[] docs = new DocIdToIndex[docIds.length];
-        for (int index = 0; index < docIds.length; index++) {
-            docs[index] = new DocIdToIndex(docIds[index], index);
+        DocIdToIndex[] docs = sortedDocs(docIds);
+        int end;
+        try {
+            end = fetch(shardTarget, indexReader.leaves(), docs, 0, docs.length, searchHits);
+        } catch (Exception e) {
+            purgeSearchHits(searchHits);
+            throw e;
         }
-        // make sure that we iterate in doc id order
-        Arrays.sort(docs);
-        int currentDoc = docs[0].docId;
+        if (end < docs.length) {
+            if (allowPartialResults) {
+                timedOut = true;
+                SearchHit[] partialSearchHits = new SearchHit[end];
+                System.arraycopy(searchHits, 0, partialSearchHits, 0, end);
+                return partialSearchHits;
+            }
+            purgeSearchHits(searchHits);
+            throw new SearchTimeoutException(shardTarget, "Time exceeded");
+        }
+        return searchHits;
+    }
+
+    /**
+     * Like {@link #iterate(SearchShardTarget, IndexReader, int[], boolean)}, but splits the sorted docs into slices of whole
+     * leaves holding at least {@code minDocsPerSlice} docs each and fetches the slices concurrently. The first slice is fetched
+     * by this iterator and every other slice by its own iterator, obtained from {@code sliceIterators} on the calling thread.
+     * The hits are returned in the order of the original doc ids. If the time budget runs out and partial results are allowed,
+     * the hits that could be fetched are returned, still in the order of the original doc ids.
+     */
+    public final SearchHit[] iterateConcurrently(
+        SearchShardTarget shardTarget,
+        IndexReader indexReader,
+        int[] docIds,
+        boolean allowPartialResults,
+        TaskExecutor taskExecutor,
+        int minDocsPerSlice,
+        Supplier<FetchPhaseDocsIterator> sliceIterators
+    ) {
+        SearchHit[] searchHits = new SearchHit[docIds.length];
+        DocIdToIndex[] docs = sortedDocs(docIds);
+        List<LeafReaderContext> leaves = indexReader.leaves();
+        List<Callable<Boolean>> slices = new ArrayList<>();
+        int from = 0;
+        while (from < docs.length) {
+            int to = from;
+            do {
+                LeafReaderContext ctx = leaves.get(ReaderUtil.subIndex(docs[to].docId, leaves));
+                to = endReaderIdx(ctx, to, docs);
+            } while (to < docs.length && to - from < minDocsPerSlice);
+            final int sliceFrom = from;
+            final int sliceTo = to;
+            final FetchPhaseDocsIterator iterator = from == 0 ? this : sliceIterators.get();
+            slices.add(() -> iterator.fetch(shardTarget, leaves, docs, sliceFrom, sliceTo, searchHits) == sliceTo);
+            from = to;
+        }
+        List<Boolean> completed;
         try {
-            int leafOrd = ReaderUtil.subIndex(docs[0].docId, indexReader.leaves());
-            LeafReaderContext ctx = indexReader.leaves().get(leafOrd);
-            int endReaderIdx = endReaderIdx(ctx, 0, docs);
-            int[] docsInLeaf = docIdsInLeaf(0, endReaderIdx, docs, ctx.docBase);
-            try {
-                setNextReader(ctx, docsInLeaf);
-            } catch (ContextIndexSearcher.TimeExceededException timeExceededException) {
-                if (allowPartialResults) {
-                    timedOut = true;
-                    return SearchHits.EMPTY;
-                }
+            completed = taskExecutor.invokeAll(slices);
+        } catch (FetchPhaseExecutionException | SearchTimeoutException e) {
+            purgeSearchHits(searchHits);
+            throw e;
+        } catch (Exception e) {
+            purgeSearchHits(searchHits);
+            throw new FetchPhaseExecutionException(shardTarget, "Error running fetch phase", e);
+        }
+        if (completed.contains(false)) {
+            if (allowPartialResults == false) {
+                purgeSearchHits(searchHits);
                 throw new SearchTimeoutException(shardTarget, "Time exceeded");
             }
-            for (int i = 0; i < docs.length; i++) {
+            timedOut = true;
+            return Arrays.stream(searchHits).filter(Objects::nonNull).toArray(SearchHit[]::new);
+        }
+        return searchHits;
+    }
+
+    /**
+     * Fetches the sorted docs from {@code from} (inclusive) to {@code to} (exclusive) into {@code searchHits}, which must
+     * start and end at leaf boundaries. Returns {@code to}, or the position of the doc at which the time budget ran out.
+     */
+    private int fetch(
+        SearchShardTarget shardTarget,
+        List<LeafReaderContext> leaves,
+        DocIdToIndex[] docs,
+        int from,
+        int to,
+        SearchHit[] searchHits
+    ) {
+        int currentDoc = docs[from].docId;
+        try {
+            int endReaderIdx = from;
+            for (int i = from; i < to; i++) {
                 try {
                     if (i >= endReaderIdx) {
-                        leafOrd = ReaderUtil.subIndex(docs[i].docId, indexReader.leaves());
-                        ctx = indexReader.leaves().get(leafOrd);
+                        LeafReaderContext ctx = leaves.get(ReaderUtil.subIndex(docs[i].docId, leaves));
                         endReaderIdx = endReaderIdx(ctx, i, docs);
-                        docsInLeaf = docIdsInLeaf(i, endReaderIdx, docs, ctx.docBase);
-                        setNextReader(ctx, docsInLeaf);
+                        assert endReaderIdx <= to : "slices must end at leaf boundaries";
+                        setNextReader(ctx, docIdsInLeaf(i, endReaderIdx, docs, ctx.docBase));
                     }
                     currentDoc = docs[i].docId;
                     assert searchHits[docs[i].index] == null;
                     searchHits[docs[i].index] = nextDoc(docs[i].docId);
                 } catch (ContextIndexSearcher.TimeExceededException timeExceededException) {
-                    if (allowPartialResults) {
-                        timedOut = true;
-                        SearchHit[] partialSearchHits = new SearchHit[i];
-                        System.arraycopy(searchHits, 0, partialSearchHits, 0, i);
-                        return partialSearchHits;
-                    }
-                    purgeSearchHits(searchHits);
-                    throw new SearchTimeoutException(shardTarget, "Time exceeded");
+                    return i;
                 }
             }
         } catch (SearchTimeoutException e) {
             throw e;
         } catch (Exception e) {
-            purgeSearchHits(searchHits);
             throw new FetchPhaseExecutionException(shardTarget, "Error running fetch phase for doc [" + currentDoc + "]", e);
         }
-        return searchHits;
+        return to;
+    }
+
+    private static DocIdToIndex[] sortedDocs(int[] docIds) {
+        DocIdToIndex[] docs = new DocIdToIndex[docIds.length];
+        for (int index = 0; index < docIds.length; index++) {
+            docs[index] = new DocIdToIndex(docIds[index], index);
+        }
+        // make sure that we iterate in doc id order
+        Arrays.sort(docs);
+        return docs;
     }
 
     private static void purgeSearchHits(SearchHit[] searchHits) {
@@ -22,6 +22,7 @@ import org.elasticsearch.common.CheckedSupplier;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.text.Text;
+import org.elasticsearch.core.Nullable;
 import org.elasticsearch.features.NodeFeature;
 import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.mapper.IdFieldMapper;
@@ -52,6 +53,17 @@ public class DefaultHighlighter implements Highlighter {
 
     public static final NodeFeature UNIFIED_HIGHLIGHTER_MATCHED_FIELDS = new NodeFeature("unified_highlighter_matched_fields");
 
+    @Nullable
+    private final HighlightOffsetsCache offsetsCache;
+
+    public DefaultHighlighter() {
+        this(null);
+    }
+
+    public DefaultHighlighter(@Nullable HighlightOffsetsCache offsetsCache) {
+        this.offsetsCache = offsetsCache;
+    }
+
     @Override
     public boolean canHighlight(MappedFieldType fieldType) {
         return true;
@@ -71,6 +83,9 @@ public class DefaultHighlighter implements Highlighter {
         MappedFieldType fieldType = fieldContext.fieldType;
         SearchHighlightContext.Field field = fieldContext.field;
         FetchSubPhase.HitContext hitContext = fieldContext.hitContext;
+        if (offsetsCache != null) {
+            offsetsCache.setDocument(fieldContext.cache, fieldContext.fieldName, hitContext.reader(), hitContext.docId());
+        }
 
         CheckedSupplier<String, IOException> loadFieldValues = () -> {
             List<Object> fieldValues = loadFieldValues(
@@ -122,13 +137,21 @@ public class DefaultHighlighter implements Highlighter {
         boolean weightMatchesEnabled = indexSettings.isWeightMatchesEnabled();
         int numberOfFragments = fieldContext.field.fieldOptions().numberOfFragments();
         Integer queryMaxAnalyzedOffset = fieldContext.field.fieldOptions().maxAnalyzedOffset();
-        Analyzer analyzer = wrapAnalyzer(
-            fieldContext.context.getSearchExecutionContext().getIndexAnalyzer(f -> Lucene.KEYWORD_ANALYZER),
-            queryMaxAnalyzedOffset
-        );
+        OffsetSource offsetSource = getOffsetSource(fieldContext.context, fieldContext.fieldType);
+        SearchExecutionContext searchExecutionContext = fieldContext.context.getSearchExecutionContext();
+        Analyzer indexAnalyzer = searchExecutionContext.getIndexAnalyzer(f -> Lucene.KEYWORD_ANALYZER);
+        if (offsetsCache != null && offsetSource == OffsetSource.ANALYSIS) {
+            // offsets are re-analyzed from the field values, replay the tokens of documents that were highlighted before
+            indexAnalyzer = offsetsCache.analyzer(
+                fieldContext.cache,
+                fieldContext.fieldName,
+                indexAnalyzer,
+                f -> searchExecutionContext.getIndexAnalyzer(f, u -> Lucene.KEYWORD_ANALYZER)
+            );
+        }
+        Analyzer analyzer = wrapAnalyzer(indexAnalyzer, queryMaxAnalyzedOffset);
         PassageFormatter passageFormatter = getPassageFormatter(fieldContext.field, encoder);
         IndexSearcher searcher = fieldContext.context.searcher();
-        OffsetSource offsetSource = getOffsetSource(fieldContext.context, fieldContext.fieldType);
         BreakIterator breakIterator;
         int highlighterNumberOfFragments;
         if (numberOfFragments == 0
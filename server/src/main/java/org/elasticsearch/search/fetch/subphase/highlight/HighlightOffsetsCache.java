@@ -0,0 +1,528 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.search.fetch.subphase.highlight;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PayloadAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionLengthAttribute;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.breaker.NoopCircuitBreaker;
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+import org.elasticsearch.common.cache.RemovalNotification;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.core.Nullable;
+import org.elasticsearch.index.analysis.NamedAnalyzer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * A node level cache of the tokens that the index analyzer of a field produces for the values of a document, used by the
+ * highlighters that have to re-analyze field values to find the offsets of matches. Highlighting the same popular documents
+ * over and over again replays the cached tokens instead of analyzing the values again.
+ * <p>
+ * Entries are keyed by segment core, doc id, field, index analyzer and a hash of the analyzed value. They are weighed by the
+ * memory they use, accounted for in the fielddata circuit breaker, evicted once the cache exceeds {@link #SIZE_SETTING} and
+ * invalidated when their segment is closed. Values are only cached
+ * when their token stream was consumed to the end, so highlighting with a {@code max_analyzed_offset} never caches partial
+ * streams but still replays complete ones.
+ */
+public final class HighlightOffsetsCache {
+
+    public static final Setting<ByteSizeValue> SIZE_SETTING = Setting.memorySizeSetting(
+        "search.highlight.offsets_cache.size",
+        "1%",
+        Property.NodeScope
+    );
+
+    private static final long KEY_BYTES = RamUsageEstimator.shallowSizeOfInstance(Key.class);
+
+    @Nullable
+    private final Cache<Key, CachedTokens> cache;
+    private final long maxEntryBytes;
+    private final ConcurrentMap<IndexReader.CacheKey, Set<Key>> keysByCore = ConcurrentCollections.newConcurrentMap();
+    private volatile CircuitBreaker breaker = new NoopCircuitBreaker(CircuitBreaker.FIELDDATA);
+
+    public HighlightOffsetsCache(Settings settings) {
+        long maxWeight = SIZE_SETTING.get(settings).getBytes();
+        if (maxWeight > 0) {
+            this.cache = CacheBuilder.<Key, CachedTokens>builder()
+                .setMaximumWeight(maxWeight)
+                .weigher((key, tokens) -> KEY_BYTES + tokens.ramBytesUsed())
+                .removalListener(this::onRemoval)
+                .build();
+        } else {
+            this.cache = null;
+        }
+        // a single huge value must not flush the whole cache
+        this.maxEntryBytes = maxWeight / 16;
+    }
+
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * Sets the circuit breaker that the memory of the cached tokens is accounted for in.
+     */
+    public void setCircuitBreaker(CircuitBreaker breaker) {
+        this.breaker = breaker;
+    }
+
+    /**
+     * Returns the analyzer that replays cached tokens for the values of {@code field}, wrapping {@code indexAnalyzer}.
+     * {@code fieldAnalyzers} resolves the analyzer that {@code indexAnalyzer} uses for a field, so that the tokens of
+     * different analyzers are never mixed up. Highlighters share one analyzer per field in the
+     * {@link FieldHighlightContext#cache} of a fetch phase and have to call {@link #setDocument} before they analyze
+     * the values of a hit.
+     */
+    Analyzer analyzer(
+        Map<String, Object> highlighterCache,
+        String field,
+        Analyzer indexAnalyzer,
+        Function<String, NamedAnalyzer> fieldAnalyzers
+    ) {
+        if (cache == null) {
+            return indexAnalyzer;
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, CachingAnalyzer> analyzers = (Map<String, CachingAnalyzer>) highlighterCache.computeIfAbsent(
+            HighlightOffsetsCache.class.getName(),
+            k -> new HashMap<>()
+        );
+        return analyzers.computeIfAbsent(field, f -> new CachingAnalyzer(indexAnalyzer, fieldAnalyzers));
+    }
+
+    /**
+     * Sets the document whose values the analyzer of {@code field} analyzes next, if the field has one.
+     */
+    void setDocument(Map<String, Object> highlighterCache, String field, LeafReader reader, int docId) {
+        if (cache == null) {
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, CachingAnalyzer> analyzers = (Map<String, CachingAnalyzer>) highlighterCache.get(HighlightOffsetsCache.class.getName());
+        CachingAnalyzer analyzer = analyzers == null ? null : analyzers.get(field);
+        if (analyzer != null) {
+            analyzer.setDocument(reader, docId);
+        }
+    }
+
+    int count() {
+        return cache == null ? 0 : cache.count();
+    }
+
+    private CachedTokens get(Key key) {
+        return cache.get(key);
+    }
+
+    private void put(IndexReader.CacheHelper cacheHelper, Key key, CachedTokens tokens) {
+        try {
+            breaker.addEstimateBytesAndMaybeBreak(KEY_BYTES + tokens.ramBytesUsed(), "highlight_offsets_cache");
+        } catch (CircuitBreakingException e) {
+            // the tokens are only an optimization, highlight without caching them
+            return;
+        }
+        Set<Key> keys = keysByCore.get(key.core);
+        if (keys == null) {
+            Set<Key> newKeys = ConcurrentCollections.newConcurrentSet();
+            keys = keysByCore.putIfAbsent(key.core, newKeys);
+            if (keys == null) {
+                keys = newKeys;
+                cacheHelper.addClosedListener(this::onClose);
+            }
+        }
+        keys.add(key);
+        cache.put(key, tokens);
+    }
+
+    private void onRemoval(RemovalNotification<Key, CachedTokens> notification) {
+        breaker.addWithoutBreaking(-(KEY_BYTES + notification.getValue().ramBytesUsed()));
+        Set<Key> keys = keysByCore.get(notification.getKey().core);
+        if (keys != null) {
+            keys.remove(notification.getKey());
+        }
+    }
+
+    private void onClose(IndexReader.CacheKey core) {
+        Set<Key> keys = keysByCore.remove(core);
+        if (keys != null) {
+            for (Key key : keys) {
+                cache.invalidate(key);
+            }
+        }
+    }
+
+    /**
+     * The analyzer is identified by its name, which is unique within the index that the segment core belongs to.
+     */
+    private record Key(IndexReader.CacheKey core, int docId, String field, String analyzer, int length, long hash) {}
+
+    /**
+     * 64 bit FNV-1a hash of the chars of a value, so that values of a document with colliding {@link String#hashCode()}
+     * don't share an entry in practice.
+     */
+    static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * The tokens of a single analyzed value.
+     */
+    private record CachedTokens(
+        int count,
+        char[] terms,
+        int[] termEnds,
+        int[] startOffsets,
+        int[] endOffsets,
+        int[] positionIncrements,
+        int[] positionLengths,
+        @Nullable BytesRef[] payloads,
+        int finalOffset,
+        int finalPositionIncrement,
+        long ramBytesUsed
+    ) implements Accountable {}
+
+    /**
+     * Analyzer that replays the cached tokens of the values of the current document and records the tokens of the
+     * values that aren't cached yet. It doesn't apply the char filters of the index analyzer itself so that it sees
+     * the original value; the index analyzer does when a value has to be analyzed.
+     */
+    private final class CachingAnalyzer extends Analyzer {
+        private final Analyzer delegate;
+        private final Function<String, NamedAnalyzer> fieldAnalyzers;
+        private IndexReader.CacheHelper cacheHelper;
+        private int docId;
+
+        CachingAnalyzer(Analyzer delegate, Function<String, NamedAnalyzer> fieldAnalyzers) {
+            super(PER_FIELD_REUSE_STRATEGY);
+            this.delegate = delegate;
+            this.fieldAnalyzers = fieldAnalyzers;
+        }
+
+        void setDocument(LeafReader reader, int docId) {
+            this.cacheHelper = reader.getCoreCacheHelper();
+            this.docId = docId;
+        }
+
+        @Override
+        protected TokenStreamComponents createComponents(String fieldName) {
+            CachingTokenStream tokenStream = new CachingTokenStream(this, fieldName);
+            return new TokenStreamComponents(tokenStream::setReader, tokenStream);
+        }
+
+        @Override
+        public int getPositionIncrementGap(String fieldName) {
+            return delegate.getPositionIncrementGap(fieldName);
+        }
+
+        @Override
+        public int getOffsetGap(String fieldName) {
+            return delegate.getOffsetGap(fieldName);
+        }
+
+        @Override
+        public String toString() {
+            return "CachingAnalyzer(" + delegate + ")";
+        }
+    }
+
+    private final class CachingTokenStream extends TokenStream {
+        private final CharTermAttribute termAtt = addAttribute(CharTermAttribute.class);
+        private final OffsetAttribute offsetAtt = addAttribute(OffsetAttribute.class);
+        private final PositionIncrementAttribute posIncAtt = addAttribute(PositionIncrementAttribute.class);
+        private final PositionLengthAttribute posLenAtt = addAttribute(PositionLengthAttribute.class);
+
+        private final CachingAnalyzer analyzer;
+        private final String field;
+        private final String analyzerName;
+        private String value;
+
+        // replaying
+        private CachedTokens cached;
+        private int upto;
+
+        // analyzing
+        private TokenStream input;
+        private IndexReader.CacheHelper cacheHelper;
+        private Key key;
+        private boolean exhausted;
+        private Recorder recorder;
+
+        CachingTokenStream(CachingAnalyzer analyzer, String field) {
+            this.analyzer = analyzer;
+            this.field = field;
+            this.analyzerName = analyzer.fieldAnalyzers.apply(field).name();
+        }
+
+        void setReader(Reader reader) {
+            try {
+                StringBuilder builder = new StringBuilder();
+                char[] buffer = new char[1024];
+                int read;
+                while ((read = reader.read(buffer)) != -1) {
+                    builder.append(buffer, 0, read);
+                }
+                this.value = builder.toString();
+            } catch (IOException e) {
+                throw new IllegalStateException("failed to read the value of [" + field + "]", e);
+            }
+        }
+
+        @Override
+        public void reset() throws IOException {
+            super.reset();
+            cacheHelper = analyzer.cacheHelper;
+            key = cacheHelper == null
+                ? null
+                : new Key(cacheHelper.getKey(), analyzer.docId, field, analyzerName, value.length(), hash(value));
+            cached = key == null ? null : get(key);
+            upto = 0;
+            if (cached == null) {
+                input = analyzer.delegate.tokenStream(field, value);
+                input.reset();
+                exhausted = false;
+                recorder = key != null && input.hasAttribute(CharTermAttribute.class) && input.hasAttribute(OffsetAttribute.class)
+                    ? new Recorder(input, maxEntryBytes)
+                    : null;
+            }
+        }
+
+        @Override
+        public boolean incrementToken() throws IOException {
+            clearAttributes();
+            if (cached != null) {
+                if (upto == cached.count) {
+                    return false;
+                }
+                int termStart = upto == 0 ? 0 : cached.termEnds[upto - 1];
+                termAtt.copyBuffer(cached.terms, termStart, cached.termEnds[upto] - termStart);
+                offsetAtt.setOffset(cached.startOffsets[upto], cached.endOffsets[upto]);
+                posIncAtt.setPositionIncrement(cached.positionIncrements[upto]);
+                posLenAtt.setPositionLength(cached.positionLengths[upto]);
+                if (cached.payloads != null) {
+                    addAttribute(PayloadAttribute.class).setPayload(cached.payloads[upto]);
+                }
+                upto++;
+                return true;
+            }
+            if (input.incrementToken() == false) {
+                exhausted = true;
+                return false;
+            }
+            if (recorder != null) {
+                boolean recorded = recorder.record();
+                recorder.copyTo(this);
+                if (recorded == false) {
+                    // too large to be cached, keep analyzing without recording
+                    recorder = null;
+                }
+            } else {
+                Recorder.copy(input, this);
+            }
+            return true;
+        }
+
+        @Override
+        public void end() throws IOException {
+            super.end();
+            if (cached != null) {
+                offsetAtt.setOffset(cached.finalOffset, cached.finalOffset);
+                posIncAtt.setPositionIncrement(cached.finalPositionIncrement);
+                return;
+            }
+            input.end();
+            if (input.hasAttribute(OffsetAttribute.class)) {
+                OffsetAttribute inputOffsetAtt = input.getAttribute(OffsetAttribute.class);
+                offsetAtt.setOffset(inputOffsetAtt.startOffset(), inputOffsetAtt.endOffset());
+            }
+            if (input.hasAttribute(PositionIncrementAttribute.class)) {
+                posIncAtt.setPositionIncrement(input.getAttribute(PositionIncrementAttribute.class).getPositionIncrement());
+            }
+            if (exhausted && recorder != null) {
+                put(cacheHelper, key, recorder.build(offsetAtt.endOffset(), posIncAtt.getPositionIncrement()));
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            super.close();
+            try {
+                if (input != null) {
+                    input.close();
+                }
+            } finally {
+                input = null;
+                cached = null;
+                recorder = null;
+                cacheHelper = null;
+                key = null;
+                value = null;
+            }
+        }
+    }
+
+    /**
+     * Records the tokens of a stream of the index analyzer.
+     */
+    private static final class Recorder {
+        private final CharTermAttribute termAtt;
+        private final OffsetAttribute offsetAtt;
+        private final PositionIncrementAttribute posIncAtt;
+        private final PositionLengthAttribute posLenAtt;
+        private final PayloadAttribute payloadAtt;
+        private final long maxBytes;
+
+        private int count;
+        private char[] terms = new char[64];
+        private int termsLength;
+        private int[] termEnds = new int[8];
+        private int[] startOffsets = new int[8];
+        private int[] endOffsets = new int[8];
+        private int[] positionIncrements = new int[8];
+        private int[] positionLengths = new int[8];
+        private BytesRef[] payloads;
+        private long payloadBytes;
+
+        Recorder(TokenStream input, long maxBytes) {
+            this.termAtt = input.getAttribute(CharTermAttribute.class);
+            this.offsetAtt = input.getAttribute(OffsetAttribute.class);
+            this.posIncAtt = input.hasAttribute(PositionIncrementAttribute.class)
+                ? input.getAttribute(PositionIncrementAttribute.class)
+                : null;
+            this.posLenAtt = input.hasAttribute(PositionLengthAttribute.class) ? input.getAttribute(PositionLengthAttribute.class) : null;
+            this.payloadAtt = input.hasAttribute(PayloadAttribute.class) ? input.getAttribute(PayloadAttribute.class) : null;
+            this.maxBytes = maxBytes;
+        }
+
+        /**
+         * Records the current token, returns {@code false} if the tokens got too large to be cached.
+         */
+        boolean record() {
+            if (count == termEnds.length) {
+                int size = ArrayUtil.oversize(count + 1, Integer.BYTES);
+                termEnds = ArrayUtil.growExact(termEnds, size);
+                startOffsets = ArrayUtil.growExact(startOffsets, size);
+                endOffsets = ArrayUtil.growExact(endOffsets, size);
+                positionIncrements = ArrayUtil.growExact(positionIncrements, size);
+                positionLengths = ArrayUtil.growExact(positionLengths, size);
+            }
+            terms = ArrayUtil.grow(terms, termsLength + termAtt.length());
+            System.arraycopy(termAtt.buffer(), 0, terms, termsLength, termAtt.length());
+            termsLength += termAtt.length();
+            termEnds[count] = termsLength;
+            startOffsets[count] = offsetAtt.startOffset();
+            endOffsets[count] = offsetAtt.endOffset();
+            positionIncrements[count] = posIncAtt == null ? 1 : posIncAtt.getPositionIncrement();
+            positionLengths[count] = posLenAtt == null ? 1 : posLenAtt.getPositionLength();
+            if (payloadAtt != null && payloadAtt.getPayload() != null) {
+                if (payloads == null) {
+                    payloads = new BytesRef[termEnds.length];
+                }
+                payloads = ArrayUtil.grow(payloads, count + 1);
+                payloads[count] = BytesRef.deepCopyOf(payloadAtt.getPayload());
+                payloadBytes += RamUsageEstimator.sizeOf(payloads[count].bytes);
+            }
+            count++;
+            return ramBytesUsed() <= maxBytes;
+        }
+
+        void copyTo(CachingTokenStream stream) {
+            stream.termAtt.copyBuffer(termAtt.buffer(), 0, termAtt.length());
+            stream.offsetAtt.setOffset(offsetAtt.startOffset(), offsetAtt.endOffset());
+            stream.posIncAtt.setPositionIncrement(posIncAtt == null ? 1 : posIncAtt.getPositionIncrement());
+            stream.posLenAtt.setPositionLength(posLenAtt == null ? 1 : posLenAtt.getPositionLength());
+            if (payloadAtt != null && payloadAtt.getPayload() != null) {
+                stream.addAttribute(PayloadAttribute.class).setPayload(payloadAtt.getPayload());
+            }
+        }
+
+        static void copy(TokenStream input, CachingTokenStream stream) {
+            if (input.hasAttribute(CharTermAttribute.class)) {
+                CharTermAttribute inputTermAtt = input.getAttribute(CharTermAttribute.class);
+                stream.termAtt.copyBuffer(inputTermAtt.buffer(), 0, inputTermAtt.length());
+            }
+            if (input.hasAttribute(OffsetAttribute.class)) {
+                OffsetAttribute inputOffsetAtt = input.getAttribute(OffsetAttribute.class);
+                stream.offsetAtt.setOffset(inputOffsetAtt.startOffset(), inputOffsetAtt.endOffset());
+            }
+            if (input.hasAttribute(PositionIncrementAttribute.class)) {
+                stream.posIncAtt.setPositionIncrement(input.getAttribute(PositionIncrementAttribute.class).getPositionIncrement());
+            }
+            if (input.hasAttribute(PositionLengthAttribute.class)) {
+                stream.posLenAtt.setPositionLength(input.getAttribute(PositionLengthAttribute.class).getPositionLength());
+            }
+            if (input.hasAttribute(PayloadAttribute.class) && input.getAttribute(PayloadAttribute.class).getPayload() != null) {
+                stream.addAttribute(PayloadAttribute.class).setPayload(input.getAttribute(PayloadAttribute.class).getPayload());
+            }
+        }
+
+        long ramBytesUsed() {
+            long bytes = RamUsageEstimator.sizeOf(terms) + 5 * RamUsageEstimator.sizeOf(termEnds);
+            if (payloads != null) {
+                bytes += RamUsageEstimator.shallowSizeOf(payloads) + payloadBytes;
+            }
+            return bytes;
+        }
+
+        CachedTokens build(int finalOffset, int finalPositionIncrement) {
+            char[] trimmedTerms = ArrayUtil.copyOfSubArray(terms, 0, termsLength);
+            int[] trimmedTermEnds = ArrayUtil.copyOfSubArray(termEnds, 0, count);
+            int[] trimmedStartOffsets = ArrayUtil.copyOfSubArray(startOffsets, 0, count);
+            int[] trimmedEndOffsets = ArrayUtil.copyOfSubArray(endOffsets, 0, count);
+            int[] trimmedPositionIncrements = ArrayUtil.copyOfSubArray(positionIncrements, 0, count);
+            int[] trimmedPositionLengths = ArrayUtil.copyOfSubArray(positionLengths, 0, count);
+            BytesRef[] trimmedPayloads = payloads == null ? null : ArrayUtil.copyOfSubArray(payloads, 0, count);
+            long ramBytesUsed = RamUsageEstimator.sizeOf(trimmedTerms) + 5 * RamUsageEstimator.sizeOf(trimmedTermEnds);
+            if (trimmedPayloads != null) {
+                ramBytesUsed += RamUsageEstimator.shallowSizeOf(trimmedPayloads) + payloadBytes;
+            }
+            return new CachedTokens(
+                count,
+                trimmedTerms,
+                trimmedTermEnds,
+                trimmedStartOffsets,
+                trimmedEndOffsets,
+                trimmedPositionIncrements,
+                trimmedPositionLengths,
+                trimmedPayloads,
+                finalOffset,
+                finalPositionIncrement,
+                ramBytesUsed
+            );
+        }
+    }
+}
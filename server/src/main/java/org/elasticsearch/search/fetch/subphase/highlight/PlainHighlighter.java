@@ -25,6 +25,7 @@ import org.apache.lucene.search.highlight.TextFragment;
 import org.apache.lucene.util.BytesRefHash;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.text.Text;
+import org.elasticsearch.core.Nullable;
 import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.search.fetch.FetchContext;
@@ -43,6 +44,17 @@ import static org.elasticsearch.search.fetch.subphase.highlight.DefaultHighlight
 public class PlainHighlighter implements Highlighter {
     private static final String CACHE_KEY = "highlight-plain";
 
+    @Nullable
+    private final HighlightOffsetsCache offsetsCache;
+
+    public PlainHighlighter() {
+        this(null);
+    }
+
+    public PlainHighlighter(@Nullable HighlightOffsetsCache offsetsCache) {
+        this.offsetsCache = offsetsCache;
+    }
+
     private record OrderedTextFragment(TextFragment textFragment, int fragNum) {
         float score() {
             return textFragment.getScore();
@@ -108,10 +120,17 @@ public class PlainHighlighter implements Highlighter {
         List<Object> textsToHighlight;
         final int maxAnalyzedOffset = context.getSearchExecutionContext().getIndexSettings().getHighlightMaxAnalyzedOffset();
         Integer queryMaxAnalyzedOffset = fieldContext.field.fieldOptions().maxAnalyzedOffset();
-        Analyzer analyzer = wrapAnalyzer(
-            context.getSearchExecutionContext().getIndexAnalyzer(f -> Lucene.KEYWORD_ANALYZER),
-            queryMaxAnalyzedOffset
-        );
+        Analyzer indexAnalyzer = context.getSearchExecutionContext().getIndexAnalyzer(f -> Lucene.KEYWORD_ANALYZER);
+        if (offsetsCache != null) {
+            indexAnalyzer = offsetsCache.analyzer(
+                fieldContext.cache,
+                fieldType.name(),
+                indexAnalyzer,
+                f -> context.getSearchExecutionContext().getIndexAnalyzer(f, u -> Lucene.KEYWORD_ANALYZER)
+            );
+            offsetsCache.setDocument(fieldContext.cache, fieldType.name(), hitContext.reader(), hitContext.docId());
+        }
+        Analyzer analyzer = wrapAnalyzer(indexAnalyzer, queryMaxAnalyzedOffset);
 
         textsToHighlight = HighlightUtils.loadFieldValues(fieldType, context.getSearchExecutionContext(), hitContext);
 
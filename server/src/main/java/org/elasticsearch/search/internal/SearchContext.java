@@ -55,6 +55,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -340,6 +341,15 @@ public abstract class SearchContext implements Releasable {
 
     public abstract FetchPhase fetchPhase();
 
+    /**
+     * The executor that {@link FetchPhase} fetches large pages of hits concurrently on, or {@code null} if the hits are fetched on
+     * the calling thread. Only set for the fetch phase of a request when {@code search.fetch_phase_parallel_fetch_enabled} is set.
+     */
+    @Nullable
+    public Executor fetchPhaseExecutor() {
+        return null;
+    }
+
     public abstract FetchSearchResult fetchResult();
 
     /**
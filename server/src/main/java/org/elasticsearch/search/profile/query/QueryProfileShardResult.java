@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 /**
@@ -36,6 +37,7 @@ public final class QueryProfileShardResult implements Writeable, ToXContentObjec
     public static final String QUERY_ARRAY = "query";
 
     public static final String VECTOR_OPERATIONS_COUNT = "vector_operations_count";
+    public static final String KNN_FILTER_STRATEGIES = "knn_filter_strategies";
 
     private final List<ProfileResult> queryProfileResults;
 
@@ -45,17 +47,34 @@ public final class QueryProfileShardResult implements Writeable, ToXContentObjec
 
     private final Long vectorOperationsCount;
 
+    private final Map<String, Long> knnFilterStrategies;
+
     public QueryProfileShardResult(
         List<ProfileResult> queryProfileResults,
         long rewriteTime,
         CollectorResult profileCollector,
         @Nullable Long vectorOperationsCount
+    ) {
+        this(queryProfileResults, rewriteTime, profileCollector, vectorOperationsCount, null);
+    }
+
+    /**
+     * @param knnFilterStrategies the number of segments that were searched with each filtered kNN strategy,
+     *                            or {@code null} if this is not the profile of a filtered kNN search
+     */
+    public QueryProfileShardResult(
+        List<ProfileResult> queryProfileResults,
+        long rewriteTime,
+        CollectorResult profileCollector,
+        @Nullable Long vectorOperationsCount,
+        @Nullable Map<String, Long> knnFilterStrategies
     ) {
         assert (profileCollector != null);
         this.queryProfileResults = queryProfileResults;
         this.profileCollector = profileCollector;
         this.rewriteTime = rewriteTime;
         this.vectorOperationsCount = vectorOperationsCount;
+        this.knnFilterStrategies = knnFilterStrategies;
     }
 
     /**
@@ -71,6 +90,9 @@ public final class QueryProfileShardResult implements Writeable, ToXContentObjec
         profileCollector = new CollectorResult(in);
         rewriteTime = in.readLong();
         vectorOperationsCount = (in.getTransportVersion().onOrAfter(TransportVersions.V_8_12_0)) ? in.readOptionalLong() : null;
+        knnFilterStrategies = in.getTransportVersion().onOrAfter(TransportVersions.KNN_FILTER_STRATEGY_PROFILE)
+            ? in.readOptional(i -> i.readImmutableMap(StreamInput::readVLong))
+            : null;
     }
 
     @Override
@@ -84,6 +106,9 @@ public final class QueryProfileShardResult implements Writeable, ToXContentObjec
         if (out.getTransportVersion().onOrAfter(TransportVersions.V_8_12_0)) {
             out.writeOptionalLong(vectorOperationsCount);
         }
+        if (out.getTransportVersion().onOrAfter(TransportVersions.KNN_FILTER_STRATEGY_PROFILE)) {
+            out.writeOptional((o, strategies) -> o.writeMap(strategies, StreamOutput::writeVLong), knnFilterStrategies);
+        }
     }
 
     public List<ProfileResult> getQueryResults() {
@@ -98,12 +123,20 @@ public final class QueryProfileShardResult implements Writeable, ToXContentObjec
         return profileCollector;
     }
 
+    @Nullable
+    public Map<String, Long> getKnnFilterStrategies() {
+        return knnFilterStrategies;
+    }
+
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
         builder.startObject();
         if (vectorOperationsCount != null) {
             builder.field(VECTOR_OPERATIONS_COUNT, vectorOperationsCount);
         }
+        if (knnFilterStrategies != null) {
+            builder.field(KNN_FILTER_STRATEGIES, knnFilterStrategies);
+        }
         builder.startArray(QUERY_ARRAY);
         for (ProfileResult p : queryProfileResults) {
             p.toXContent(builder, params);
@@ -125,12 +158,13 @@ public final class QueryProfileShardResult implements Writeable, ToXContentObjec
         QueryProfileShardResult other = (QueryProfileShardResult) obj;
         return queryProfileResults.equals(other.queryProfileResults)
             && profileCollector.equals(other.profileCollector)
-            && rewriteTime == other.rewriteTime;
+            && rewriteTime == other.rewriteTime
+            && Objects.equals(knnFilterStrategies, other.knnFilterStrategies);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(queryProfileResults, profileCollector, rewriteTime);
+        return Objects.hash(queryProfileResults, profileCollector, rewriteTime, knnFilterStrategies);
     }
 
     @Override
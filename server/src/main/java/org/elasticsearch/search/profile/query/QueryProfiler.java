@@ -10,9 +10,12 @@
 package org.elasticsearch.search.profile.query;
 
 import org.apache.lucene.search.Query;
+import org.elasticsearch.core.Nullable;
 import org.elasticsearch.search.profile.AbstractProfiler;
 import org.elasticsearch.search.profile.Timer;
 
+import java.util.Map;
+
 import static java.util.Objects.requireNonNull;
 
 /**
@@ -35,6 +38,8 @@ public final class QueryProfiler extends AbstractProfiler<QueryProfileBreakdown,
 
     private long vectorOpsCount;
 
+    private Map<String, Long> knnFilterStrategies;
+
     public QueryProfiler() {
         super(new InternalQueryProfileTree());
     }
@@ -47,6 +52,16 @@ public final class QueryProfiler extends AbstractProfiler<QueryProfileBreakdown,
         return this.vectorOpsCount;
     }
 
+    /** Set the number of segments that were searched with each filtered kNN strategy, keyed by strategy name. */
+    public void setKnnFilterStrategies(Map<String, Long> knnFilterStrategies) {
+        this.knnFilterStrategies = knnFilterStrategies;
+    }
+
+    @Nullable
+    public Map<String, Long> getKnnFilterStrategies() {
+        return this.knnFilterStrategies;
+    }
+
     /** Set the collector result that is associated with this profiler. */
     public void setCollectorResult(CollectorResult collectorResult) {
         if (this.collectorResult != null) {
@@ -34,7 +34,9 @@ import org.elasticsearch.search.sort.SortBuilder;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 import static org.elasticsearch.action.ValidateActions.addValidationError;
@@ -109,14 +111,23 @@ public abstract class CompoundRetrieverBuilder<T extends CompoundRetrieverBuilde
             return clone(newRetrievers);
         }
 
-        // execute searches
+        // execute searches, children that resolve to the same search share a single request
         final SetOnce<RankDoc[]> results = new SetOnce<>();
         final MultiSearchRequest multiSearchRequest = new MultiSearchRequest();
-        for (var entry : innerRetrievers) {
-            SearchRequest searchRequest = new SearchRequest().source(entry.source);
-            // The can match phase can reorder shards, so we disable it to ensure the stable ordering
-            searchRequest.setPreFilterShardSize(Integer.MAX_VALUE);
-            multiSearchRequest.add(searchRequest);
+        final int[] requestIndices = new int[innerRetrievers.size()];
+        final Map<SearchSourceBuilder, Integer> requestIndexBySource = new HashMap<>();
+        for (int i = 0; i < innerRetrievers.size(); i++) {
+            var source = innerRetrievers.get(i).source;
+            Integer requestIndex = requestIndexBySource.get(source);
+            if (requestIndex == null) {
+                requestIndex = multiSearchRequest.requests().size();
+                requestIndexBySource.put(source, requestIndex);
+                SearchRequest searchRequest = new SearchRequest().source(source);
+                // The can match phase can reorder shards, so we disable it to ensure the stable ordering
+                searchRequest.setPreFilterShardSize(Integer.MAX_VALUE);
+                multiSearchRequest.add(searchRequest);
+            }
+            requestIndices[i] = requestIndex;
         }
         ctx.registerAsyncAction((client, listener) -> {
             client.execute(TransportMultiSearchAction.TYPE, multiSearchRequest, new ActionListener<>() {
@@ -127,17 +138,24 @@ public abstract class CompoundRetrieverBuilder<T extends CompoundRetrieverBuilde
                     // capture the max status code returned by any of the responses
                     int statusCode = RestStatus.OK.getStatus();
                     List<String> retrieversWithFailures = new ArrayList<>();
-                    for (int i = 0; i < items.getResponses().length; i++) {
-                        var item = items.getResponses()[i];
+                    RankDoc[][] rankDocsPerRequest = new RankDoc[items.getResponses().length][];
+                    for (int i = 0; i < innerRetrievers.size(); i++) {
+                        int requestIndex = requestIndices[i];
+                        var item = items.getResponses()[requestIndex];
                         if (item.isFailure()) {
-                            failures.add(item.getFailure());
+                            if (failures.contains(item.getFailure()) == false) {
+                                failures.add(item.getFailure());
+                            }
                             retrieversWithFailures.add(innerRetrievers.get(i).retriever().getName());
                             if (ExceptionsHelper.status(item.getFailure()).getStatus() > statusCode) {
                                 statusCode = ExceptionsHelper.status(item.getFailure()).getStatus();
                             }
                         } else {
                             assert item.getResponse() != null;
-                            var rankDocs = getRankDocs(item.getResponse());
+                            if (rankDocsPerRequest[requestIndex] == null) {
+                                rankDocsPerRequest[requestIndex] = getRankDocs(item.getResponse());
+                            }
+                            var rankDocs = rankDocsPerRequest[requestIndex];
                             innerRetrievers.get(i).retriever().setRankDocs(rankDocs);
                             topDocs.add(rankDocs);
                         }
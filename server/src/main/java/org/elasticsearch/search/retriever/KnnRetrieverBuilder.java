@@ -20,6 +20,7 @@ import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.vectors.ExactKnnQueryBuilder;
 import org.elasticsearch.search.vectors.KnnSearchBuilder;
 import org.elasticsearch.search.vectors.QueryVectorBuilder;
+import org.elasticsearch.search.vectors.RescoreVectorBuilder;
 import org.elasticsearch.search.vectors.VectorData;
 import org.elasticsearch.xcontent.ConstructingObjectParser;
 import org.elasticsearch.xcontent.ParseField;
@@ -52,6 +53,7 @@ public final class KnnRetrieverBuilder extends RetrieverBuilder {
     public static final ParseField QUERY_VECTOR_FIELD = new ParseField("query_vector");
     public static final ParseField QUERY_VECTOR_BUILDER_FIELD = new ParseField("query_vector_builder");
     public static final ParseField VECTOR_SIMILARITY = new ParseField("similarity");
+    public static final ParseField RESCORE_VECTOR_FIELD = new ParseField("rescore_vector");
 
     @SuppressWarnings("unchecked")
     public static final ConstructingObjectParser<KnnRetrieverBuilder, RetrieverParserContext> PARSER = new ConstructingObjectParser<>(
@@ -73,7 +75,8 @@ public final class KnnRetrieverBuilder extends RetrieverBuilder {
                 (QueryVectorBuilder) args[2],
                 (int) args[3],
                 (int) args[4],
-                (Float) args[5]
+                (Float) args[5],
+                (RescoreVectorBuilder) args[6]
             );
         }
     );
@@ -89,6 +92,7 @@ public final class KnnRetrieverBuilder extends RetrieverBuilder {
         PARSER.declareInt(constructorArg(), K_FIELD);
         PARSER.declareInt(constructorArg(), NUM_CANDS_FIELD);
         PARSER.declareFloat(optionalConstructorArg(), VECTOR_SIMILARITY);
+        PARSER.declareObject(optionalConstructorArg(), (p, c) -> RescoreVectorBuilder.fromXContent(p), RESCORE_VECTOR_FIELD);
         RetrieverBuilder.declareBaseParserFields(NAME, PARSER);
     }
 
@@ -105,6 +109,7 @@ public final class KnnRetrieverBuilder extends RetrieverBuilder {
     private final int k;
     private final int numCands;
     private final Float similarity;
+    private final RescoreVectorBuilder rescoreVectorBuilder;
 
     public KnnRetrieverBuilder(
         String field,
@@ -113,6 +118,18 @@ public final class KnnRetrieverBuilder extends RetrieverBuilder {
         int k,
         int numCands,
         Float similarity
+    ) {
+        this(field, queryVector, queryVectorBuilder, k, numCands, similarity, null);
+    }
+
+    public KnnRetrieverBuilder(
+        String field,
+        float[] queryVector,
+        QueryVectorBuilder queryVectorBuilder,
+        int k,
+        int numCands,
+        Float similarity,
+        RescoreVectorBuilder rescoreVectorBuilder
     ) {
         if (queryVector == null && queryVectorBuilder == null) {
             throw new IllegalArgumentException(
@@ -137,6 +154,7 @@ public final class KnnRetrieverBuilder extends RetrieverBuilder {
         this.k = k;
         this.numCands = numCands;
         this.similarity = similarity;
+        this.rescoreVectorBuilder = rescoreVectorBuilder;
     }
 
     private KnnRetrieverBuilder(KnnRetrieverBuilder clone, Supplier<float[]> queryVector, QueryVectorBuilder queryVectorBuilder) {
@@ -146,10 +164,15 @@ public final class KnnRetrieverBuilder extends RetrieverBuilder {
         this.k = clone.k;
         this.numCands = clone.numCands;
         this.similarity = clone.similarity;
+        this.rescoreVectorBuilder = clone.rescoreVectorBuilder;
         this.retrieverName = clone.retrieverName;
         this.preFilterQueryBuilders = clone.preFilterQueryBuilders;
     }
 
+    RescoreVectorBuilder rescoreVectorBuilder() {
+        return rescoreVectorBuilder;
+    }
+
     @Override
     public String getName() {
         return NAME;
@@ -230,7 +253,7 @@ public final class KnnRetrieverBuilder extends RetrieverBuilder {
             k,
             numCands,
             similarity
-        );
+        ).rescoreVectorBuilder(rescoreVectorBuilder);
         if (preFilterQueryBuilders != null) {
             knnSearchBuilder.addFilterQueries(preFilterQueryBuilders);
         }
@@ -261,6 +284,10 @@ public final class KnnRetrieverBuilder extends RetrieverBuilder {
         if (similarity != null) {
             builder.field(VECTOR_SIMILARITY.getPreferredName(), similarity);
         }
+
+        if (rescoreVectorBuilder != null) {
+            builder.field(RESCORE_VECTOR_FIELD.getPreferredName(), rescoreVectorBuilder);
+        }
     }
 
     @Override
@@ -272,12 +299,13 @@ public final class KnnRetrieverBuilder extends RetrieverBuilder {
             && ((queryVector == null && that.queryVector == null)
                 || (queryVector != null && that.queryVector != null && Arrays.equals(queryVector.get(), that.queryVector.get())))
             && Objects.equals(queryVectorBuilder, that.queryVectorBuilder)
-            && Objects.equals(similarity, that.similarity);
+            && Objects.equals(similarity, that.similarity)
+            && Objects.equals(rescoreVectorBuilder, that.rescoreVectorBuilder);
     }
 
     @Override
     public int doHashCode() {
-        int result = Objects.hash(field, queryVectorBuilder, k, numCands, similarity);
+        int result = Objects.hash(field, queryVectorBuilder, k, numCands, similarity, rescoreVectorBuilder);
         result = 31 * result + Arrays.hashCode(queryVector != null ? queryVector.get() : null);
         return result;
     }
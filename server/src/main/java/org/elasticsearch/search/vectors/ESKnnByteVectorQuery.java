@@ -9,20 +9,67 @@
 
 package org.elasticsearch.search.vectors;
 
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.QueryTimeout;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.KnnByteVectorQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.knn.KnnCollectorManager;
+import org.apache.lucene.util.Bits;
 import org.elasticsearch.search.profile.query.QueryProfiler;
 
+import java.io.IOException;
+import java.util.Map;
+
 public class ESKnnByteVectorQuery extends KnnByteVectorQuery implements ProfilingQuery {
     private final Integer kParam;
     private long vectorOpsCount;
+    private Map<String, Long> filterStrategies;
 
     public ESKnnByteVectorQuery(String field, byte[] target, Integer k, int numCands, Query filter) {
         super(field, target, numCands, filter);
         this.kParam = k;
     }
 
+    @Override
+    public Query rewrite(IndexSearcher indexSearcher) throws IOException {
+        if (getFilter() == null) {
+            return super.rewrite(indexSearcher);
+        }
+        FilteredKnnSearch search = new FilteredKnnSearch(getField(), getFilter(), getK(), new FilteredKnnSearch.LeafSearcher() {
+            @Override
+            public TopDocs approximateSearch(
+                LeafReaderContext context,
+                Bits acceptDocs,
+                int visitedLimit,
+                KnnCollectorManager knnCollectorManager
+            ) throws IOException {
+                return ESKnnByteVectorQuery.this.approximateSearch(context, acceptDocs, visitedLimit, knnCollectorManager);
+            }
+
+            @Override
+            public TopDocs exactSearch(LeafReaderContext context, DocIdSetIterator acceptIterator, QueryTimeout queryTimeout)
+                throws IOException {
+                return ESKnnByteVectorQuery.this.exactSearch(context, acceptIterator, queryTimeout);
+            }
+
+            @Override
+            public KnnCollectorManager getKnnCollectorManager(int k, IndexSearcher searcher) {
+                return ESKnnByteVectorQuery.this.getKnnCollectorManager(k, searcher);
+            }
+
+            @Override
+            public TopDocs mergeLeafResults(TopDocs[] perLeafResults) {
+                return ESKnnByteVectorQuery.this.mergeLeafResults(perLeafResults);
+            }
+        });
+        Query rewritten = search.rewrite(indexSearcher);
+        filterStrategies = search.strategyCounts();
+        return rewritten;
+    }
+
     @Override
     protected TopDocs mergeLeafResults(TopDocs[] perLeafResults) {
         // if k param is set, we get only top k results from each shard
@@ -34,5 +81,8 @@ public class ESKnnByteVectorQuery extends KnnByteVectorQuery implements Profilin
     @Override
     public void profile(QueryProfiler queryProfiler) {
         queryProfiler.setVectorOpsCount(vectorOpsCount);
+        if (filterStrategies != null) {
+            queryProfiler.setKnnFilterStrategies(filterStrategies);
+        }
     }
 }
@@ -0,0 +1,311 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.search.vectors;
+
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.KnnVectorValues;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.QueryTimeout;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.FieldExistsQuery;
+import org.apache.lucene.search.FilteredDocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.ScorerSupplier;
+import org.apache.lucene.search.TimeLimitingKnnCollectorManager;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.search.knn.KnnCollectorManager;
+import org.apache.lucene.util.BitSet;
+import org.apache.lucene.util.BitSetIterator;
+import org.apache.lucene.util.Bits;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+
+/**
+ * Runs a filtered kNN search, choosing per segment how the filter is applied. Lucene always materializes the filter
+ * as a bit set and runs a filtered graph search, which is wasteful at both ends: a very selective filter is cheaper to
+ * brute-force than to explore a graph in which almost every node is rejected, while a filter that matches almost
+ * everything costs a full pass over its matches just to build a bit set that rejects next to nothing. The strategy
+ * is chosen from the cost estimate of the filter relative to the number of vectors of the segment, without evaluating it:
+ * <ul>
+ *     <li>{@link Strategy#EXACT} scores every vector that matches the filter,</li>
+ *     <li>{@link Strategy#FILTERED_GRAPH} searches the graph with the filter as accept docs, as Lucene does,</li>
+ *     <li>{@link Strategy#POST_FILTER} searches the graph without the filter for more candidates than needed, and
+ *     only keeps those that match the filter.</li>
+ * </ul>
+ */
+final class FilteredKnnSearch {
+
+    /**
+     * Filters that match at least this fraction of the vectors of a segment are applied after the graph search
+     */
+    static final double POST_FILTER_MIN_SELECTIVITY = 0.75;
+
+    private static final TopDocs NO_RESULTS = new TopDocs(new TotalHits(0, TotalHits.Relation.EQUAL_TO), new ScoreDoc[0]);
+
+    enum Strategy {
+        EXACT,
+        FILTERED_GRAPH,
+        POST_FILTER;
+
+        /** The name under which this strategy is reported in the search profile */
+        String profileName() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /** The per segment searches of the kNN query, which are implemented by Lucene's kNN queries */
+    interface LeafSearcher {
+        TopDocs approximateSearch(LeafReaderContext context, Bits acceptDocs, int visitedLimit, KnnCollectorManager knnCollectorManager)
+            throws IOException;
+
+        TopDocs exactSearch(LeafReaderContext context, DocIdSetIterator acceptIterator, QueryTimeout queryTimeout) throws IOException;
+
+        KnnCollectorManager getKnnCollectorManager(int k, IndexSearcher searcher);
+
+        TopDocs mergeLeafResults(TopDocs[] perLeafResults);
+    }
+
+    private final String field;
+    private final Query filter;
+    private final int k;
+    private final LeafSearcher leafSearcher;
+    private Strategy[] strategies;
+
+    FilteredKnnSearch(String field, Query filter, int k, LeafSearcher leafSearcher) {
+        this.field = field;
+        this.filter = filter;
+        this.k = k;
+        this.leafSearcher = leafSearcher;
+    }
+
+    /**
+     * Picks the cheapest strategy to search a segment.
+     *
+     * @param filterCost the estimated number of documents that match the filter, regardless of whether they have a vector
+     * @param vectorCount the number of vectors in the segment
+     * @param k the number of nearest neighbors to find
+     */
+    static Strategy plan(long filterCost, long vectorCount, int k) {
+        if (filterCost <= k) {
+            return Strategy.EXACT;
+        }
+        double selectivity = Math.min(1d, (double) filterCost / vectorCount);
+        if (selectivity >= POST_FILTER_MIN_SELECTIVITY) {
+            return Strategy.POST_FILTER;
+        }
+        // a graph search visits in the order of k * log(n) vectors, and about 1/selectivity as many when it has to
+        // skip over the vectors that don't match the filter, while an exact search scores every match exactly once
+        double graphSearchCost = k * Math.log(vectorCount) / selectivity;
+        return filterCost <= graphSearchCost ? Strategy.EXACT : Strategy.FILTERED_GRAPH;
+    }
+
+    Query rewrite(IndexSearcher searcher) throws IOException {
+        IndexReader reader = searcher.getIndexReader();
+        Query rewrittenFilter = searcher.rewrite(filter);
+        // the cost of the conjunction is capped by the number of vectors, so the selectivity is estimated from the filter alone
+        Weight filterCostWeight = searcher.createWeight(rewrittenFilter, ScoreMode.COMPLETE_NO_SCORES, 1f);
+        Query filterQuery = new BooleanQuery.Builder().add(rewrittenFilter, BooleanClause.Occur.FILTER)
+            .add(new FieldExistsQuery(field), BooleanClause.Occur.FILTER)
+            .build();
+        Weight filterWeight = searcher.createWeight(searcher.rewrite(filterQuery), ScoreMode.COMPLETE_NO_SCORES, 1f);
+
+        List<LeafReaderContext> leaves = reader.leaves();
+        strategies = new Strategy[leaves.size()];
+        List<Callable<TopDocs>> tasks = new ArrayList<>(leaves.size());
+        for (LeafReaderContext context : leaves) {
+            tasks.add(() -> {
+                TopDocs results = searchLeaf(context, filterCostWeight, filterWeight, searcher);
+                if (context.docBase > 0) {
+                    for (ScoreDoc scoreDoc : results.scoreDocs) {
+                        scoreDoc.doc += context.docBase;
+                    }
+                }
+                return results;
+            });
+        }
+        TopDocs[] perLeafResults = searcher.getTaskExecutor().invokeAll(tasks).toArray(TopDocs[]::new);
+
+        TopDocs topK = leafSearcher.mergeLeafResults(perLeafResults);
+        if (topK.scoreDocs.length == 0) {
+            return new MatchNoDocsQuery();
+        }
+        ScoreDoc[] scoreDocs = topK.scoreDocs.clone();
+        Arrays.sort(scoreDocs, Comparator.comparingInt(scoreDoc -> scoreDoc.doc));
+        int[] docs = new int[scoreDocs.length];
+        float[] scores = new float[scoreDocs.length];
+        for (int i = 0; i < scoreDocs.length; i++) {
+            docs[i] = scoreDocs[i].doc;
+            scores[i] = scoreDocs[i].score;
+        }
+        int[] segmentStarts = KnnScoreDocQueryBuilder.findSegmentStarts(reader, docs);
+        return new KnnScoreDocQuery(docs, scores, segmentStarts, reader.getContext().id());
+    }
+
+    /**
+     * The number of segments that were searched with each strategy, keyed by {@link Strategy#profileName()}.
+     */
+    Map<String, Long> strategyCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        if (strategies != null) {
+            for (Strategy strategy : strategies) {
+                if (strategy != null) {
+                    counts.merge(strategy.profileName(), 1L, Long::sum);
+                }
+            }
+        }
+        return counts;
+    }
+
+    private TopDocs searchLeaf(LeafReaderContext context, Weight filterCostWeight, Weight filterWeight, IndexSearcher searcher)
+        throws IOException {
+        LeafReader reader = context.reader();
+        KnnVectorValues vectorValues = vectorValues(reader);
+        if (vectorValues == null || vectorValues.size() == 0) {
+            return NO_RESULTS;
+        }
+        ScorerSupplier filterCostSupplier = filterCostWeight.scorerSupplier(context);
+        ScorerSupplier scorerSupplier = filterCostSupplier == null ? null : filterWeight.scorerSupplier(context);
+        if (scorerSupplier == null) {
+            return NO_RESULTS;
+        }
+        long filterCost = filterCostSupplier.cost();
+        Strategy strategy = plan(filterCost, vectorValues.size(), k);
+        strategies[context.ord] = strategy;
+        Scorer filterScorer = scorerSupplier.get(Long.MAX_VALUE);
+        return switch (strategy) {
+            case EXACT -> leafSearcher.exactSearch(context, acceptIterator(filterScorer, reader.getLiveDocs()), searcher.getTimeout());
+            case FILTERED_GRAPH -> filteredGraphSearch(context, filterScorer, searcher);
+            case POST_FILTER -> postFilteredSearch(context, filterWeight, filterScorer, filterCost, vectorValues.size(), searcher);
+        };
+    }
+
+    private TopDocs filteredGraphSearch(LeafReaderContext context, Scorer filterScorer, IndexSearcher searcher) throws IOException {
+        LeafReader reader = context.reader();
+        BitSet acceptDocs = BitSet.of(acceptIterator(filterScorer, reader.getLiveDocs()), reader.maxDoc());
+        int cost = acceptDocs.cardinality();
+        if (cost <= k) {
+            return leafSearcher.exactSearch(context, new BitSetIterator(acceptDocs, cost), searcher.getTimeout());
+        }
+        TopDocs results = leafSearcher.approximateSearch(context, acceptDocs, cost + 1, knnCollectorManager(k, searcher));
+        if (results.totalHits.relation() == TotalHits.Relation.EQUAL_TO || timedOut(searcher)) {
+            // partial results are returned as is once the searcher timed out
+            return results;
+        }
+        // the graph search gave up because it visited more vectors than an exact search would score
+        return leafSearcher.exactSearch(context, new BitSetIterator(acceptDocs, cost), searcher.getTimeout());
+    }
+
+    private TopDocs postFilteredSearch(
+        LeafReaderContext context,
+        Weight filterWeight,
+        Scorer filterScorer,
+        long filterCost,
+        int vectorCount,
+        IndexSearcher searcher
+    ) throws IOException {
+        // over-fetch so that enough candidates are left once the ones that don't match the filter are removed
+        int numCandidates = (int) Math.min(vectorCount, Math.ceil((double) k * vectorCount / Math.max(1, filterCost)));
+        TopDocs results = leafSearcher.approximateSearch(
+            context,
+            context.reader().getLiveDocs(),
+            Integer.MAX_VALUE,
+            knnCollectorManager(numCandidates, searcher)
+        );
+
+        // check the candidates against the filter in doc id order
+        int[] candidates = new int[results.scoreDocs.length];
+        for (int i = 0; i < candidates.length; i++) {
+            candidates[i] = results.scoreDocs[i].doc;
+        }
+        Arrays.sort(candidates);
+        DocIdSetIterator filterIterator = filterScorer.iterator();
+        int numMatches = 0;
+        for (int candidate : candidates) {
+            int doc = filterIterator.docID() < candidate ? filterIterator.advance(candidate) : filterIterator.docID();
+            if (doc == DocIdSetIterator.NO_MORE_DOCS) {
+                break;
+            }
+            if (doc == candidate) {
+                candidates[numMatches++] = candidate;
+            }
+        }
+        if (numMatches < k && timedOut(searcher) == false) {
+            // the filter is less selective than estimated, fall back to applying it during the graph search
+            strategies[context.ord] = Strategy.FILTERED_GRAPH;
+            return filteredGraphSearch(context, filterWeight.scorer(context), searcher);
+        }
+        ScoreDoc[] scoreDocs = new ScoreDoc[Math.min(k, numMatches)];
+        int numScoreDocs = 0;
+        for (ScoreDoc scoreDoc : results.scoreDocs) {
+            if (numScoreDocs == scoreDocs.length) {
+                break;
+            }
+            if (Arrays.binarySearch(candidates, 0, numMatches, scoreDoc.doc) >= 0) {
+                scoreDocs[numScoreDocs++] = scoreDoc;
+            }
+        }
+        return new TopDocs(results.totalHits, scoreDocs);
+    }
+
+    /**
+     * The collector manager of the approximate searches, which stop once the timeout of the searcher is exceeded like the
+     * approximate searches of Lucene's kNN queries do.
+     */
+    private KnnCollectorManager knnCollectorManager(int numCandidates, IndexSearcher searcher) {
+        return new TimeLimitingKnnCollectorManager(leafSearcher.getKnnCollectorManager(numCandidates, searcher), searcher.getTimeout());
+    }
+
+    private static boolean timedOut(IndexSearcher searcher) {
+        return searcher.getTimeout() != null && searcher.getTimeout().shouldExit();
+    }
+
+    private KnnVectorValues vectorValues(LeafReader reader) throws IOException {
+        FieldInfo fieldInfo = reader.getFieldInfos().fieldInfo(field);
+        if (fieldInfo == null || fieldInfo.getVectorDimension() == 0) {
+            return null;
+        }
+        return switch (fieldInfo.getVectorEncoding()) {
+            case FLOAT32 -> reader.getFloatVectorValues(field);
+            case BYTE -> reader.getByteVectorValues(field);
+        };
+    }
+
+    private static DocIdSetIterator acceptIterator(Scorer filterScorer, Bits liveDocs) {
+        DocIdSetIterator iterator = filterScorer.iterator();
+        if (liveDocs == null) {
+            return iterator;
+        }
+        return new FilteredDocIdSetIterator(iterator) {
+            @Override
+            protected boolean match(int doc) {
+                return liveDocs.get(doc);
+            }
+        };
+    }
+}
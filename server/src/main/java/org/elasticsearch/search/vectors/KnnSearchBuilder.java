@@ -56,6 +56,7 @@ public class KnnSearchBuilder implements Writeable, ToXContentFragment, Rewritea
     public static final ParseField NAME_FIELD = AbstractQueryBuilder.NAME_FIELD;
     public static final ParseField BOOST_FIELD = AbstractQueryBuilder.BOOST_FIELD;
     public static final ParseField INNER_HITS_FIELD = new ParseField("inner_hits");
+    public static final ParseField RESCORE_VECTOR_FIELD = new ParseField("rescore_vector");
 
     @SuppressWarnings("unchecked")
     private static final ConstructingObjectParser<KnnSearchBuilder.Builder, Void> PARSER = new ConstructingObjectParser<>("knn", args -> {
@@ -99,6 +100,11 @@ public class KnnSearchBuilder implements Writeable, ToXContentFragment, Rewritea
             INNER_HITS_FIELD,
             ObjectParser.ValueType.OBJECT
         );
+        PARSER.declareObject(
+            KnnSearchBuilder.Builder::rescoreVectorBuilder,
+            (p, c) -> RescoreVectorBuilder.fromXContent(p),
+            RESCORE_VECTOR_FIELD
+        );
     }
 
     public static KnnSearchBuilder.Builder fromXContent(XContentParser parser) throws IOException {
@@ -116,6 +122,7 @@ public class KnnSearchBuilder implements Writeable, ToXContentFragment, Rewritea
     String queryName;
     float boost = DEFAULT_BOOST;
     InnerHitBuilder innerHitBuilder;
+    RescoreVectorBuilder rescoreVectorBuilder;
 
     /**
      * Defines a kNN search.
@@ -280,6 +287,9 @@ public class KnnSearchBuilder implements Writeable, ToXContentFragment, Rewritea
         if (in.getTransportVersion().onOrAfter(V_8_11_X)) {
             this.innerHitBuilder = in.readOptionalWriteable(InnerHitBuilder::new);
         }
+        if (in.getTransportVersion().onOrAfter(TransportVersions.KNN_RESCORE_VECTOR)) {
+            this.rescoreVectorBuilder = in.readOptionalWriteable(RescoreVectorBuilder::new);
+        }
     }
 
     public int k() {
@@ -352,6 +362,15 @@ public class KnnSearchBuilder implements Writeable, ToXContentFragment, Rewritea
         return innerHitBuilder;
     }
 
+    public KnnSearchBuilder rescoreVectorBuilder(RescoreVectorBuilder rescoreVectorBuilder) {
+        this.rescoreVectorBuilder = rescoreVectorBuilder;
+        return this;
+    }
+
+    public RescoreVectorBuilder rescoreVectorBuilder() {
+        return rescoreVectorBuilder;
+    }
+
     @Override
     public KnnSearchBuilder rewrite(QueryRewriteContext ctx) throws IOException {
         if (querySupplier != null) {
@@ -361,7 +380,8 @@ public class KnnSearchBuilder implements Writeable, ToXContentFragment, Rewritea
             return new KnnSearchBuilder(field, querySupplier.get(), k, numCands, similarity).boost(boost)
                 .queryName(queryName)
                 .addFilterQueries(filterQueries)
-                .innerHit(innerHitBuilder);
+                .innerHit(innerHitBuilder)
+                .rescoreVectorBuilder(rescoreVectorBuilder);
         }
         if (queryVectorBuilder != null) {
             SetOnce<float[]> toSet = new SetOnce<>();
@@ -383,7 +403,8 @@ public class KnnSearchBuilder implements Writeable, ToXContentFragment, Rewritea
             })));
             return new KnnSearchBuilder(field, toSet::get, k, numCands, filterQueries, similarity).boost(boost)
                 .queryName(queryName)
-                .innerHit(innerHitBuilder);
+                .innerHit(innerHitBuilder)
+                .rescoreVectorBuilder(rescoreVectorBuilder);
         }
         boolean changed = false;
         List<QueryBuilder> rewrittenQueries = new ArrayList<>(filterQueries.size());
@@ -398,7 +419,8 @@ public class KnnSearchBuilder implements Writeable, ToXContentFragment, Rewritea
             return new KnnSearchBuilder(field, queryVector, k, numCands, similarity).boost(boost)
                 .queryName(queryName)
                 .addFilterQueries(rewrittenQueries)
-                .innerHit(innerHitBuilder);
+                .innerHit(innerHitBuilder)
+                .rescoreVectorBuilder(rescoreVectorBuilder);
         }
         return this;
     }
@@ -409,7 +431,8 @@ public class KnnSearchBuilder implements Writeable, ToXContentFragment, Rewritea
         }
         return new KnnVectorQueryBuilder(field, queryVector, null, numCands, similarity).boost(boost)
             .queryName(queryName)
-            .addFilterQueries(filterQueries);
+            .addFilterQueries(filterQueries)
+            .rescoreVectorBuilder(rescoreVectorBuilder);
     }
 
     public Float getSimilarity() {
@@ -430,6 +453,7 @@ public class KnnSearchBuilder implements Writeable, ToXContentFragment, Rewritea
             && Objects.equals(filterQueries, that.filterQueries)
             && Objects.equals(similarity, that.similarity)
             && Objects.equals(innerHitBuilder, that.innerHitBuilder)
+            && Objects.equals(rescoreVectorBuilder, that.rescoreVectorBuilder)
             && Objects.equals(queryName, that.queryName)
             && boost == that.boost;
     }
@@ -446,6 +470,7 @@ public class KnnSearchBuilder implements Writeable, ToXContentFragment, Rewritea
             Objects.hashCode(queryVector),
             Objects.hashCode(filterQueries),
             innerHitBuilder,
+            rescoreVectorBuilder,
             queryName,
             boost
         );
@@ -480,6 +505,10 @@ public class KnnSearchBuilder implements Writeable, ToXContentFragment, Rewritea
             builder.field(INNER_HITS_FIELD.getPreferredName(), innerHitBuilder, params);
         }
 
+        if (rescoreVectorBuilder != null) {
+            builder.field(RESCORE_VECTOR_FIELD.getPreferredName(), rescoreVectorBuilder);
+        }
+
         if (boost != DEFAULT_BOOST) {
             builder.field(BOOST_FIELD.getPreferredName(), boost);
         }
@@ -526,6 +555,17 @@ public class KnnSearchBuilder implements Writeable, ToXContentFragment, Rewritea
         if (out.getTransportVersion().onOrAfter(V_8_11_X)) {
             out.writeOptionalWriteable(innerHitBuilder);
         }
+        if (out.getTransportVersion().onOrAfter(TransportVersions.KNN_RESCORE_VECTOR)) {
+            out.writeOptionalWriteable(rescoreVectorBuilder);
+        } else if (rescoreVectorBuilder != null) {
+            throw new IllegalArgumentException(
+                format(
+                    "cannot serialize [%s] to older node of version [%s]",
+                    RESCORE_VECTOR_FIELD.getPreferredName(),
+                    out.getTransportVersion()
+                )
+            );
+        }
     }
 
     public static class Builder {
@@ -540,6 +580,7 @@ public class KnnSearchBuilder implements Writeable, ToXContentFragment, Rewritea
         private String queryName;
         private float boost = DEFAULT_BOOST;
         private InnerHitBuilder innerHitBuilder;
+        private RescoreVectorBuilder rescoreVectorBuilder;
 
         public Builder addFilterQueries(List<QueryBuilder> filterQueries) {
             Objects.requireNonNull(filterQueries);
@@ -592,6 +633,11 @@ public class KnnSearchBuilder implements Writeable, ToXContentFragment, Rewritea
             return this;
         }
 
+        public Builder rescoreVectorBuilder(RescoreVectorBuilder rescoreVectorBuilder) {
+            this.rescoreVectorBuilder = rescoreVectorBuilder;
+            return this;
+        }
+
         public KnnSearchBuilder build(int size) {
             int requestSize = size < 0 ? DEFAULT_SIZE : size;
             int adjustedK = k == null ? requestSize : k;
@@ -609,7 +655,7 @@ public class KnnSearchBuilder implements Writeable, ToXContentFragment, Rewritea
                 innerHitBuilder,
                 queryName,
                 boost
-            );
+            ).rescoreVectorBuilder(rescoreVectorBuilder);
         }
     }
 }
@@ -0,0 +1,288 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.search.vectors;
+
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.Explanation;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryVisitor;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.ScorerSupplier;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.VectorUtil;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Late interaction (ColBERT style) query over a field that holds a variable number of vectors per document. The
+ * similarity of a document is the sum, over the query vectors, of the maximum similarity between the query vector
+ * and any of the document vectors (MaxSim). All documents that have a value for the field are scored, so this query
+ * is meant to rerank the top hits of a cheaper query, for instance as a rescore query.
+ * <p>
+ * The document vectors are read straight from the binary doc values of the field, where they are stored
+ * contiguously, and compared with {@link VectorUtil}, which is vectorized. Every document vector is decoded only once
+ * and compared with all query vectors.
+ * <p>
+ * Scores can be negative, so the sum is mapped to a positive score the same way {@code max_inner_product} scores are,
+ * which keeps the ranking unchanged.
+ */
+public abstract class MaxSimQuery extends Query {
+
+    protected final String field;
+
+    MaxSimQuery(String field) {
+        this.field = field;
+    }
+
+    /** Computes the MaxSim similarity of the documents of a segment, may hold scratch state */
+    interface DocScorer {
+        float maxSim(BytesRef docVectors);
+    }
+
+    abstract DocScorer docScorer();
+
+    @Override
+    public Weight createWeight(IndexSearcher searcher, ScoreMode scoreMode, float boost) throws IOException {
+        return new Weight(this) {
+            @Override
+            public Explanation explain(LeafReaderContext context, int doc) throws IOException {
+                BinaryDocValues values = DocValues.getBinary(context.reader(), field);
+                if (values.advanceExact(doc) == false) {
+                    return Explanation.noMatch("no vectors found for field: " + field);
+                }
+                float maxSim = docScorer().maxSim(values.binaryValue());
+                return Explanation.match(
+                    VectorUtil.scaleMaxInnerProductScore(maxSim) * boost,
+                    "found vectors with MaxSim similarity: " + maxSim
+                );
+            }
+
+            @Override
+            public ScorerSupplier scorerSupplier(LeafReaderContext context) throws IOException {
+                BinaryDocValues values = context.reader().getBinaryDocValues(field);
+                if (values == null) {
+                    return null;
+                }
+                return new DefaultScorerSupplier(new MaxSimScorer(values, docScorer(), boost));
+            }
+
+            @Override
+            public boolean isCacheable(LeafReaderContext context) {
+                return DocValues.isCacheable(context, field);
+            }
+        };
+    }
+
+    @Override
+    public void visit(QueryVisitor visitor) {
+        if (visitor.acceptField(field)) {
+            visitor.visitLeaf(this);
+        }
+    }
+
+    private static float sum(float[] maxSims) {
+        float sum = 0;
+        for (float maxSim : maxSims) {
+            sum += maxSim;
+        }
+        return sum;
+    }
+
+    public static class Floats extends MaxSimQuery {
+
+        private final float[][] queryVectors;
+
+        public Floats(String field, float[][] queryVectors) {
+            super(field);
+            this.queryVectors = queryVectors;
+        }
+
+        @Override
+        DocScorer docScorer() {
+            float[] docVector = new float[queryVectors[0].length];
+            float[] maxSims = new float[queryVectors.length];
+            return docVectors -> {
+                Arrays.fill(maxSims, Float.NEGATIVE_INFINITY);
+                FloatBuffer buffer = ByteBuffer.wrap(docVectors.bytes, docVectors.offset, docVectors.length)
+                    .order(ByteOrder.LITTLE_ENDIAN)
+                    .asFloatBuffer();
+                int numDocVectors = docVectors.length / (docVector.length * Float.BYTES);
+                for (int v = 0; v < numDocVectors; v++) {
+                    buffer.get(docVector);
+                    for (int q = 0; q < queryVectors.length; q++) {
+                        maxSims[q] = Math.max(maxSims[q], VectorUtil.dotProduct(queryVectors[q], docVector));
+                    }
+                }
+                return sum(maxSims);
+            };
+        }
+
+        @Override
+        public String toString(String field) {
+            return "MaxSimQuery.Floats";
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Floats floats = (Floats) o;
+            return Objects.equals(field, floats.field) && Arrays.deepEquals(queryVectors, floats.queryVectors);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(field, Arrays.deepHashCode(queryVectors));
+        }
+    }
+
+    /**
+     * MaxSim over int8 vectors, using the dot product as similarity
+     */
+    public static class Bytes extends MaxSimQuery {
+
+        private final byte[][] queryVectors;
+
+        public Bytes(String field, byte[][] queryVectors) {
+            super(field);
+            this.queryVectors = queryVectors;
+        }
+
+        @Override
+        DocScorer docScorer() {
+            byte[] docVector = new byte[queryVectors[0].length];
+            float[] maxSims = new float[queryVectors.length];
+            return docVectors -> {
+                Arrays.fill(maxSims, Float.NEGATIVE_INFINITY);
+                int numDocVectors = docVectors.length / docVector.length;
+                for (int v = 0; v < numDocVectors; v++) {
+                    System.arraycopy(docVectors.bytes, docVectors.offset + v * docVector.length, docVector, 0, docVector.length);
+                    for (int q = 0; q < queryVectors.length; q++) {
+                        maxSims[q] = Math.max(maxSims[q], VectorUtil.dotProduct(queryVectors[q], docVector));
+                    }
+                }
+                return sum(maxSims);
+            };
+        }
+
+        @Override
+        public String toString(String field) {
+            return "MaxSimQuery.Bytes";
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Bytes bytes = (Bytes) o;
+            return Objects.equals(field, bytes.field) && Arrays.deepEquals(queryVectors, bytes.queryVectors);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(field, Arrays.deepHashCode(queryVectors));
+        }
+    }
+
+    /**
+     * MaxSim over bit vectors, using the fraction of bits that are equal as similarity
+     */
+    public static class Bits extends MaxSimQuery {
+
+        private final byte[][] queryVectors;
+
+        public Bits(String field, byte[][] queryVectors) {
+            super(field);
+            this.queryVectors = queryVectors;
+        }
+
+        @Override
+        DocScorer docScorer() {
+            byte[] docVector = new byte[queryVectors[0].length];
+            float numBits = docVector.length * Byte.SIZE;
+            float[] maxSims = new float[queryVectors.length];
+            return docVectors -> {
+                Arrays.fill(maxSims, Float.NEGATIVE_INFINITY);
+                int numDocVectors = docVectors.length / docVector.length;
+                for (int v = 0; v < numDocVectors; v++) {
+                    System.arraycopy(docVectors.bytes, docVectors.offset + v * docVector.length, docVector, 0, docVector.length);
+                    for (int q = 0; q < queryVectors.length; q++) {
+                        float similarity = (numBits - VectorUtil.xorBitCount(queryVectors[q], docVector)) / numBits;
+                        maxSims[q] = Math.max(maxSims[q], similarity);
+                    }
+                }
+                return sum(maxSims);
+            };
+        }
+
+        @Override
+        public String toString(String field) {
+            return "MaxSimQuery.Bits";
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Bits bits = (Bits) o;
+            return Objects.equals(field, bits.field) && Arrays.deepEquals(queryVectors, bits.queryVectors);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(field, Arrays.deepHashCode(queryVectors));
+        }
+    }
+
+    static class MaxSimScorer extends Scorer {
+
+        private final BinaryDocValues values;
+        private final DocScorer docScorer;
+        private final float boost;
+
+        MaxSimScorer(BinaryDocValues values, DocScorer docScorer, float boost) {
+            this.values = values;
+            this.docScorer = docScorer;
+            this.boost = boost;
+        }
+
+        @Override
+        public DocIdSetIterator iterator() {
+            return values;
+        }
+
+        @Override
+        public float getMaxScore(int upTo) {
+            return Float.POSITIVE_INFINITY;
+        }
+
+        @Override
+        public float score() throws IOException {
+            assert values.docID() != -1;
+            return VectorUtil.scaleMaxInnerProductScore(docScorer.maxSim(values.binaryValue())) * boost;
+        }
+
+        @Override
+        public int docID() {
+            return values.docID();
+        }
+    }
+}
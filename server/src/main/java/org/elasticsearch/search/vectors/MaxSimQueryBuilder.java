@@ -0,0 +1,152 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.search.vectors;
+
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.Query;
+import org.elasticsearch.TransportVersion;
+import org.elasticsearch.TransportVersions;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.vectors.MultiDenseVectorFieldMapper;
+import org.elasticsearch.index.query.AbstractQueryBuilder;
+import org.elasticsearch.index.query.SearchExecutionContext;
+import org.elasticsearch.xcontent.ConstructingObjectParser;
+import org.elasticsearch.xcontent.ObjectParser;
+import org.elasticsearch.xcontent.ParseField;
+import org.elasticsearch.xcontent.XContentBuilder;
+import org.elasticsearch.xcontent.XContentParser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static org.elasticsearch.common.xcontent.XContentParserUtils.ensureExpectedToken;
+import static org.elasticsearch.xcontent.ConstructingObjectParser.constructorArg;
+
+/**
+ * A query that scores the documents that have a [multi_dense_vector] field with the late interaction (MaxSim)
+ * similarity between the query vectors and the document vectors. Every document that has a value for the field is
+ * scored, so this query is best used to rerank the top hits of another query, as a rescore query.
+ */
+public class MaxSimQueryBuilder extends AbstractQueryBuilder<MaxSimQueryBuilder> {
+    public static final String NAME = "max_sim";
+
+    public static final ParseField FIELD_FIELD = new ParseField("field");
+    public static final ParseField QUERY_VECTORS_FIELD = new ParseField("query_vectors");
+
+    @SuppressWarnings("unchecked")
+    public static final ConstructingObjectParser<MaxSimQueryBuilder, Void> PARSER = new ConstructingObjectParser<>(
+        NAME,
+        args -> new MaxSimQueryBuilder((String) args[0], (List<VectorData>) args[1])
+    );
+
+    static {
+        PARSER.declareString(constructorArg(), FIELD_FIELD);
+        PARSER.declareField(constructorArg(), (p, c) -> parseQueryVectors(p), QUERY_VECTORS_FIELD, ObjectParser.ValueType.VALUE_ARRAY);
+        declareStandardFields(PARSER);
+    }
+
+    public static MaxSimQueryBuilder fromXContent(XContentParser parser) {
+        return PARSER.apply(parser, null);
+    }
+
+    private static List<VectorData> parseQueryVectors(XContentParser parser) throws IOException {
+        ensureExpectedToken(XContentParser.Token.START_ARRAY, parser.currentToken(), parser);
+        List<VectorData> queryVectors = new ArrayList<>();
+        while (parser.nextToken() != XContentParser.Token.END_ARRAY) {
+            queryVectors.add(VectorData.parseXContent(parser));
+        }
+        return queryVectors;
+    }
+
+    private final String fieldName;
+    private final List<VectorData> queryVectors;
+
+    public MaxSimQueryBuilder(String fieldName, List<VectorData> queryVectors) {
+        if (fieldName == null) {
+            throw new IllegalArgumentException("[" + FIELD_FIELD.getPreferredName() + "] must be provided");
+        }
+        if (queryVectors == null || queryVectors.isEmpty()) {
+            throw new IllegalArgumentException("[" + QUERY_VECTORS_FIELD.getPreferredName() + "] must contain at least one vector");
+        }
+        this.fieldName = fieldName;
+        this.queryVectors = queryVectors;
+    }
+
+    public MaxSimQueryBuilder(StreamInput in) throws IOException {
+        super(in);
+        this.fieldName = in.readString();
+        this.queryVectors = in.readCollectionAsImmutableList(VectorData::new);
+    }
+
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    public List<VectorData> getQueryVectors() {
+        return queryVectors;
+    }
+
+    @Override
+    public String getWriteableName() {
+        return NAME;
+    }
+
+    @Override
+    protected void doWriteTo(StreamOutput out) throws IOException {
+        out.writeString(fieldName);
+        out.writeCollection(queryVectors);
+    }
+
+    @Override
+    protected void doXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(NAME);
+        builder.field(FIELD_FIELD.getPreferredName(), fieldName);
+        builder.startArray(QUERY_VECTORS_FIELD.getPreferredName());
+        for (VectorData queryVector : queryVectors) {
+            queryVector.toXContent(builder, params);
+        }
+        builder.endArray();
+        boostAndQueryNameToXContent(builder);
+        builder.endObject();
+    }
+
+    @Override
+    protected Query doToQuery(SearchExecutionContext context) throws IOException {
+        MappedFieldType fieldType = context.getFieldType(fieldName);
+        if (fieldType == null) {
+            return new MatchNoDocsQuery();
+        }
+        if (fieldType instanceof MultiDenseVectorFieldMapper.MultiDenseVectorFieldType == false) {
+            throw new IllegalArgumentException(
+                "[" + NAME + "] queries are only supported on [" + MultiDenseVectorFieldMapper.CONTENT_TYPE + "] fields"
+            );
+        }
+        return ((MultiDenseVectorFieldMapper.MultiDenseVectorFieldType) fieldType).createMaxSimQuery(queryVectors);
+    }
+
+    @Override
+    protected boolean doEquals(MaxSimQueryBuilder other) {
+        return fieldName.equals(other.fieldName) && queryVectors.equals(other.queryVectors);
+    }
+
+    @Override
+    protected int doHashCode() {
+        return Objects.hash(fieldName, queryVectors);
+    }
+
+    @Override
+    public TransportVersion getMinimalSupportedVersion() {
+        return TransportVersions.MAX_SIM_QUERY;
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.search.vectors;
+
+import org.apache.lucene.index.FloatVectorValues;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.KnnVectorValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.VectorSimilarityFunction;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryVisitor;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.ArrayUtil;
+import org.elasticsearch.search.profile.query.QueryProfiler;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+
+/**
+ * Rescores the hits of a kNN query on quantized vectors with the raw float vectors of the field, and keeps the best {@code k}.
+ * The candidates of each segment are first resolved to their vector ordinals, in doc id order, and the raw vectors are then
+ * read and scored in ascending ordinal order, so the vector data of a segment is read with forward only accesses rather than
+ * one random read per candidate. Segments are rescored in parallel with the executor of the searcher.
+ */
+public class RescoreKnnVectorQuery extends Query implements ProfilingQuery {
+    private final String field;
+    private final float[] queryVector;
+    private final VectorSimilarityFunction similarityFunction;
+    private final int k;
+    private final Query innerQuery;
+
+    public RescoreKnnVectorQuery(String field, float[] queryVector, VectorSimilarityFunction similarityFunction, int k, Query innerQuery) {
+        this.field = field;
+        this.queryVector = queryVector;
+        this.similarityFunction = similarityFunction;
+        this.k = k;
+        this.innerQuery = innerQuery;
+    }
+
+    @Override
+    public Query rewrite(IndexSearcher searcher) throws IOException {
+        final IndexReader reader = searcher.getIndexReader();
+        final Weight weight = searcher.createWeight(searcher.rewrite(innerQuery), ScoreMode.COMPLETE_NO_SCORES, 1f);
+        List<LeafReaderContext> leaves = reader.leaves();
+        List<Callable<TopDocs>> tasks = new ArrayList<>(leaves.size());
+        for (LeafReaderContext context : leaves) {
+            tasks.add(() -> rescoreLeaf(context, weight));
+        }
+        TopDocs[] perLeafResults = searcher.getTaskExecutor().invokeAll(tasks).toArray(TopDocs[]::new);
+
+        TopDocs topK = TopDocs.merge(k, perLeafResults);
+        if (topK.scoreDocs.length == 0) {
+            return new MatchNoDocsQuery();
+        }
+        ScoreDoc[] scoreDocs = topK.scoreDocs.clone();
+        Arrays.sort(scoreDocs, Comparator.comparingInt(scoreDoc -> scoreDoc.doc));
+        int[] docs = new int[scoreDocs.length];
+        float[] scores = new float[scoreDocs.length];
+        for (int i = 0; i < scoreDocs.length; i++) {
+            docs[i] = scoreDocs[i].doc;
+            scores[i] = scoreDocs[i].score;
+        }
+        int[] segmentStarts = KnnScoreDocQueryBuilder.findSegmentStarts(reader, docs);
+        return new KnnScoreDocQuery(docs, scores, segmentStarts, reader.getContext().id());
+    }
+
+    private TopDocs rescoreLeaf(LeafReaderContext context, Weight weight) throws IOException {
+        Scorer scorer = weight.scorer(context);
+        FloatVectorValues vectorValues = context.reader().getFloatVectorValues(field);
+        if (scorer == null || vectorValues == null) {
+            return new TopDocs(new TotalHits(0, TotalHits.Relation.EQUAL_TO), new ScoreDoc[0]);
+        }
+
+        // resolve the candidates to their ordinals first, ordinals grow with doc ids so they are already sorted
+        int[] docs = new int[16];
+        int[] ords = new int[16];
+        int numCandidates = 0;
+        DocIdSetIterator candidates = scorer.iterator();
+        KnnVectorValues.DocIndexIterator vectorIterator = vectorValues.iterator();
+        for (int doc = candidates.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = candidates.nextDoc()) {
+            if (vectorIterator.docID() < doc) {
+                vectorIterator.advance(doc);
+            }
+            if (vectorIterator.docID() == doc) {
+                docs = ArrayUtil.grow(docs, numCandidates + 1);
+                ords = ArrayUtil.grow(ords, numCandidates + 1);
+                docs[numCandidates] = doc;
+                ords[numCandidates] = vectorIterator.index();
+                numCandidates++;
+            }
+        }
+
+        // then read and score the raw vectors in a single forward pass over the vector data
+        ScoreDoc[] scoreDocs = new ScoreDoc[numCandidates];
+        for (int i = 0; i < numCandidates; i++) {
+            float score = similarityFunction.compare(queryVector, vectorValues.vectorValue(ords[i]));
+            scoreDocs[i] = new ScoreDoc(context.docBase + docs[i], score);
+        }
+        Arrays.sort(scoreDocs, (a, b) -> {
+            int cmp = Float.compare(b.score, a.score);
+            return cmp != 0 ? cmp : Integer.compare(a.doc, b.doc);
+        });
+        return new TopDocs(new TotalHits(numCandidates, TotalHits.Relation.EQUAL_TO), scoreDocs);
+    }
+
+    @Override
+    public void profile(QueryProfiler queryProfiler) {
+        if (innerQuery instanceof ProfilingQuery profilingQuery) {
+            profilingQuery.profile(queryProfiler);
+        }
+    }
+
+    public Query innerQuery() {
+        return innerQuery;
+    }
+
+    public int k() {
+        return k;
+    }
+
+    @Override
+    public void visit(QueryVisitor visitor) {
+        innerQuery.visit(visitor.getSubVisitor(BooleanClause.Occur.MUST, this));
+    }
+
+    @Override
+    public String toString(String field) {
+        return getClass().getSimpleName() + "[field=" + this.field + ", k=" + k + ", inner=" + innerQuery.toString(field) + "]";
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (sameClassAs(o) == false) {
+            return false;
+        }
+        RescoreKnnVectorQuery that = (RescoreKnnVectorQuery) o;
+        return k == that.k
+            && Objects.equals(field, that.field)
+            && Arrays.equals(queryVector, that.queryVector)
+            && Objects.equals(similarityFunction, that.similarityFunction)
+            && Objects.equals(innerQuery, that.innerQuery);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(classHash(), field, Arrays.hashCode(queryVector), similarityFunction, k, innerQuery);
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.search.vectors;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.xcontent.ConstructingObjectParser;
+import org.elasticsearch.xcontent.ParseField;
+import org.elasticsearch.xcontent.ToXContentObject;
+import org.elasticsearch.xcontent.XContentBuilder;
+import org.elasticsearch.xcontent.XContentParser;
+
+import java.io.IOException;
+import java.util.Objects;
+
+import static org.elasticsearch.xcontent.ConstructingObjectParser.constructorArg;
+
+/**
+ * The {@code rescore_vector} option of kNN searches on quantized {@code dense_vector} fields: {@code k * oversample} candidates
+ * are gathered with the quantized vectors, and rescored with the raw float vectors to keep the best {@code k}.
+ */
+public class RescoreVectorBuilder implements Writeable, ToXContentObject {
+
+    public static final ParseField OVERSAMPLE_FIELD = new ParseField("oversample");
+    public static final float MIN_OVERSAMPLE = 1.0F;
+
+    private static final ConstructingObjectParser<RescoreVectorBuilder, Void> PARSER = new ConstructingObjectParser<>(
+        "rescore_vector",
+        args -> new RescoreVectorBuilder((Float) args[0])
+    );
+
+    static {
+        PARSER.declareFloat(constructorArg(), OVERSAMPLE_FIELD);
+    }
+
+    public static RescoreVectorBuilder fromXContent(XContentParser parser) {
+        return PARSER.apply(parser, null);
+    }
+
+    private final float oversample;
+
+    public RescoreVectorBuilder(float oversample) {
+        if (oversample < MIN_OVERSAMPLE) {
+            throw new IllegalArgumentException(
+                "[" + OVERSAMPLE_FIELD.getPreferredName() + "] must be greater than or equal to [" + MIN_OVERSAMPLE + "]"
+            );
+        }
+        this.oversample = oversample;
+    }
+
+    public RescoreVectorBuilder(StreamInput in) throws IOException {
+        this.oversample = in.readFloat();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeFloat(oversample);
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject();
+        builder.field(OVERSAMPLE_FIELD.getPreferredName(), oversample);
+        builder.endObject();
+        return builder;
+    }
+
+    public float oversample() {
+        return oversample;
+    }
+
+    /**
+     * Returns the number of candidates to gather with the quantized vectors in order to keep {@code k} after rescoring.
+     */
+    public int numCandidates(int k, int limit) {
+        return (int) Math.min(Math.ceil(k * (double) oversample), limit);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        RescoreVectorBuilder that = (RescoreVectorBuilder) o;
+        return Float.compare(oversample, that.oversample) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(oversample);
+    }
+}
@@ -1090,7 +1090,8 @@ public class NodeStatsTests extends ESTestCase {
             scriptCacheStats,
             indexingPressureStats,
             repositoriesStats,
-            nodeAllocationStats
+            nodeAllocationStats,
+            null
         );
     }
 
@@ -23,7 +23,11 @@ import java.util.List;
 public class NodesStatsRequestParametersTests extends ESTestCase {
 
     public void testReadWriteMetricSet() {
-        for (var version : List.of(TransportVersions.V_8_15_0, TransportVersions.NODES_STATS_ENUM_SET)) {
+        for (var version : List.of(
+            TransportVersions.V_8_15_0,
+            TransportVersions.NODES_STATS_ENUM_SET,
+            TransportVersions.NODE_STATS_SEARCH_ADMISSION
+        )) {
             var randSet = randomSubsetOf(Metric.ALL);
             var metricsOut = randSet.isEmpty() ? EnumSet.noneOf(Metric.class) : EnumSet.copyOf(randSet);
             try {
@@ -33,7 +37,11 @@ public class NodesStatsRequestParametersTests extends ESTestCase {
                 var in = new ByteArrayStreamInput(out.get().bytes);
                 in.setTransportVersion(version);
                 var metricsIn = Metric.readSetFrom(in);
-                assertEquals(metricsOut, metricsIn);
+                var expected = EnumSet.copyOf(metricsOut);
+                if (version.before(TransportVersions.NODE_STATS_SEARCH_ADMISSION)) {
+                    expected.remove(Metric.SEARCH_ADMISSION);
+                }
+                assertEquals(expected, metricsIn);
             } catch (IOException e) {
                 var errMsg = "metrics=" + metricsOut.toString();
                 throw new AssertionError(errMsg, e);
@@ -60,7 +68,8 @@ public class NodesStatsRequestParametersTests extends ESTestCase {
             Metric.SCRIPT_CACHE,
             Metric.INDEXING_PRESSURE,
             Metric.REPOSITORIES,
-            Metric.ALLOCATIONS
+            Metric.ALLOCATIONS,
+            Metric.SEARCH_ADMISSION
         );
     }
 
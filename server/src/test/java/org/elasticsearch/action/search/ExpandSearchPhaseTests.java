@@ -9,19 +9,29 @@
 
 package org.elasticsearch.action.search;
 
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.document.DocumentField;
+import org.elasticsearch.common.lucene.search.TopDocsAndMaxScore;
 import org.elasticsearch.common.util.concurrent.AtomicArray;
 import org.elasticsearch.index.query.BoolQueryBuilder;
 import org.elasticsearch.index.query.InnerHitBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.search.AbstractSearchTestCase;
+import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHits;
+import org.elasticsearch.search.aggregations.BucketOrder;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.bucket.terms.StringTerms;
+import org.elasticsearch.search.aggregations.bucket.terms.TermsAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.InternalTopHits;
 import org.elasticsearch.search.builder.PointInTimeBuilder;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.collapse.CollapseBuilder;
@@ -34,6 +44,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.IntStream;
 
 import static java.util.Collections.emptyMap;
@@ -415,4 +426,194 @@ public class ExpandSearchPhaseTests extends ESTestCase {
             }
         }
     }
+
+    public void testBatchedExpansion() throws IOException {
+        SearchHits groupA = SearchHits.unpooled(
+            new SearchHit[] { SearchHit.unpooled(2, "ID2"), SearchHit.unpooled(3, "ID3") },
+            new TotalHits(2, TotalHits.Relation.EQUAL_TO),
+            1.0F
+        );
+        SearchHits groupB = SearchHits.unpooled(
+            new SearchHit[] { SearchHit.unpooled(4, "ID4") },
+            new TotalHits(1, TotalHits.Relation.EQUAL_TO),
+            1.0F
+        );
+        AtomicBoolean executedMultiSearch = new AtomicBoolean(false);
+        MockSearchPhaseContext mockSearchPhaseContext = new MockSearchPhaseContext(1);
+        try {
+            mockSearchPhaseContext.getRequest()
+                .source(
+                    new SearchSourceBuilder().collapse(
+                        new CollapseBuilder("someField").setBatchedExpansion(true)
+                            .setInnerHits(new InnerHitBuilder().setName("innerHit").setSize(2))
+                    ).query(QueryBuilders.termQuery("foo", "bar")).postFilter(QueryBuilders.existsQuery("baz"))
+                );
+            mockSearchPhaseContext.searchTransport = new SearchTransportService(null, null, null) {
+                @Override
+                void sendExecuteMultiSearch(MultiSearchRequest request, SearchTask task, ActionListener<MultiSearchResponse> listener) {
+                    assertTrue(executedMultiSearch.compareAndSet(false, true));
+                    // a single search for all groups
+                    assertEquals(1, request.requests().size());
+                    SearchSourceBuilder source = request.requests().get(0).source();
+                    assertEquals(0, source.size());
+                    BoolQueryBuilder query = (BoolQueryBuilder) source.query();
+                    assertThat(query.must(), Matchers.contains(QueryBuilders.termQuery("foo", "bar")));
+                    assertThat(query.filter(), Matchers.hasItem(QueryBuilders.existsQuery("baz")));
+                    TermsAggregationBuilder groups = (TermsAggregationBuilder) source.aggregations()
+                        .getAggregatorFactories()
+                        .iterator()
+                        .next();
+                    assertEquals("someField", groups.field());
+                    assertEquals(2, groups.size());
+
+                    InternalAggregations groupsAggs = InternalAggregations.from(
+                        List.of(
+                            new StringTerms(
+                                ExpandSearchPhase.GROUPS_AGG,
+                                BucketOrder.key(true),
+                                BucketOrder.key(true),
+                                2,
+                                1,
+                                null,
+                                DocValueFormat.RAW,
+                                2,
+                                false,
+                                0,
+                                List.of(bucket("a", groupA), bucket("b", groupB)),
+                                0L
+                            )
+                        )
+                    );
+                    SearchResponse searchResponse = new SearchResponse(
+                        SearchHits.empty(new TotalHits(0, TotalHits.Relation.EQUAL_TO), Float.NaN),
+                        groupsAggs,
+                        null,
+                        false,
+                        null,
+                        null,
+                        1,
+                        null,
+                        1,
+                        1,
+                        0,
+                        0,
+                        ShardSearchFailure.EMPTY_ARRAY,
+                        SearchResponse.Clusters.EMPTY
+                    );
+                    ActionListener.respondAndRelease(
+                        listener,
+                        new MultiSearchResponse(new MultiSearchResponse.Item[] { new MultiSearchResponse.Item(searchResponse, null) }, 1)
+                    );
+                }
+            };
+
+            SearchHit hit1 = new SearchHit(1, "ID");
+            hit1.setDocumentField("someField", new DocumentField("someField", Collections.singletonList("b")));
+            SearchHit hit2 = new SearchHit(5, "ID5");
+            hit2.setDocumentField("someField", new DocumentField("someField", Collections.singletonList("a")));
+            SearchHits hits = new SearchHits(new SearchHit[] { hit1, hit2 }, new TotalHits(2, TotalHits.Relation.EQUAL_TO), 1.0F);
+            try {
+                ExpandSearchPhase phase = new ExpandSearchPhase(mockSearchPhaseContext, hits, () -> new SearchPhase("test") {
+                    @Override
+                    public void run() {
+                        mockSearchPhaseContext.sendSearchResponse(new SearchResponseSections(hits, null, null, false, null, null, 1), null);
+                    }
+                });
+                phase.run();
+                mockSearchPhaseContext.assertNoFailure();
+                assertTrue(executedMultiSearch.get());
+                assertSame(groupB, hit1.getInnerHits().get("innerHit"));
+                assertSame(groupA, hit2.getInnerHits().get("innerHit"));
+            } finally {
+                hits.decRef();
+            }
+        } finally {
+            mockSearchPhaseContext.results.close();
+            var resp = mockSearchPhaseContext.searchResponse.get();
+            if (resp != null) {
+                resp.decRef();
+            }
+        }
+    }
+
+    public void testBatchedExpansionFallsBackToGroupSearches() throws IOException {
+        AtomicInteger multiSearches = new AtomicInteger();
+        MockSearchPhaseContext mockSearchPhaseContext = new MockSearchPhaseContext(1);
+        try {
+            mockSearchPhaseContext.getRequest()
+                .source(
+                    new SearchSourceBuilder().collapse(
+                        new CollapseBuilder("someField").setBatchedExpansion(true).setInnerHits(new InnerHitBuilder().setName("innerHit"))
+                    )
+                );
+            mockSearchPhaseContext.searchTransport = new SearchTransportService(null, null, null) {
+                @Override
+                void sendExecuteMultiSearch(MultiSearchRequest request, SearchTask task, ActionListener<MultiSearchResponse> listener) {
+                    if (multiSearches.incrementAndGet() == 1) {
+                        assertEquals(1, request.requests().size());
+                        ActionListener.respondAndRelease(
+                            listener,
+                            new MultiSearchResponse(
+                                new MultiSearchResponse.Item[] { new MultiSearchResponse.Item(null, new RuntimeException("boom")) },
+                                1
+                            )
+                        );
+                    } else {
+                        // one search per group
+                        assertEquals(2, request.requests().size());
+                        assertNull(request.requests().get(0).source().aggregations());
+                        ActionListener.respondAndRelease(
+                            listener,
+                            new MultiSearchResponse(
+                                new MultiSearchResponse.Item[] {
+                                    new MultiSearchResponse.Item(null, new RuntimeException("expected")),
+                                    new MultiSearchResponse.Item(null, new RuntimeException("expected")) },
+                                1
+                            )
+                        );
+                    }
+                }
+            };
+
+            SearchHit hit1 = new SearchHit(1, "ID");
+            hit1.setDocumentField("someField", new DocumentField("someField", Collections.singletonList("a")));
+            SearchHit hit2 = new SearchHit(2, "ID2");
+            hit2.setDocumentField("someField", new DocumentField("someField", Collections.singletonList(null)));
+            SearchHits hits = new SearchHits(new SearchHit[] { hit1, hit2 }, new TotalHits(2, TotalHits.Relation.EQUAL_TO), 1.0F);
+            try {
+                ExpandSearchPhase phase = new ExpandSearchPhase(mockSearchPhaseContext, hits, () -> new SearchPhase("test") {
+                    @Override
+                    public void run() {
+                        fail("the expansion failed");
+                    }
+                });
+                phase.run();
+                assertEquals(2, multiSearches.get());
+                assertEquals("expected", mockSearchPhaseContext.phaseFailure.get().getMessage());
+            } finally {
+                hits.decRef();
+            }
+        } finally {
+            mockSearchPhaseContext.results.close();
+        }
+    }
+
+    private static StringTerms.Bucket bucket(String key, SearchHits innerHits) {
+        InternalTopHits topHits = new InternalTopHits(
+            ExpandSearchPhase.INNER_HITS_AGG_PREFIX + 0,
+            0,
+            2,
+            new TopDocsAndMaxScore(new TopDocs(innerHits.getTotalHits(), new ScoreDoc[0]), innerHits.getMaxScore()),
+            innerHits,
+            null
+        );
+        return new StringTerms.Bucket(
+            new BytesRef(key),
+            innerHits.getTotalHits().value(),
+            InternalAggregations.from(List.of(topHits)),
+            false,
+            0,
+            DocValueFormat.RAW
+        );
+    }
 }
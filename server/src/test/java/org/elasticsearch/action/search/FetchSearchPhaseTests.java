@@ -11,6 +11,7 @@ package org.elasticsearch.action.search;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NoMergePolicy;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.QueryCachingPolicy;
 import org.apache.lucene.search.ScoreDoc;
@@ -30,6 +31,8 @@ import org.elasticsearch.common.lucene.search.TopDocsAndMaxScore;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.concurrent.AtomicArray;
 import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.elasticsearch.core.Nullable;
 import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.IndexVersion;
 import org.elasticsearch.index.cache.bitset.BitsetFilterCache;
@@ -66,10 +69,13 @@ import org.elasticsearch.test.TestSearchContext;
 import org.elasticsearch.transport.Transport;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
 
@@ -789,7 +795,7 @@ public class FetchSearchPhaseTests extends ESTestCase {
         IndexReader r = w.getReader();
         w.close();
         ContextIndexSearcher contextIndexSearcher = createSearcher(r);
-        try (SearchContext searchContext = createSearchContext(contextIndexSearcher, true)) {
+        try (SearchContext searchContext = createSearchContext(contextIndexSearcher, true, null)) {
             FetchPhase fetchPhase = createFetchPhase(contextIndexSearcher);
             fetchPhase.execute(searchContext, new int[] { 0, 1, 2 }, null);
             assertTrue(searchContext.queryResult().searchTimedOut());
@@ -810,7 +816,7 @@ public class FetchSearchPhaseTests extends ESTestCase {
         w.close();
         ContextIndexSearcher contextIndexSearcher = createSearcher(r);
 
-        try (SearchContext searchContext = createSearchContext(contextIndexSearcher, false)) {
+        try (SearchContext searchContext = createSearchContext(contextIndexSearcher, false, null)) {
             FetchPhase fetchPhase = createFetchPhase(contextIndexSearcher);
             expectThrows(SearchTimeoutException.class, () -> fetchPhase.execute(searchContext, new int[] { 0, 1, 2 }, null));
             assertNull(searchContext.fetchResult().hits());
@@ -820,6 +826,79 @@ public class FetchSearchPhaseTests extends ESTestCase {
         }
     }
 
+    public void testConcurrentFetchMatchesSequentialFetch() throws IOException {
+        Directory dir = newDirectory();
+        RandomIndexWriter w = new RandomIndexWriter(random(), dir, newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE));
+        int numDocs = randomIntBetween(2048, 4096);
+        for (int i = 0; i < numDocs; i++) {
+            w.addDocument(new Document());
+            if (rarely()) {
+                w.flush();
+            }
+        }
+        IndexReader r = w.getReader();
+        w.close();
+        List<Integer> shuffled = new ArrayList<>();
+        for (int i = 0; i < numDocs; i++) {
+            shuffled.add(i);
+        }
+        Collections.shuffle(shuffled, random());
+        int[] docIds = shuffled.subList(0, randomIntBetween(1024, numDocs)).stream().mapToInt(Integer::intValue).toArray();
+
+        ExecutorService executor = EsExecutors.newFixed(
+            "test",
+            4,
+            -1,
+            Thread::new,
+            new ThreadContext(Settings.EMPTY),
+            EsExecutors.TaskTrackingConfig.DO_NOT_TRACK
+        );
+        try {
+            float[][] scores = new float[2][];
+            for (int run = 0; run < 2; run++) {
+                ContextIndexSearcher contextIndexSearcher = createSearcher(r);
+                try (SearchContext searchContext = createSearchContext(contextIndexSearcher, false, run == 0 ? null : executor)) {
+                    // each slice gets its own processors, so a processor must only ever see the docs of its current leaf
+                    FetchPhase fetchPhase = new FetchPhase(Collections.singletonList(fetchContext -> new FetchSubPhaseProcessor() {
+                        LeafReaderContext ctx;
+
+                        @Override
+                        public void setNextReader(LeafReaderContext readerContext) {
+                            ctx = readerContext;
+                        }
+
+                        @Override
+                        public void process(FetchSubPhase.HitContext hitContext) {
+                            assertSame(ctx, hitContext.readerContext());
+                            hitContext.hit().score(ctx.docBase + hitContext.docId());
+                        }
+
+                        @Override
+                        public StoredFieldsSpec storedFieldsSpec() {
+                            return StoredFieldsSpec.NO_REQUIREMENTS;
+                        }
+                    }));
+                    fetchPhase.execute(searchContext, docIds, null);
+                    SearchHit[] hits = searchContext.fetchResult().hits().getHits();
+                    assertThat(hits, arrayWithSize(docIds.length));
+                    scores[run] = new float[hits.length];
+                    for (int i = 0; i < hits.length; i++) {
+                        assertEquals(docIds[i], hits[i].docId());
+                        scores[run][i] = hits[i].getScore();
+                    }
+                }
+            }
+            assertArrayEquals(scores[0], scores[1], 0f);
+            for (int i = 0; i < docIds.length; i++) {
+                assertEquals(docIds[i], scores[1][i], 0f);
+            }
+        } finally {
+            terminate(executor);
+            r.close();
+            dir.close();
+        }
+    }
+
     private static ContextIndexSearcher createSearcher(IndexReader reader) throws IOException {
         return new ContextIndexSearcher(reader, null, null, new QueryCachingPolicy() {
             @Override
@@ -856,7 +935,11 @@ public class FetchSearchPhaseTests extends ESTestCase {
         }));
     }
 
-    private static SearchContext createSearchContext(ContextIndexSearcher contextIndexSearcher, boolean allowPartialResults) {
+    private static SearchContext createSearchContext(
+        ContextIndexSearcher contextIndexSearcher,
+        boolean allowPartialResults,
+        @Nullable Executor fetchPhaseExecutor
+    ) {
         IndexSettings indexSettings = new IndexSettings(
             IndexMetadata.builder("index")
                 .settings(Settings.builder().put(IndexMetadata.SETTING_VERSION_CREATED, IndexVersion.current()))
@@ -925,6 +1008,11 @@ public class FetchSearchPhaseTests extends ESTestCase {
                 return fetchSearchResult;
             }
 
+            @Override
+            public Executor fetchPhaseExecutor() {
+                return fetchPhaseExecutor;
+            }
+
             @Override
             public ShardSearchRequest request() {
                 return request;
@@ -18,15 +18,23 @@ import org.elasticsearch.cluster.node.DiscoveryNodeUtils;
 import org.elasticsearch.cluster.routing.GroupShardsIterator;
 import org.elasticsearch.cluster.routing.RecoverySource;
 import org.elasticsearch.cluster.routing.ShardRouting;
+import org.elasticsearch.cluster.routing.ShardRoutingState;
+import org.elasticsearch.cluster.routing.TestShardRouting;
 import org.elasticsearch.cluster.routing.UnassignedInfo;
+import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.UUIDs;
+import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.node.ResponseCollectorService;
 import org.elasticsearch.search.SearchHits;
 import org.elasticsearch.search.SearchPhaseResult;
 import org.elasticsearch.search.internal.AliasFilter;
 import org.elasticsearch.search.internal.ShardSearchContextId;
+import org.elasticsearch.test.ClusterServiceUtils;
 import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.threadpool.TestThreadPool;
+import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.Transport;
 import org.elasticsearch.transport.TransportException;
 import org.elasticsearch.transport.TransportRequest;
@@ -41,6 +49,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -697,6 +706,232 @@ public class SearchAsyncActionTests extends ESTestCase {
         assertThat(searchResponse.get().getSuccessfulShards(), equalTo(shardsIter.size()));
     }
 
+    public void testHedgeSlowShardRequests() throws InterruptedException {
+        SearchRequest request = new SearchRequest();
+        request.allowPartialSearchResults(false);
+        DiscoveryNode slowNode = DiscoveryNodeUtils.create("node_1");
+        DiscoveryNode fastNode = DiscoveryNodeUtils.create("node_2");
+        int numShards = randomIntBetween(1, 10);
+        GroupShardsIterator<SearchShardIterator> shardsIter = getShardsIter(
+            "idx",
+            new OriginalIndices(new String[] { "idx" }, SearchRequest.DEFAULT_INDICES_OPTIONS),
+            numShards,
+            true,
+            slowNode,
+            fastNode
+        );
+        AtomicReference<SearchResponse> searchResponse = new AtomicReference<>();
+        ActionListener<SearchResponse> responseListener = ActionTestUtils.assertNoFailureListener(searchResponse::set);
+        AtomicInteger contextIdGenerator = new AtomicInteger(0);
+        Set<ShardSearchContextId> freedContexts = newConcurrentSet();
+        SearchTransportService transportService = new SearchTransportService(null, null, null) {
+            @Override
+            public void sendFreeContext(Transport.Connection connection, ShardSearchContextId contextId, OriginalIndices originalIndices) {
+                assertEquals(slowNode, connection.getNode());
+                assertTrue(freedContexts.add(contextId));
+            }
+        };
+        Map<String, Transport.Connection> lookup = new HashMap<>();
+        lookup.put(slowNode.getId(), new MockConnection(slowNode));
+        lookup.put(fastNode.getId(), new MockConnection(fastNode));
+        Map<ShardId, Runnable> slowResponses = new ConcurrentHashMap<>();
+        CountDownLatch latch = new CountDownLatch(1);
+
+        ThreadPool threadPool = new TestThreadPool(getTestName());
+        ClusterService clusterService = ClusterServiceUtils.createClusterService(threadPool);
+        try {
+            ResponseCollectorService responseCollectorService = new ResponseCollectorService(clusterService);
+            // nothing is known about the fast node's response times, so requests to it are never hedged
+            for (int i = 0; i < 100; i++) {
+                responseCollectorService.addResponseTimeSample(slowNode.getId(), TimeValue.timeValueMillis(1).nanos());
+            }
+            ShardRequestHedging hedging = new ShardRequestHedging(
+                threadPool,
+                threadPool.generic(),
+                responseCollectorService,
+                50.0,
+                TimeValue.ZERO
+            );
+            AbstractSearchAsyncAction<TestSearchPhaseResult> asyncAction = new AbstractSearchAsyncAction<>(
+                "test",
+                logger,
+                null,
+                transportService,
+                (cluster, node) -> lookup.get(node),
+                Map.of("_na_", AliasFilter.EMPTY),
+                Collections.emptyMap(),
+                null,
+                request,
+                responseListener,
+                shardsIter,
+                new TransportSearchAction.SearchTimeProvider(0, 0, () -> 0),
+                ClusterState.EMPTY_STATE,
+                null,
+                new ArraySearchPhaseResults<>(shardsIter.size()),
+                request.getMaxConcurrentShardRequests(),
+                SearchResponse.Clusters.EMPTY,
+                hedging
+            ) {
+                @Override
+                protected void executePhaseOnShard(
+                    SearchShardIterator shardIt,
+                    Transport.Connection connection,
+                    SearchActionListener<TestSearchPhaseResult> listener
+                ) {
+                    TestSearchPhaseResult result = new TestSearchPhaseResult(
+                        new ShardSearchContextId(UUIDs.randomBase64UUID(), contextIdGenerator.incrementAndGet()),
+                        connection.getNode()
+                    );
+                    if (connection.getNode().equals(slowNode)) {
+                        // only answer once the search moved on, by then the other copy must have been asked
+                        assertNull(slowResponses.put(shardIt.shardId(), () -> listener.onResponse(result)));
+                    } else {
+                        new Thread(() -> listener.onResponse(result)).start();
+                    }
+                }
+
+                @Override
+                protected SearchPhase getNextPhase() {
+                    return new SearchPhase("test") {
+                        @Override
+                        public void run() {
+                            results.getSuccessfulResults()
+                                .forEach(result -> assertEquals(fastNode, ((TestSearchPhaseResult) result).node));
+                            latch.countDown();
+                        }
+                    };
+                }
+            };
+            asyncAction.start();
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+            slowResponses.values().forEach(Runnable::run);
+            assertEquals(slowResponses.size(), freedContexts.size());
+
+            asyncAction.sendSearchResponse(SearchResponseSections.EMPTY_WITH_TOTAL_HITS, null);
+            assertNotNull(searchResponse.get());
+            assertEquals(0, searchResponse.get().getFailedShards());
+            assertEquals(numShards, searchResponse.get().getSuccessfulShards());
+        } finally {
+            clusterService.close();
+            ThreadPool.terminate(threadPool, 10, TimeUnit.SECONDS);
+        }
+    }
+
+    public void testHedgedRequestFailsWhileOtherCopySucceeds() throws InterruptedException {
+        SearchRequest request = new SearchRequest();
+        request.allowPartialSearchResults(true);
+        DiscoveryNode slowNode = DiscoveryNodeUtils.create("node_1");
+        DiscoveryNode fastNode = DiscoveryNodeUtils.create("node_2");
+        int numShards = randomIntBetween(1, 10);
+        OriginalIndices originalIndices = new OriginalIndices(new String[] { "idx" }, SearchRequest.DEFAULT_INDICES_OPTIONS);
+        List<SearchShardIterator> shardIterators = new ArrayList<>();
+        for (int i = 0; i < numShards; i++) {
+            ShardId shardId = new ShardId(new Index("idx", "_na_"), i);
+            // the slow copy is always asked first so that the fast copy is only ever asked by a hedged request
+            List<ShardRouting> copies = List.of(
+                TestShardRouting.newShardRouting(shardId, slowNode.getId(), true, ShardRoutingState.STARTED),
+                TestShardRouting.newShardRouting(shardId, fastNode.getId(), false, ShardRoutingState.STARTED)
+            );
+            shardIterators.add(new SearchShardIterator(null, shardId, copies, originalIndices));
+        }
+        GroupShardsIterator<SearchShardIterator> shardsIter = new GroupShardsIterator<>(shardIterators);
+        AtomicReference<SearchResponse> searchResponse = new AtomicReference<>();
+        ActionListener<SearchResponse> responseListener = ActionTestUtils.assertNoFailureListener(searchResponse::set);
+        AtomicInteger contextIdGenerator = new AtomicInteger(0);
+        SearchTransportService transportService = new SearchTransportService(null, null, null);
+        Map<String, Transport.Connection> lookup = new HashMap<>();
+        lookup.put(slowNode.getId(), new MockConnection(slowNode));
+        lookup.put(fastNode.getId(), new MockConnection(fastNode));
+        Map<ShardId, Runnable> slowResponses = new ConcurrentHashMap<>();
+        CountDownLatch latch = new CountDownLatch(1);
+
+        ThreadPool threadPool = new TestThreadPool(getTestName());
+        ClusterService clusterService = ClusterServiceUtils.createClusterService(threadPool);
+        try {
+            ResponseCollectorService responseCollectorService = new ResponseCollectorService(clusterService);
+            for (int i = 0; i < 100; i++) {
+                responseCollectorService.addResponseTimeSample(slowNode.getId(), TimeValue.timeValueMillis(1).nanos());
+            }
+            ShardRequestHedging hedging = new ShardRequestHedging(
+                threadPool,
+                threadPool.generic(),
+                responseCollectorService,
+                50.0,
+                TimeValue.ZERO
+            );
+            AbstractSearchAsyncAction<TestSearchPhaseResult> asyncAction = new AbstractSearchAsyncAction<>(
+                "test",
+                logger,
+                null,
+                transportService,
+                (cluster, node) -> lookup.get(node),
+                Map.of("_na_", AliasFilter.EMPTY),
+                Collections.emptyMap(),
+                null,
+                request,
+                responseListener,
+                shardsIter,
+                new TransportSearchAction.SearchTimeProvider(0, 0, () -> 0),
+                ClusterState.EMPTY_STATE,
+                null,
+                new ArraySearchPhaseResults<>(shardsIter.size()),
+                request.getMaxConcurrentShardRequests(),
+                SearchResponse.Clusters.EMPTY,
+                hedging
+            ) {
+                @Override
+                protected void executePhaseOnShard(
+                    SearchShardIterator shardIt,
+                    Transport.Connection connection,
+                    SearchActionListener<TestSearchPhaseResult> listener
+                ) {
+                    if (connection.getNode().equals(slowNode)) {
+                        TestSearchPhaseResult result = new TestSearchPhaseResult(
+                            new ShardSearchContextId(UUIDs.randomBase64UUID(), contextIdGenerator.incrementAndGet()),
+                            connection.getNode()
+                        );
+                        assertNull(slowResponses.put(shardIt.shardId(), () -> listener.onResponse(result)));
+                    } else {
+                        // the hedged request fails at the same time as the slow copy answers
+                        Runnable slowResponse = slowResponses.remove(shardIt.shardId());
+                        assertNotNull(slowResponse);
+                        CyclicBarrier barrier = new CyclicBarrier(2);
+                        new Thread(() -> {
+                            safeAwait(barrier);
+                            slowResponse.run();
+                        }).start();
+                        new Thread(() -> {
+                            safeAwait(barrier);
+                            listener.onFailure(new RuntimeException("boom"));
+                        }).start();
+                    }
+                }
+
+                @Override
+                protected SearchPhase getNextPhase() {
+                    return new SearchPhase("test") {
+                        @Override
+                        public void run() {
+                            results.getSuccessfulResults()
+                                .forEach(result -> assertEquals(slowNode, ((TestSearchPhaseResult) result).node));
+                            latch.countDown();
+                        }
+                    };
+                }
+            };
+            asyncAction.start();
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+
+            asyncAction.sendSearchResponse(SearchResponseSections.EMPTY_WITH_TOTAL_HITS, null);
+            assertNotNull(searchResponse.get());
+            assertEquals(0, searchResponse.get().getFailedShards());
+            assertEquals(numShards, searchResponse.get().getSuccessfulShards());
+        } finally {
+            clusterService.close();
+            ThreadPool.terminate(threadPool, 10, TimeUnit.SECONDS);
+        }
+    }
+
     static GroupShardsIterator<SearchShardIterator> getShardsIter(
         String index,
         OriginalIndices originalIndices,
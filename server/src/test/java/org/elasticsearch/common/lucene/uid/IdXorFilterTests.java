@@ -0,0 +1,79 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.common.lucene.uid;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.hash.MurmurHash3;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.lessThan;
+
+public class IdXorFilterTests extends ESTestCase {
+
+    public void testNoFalseNegatives() {
+        int numKeys = randomIntBetween(1, 10_000);
+        long[] keys = new long[numKeys];
+        for (int i = 0; i < numKeys; i++) {
+            keys[i] = randomLong();
+        }
+        long[] copy = keys.clone();
+        IdXorFilter filter = IdXorFilter.build(copy, numKeys);
+        assertNotNull(filter);
+        for (long key : keys) {
+            assertTrue(filter.mayContain(key));
+        }
+    }
+
+    public void testDuplicateKeys() {
+        int numKeys = randomIntBetween(1, 1_000);
+        long[] keys = new long[numKeys * 2];
+        for (int i = 0; i < numKeys; i++) {
+            keys[i] = keys[numKeys + i] = randomLong();
+        }
+        long[] copy = keys.clone();
+        IdXorFilter filter = IdXorFilter.build(copy, keys.length);
+        assertNotNull(filter);
+        for (long key : keys) {
+            assertTrue(filter.mayContain(key));
+        }
+    }
+
+    public void testFalsePositiveRate() {
+        int numKeys = 50_000;
+        MurmurHash3.Hash128 scratch = new MurmurHash3.Hash128();
+        Set<BytesRef> ids = new HashSet<>();
+        long[] keys = new long[numKeys];
+        for (int i = 0; i < numKeys; i++) {
+            BytesRef id = new BytesRef(randomAlphaOfLength(20));
+            if (ids.add(id)) {
+                keys[ids.size() - 1] = IdXorFilter.hashId(id, scratch);
+            }
+        }
+        IdXorFilter filter = IdXorFilter.build(keys, ids.size());
+        assertNotNull(filter);
+        for (BytesRef id : ids) {
+            assertTrue(filter.mayContain(id, scratch));
+        }
+        int falsePositives = 0;
+        int numProbes = 100_000;
+        for (int i = 0; i < numProbes; i++) {
+            BytesRef id = new BytesRef(randomAlphaOfLength(21));
+            if (filter.mayContain(id, scratch)) {
+                falsePositives++;
+            }
+        }
+        // the expected rate is 1/256, leave plenty of room for randomness
+        assertThat(falsePositives, lessThan(numProbes / 100));
+        assertThat(filter.ramBytesUsed(), lessThan(2L * ids.size()));
+    }
+}
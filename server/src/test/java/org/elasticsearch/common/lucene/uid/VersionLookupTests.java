@@ -31,6 +31,8 @@ import org.elasticsearch.index.mapper.SeqNoFieldMapper;
 import org.elasticsearch.index.mapper.VersionFieldMapper;
 import org.elasticsearch.test.ESTestCase;
 
+import java.util.concurrent.CyclicBarrier;
+
 /**
  * test per-segment lookup of version-related data structures
  */
@@ -169,4 +171,111 @@ public class VersionLookupTests extends ESTestCase {
         writer.close();
         dir.close();
     }
+
+    /**
+     * test version lookup through the per-segment _id filter
+     */
+    public void testLookupWithIdFilter() throws Exception {
+        Directory dir = newDirectory();
+        IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(Lucene.STANDARD_ANALYZER).setMergePolicy(NoMergePolicy.INSTANCE));
+        int numDocs = randomIntBetween(1, 200);
+        for (int i = 0; i < numDocs; i++) {
+            Document doc = new Document();
+            doc.add(new StringField(IdFieldMapper.NAME, Integer.toString(i), Field.Store.YES));
+            doc.add(new NumericDocValuesField(VersionFieldMapper.NAME, i + 1));
+            doc.add(new NumericDocValuesField(SeqNoFieldMapper.NAME, i));
+            doc.add(new NumericDocValuesField(SeqNoFieldMapper.PRIMARY_TERM_NAME, 1));
+            writer.addDocument(doc);
+        }
+        DirectoryReader reader = DirectoryReader.open(writer);
+        LeafReaderContext segment = reader.leaves().get(0);
+        IdFilters idFilters = new IdFilters();
+        assertEquals(0L, idFilters.ramBytesUsed(segment.reader()));
+        IdXorFilter filter = idFilters.get(segment.reader());
+        assertNotNull(filter);
+        assertSame(filter, idFilters.get(segment.reader()));
+        assertEquals(filter.ramBytesUsed(), idFilters.ramBytesUsed(segment.reader()));
+        PerThreadIDVersionAndSeqNoLookup lookup = new PerThreadIDVersionAndSeqNoLookup(segment.reader(), false, filter);
+        for (int i = 0; i < numDocs; i++) {
+            DocIdAndVersion result = lookup.lookupVersion(new BytesRef(Integer.toString(i)), randomBoolean(), segment);
+            assertNotNull(result);
+            assertEquals(i + 1, result.version);
+            assertEquals(i, result.docId);
+        }
+        for (int i = numDocs; i < numDocs + 100; i++) {
+            assertNull(lookup.lookupVersion(new BytesRef(Integer.toString(i)), randomBoolean(), segment));
+        }
+        reader.close();
+        writer.close();
+        dir.close();
+        // the filter is released together with the segment core
+        assertFalse(idFilters.filters.containsKey(segment.reader().getCoreCacheHelper().getKey()));
+    }
+
+    /**
+     * test that lookups without filters do not build any
+     */
+    public void testLookupWithoutIdFilters() throws Exception {
+        Directory dir = newDirectory();
+        IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(Lucene.STANDARD_ANALYZER).setMergePolicy(NoMergePolicy.INSTANCE));
+        Document doc = new Document();
+        doc.add(new StringField(IdFieldMapper.NAME, "1", Field.Store.YES));
+        doc.add(new NumericDocValuesField(VersionFieldMapper.NAME, 1));
+        doc.add(new NumericDocValuesField(SeqNoFieldMapper.NAME, 0));
+        doc.add(new NumericDocValuesField(SeqNoFieldMapper.PRIMARY_TERM_NAME, 1));
+        writer.addDocument(doc);
+        DirectoryReader reader = DirectoryReader.open(writer);
+        IdFilters idFilters = new IdFilters();
+        assertNotNull(VersionsAndSeqNoResolver.loadDocIdAndSeqNo(reader, new BytesRef("1")));
+        assertTrue(idFilters.filters.isEmpty());
+        assertNull(VersionsAndSeqNoResolver.timeSeriesLoadDocIdAndVersion(reader, new BytesRef("2"), randomBoolean(), idFilters));
+        assertEquals(reader.leaves().size(), idFilters.filters.size());
+        reader.close();
+        writer.close();
+        dir.close();
+        assertTrue(idFilters.filters.isEmpty());
+    }
+
+    /**
+     * test that concurrent lookups on a new segment share a single _id filter
+     */
+    public void testConcurrentIdFilterBuild() throws Exception {
+        Directory dir = newDirectory();
+        IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(Lucene.STANDARD_ANALYZER).setMergePolicy(NoMergePolicy.INSTANCE));
+        int numDocs = randomIntBetween(1, 1000);
+        for (int i = 0; i < numDocs; i++) {
+            Document doc = new Document();
+            doc.add(new StringField(IdFieldMapper.NAME, Integer.toString(i), Field.Store.YES));
+            writer.addDocument(doc);
+        }
+        DirectoryReader reader = DirectoryReader.open(writer);
+        LeafReaderContext segment = reader.leaves().get(0);
+        IdFilters idFilters = new IdFilters();
+        IdXorFilter[] filters = new IdXorFilter[randomIntBetween(2, 8)];
+        Thread[] threads = new Thread[filters.length];
+        CyclicBarrier barrier = new CyclicBarrier(threads.length);
+        for (int i = 0; i < threads.length; i++) {
+            int index = i;
+            threads[i] = new Thread(() -> {
+                try {
+                    barrier.await();
+                    filters[index] = idFilters.get(segment.reader());
+                } catch (Exception e) {
+                    throw new AssertionError(e);
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNotNull(filters[0]);
+        for (IdXorFilter filter : filters) {
+            assertSame(filters[0], filter);
+        }
+        reader.close();
+        writer.close();
+        dir.close();
+        assertFalse(idFilters.filters.containsKey(segment.reader().getCoreCacheHelper().getKey()));
+    }
 }
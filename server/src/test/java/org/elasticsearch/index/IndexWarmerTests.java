@@ -0,0 +1,71 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.index;
+
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+
+public class IndexWarmerTests extends ESTestCase {
+
+    public void testVectorFilesToWarm() {
+        assertThat(
+            IndexWarmer.VectorFilesWarmer.vectorFilesToWarm(
+                List.of(
+                    "_0.si",
+                    "_0.fdt",
+                    "_0_Lucene99HnswVectorsFormat_0.vec",
+                    "_0_Lucene99HnswVectorsFormat_0.vex",
+                    "_0_Lucene99HnswVectorsFormat_0.vem"
+                )
+            ),
+            containsInAnyOrder("_0_Lucene99HnswVectorsFormat_0.vec", "_0_Lucene99HnswVectorsFormat_0.vex")
+        );
+
+        // the raw vectors are not read when the segment has quantized vectors
+        assertThat(
+            IndexWarmer.VectorFilesWarmer.vectorFilesToWarm(
+                List.of(
+                    "_1.si",
+                    "_1_ES814HnswScalarQuantizedVectorsFormat_0.vec",
+                    "_1_ES814HnswScalarQuantizedVectorsFormat_0.vex",
+                    "_1_ES814HnswScalarQuantizedVectorsFormat_0.veq",
+                    "_1_ES814HnswScalarQuantizedVectorsFormat_0.vemq"
+                )
+            ),
+            containsInAnyOrder("_1_ES814HnswScalarQuantizedVectorsFormat_0.vex", "_1_ES814HnswScalarQuantizedVectorsFormat_0.veq")
+        );
+        assertThat(
+            IndexWarmer.VectorFilesWarmer.vectorFilesToWarm(
+                List.of("_2_ES816BinaryQuantizedVectorsFormat_0.vec", "_2_ES816BinaryQuantizedVectorsFormat_0.veb")
+            ),
+            containsInAnyOrder("_2_ES816BinaryQuantizedVectorsFormat_0.veb")
+        );
+
+        // the centroids and posting lists of IVF segments are read, the metadata is loaded when the segment is opened
+        assertThat(
+            IndexWarmer.VectorFilesWarmer.vectorFilesToWarm(
+                List.of(
+                    "_4_ES817IvfBinaryQuantizedVectorsFormat_0.vec",
+                    "_4_ES817IvfBinaryQuantizedVectorsFormat_0.vemf",
+                    "_4_ES817IvfBinaryQuantizedVectorsFormat_0.mivf",
+                    "_4_ES817IvfBinaryQuantizedVectorsFormat_0.civf",
+                    "_4_ES817IvfBinaryQuantizedVectorsFormat_0.pivf"
+                )
+            ),
+            containsInAnyOrder("_4_ES817IvfBinaryQuantizedVectorsFormat_0.civf", "_4_ES817IvfBinaryQuantizedVectorsFormat_0.pivf")
+        );
+
+        assertThat(IndexWarmer.VectorFilesWarmer.vectorFilesToWarm(List.of("_3.si", "_3.cfs", "_3.cfe")), empty());
+    }
+}
@@ -54,6 +54,21 @@ public class IndexingPressureTests extends ESTestCase {
         }
     }
 
+    public void testStreamingBulkSize() {
+        IndexingPressure indexingPressure = new IndexingPressure(
+            Settings.builder().put(settings).put(IndexingPressure.SPLIT_BULK_STREAMING_SIZE.getKey(), "256B").build()
+        );
+        // without any memory pressure bulks are still split once they reach the streaming size
+        assertFalse(indexingPressure.shouldSplitBulk(randomIntBetween(1, 255)));
+        assertTrue(indexingPressure.shouldSplitBulk(randomIntBetween(256, 10000)));
+
+        assertFalse(new IndexingPressure(settings).shouldSplitBulk(randomIntBetween(1, 10000)));
+        assertFalse(
+            new IndexingPressure(Settings.builder().put(settings).put(IndexingPressure.SPLIT_BULK_STREAMING_SIZE.getKey(), "0b").build())
+                .shouldSplitBulk(randomIntBetween(1, 10000))
+        );
+    }
+
     public void testMemoryBytesAndOpsMarkedAndReleased() {
         IndexingPressure indexingPressure = new IndexingPressure(settings);
         try (
@@ -29,6 +29,7 @@ import org.apache.lucene.store.ByteBuffersDirectory;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.Accountable;
 import org.apache.lucene.util.BitSet;
+import org.apache.lucene.util.FixedBitSet;
 import org.elasticsearch.cluster.metadata.IndexMetadata;
 import org.elasticsearch.cluster.node.DiscoveryNodeRole;
 import org.elasticsearch.common.lucene.index.ElasticsearchDirectoryReader;
@@ -38,6 +39,7 @@ import org.elasticsearch.index.Index;
 import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.lucene.util.MatchAllBitSet;
+import org.elasticsearch.lucene.util.RoaringBitSet;
 import org.elasticsearch.node.NodeRoleSettings;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.test.IndexSettingsModule;
@@ -215,6 +217,38 @@ public class BitSetFilterCacheTests extends ESTestCase {
         IOUtils.close(cache, reader, writer, directory);
     }
 
+    public void testCompact() throws IOException {
+        int maxDoc = randomIntBetween(1, 3) * BitsetFilterCache.MIN_ROARING_LENGTH;
+        // sparse matches, like the parents of nested documents, are re-encoded
+        FixedBitSet sparse = new FixedBitSet(maxDoc);
+        for (int doc = randomIntBetween(0, 99); doc < maxDoc; doc += 100) {
+            sparse.set(doc);
+        }
+        BitSet compacted = BitsetFilterCache.compact(sparse);
+        assertThat(compacted, instanceOf(RoaringBitSet.class));
+        assertThat(compacted.cardinality(), equalTo(sparse.cardinality()));
+        assertThat(compacted.ramBytesUsed(), lessThan(sparse.ramBytesUsed()));
+
+        // so are dense matches made of few long runs, like filters on the sort field of a sorted index
+        FixedBitSet runs = new FixedBitSet(maxDoc);
+        runs.set(randomIntBetween(0, 99), maxDoc - randomIntBetween(0, 99));
+        compacted = BitsetFilterCache.compact(runs);
+        assertThat(compacted, instanceOf(RoaringBitSet.class));
+        assertThat(compacted.cardinality(), equalTo(runs.cardinality()));
+
+        // dense matches are kept as they are
+        FixedBitSet dense = new FixedBitSet(maxDoc);
+        for (int doc = 0; doc < maxDoc; doc += 2) {
+            dense.set(doc);
+        }
+        assertSame(dense, BitsetFilterCache.compact(dense));
+
+        // small segments are not worth it
+        FixedBitSet small = new FixedBitSet(randomIntBetween(1, BitsetFilterCache.MIN_ROARING_LENGTH - 1));
+        small.set(0);
+        assertSame(small, BitsetFilterCache.compact(small));
+    }
+
     public void testSetNullListener() {
         try {
             new BitsetFilterCache(INDEX_SETTINGS, null);
@@ -0,0 +1,166 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.index.codec.vectors;
+
+import org.apache.lucene.codecs.Codec;
+import org.apache.lucene.codecs.FilterCodec;
+import org.apache.lucene.codecs.KnnVectorsFormat;
+import org.apache.lucene.codecs.lucene100.Lucene100Codec;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.KnnFloatVectorField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.FloatVectorValues;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.KnnVectorValues;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.VectorSimilarityFunction;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.tests.index.BaseKnnVectorsFormatTestCase;
+import org.elasticsearch.common.logging.LogConfigurator;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.apache.lucene.search.DocIdSetIterator.NO_MORE_DOCS;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.startsWith;
+
+public class ES817IvfBinaryQuantizedVectorsFormatTests extends BaseKnnVectorsFormatTestCase {
+
+    static {
+        LogConfigurator.loadLog4jPlugins();
+        LogConfigurator.configureESLogging(); // native access requires logging to be initialized
+    }
+
+    @Override
+    protected Codec getCodec() {
+        return codec(new ES817IvfBinaryQuantizedVectorsFormat());
+    }
+
+    private static Codec codec(KnnVectorsFormat format) {
+        return new Lucene100Codec() {
+            @Override
+            public KnnVectorsFormat getKnnVectorsFormatForField(String field) {
+                return format;
+            }
+        };
+    }
+
+    public void testToString() {
+        FilterCodec customCodec = new FilterCodec("foo", Codec.getDefault()) {
+            @Override
+            public KnnVectorsFormat knnVectorsFormat() {
+                return new ES817IvfBinaryQuantizedVectorsFormat(128);
+            }
+        };
+        assertThat(
+            customCodec.knnVectorsFormat().toString(),
+            startsWith("ES817IvfBinaryQuantizedVectorsFormat(name=ES817IvfBinaryQuantizedVectorsFormat, vectorsPerCluster=128, ")
+        );
+    }
+
+    public void testLimits() {
+        expectThrows(IllegalArgumentException.class, () -> new ES817IvfBinaryQuantizedVectorsFormat(-1));
+        expectThrows(IllegalArgumentException.class, () -> new ES817IvfBinaryQuantizedVectorsFormat(0));
+        expectThrows(IllegalArgumentException.class, () -> new ES817IvfBinaryQuantizedVectorsFormat(63));
+        expectThrows(IllegalArgumentException.class, () -> new ES817IvfBinaryQuantizedVectorsFormat((1 << 16) + 1));
+    }
+
+    @Override
+    public void testRandomWithUpdatesAndGraph() {
+        // graph not supported
+    }
+
+    @Override
+    public void testSearchWithVisitedLimit() {
+        // the visited limit is only checked between partitions
+    }
+
+    public void testSingleVectorCase() throws Exception {
+        float[] vector = randomVector(random().nextInt(12, 500));
+        for (VectorSimilarityFunction similarityFunction : VectorSimilarityFunction.values()) {
+            try (Directory dir = newDirectory(); IndexWriter w = new IndexWriter(dir, newIndexWriterConfig())) {
+                Document doc = new Document();
+                doc.add(new KnnFloatVectorField("f", vector, similarityFunction));
+                w.addDocument(doc);
+                w.commit();
+                try (IndexReader reader = DirectoryReader.open(w)) {
+                    LeafReader r = getOnlyLeafReader(reader);
+                    FloatVectorValues vectorValues = r.getFloatVectorValues("f");
+                    KnnVectorValues.DocIndexIterator docIndexIterator = vectorValues.iterator();
+                    assertEquals(1, vectorValues.size());
+                    while (docIndexIterator.nextDoc() != NO_MORE_DOCS) {
+                        assertArrayEquals(vector, vectorValues.vectorValue(docIndexIterator.index()), 0.00001f);
+                    }
+                    TopDocs td = r.searchNearestVectors("f", randomVector(vector.length), 1, null, Integer.MAX_VALUE);
+                    assertEquals(1, td.totalHits.value());
+                    assertTrue(td.scoreDocs[0].score >= 0);
+                }
+            }
+        }
+    }
+
+    public void testSearchAcrossPartitions() throws IOException {
+        String fieldName = "field";
+        int numVectors = random().nextInt(1000, 2000);
+        int dims = random().nextInt(4, 128);
+        VectorSimilarityFunction similarityFunction = randomSimilarity();
+        Codec codec = codec(new ES817IvfBinaryQuantizedVectorsFormat(ES817IvfBinaryQuantizedVectorsFormat.MIN_VECTORS_PER_CLUSTER));
+        try (Directory dir = newDirectory(); IndexWriter w = new IndexWriter(dir, newIndexWriterConfig().setCodec(codec))) {
+            for (int i = 0; i < numVectors; i++) {
+                Document doc = new Document();
+                doc.add(new KnnFloatVectorField(fieldName, randomVector(dims), similarityFunction));
+                w.addDocument(doc);
+                if (i % 301 == 0) {
+                    w.commit();
+                }
+            }
+            // merging re-partitions the vectors of all segments
+            w.forceMerge(1);
+
+            try (IndexReader reader = DirectoryReader.open(w)) {
+                LeafReader r = getOnlyLeafReader(reader);
+                float[] query = randomVector(dims);
+                Map<Integer, Float> expectedScores = new HashMap<>();
+                FloatVectorValues vectorValues = r.getFloatVectorValues(fieldName);
+                KnnVectorValues.DocIndexIterator iterator = vectorValues.iterator();
+                for (int doc = iterator.nextDoc(); doc != NO_MORE_DOCS; doc = iterator.nextDoc()) {
+                    expectedScores.put(doc, similarityFunction.compare(query, vectorValues.vectorValue(iterator.index())));
+                }
+
+                // the candidates are rescored with the raw vectors
+                int k = random().nextInt(1, 20);
+                TopDocs topDocs = r.searchNearestVectors(fieldName, query, k, null, Integer.MAX_VALUE);
+                assertEquals(k, topDocs.scoreDocs.length);
+                for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                    assertEquals(expectedScores.get(scoreDoc.doc), scoreDoc.score, 0f);
+                }
+
+                // asking for as many candidates as there are vectors probes all partitions and is exact
+                topDocs = r.searchNearestVectors(fieldName, query, numVectors, null, Integer.MAX_VALUE);
+                Integer[] expectedDocs = expectedScores.keySet().toArray(new Integer[0]);
+                Arrays.sort(
+                    expectedDocs,
+                    Comparator.comparing((Integer doc) -> expectedScores.get(doc)).reversed().thenComparing(Comparator.naturalOrder())
+                );
+                assertThat(topDocs.scoreDocs.length, equalTo(numVectors));
+                for (int i = 0; i < 10; i++) {
+                    assertEquals(expectedDocs[i].intValue(), topDocs.scoreDocs[i].doc);
+                }
+            }
+        }
+    }
+}
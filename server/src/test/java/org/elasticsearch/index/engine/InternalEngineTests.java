@@ -455,6 +455,32 @@ public class InternalEngineTests extends EngineTestCase {
         }
     }
 
+    public void testIdFilterMemoryInSegmentsStats() throws Exception {
+        Settings.Builder settings = Settings.builder()
+            .put(defaultSettings.getSettings())
+            .put(IndexSettings.ID_FILTER_ENABLED_SETTING.getKey(), true);
+        final IndexMetadata indexMetadata = IndexMetadata.builder(defaultSettings.getIndexMetadata()).settings(settings).build();
+        final IndexSettings indexSettings = IndexSettingsModule.newIndexSettings(indexMetadata);
+        try (Store store = createStore(); Engine engine = createEngine(indexSettings, store, createTempDir(), NoMergePolicy.INSTANCE)) {
+            ParsedDocument doc = testParsedDocument("1", null, testDocumentWithTextField(), B_1, null);
+            engine.index(appendOnlyPrimary(doc, false, 1));
+            engine.refresh("test");
+            // retries of operations with auto-generated ids look up the index without building filters
+            engine.index(appendOnlyPrimary(doc, true, 1));
+            engine.refresh("test");
+            assertThat(engine.segmentsStats(false, false).getIdFilterMemoryInBytes(), equalTo(0L));
+
+            engine.index(indexForDoc(testParsedDocument("2", null, testDocumentWithTextField(), B_2, null)));
+            assertThat(engine.segmentsStats(false, false).getIdFilterMemoryInBytes(), greaterThan(0L));
+        }
+        try (Store store = createStore(); Engine engine = createEngine(defaultSettings, store, createTempDir(), NoMergePolicy.INSTANCE)) {
+            engine.index(indexForDoc(testParsedDocument("1", null, testDocumentWithTextField(), B_1, null)));
+            engine.refresh("test");
+            engine.index(indexForDoc(testParsedDocument("2", null, testDocumentWithTextField(), B_2, null)));
+            assertThat(engine.segmentsStats(false, false).getIdFilterMemoryInBytes(), equalTo(0L));
+        }
+    }
+
     public void testSegments() throws Exception {
         final AtomicLong globalCheckpoint = new AtomicLong(SequenceNumbers.NO_OPS_PERFORMED);
         try (
@@ -109,6 +109,20 @@ public class DotExpandingXContentParserTests extends ESTestCase {
 
     }
 
+    public void testKnownSubpaths() throws IOException {
+        Map<String, String[]> knownSubpaths = Map.of("test.with.dots", new String[] { "test", "with", "dots" });
+        try (
+            XContentParser parser = DotExpandingXContentParser.expandDots(createParser(JsonXContent.jsonXContent, """
+                {"test.with.dots":"value","other.dots":"value2"}\
+                """), new ContentPath(), knownSubpaths)
+        ) {
+            XContentBuilder actualOutput = XContentBuilder.builder(JsonXContent.jsonXContent).copyCurrentStructure(parser);
+            assertEquals("""
+                {"test":{"with":{"dots":"value"}},"other":{"dots":"value2"}}\
+                """, Strings.toString(actualOutput));
+        }
+    }
+
     public void testTrailingDotsAreStripped() throws IOException {
 
         assertXContentMatches("""
@@ -116,6 +116,22 @@ public class MappingLookupTests extends ESTestCase {
         );
     }
 
+    public void testDottedFieldNames() {
+        MappingLookup mappingLookup = createMappingLookup(
+            List.of(new MockFieldMapper("host.os.name"), new MockFieldMapper("message")),
+            emptyList(),
+            emptyList()
+        );
+        Map<String, String[]> dottedFieldNames = mappingLookup.dottedFieldNames();
+        assertEquals(2, dottedFieldNames.size());
+        assertArrayEquals(new String[] { "host", "os", "name" }, dottedFieldNames.get("host.os.name"));
+        assertArrayEquals(new String[] { "os", "name" }, dottedFieldNames.get("os.name"));
+        assertNull(dottedFieldNames.get("message"));
+        for (String part : dottedFieldNames.get("host.os.name")) {
+            assertSame(part.intern(), part);
+        }
+    }
+
     public void testEmptyMappingLookup() {
         MappingLookup mappingLookup = MappingLookup.EMPTY;
         assertEquals("{\"_doc\":{}}", Strings.toString(mappingLookup.getMapping()));
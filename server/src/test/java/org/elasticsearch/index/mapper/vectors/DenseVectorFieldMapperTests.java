@@ -1228,7 +1228,7 @@ public class DenseVectorFieldMapperTests extends MapperTestCase {
             containsString("Failed to parse mapping: Mapping definition for [field] has unsupported parameters:  [foo : {}]")
         );
         List<String> floatOnlyQuantizations = new ArrayList<>(
-            Arrays.asList("int4_hnsw", "int8_hnsw", "int8_flat", "int4_flat", "bbq_hnsw", "bbq_flat")
+            Arrays.asList("int4_hnsw", "int8_hnsw", "int8_flat", "int4_flat", "bbq_hnsw", "bbq_flat", "ivf_bbq")
         );
         for (String quantizationKind : floatOnlyQuantizations) {
             e = expectThrows(
@@ -1980,8 +1980,52 @@ public class DenseVectorFieldMapperTests extends MapperTestCase {
         assertEquals(expectedString, knnVectorsFormat.toString());
     }
 
+    public void testKnnIvfBBQVectorsFormat() throws IOException {
+        final int vectorsPerCluster = randomIntBetween(64, 4096);
+        final int dims = randomIntBetween(64, 4096);
+        MapperService mapperService = createMapperService(fieldMapping(b -> {
+            b.field("type", "dense_vector");
+            b.field("dims", dims);
+            b.field("index", true);
+            b.field("similarity", "dot_product");
+            b.startObject("index_options");
+            b.field("type", "ivf_bbq");
+            b.field("vectors_per_cluster", vectorsPerCluster);
+            b.endObject();
+        }));
+        CodecService codecService = new CodecService(mapperService, BigArrays.NON_RECYCLING_INSTANCE);
+        Codec codec = codecService.codec("default");
+        KnnVectorsFormat knnVectorsFormat;
+        if (CodecService.ZSTD_STORED_FIELDS_FEATURE_FLAG.isEnabled()) {
+            assertThat(codec, instanceOf(PerFieldMapperCodec.class));
+            knnVectorsFormat = ((PerFieldMapperCodec) codec).getKnnVectorsFormatForField("field");
+        } else {
+            if (codec instanceof CodecService.DeduplicateFieldInfosCodec deduplicateFieldInfosCodec) {
+                codec = deduplicateFieldInfosCodec.delegate();
+            }
+            assertThat(codec, instanceOf(LegacyPerFieldMapperCodec.class));
+            knnVectorsFormat = ((LegacyPerFieldMapperCodec) codec).getKnnVectorsFormatForField("field");
+        }
+        String expectedString = "ES817IvfBinaryQuantizedVectorsFormat(name=ES817IvfBinaryQuantizedVectorsFormat, vectorsPerCluster="
+            + vectorsPerCluster
+            + ", rawVectorFormat=Lucene99FlatVectorsFormat(vectorsScorer=DefaultFlatVectorScorer()))";
+        assertEquals(expectedString, knnVectorsFormat.toString());
+
+        Exception e = expectThrows(MapperParsingException.class, () -> createMapperService(fieldMapping(b -> {
+            b.field("type", "dense_vector");
+            b.field("dims", dims);
+            b.field("index", true);
+            b.field("similarity", "dot_product");
+            b.startObject("index_options");
+            b.field("type", "ivf_bbq");
+            b.field("vectors_per_cluster", randomIntBetween(1, 63));
+            b.endObject();
+        })));
+        assertThat(e.getMessage(), containsString("[vectors_per_cluster] must be between 64 and 65536"));
+    }
+
     public void testInvalidVectorDimensionsBBQ() {
-        for (String quantizedFlatFormat : new String[] { "bbq_hnsw", "bbq_flat" }) {
+        for (String quantizedFlatFormat : new String[] { "bbq_hnsw", "bbq_flat", "ivf_bbq" }) {
             MapperParsingException e = expectThrows(MapperParsingException.class, () -> createDocumentMapper(fieldMapping(b -> {
                 b.field("type", "dense_vector");
                 b.field("dims", randomIntBetween(1, 63));
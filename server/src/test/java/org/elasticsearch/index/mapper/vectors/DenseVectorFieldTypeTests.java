@@ -23,6 +23,8 @@ import org.elasticsearch.index.mapper.vectors.DenseVectorFieldMapper.DenseVector
 import org.elasticsearch.index.mapper.vectors.DenseVectorFieldMapper.VectorSimilarity;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.vectors.DenseVectorQuery;
+import org.elasticsearch.search.vectors.RescoreKnnVectorQuery;
+import org.elasticsearch.search.vectors.RescoreVectorBuilder;
 import org.elasticsearch.search.vectors.VectorData;
 
 import java.io.IOException;
@@ -65,7 +67,8 @@ public class DenseVectorFieldTypeTests extends FieldTypeTestCase {
             new DenseVectorFieldMapper.Int8FlatIndexOptions(randomFrom((Float) null, 0f, (float) randomDoubleBetween(0.9, 1.0, true))),
             new DenseVectorFieldMapper.Int4FlatIndexOptions(randomFrom((Float) null, 0f, (float) randomDoubleBetween(0.9, 1.0, true))),
             new DenseVectorFieldMapper.BBQHnswIndexOptions(randomIntBetween(1, 100), randomIntBetween(1, 10_000)),
-            new DenseVectorFieldMapper.BBQFlatIndexOptions()
+            new DenseVectorFieldMapper.BBQFlatIndexOptions(),
+            new DenseVectorFieldMapper.IvfBBQIndexOptions(randomIntBetween(64, 10_000))
         );
     }
 
@@ -297,6 +300,56 @@ public class DenseVectorFieldTypeTests extends FieldTypeTestCase {
         assertThat(e.getMessage(), containsString("The [cosine] similarity does not support vectors with zero magnitude."));
     }
 
+    public void testRescoreVectorCreateKnnQuery() {
+        float[] queryVector = new float[BBQ_MIN_DIMS];
+        for (int i = 0; i < BBQ_MIN_DIMS; i++) {
+            queryVector[i] = randomFloat();
+        }
+        DenseVectorFieldType quantizedField = new DenseVectorFieldType(
+            "f",
+            IndexVersion.current(),
+            DenseVectorFieldMapper.ElementType.FLOAT,
+            BBQ_MIN_DIMS,
+            true,
+            VectorSimilarity.L2_NORM,
+            randomFrom(
+                new DenseVectorFieldMapper.Int8HnswIndexOptions(randomIntBetween(1, 100), randomIntBetween(1, 10_000), null),
+                new DenseVectorFieldMapper.Int4HnswIndexOptions(randomIntBetween(1, 100), randomIntBetween(1, 10_000), null),
+                new DenseVectorFieldMapper.BBQHnswIndexOptions(randomIntBetween(1, 100), randomIntBetween(1, 10_000))
+            ),
+            Collections.emptyMap()
+        );
+        Query query = quantizedField.createKnnQuery(
+            VectorData.fromFloats(queryVector),
+            10,
+            20,
+            null,
+            null,
+            null,
+            new RescoreVectorBuilder(3f)
+        );
+        assertThat(query, instanceOf(RescoreKnnVectorQuery.class));
+        RescoreKnnVectorQuery rescoreQuery = (RescoreKnnVectorQuery) query;
+        assertEquals(10, rescoreQuery.k());
+        assertThat(rescoreQuery.innerQuery(), instanceOf(KnnFloatVectorQuery.class));
+        // k * oversample candidates are gathered with the quantized vectors
+        assertEquals(30, ((KnnFloatVectorQuery) rescoreQuery.innerQuery()).getK());
+
+        // fields that index raw vectors ignore the option
+        DenseVectorFieldType rawField = new DenseVectorFieldType(
+            "f",
+            IndexVersion.current(),
+            DenseVectorFieldMapper.ElementType.FLOAT,
+            BBQ_MIN_DIMS,
+            true,
+            VectorSimilarity.L2_NORM,
+            randomIndexOptionsNonQuantized(),
+            Collections.emptyMap()
+        );
+        query = rawField.createKnnQuery(VectorData.fromFloats(queryVector), 10, 20, null, null, null, new RescoreVectorBuilder(3f));
+        assertThat(query, instanceOf(KnnFloatVectorQuery.class));
+    }
+
     public void testCreateKnnQueryMaxDims() {
         {   // float type with 4096 dims
             DenseVectorFieldType fieldWith4096dims = new DenseVectorFieldType(
@@ -10,9 +10,14 @@
 package org.elasticsearch.indices;
 
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.ConstantScoreQuery;
 import org.apache.lucene.search.ConstantScoreScorer;
 import org.apache.lucene.search.ConstantScoreWeight;
 import org.apache.lucene.search.DocIdSetIterator;
@@ -24,8 +29,13 @@ import org.apache.lucene.search.QueryVisitor;
 import org.apache.lucene.search.ScoreMode;
 import org.apache.lucene.search.Scorer;
 import org.apache.lucene.search.ScorerSupplier;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.Weight;
 import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BitDocIdSet;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.RoaringDocIdSet;
 import org.elasticsearch.common.lucene.index.ElasticsearchDirectoryReader;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.core.IOUtils;
@@ -36,6 +46,8 @@ import org.elasticsearch.test.ESTestCase;
 
 import java.io.IOException;
 
+import static org.hamcrest.Matchers.lessThan;
+
 public class IndicesQueryCacheTests extends ESTestCase {
 
     private static class DummyQuery extends Query {
@@ -374,6 +386,55 @@ public class IndicesQueryCacheTests extends ESTestCase {
 
     }
 
+    public void testRoaringDocIdSetsOnlyWithCostAwareAdmission() throws IOException {
+        Directory dir = newDirectory();
+        IndexWriter w = new IndexWriter(dir, new IndexWriterConfig());
+        int maxDoc = 1000;
+        // a density of about 3%: Lucene caches it as a bitset, while it is below 1/ROARING_DENSITY_DIVISOR
+        RoaringDocIdSet.Builder roaringBuilder = new RoaringDocIdSet.Builder(maxDoc);
+        FixedBitSet bitSet = new FixedBitSet(maxDoc);
+        for (int i = 0; i < maxDoc; i++) {
+            Document doc = new Document();
+            if (i % 33 == 0) {
+                doc.add(new StringField("field", "value", Field.Store.NO));
+                roaringBuilder.add(i);
+                bitSet.set(i);
+            }
+            w.addDocument(doc);
+        }
+        w.forceMerge(1);
+        DirectoryReader r = DirectoryReader.open(w);
+        w.close();
+        ShardId shard = new ShardId("index", "_na_", 0);
+        r = ElasticsearchDirectoryReader.wrap(r, shard);
+        RoaringDocIdSet roaringSet = roaringBuilder.build();
+        BitDocIdSet bitDocIdSet = new BitDocIdSet(bitSet, roaringSet.cardinality());
+        assertThat(roaringSet.ramBytesUsed(), lessThan(bitDocIdSet.ramBytesUsed()));
+
+        long[] memorySizes = new long[2];
+        for (boolean costAwareAdmission : new boolean[] { false, true }) {
+            IndexSearcher s = new IndexSearcher(r);
+            s.setQueryCachingPolicy(TrivialQueryCachingPolicy.ALWAYS);
+            Settings settings = Settings.builder()
+                .put(IndicesQueryCache.INDICES_QUERIES_CACHE_ALL_SEGMENTS_SETTING.getKey(), true)
+                .put(IndicesQueryCache.INDICES_QUERIES_CACHE_COST_AWARE_ADMISSION_SETTING.getKey(), costAwareAdmission)
+                .build();
+            IndicesQueryCache cache = new IndicesQueryCache(settings);
+            s.setQueryCache(cache);
+            // the term query is cached as the inner query of the constant score query
+            TopDocs topDocs = s.search(new ConstantScoreQuery(new TermQuery(new Term("field", "value"))), 1);
+            assertEquals(roaringSet.cardinality(), topDocs.totalHits.value());
+            QueryCacheStats stats = cache.getStats(shard);
+            assertEquals(1L, stats.getCacheSize());
+            memorySizes[costAwareAdmission ? 1 : 0] = stats.getMemorySizeInBytes();
+            cache.onClose(shard);
+            cache.close();
+        }
+        // both caches hold the same entry, only the doc id set it is stored as differs
+        assertEquals(roaringSet.ramBytesUsed() - bitDocIdSet.ramBytesUsed(), memorySizes[1] - memorySizes[0]);
+        IOUtils.close(r, dir);
+    }
+
     public void testDelegatesScorerSupplier() throws Exception {
         Directory dir = newDirectory();
         IndexWriter w = new IndexWriter(dir, newIndexWriterConfig());
@@ -30,6 +30,7 @@ import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.lucene.index.ElasticsearchDirectoryReader;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.core.IOUtils;
 import org.elasticsearch.index.cache.request.ShardRequestCache;
@@ -41,6 +42,8 @@ import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.xcontent.XContentType;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -346,6 +349,111 @@ public class IndicesRequestCacheTests extends ESTestCase {
         IOUtils.close(reader, secondReader, thirdReader, writer, dir, cache);
     }
 
+    public void testSpillToDiskTier() throws Exception {
+        MappingLookup.CacheKey mappingKey = MappingLookup.EMPTY.cacheKey();
+        Path dataPath = createTempDir();
+        // a heap tier that is too small for a single entry, so that every entry is spilled to disk right away
+        IndicesRequestCache cache = new IndicesRequestCache(
+            Settings.builder()
+                .put(IndicesRequestCache.INDICES_CACHE_QUERY_SIZE.getKey(), "1b")
+                .put(IndicesRequestCache.INDICES_CACHE_QUERY_DISK_SIZE.getKey(), "1mb")
+                .build(),
+            dataPath,
+            EsExecutors.DIRECT_EXECUTOR_SERVICE
+        );
+        AtomicBoolean indexShard = new AtomicBoolean(true);
+        ShardRequestCache requestCacheStats = new ShardRequestCache();
+        Directory dir = newDirectory();
+        IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig());
+
+        writer.addDocument(newDoc(0, "foo"));
+        DirectoryReader reader = ElasticsearchDirectoryReader.wrap(DirectoryReader.open(writer), new ShardId("foo", "bar", 1));
+        TermQueryBuilder termQuery = new TermQueryBuilder("id", "0");
+        BytesReference termBytes = XContentHelper.toXContent(termQuery, XContentType.JSON, false);
+        TestEntity entity = new TestEntity(requestCacheStats, indexShard);
+
+        Loader loader = new Loader(reader, 0);
+        BytesReference value = cache.getOrCompute(entity, loader, mappingKey, reader, termBytes);
+        assertEquals("foo", value.streamInput().readString());
+        assertFalse(loader.loadedFromCache);
+        assertEquals(0, cache.count());
+        assertEquals(1, cache.diskCount());
+        assertEquals(1, requestCacheStats.stats().getMissCount());
+        assertEquals(1, requestCacheStats.stats().getEvictions());
+
+        // served from the disk tier without loading again
+        loader = new Loader(reader, 0);
+        value = cache.getOrCompute(entity, loader, mappingKey, reader, termBytes);
+        assertEquals("foo", value.streamInput().readString());
+        assertTrue(loader.loadedFromCache);
+        assertEquals(1, cache.diskCount());
+        assertEquals(1, requestCacheStats.stats().getHitCount());
+        assertEquals(1, requestCacheStats.stats().getMissCount());
+
+        // invalidation covers both tiers
+        cache.invalidate(entity, mappingKey, reader, termBytes);
+        assertEquals(0, cache.diskCount());
+        loader = new Loader(reader, 0);
+        value = cache.getOrCompute(entity, loader, mappingKey, reader, termBytes);
+        assertFalse(loader.loadedFromCache);
+        assertEquals(1, cache.diskCount());
+
+        // closing the reader cleans the disk tier too
+        reader.close();
+        cache.cleanCache();
+        assertEquals(0, cache.count());
+        assertEquals(0, cache.diskCount());
+        try (var files = Files.list(dataPath.resolve(IndicesRequestCache.DISK_TIER_FOLDER))) {
+            assertEquals(0, files.count());
+        }
+        assertEquals(0L, requestCacheStats.stats().getMemorySize().getBytes());
+
+        IOUtils.close(writer, dir, cache);
+        assertFalse(Files.exists(dataPath.resolve(IndicesRequestCache.DISK_TIER_FOLDER)));
+    }
+
+    public void testInvalidateRacingWithSpill() throws Exception {
+        MappingLookup.CacheKey mappingKey = MappingLookup.EMPTY.cacheKey();
+        List<Runnable> spills = new ArrayList<>();
+        IndicesRequestCache cache = new IndicesRequestCache(
+            Settings.builder()
+                .put(IndicesRequestCache.INDICES_CACHE_QUERY_SIZE.getKey(), "1b")
+                .put(IndicesRequestCache.INDICES_CACHE_QUERY_DISK_SIZE.getKey(), "1mb")
+                .build(),
+            createTempDir(),
+            spills::add
+        );
+        AtomicBoolean indexShard = new AtomicBoolean(true);
+        ShardRequestCache requestCacheStats = new ShardRequestCache();
+        Directory dir = newDirectory();
+        IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig());
+
+        writer.addDocument(newDoc(0, "foo"));
+        DirectoryReader reader = ElasticsearchDirectoryReader.wrap(DirectoryReader.open(writer), new ShardId("foo", "bar", 1));
+        TermQueryBuilder termQuery = new TermQueryBuilder("id", "0");
+        BytesReference termBytes = XContentHelper.toXContent(termQuery, XContentType.JSON, false);
+        TestEntity entity = new TestEntity(requestCacheStats, indexShard);
+
+        cache.getOrCompute(entity, new Loader(reader, 0), mappingKey, reader, termBytes);
+        assertEquals(0, cache.count());
+        assertEquals(1, spills.size());
+        assertEquals(0, cache.diskCount());
+
+        // the entry is invalidated after it was evicted from the heap but before it was written to disk
+        cache.invalidate(entity, mappingKey, reader, termBytes);
+        spills.remove(0).run();
+        assertEquals(0, cache.diskCount());
+
+        Loader loader = new Loader(reader, 0);
+        cache.getOrCompute(entity, loader, mappingKey, reader, termBytes);
+        assertFalse(loader.loadedFromCache);
+        spills.remove(0).run();
+        assertEquals(1, cache.diskCount());
+
+        reader.close();
+        IOUtils.close(writer, dir, cache);
+    }
+
     public void testClearAllEntityIdentity() throws Exception {
         IndicesRequestCache cache = new IndicesRequestCache(Settings.EMPTY);
         AtomicBoolean indexShard = new AtomicBoolean(true);
@@ -0,0 +1,93 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.indices;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.TermQuery;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class QueryCacheAdmissionPolicyTests extends ESTestCase {
+
+    public void testShape() {
+        assertEquals(
+            QueryCacheAdmissionPolicy.Shape.of(new TermQuery(new Term("field", "foo"))),
+            QueryCacheAdmissionPolicy.Shape.of(new TermQuery(new Term("field", "bar")))
+        );
+        assertNotEquals(
+            QueryCacheAdmissionPolicy.Shape.of(new TermQuery(new Term("field", "foo"))),
+            QueryCacheAdmissionPolicy.Shape.of(new TermQuery(new Term("other", "foo")))
+        );
+        BooleanQuery query = new BooleanQuery.Builder().add(new TermQuery(new Term("b", "foo")), BooleanClause.Occur.FILTER)
+            .add(new TermQuery(new Term("a", "foo")), BooleanClause.Occur.FILTER)
+            .build();
+        assertEquals(new QueryCacheAdmissionPolicy.Shape(BooleanQuery.class, "a,b"), QueryCacheAdmissionPolicy.Shape.of(query));
+    }
+
+    public void testAdmitsEverythingBelowCapacity() {
+        AtomicLong ramBytesUsed = new AtomicLong(0);
+        QueryCacheAdmissionPolicy policy = new QueryCacheAdmissionPolicy(ramBytesUsed::get, 1000, System::nanoTime);
+        TermQuery cheap = new TermQuery(new Term("cheap", "foo"));
+        for (int i = 0; i < QueryCacheAdmissionPolicy.MIN_BUILDS * 2; i++) {
+            policy.onBuild(cheap, 1, 100);
+        }
+        assertTrue(policy.admit(cheap));
+    }
+
+    public void testRejectsShapesWithLowBenefitWhenFull() {
+        AtomicLong ramBytesUsed = new AtomicLong(1000);
+        QueryCacheAdmissionPolicy policy = new QueryCacheAdmissionPolicy(ramBytesUsed::get, 1000, System::nanoTime);
+        TermQuery expensive = new TermQuery(new Term("expensive", "foo"));
+        TermQuery cheap = new TermQuery(new Term("cheap", "foo"));
+        TermQuery unknown = new TermQuery(new Term("unknown", "foo"));
+        for (int i = 0; i < QueryCacheAdmissionPolicy.MIN_BUILDS; i++) {
+            policy.onBuild(expensive, 1_000_000, 100);
+            policy.onHit(expensive);
+            // not judged before it was built often enough
+            assertTrue(policy.admit(cheap));
+            policy.onBuild(cheap, 10, 100_000);
+        }
+        policy.onHit(cheap);
+        assertEquals(2, policy.numShapes());
+
+        assertTrue(policy.admit(expensive));
+        assertTrue(policy.admit(unknown));
+        int admitted = 0;
+        for (int i = 0; i < QueryCacheAdmissionPolicy.EXPLORE_INTERVAL * 4; i++) {
+            if (policy.admit(cheap)) {
+                admitted++;
+            }
+        }
+        // rejected shapes are still admitted once in a while so that their statistics can recover
+        assertEquals(4, admitted);
+    }
+
+    public void testAdmitsWithoutReuseStatistics() {
+        AtomicLong ramBytesUsed = new AtomicLong(1000);
+        QueryCacheAdmissionPolicy policy = new QueryCacheAdmissionPolicy(ramBytesUsed::get, 1000, System::nanoTime);
+        TermQuery query = new TermQuery(new Term("field", "foo"));
+        for (int i = 0; i < QueryCacheAdmissionPolicy.MIN_BUILDS; i++) {
+            policy.onBuild(query, 10, 0);
+        }
+        // no bytes recorded yet, so there is no average to compare against
+        assertTrue(policy.admit(query));
+    }
+
+    public void testMaxShapes() {
+        QueryCacheAdmissionPolicy policy = new QueryCacheAdmissionPolicy(() -> 0, 1000, System::nanoTime);
+        for (int i = 0; i < QueryCacheAdmissionPolicy.MAX_SHAPES + 10; i++) {
+            policy.onBuild(new TermQuery(new Term("field" + i, "foo")), 10, 10);
+        }
+        assertEquals(QueryCacheAdmissionPolicy.MAX_SHAPES, policy.numShapes());
+    }
+}
@@ -13,11 +13,13 @@ import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.test.ESTestCase;
 import org.junit.Before;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.LongSupplier;
 
 import static org.hamcrest.Matchers.equalTo;
@@ -595,6 +597,109 @@ public class CompoundProcessorTests extends ESTestCase {
         assertThat(failureProcessor2.getInvokedCounter(), equalTo(1));
     }
 
+    public void testExecuteBatch() {
+        TestBatchProcessor processor1 = new TestBatchProcessor(doc -> {
+            if (doc.hasField("fail")) {
+                throw new RuntimeException("failed");
+            }
+            if (doc.hasField("drop")) {
+                return null;
+            }
+            if (doc.hasField("reroute")) {
+                doc.reroute("foo");
+            }
+            doc.setFieldValue("first", true);
+            return doc;
+        });
+        TestProcessor processor2 = new TestProcessor(doc -> doc.setFieldValue("second", true));
+        LongSupplier relativeTimeProvider = mock(LongSupplier.class);
+        when(relativeTimeProvider.getAsLong()).thenReturn(0L);
+        CompoundProcessor compoundProcessor = new CompoundProcessor(
+            false,
+            List.of(processor1, processor2),
+            List.of(),
+            relativeTimeProvider
+        );
+
+        List<IngestDocument> documents = List.of(
+            TestIngestDocument.withDefaultVersion(new HashMap<>()),
+            TestIngestDocument.withDefaultVersion(new HashMap<>(Map.of("fail", true))),
+            TestIngestDocument.withDefaultVersion(new HashMap<>(Map.of("drop", true))),
+            TestIngestDocument.withDefaultVersion(new HashMap<>(Map.of("reroute", true))),
+            TestIngestDocument.withDefaultVersion(new HashMap<>())
+        );
+        IngestDocument[] results = new IngestDocument[documents.size()];
+        Exception[] failures = new Exception[documents.size()];
+        int[] calls = new int[documents.size()];
+        compoundProcessor.executeBatch(documents, (slot, result, e) -> {
+            calls[slot]++;
+            results[slot] = result;
+            failures[slot] = e;
+        });
+
+        assertThat(calls, equalTo(new int[] { 1, 1, 1, 1, 1 }));
+        for (int slot : new int[] { 0, 4 }) {
+            assertThat(results[slot], sameInstance(documents.get(slot)));
+            assertThat(results[slot].getFieldValue("first", Boolean.class), is(true));
+            assertThat(results[slot].getFieldValue("second", Boolean.class), is(true));
+            assertThat(failures[slot], nullValue());
+        }
+        assertThat(results[1], nullValue());
+        assertThat(((ElasticsearchException) failures[1]).getRootCause().getMessage(), equalTo("failed"));
+        assertThat(results[2], nullValue());
+        assertThat(failures[2], nullValue());
+        // a rerouted document skips the remaining processors
+        assertThat(results[3], sameInstance(documents.get(3)));
+        assertThat(results[3].hasField("second"), is(false));
+
+        // the batch processor is called once for all the documents, the other processor once per remaining document
+        assertThat(processor1.batches, equalTo(1));
+        assertThat(processor1.getInvokedCounter(), equalTo(5));
+        assertThat(processor2.getInvokedCounter(), equalTo(2));
+        assertStats(0, compoundProcessor, 0, 5, 1, 0);
+        assertStats(1, compoundProcessor, 0, 2, 0, 0);
+    }
+
+    public void testExecuteBatchWithOnFailureProcessor() {
+        TestBatchProcessor processor = new TestBatchProcessor(doc -> {
+            if (doc.hasField("fail")) {
+                throw new RuntimeException("failed");
+            }
+            return doc;
+        });
+        TestProcessor onFailureProcessor = new TestProcessor(
+            doc -> doc.setFieldValue("error", doc.getIngestMetadata().get(CompoundProcessor.ON_FAILURE_MESSAGE_FIELD))
+        );
+        CompoundProcessor compoundProcessor = new CompoundProcessor(false, List.of(processor), List.of(onFailureProcessor));
+
+        List<IngestDocument> documents = List.of(
+            TestIngestDocument.withDefaultVersion(new HashMap<>(Map.of("fail", true))),
+            TestIngestDocument.withDefaultVersion(new HashMap<>())
+        );
+        IngestDocument[] results = new IngestDocument[documents.size()];
+        compoundProcessor.executeBatch(documents, (slot, result, e) -> {
+            assertThat(e, nullValue());
+            results[slot] = result;
+        });
+        assertThat(results[0].getFieldValue("error", String.class), equalTo("failed"));
+        assertThat(results[1].hasField("error"), is(false));
+        assertThat(onFailureProcessor.getInvokedCounter(), equalTo(1));
+    }
+
+    private static class TestBatchProcessor extends TestProcessor implements BatchProcessor {
+        private int batches;
+
+        TestBatchProcessor(Function<IngestDocument, IngestDocument> ingestDocumentMapper) {
+            super(null, "test-batch-processor", null, ingestDocumentMapper);
+        }
+
+        @Override
+        public void executeBatch(List<IngestDocument> documents, IngestDocument[] results, Exception[] failures) {
+            batches++;
+            BatchProcessor.super.executeBatch(documents, results, failures);
+        }
+    }
+
     private TestProcessor getTestProcessor(String tag, boolean isAsync, boolean shouldThrowException) {
         return new TestProcessor(tag, "test-processor", null, ingestDocument -> {
             if (shouldThrowException) throw new RuntimeException("Intentionally failing");
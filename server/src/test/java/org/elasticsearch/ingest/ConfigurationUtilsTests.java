@@ -280,6 +280,7 @@ public class ConfigurationUtilsTests extends ESTestCase {
             scriptService
         );
         assertThat(result.newInstance(null).execute(), equalTo(propertyValue));
+        assertThat(result, instanceOf(ConfigurationUtils.ConstantTemplateScriptFactory.class));
         verify(scriptService, times(0)).compile(any(), any());
     }
 
@@ -43,6 +43,7 @@ import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.cluster.service.ClusterStateTaskExecutorUtils;
 import org.elasticsearch.common.TriConsumer;
 import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.time.DateFormatter;
 import org.elasticsearch.common.util.Maps;
@@ -146,7 +147,7 @@ public class IngestServiceTests extends ESTestCase {
     public void testIngestPlugin() {
         Client client = mock(Client.class);
         IngestService ingestService = new IngestService(
-            mock(ClusterService.class),
+            mockClusterService(),
             threadPool,
             null,
             null,
@@ -166,7 +167,7 @@ public class IngestServiceTests extends ESTestCase {
         IllegalArgumentException e = expectThrows(
             IllegalArgumentException.class,
             () -> new IngestService(
-                mock(ClusterService.class),
+                mockClusterService(),
                 threadPool,
                 null,
                 null,
@@ -183,7 +184,7 @@ public class IngestServiceTests extends ESTestCase {
     public void testExecuteIndexPipelineDoesNotExist() {
         Client client = mock(Client.class);
         IngestService ingestService = new IngestService(
-            mock(ClusterService.class),
+            mockClusterService(),
             threadPool,
             null,
             null,
@@ -1219,6 +1220,79 @@ public class IngestServiceTests extends ESTestCase {
         verify(completionHandler, times(1)).accept(Thread.currentThread(), null);
     }
 
+    public void testExecuteInBatches() {
+        List<Integer> batchSizes = new ArrayList<>();
+        Processor.Factory factory = (factories, tag, description, config) -> new BatchTestProcessor(document -> {
+            if (document.hasField("fail")) {
+                throw new IllegalArgumentException("failed");
+            }
+            document.setFieldValue("batched", true);
+        }, batchSizes);
+        IngestService ingestService = createWithProcessors(
+            Map.of("batch", factory),
+            mockClusterService(Settings.builder().put(IngestSettings.BATCH_EXECUTION_ENABLED.getKey(), true).build())
+        );
+        PutPipelineRequest putRequest = putJsonPipelineRequest("_id", "{\"processors\": [{\"batch\" : {}}]}");
+        ClusterState clusterState = ClusterState.builder(new ClusterName("_name")).build(); // Start empty
+        ClusterState previousClusterState = clusterState;
+        clusterState = executePut(putRequest, clusterState);
+        ingestService.applyClusterState(new ClusterChangedEvent("", clusterState, previousClusterState));
+
+        int numRequests = randomIntBetween(2, 50);
+        int failingSlot = randomIntBetween(0, numRequests - 1);
+        List<DocWriteRequest<?>> requests = new ArrayList<>(numRequests);
+        for (int i = 0; i < numRequests; i++) {
+            requests.add(
+                new IndexRequest("_index").id(Integer.toString(i))
+                    .source(i == failingSlot ? Map.of("fail", true) : Map.of())
+                    .setPipeline("_id")
+                    .setFinalPipeline("_none")
+            );
+        }
+        @SuppressWarnings("unchecked")
+        final BiConsumer<Integer, Exception> failureHandler = mock(BiConsumer.class);
+        @SuppressWarnings("unchecked")
+        final BiConsumer<Thread, Exception> completionHandler = mock(BiConsumer.class);
+        ingestService.executeBulkRequest(
+            numRequests,
+            requests,
+            indexReq -> {},
+            (s) -> false,
+            (slot, targetIndex, e) -> fail("Should not be redirecting failures"),
+            failureHandler,
+            completionHandler,
+            EsExecutors.DIRECT_EXECUTOR_SERVICE
+        );
+        // all the documents went through the processor in a single call
+        assertThat(batchSizes, equalTo(List.of(numRequests)));
+        verify(failureHandler, times(1)).accept(eq(failingSlot), any(IngestProcessorException.class));
+        verify(completionHandler, times(1)).accept(Thread.currentThread(), null);
+        for (int i = 0; i < numRequests; i++) {
+            if (i != failingSlot) {
+                assertThat(((IndexRequest) requests.get(i)).sourceAsMap(), equalTo(Map.of("batched", true)));
+            }
+        }
+        IngestStats.Stats pipelineStats = ingestService.stats().pipelineStats().get(0).stats();
+        assertThat(pipelineStats.ingestCount(), equalTo((long) numRequests));
+        assertThat(pipelineStats.ingestFailedCount(), equalTo(1L));
+        assertThat(pipelineStats.ingestCurrent(), equalTo(0L));
+    }
+
+    private static class BatchTestProcessor extends FakeProcessor implements BatchProcessor {
+        private final List<Integer> batchSizes;
+
+        BatchTestProcessor(Consumer<IngestDocument> executor, List<Integer> batchSizes) {
+            super("batch", "", "", executor);
+            this.batchSizes = batchSizes;
+        }
+
+        @Override
+        public void executeBatch(List<IngestDocument> documents, IngestDocument[] results, Exception[] failures) {
+            batchSizes.add(documents.size());
+            BatchProcessor.super.executeBatch(documents, results, failures);
+        }
+    }
+
     public void testDynamicTemplates() throws Exception {
         IngestService ingestService = createWithProcessors(
             Map.of(
@@ -2197,7 +2271,7 @@ public class IngestServiceTests extends ESTestCase {
         // Create ingest service:
         Client client = mock(Client.class);
         IngestService ingestService = new IngestService(
-            mock(ClusterService.class),
+            mockClusterService(),
             threadPool,
             null,
             null,
@@ -2671,7 +2745,7 @@ public class IngestServiceTests extends ESTestCase {
             .build();
 
         Client client = mock(Client.class);
-        ClusterService clusterService = mock(ClusterService.class);
+        ClusterService clusterService = mockClusterService();
         when(clusterService.state()).thenReturn(clusterState);
         IngestService ingestService = new IngestService(
             clusterService,
@@ -2975,6 +3049,16 @@ public class IngestServiceTests extends ESTestCase {
         return argThat(new IngestDocumentMatcher("_index", "_type", "_id", version, versionType, source));
     }
 
+    private static ClusterService mockClusterService() {
+        return mockClusterService(Settings.EMPTY);
+    }
+
+    private static ClusterService mockClusterService(Settings settings) {
+        ClusterService clusterService = mock(ClusterService.class);
+        when(clusterService.getClusterSettings()).thenReturn(new ClusterSettings(settings, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
+        return clusterService;
+    }
+
     private static IngestService createWithProcessors() {
         Map<String, Processor.Factory> processors = new HashMap<>();
         processors.put("set", (factories, tag, description, config) -> {
@@ -2991,12 +3075,16 @@ public class IngestServiceTests extends ESTestCase {
     }
 
     private static IngestService createWithProcessors(Map<String, Processor.Factory> processors) {
+        return createWithProcessors(processors, mockClusterService());
+    }
+
+    private static IngestService createWithProcessors(Map<String, Processor.Factory> processors, ClusterService clusterService) {
         Client client = mock(Client.class);
         ThreadPool threadPool = mock(ThreadPool.class);
         when(threadPool.generic()).thenReturn(EsExecutors.DIRECT_EXECUTOR_SERVICE);
         when(threadPool.executor(anyString())).thenReturn(EsExecutors.DIRECT_EXECUTOR_SERVICE);
         IngestService ingestService = new IngestService(
-            mock(ClusterService.class),
+            clusterService,
             threadPool,
             null,
             null,
@@ -0,0 +1,126 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.lucene.util;
+
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.BitSetIterator;
+import org.apache.lucene.util.FixedBitSet;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+
+public class RoaringBitSetTests extends ESTestCase {
+
+    private static RoaringBitSet roaring(FixedBitSet matches) throws IOException {
+        return RoaringBitSet.of(new BitSetIterator(matches, matches.cardinality()), matches.length());
+    }
+
+    private static void assertSameBits(FixedBitSet expected, RoaringBitSet actual) {
+        assertThat(actual.length(), equalTo(expected.length()));
+        assertThat(actual.cardinality(), equalTo(expected.cardinality()));
+        for (int i = 0; i < expected.length(); i++) {
+            assertThat(actual.get(i), equalTo(expected.get(i)));
+            assertThat(actual.nextSetBit(i), equalTo(expected.nextSetBit(i)));
+            assertThat(actual.prevSetBit(i), equalTo(expected.prevSetBit(i)));
+        }
+        for (int iter = 0; iter < 100; iter++) {
+            int start = randomIntBetween(0, expected.length() - 1);
+            int upperBound = randomIntBetween(start + 1, expected.length());
+            assertThat(actual.nextSetBit(start, upperBound), equalTo(expected.nextSetBit(start, upperBound)));
+        }
+    }
+
+    public void testRandom() throws IOException {
+        int maxDoc = randomIntBetween(1, 3 * RoaringBitSet.BLOCK_SIZE);
+        FixedBitSet matches = new FixedBitSet(maxDoc);
+        int doc = 0;
+        while (doc < maxDoc) {
+            switch (between(0, 3)) {
+                // sparse
+                case 0 -> doc += randomIntBetween(1, 100);
+                // dense
+                case 1 -> doc += randomIntBetween(1, 3);
+                // a run of matches
+                case 2 -> {
+                    int end = Math.min(maxDoc, doc + randomIntBetween(1, 5000));
+                    matches.set(doc, end);
+                    doc = end;
+                }
+                // a gap
+                default -> doc += randomIntBetween(1, RoaringBitSet.BLOCK_SIZE);
+            }
+            if (doc < maxDoc) {
+                matches.set(doc);
+            }
+        }
+        assertSameBits(matches, roaring(matches));
+    }
+
+    public void testEmpty() throws IOException {
+        int maxDoc = randomIntBetween(1, 3 * RoaringBitSet.BLOCK_SIZE);
+        RoaringBitSet bitSet = roaring(new FixedBitSet(maxDoc));
+        assertThat(bitSet.cardinality(), equalTo(0));
+        assertThat(bitSet.nextSetBit(0), equalTo(DocIdSetIterator.NO_MORE_DOCS));
+        assertThat(bitSet.prevSetBit(maxDoc - 1), equalTo(-1));
+    }
+
+    public void testContainers() throws IOException {
+        int maxDoc = 3 * RoaringBitSet.BLOCK_SIZE;
+        FixedBitSet matches = new FixedBitSet(maxDoc);
+        // a sparse block, stored as an array
+        for (int doc = 0; doc < RoaringBitSet.BLOCK_SIZE; doc += 100) {
+            matches.set(doc);
+        }
+        // a dense block, stored as a bitmap
+        for (int doc = RoaringBitSet.BLOCK_SIZE; doc < 2 * RoaringBitSet.BLOCK_SIZE; doc += 3) {
+            matches.set(doc);
+        }
+        // a block made of a few runs
+        matches.set(2 * RoaringBitSet.BLOCK_SIZE + 10, 2 * RoaringBitSet.BLOCK_SIZE + 30000);
+        matches.set(2 * RoaringBitSet.BLOCK_SIZE + 40000, 3 * RoaringBitSet.BLOCK_SIZE);
+
+        RoaringBitSet bitSet = roaring(matches);
+        assertSameBits(matches, bitSet);
+        long bitmapBytes = RoaringBitSet.BLOCK_SIZE / Byte.SIZE;
+        // the bitmap of the dense block dominates
+        assertThat(bitSet.ramBytesUsed(), lessThan(bitmapBytes + 2048));
+        assertThat(bitSet.ramBytesUsed(), lessThan(matches.ramBytesUsed()));
+    }
+
+    public void testCountRuns() {
+        FixedBitSet matches = new FixedBitSet(randomIntBetween(200, 3 * RoaringBitSet.BLOCK_SIZE));
+        assertEquals(0, RoaringBitSet.countRuns(matches));
+        matches.set(0);
+        matches.set(63, 65);
+        matches.set(100, 150);
+        matches.set(matches.length() - 1);
+        assertEquals(4, RoaringBitSet.countRuns(matches));
+    }
+
+    public void testNestedParents() throws IOException {
+        // every parent document follows its nested documents, which are not matched
+        int maxDoc = randomIntBetween(2, 10) * RoaringBitSet.BLOCK_SIZE;
+        FixedBitSet parents = new FixedBitSet(maxDoc);
+        int doc = -1;
+        while (true) {
+            doc += randomIntBetween(20, 200);
+            if (doc >= maxDoc) {
+                break;
+            }
+            parents.set(doc);
+        }
+        RoaringBitSet bitSet = roaring(parents);
+        assertSameBits(parents, bitSet);
+        assertThat(bitSet.ramBytesUsed(), lessThan(parents.ramBytesUsed() / 2));
+    }
+}
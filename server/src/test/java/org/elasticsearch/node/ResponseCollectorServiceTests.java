@@ -64,6 +64,31 @@ public class ResponseCollectorServiceTests extends ESTestCase {
         assertThat(nodeStats.get("node1").serviceTime, equalTo(10.0));
     }
 
+    public void testResponseTimePercentile() {
+        assertThat(collector.getResponseTimePercentile("node1", 50), equalTo(-1L));
+        for (int i = 1; i < ResponseCollectorService.MIN_RESPONSE_TIME_SAMPLES; i++) {
+            collector.addResponseTimeSample("node1", i);
+        }
+        assertThat(collector.getResponseTimePercentile("node1", 50), equalTo(-1L));
+        for (int i = ResponseCollectorService.MIN_RESPONSE_TIME_SAMPLES; i <= 100; i++) {
+            collector.addResponseTimeSample("node1", i);
+        }
+        assertThat(collector.getResponseTimePercentile("node1", 0), equalTo(1L));
+        assertThat(collector.getResponseTimePercentile("node1", 50), equalTo(50L));
+        assertThat(collector.getResponseTimePercentile("node1", 99), equalTo(99L));
+        assertThat(collector.getResponseTimePercentile("node1", 100), equalTo(100L));
+        assertThat(collector.getResponseTimePercentile("node2", 50), equalTo(-1L));
+
+        // only the most recent samples are kept
+        for (int i = 0; i < ResponseCollectorService.RESPONSE_TIME_SAMPLES; i++) {
+            collector.addResponseTimeSample("node1", 1000);
+        }
+        assertThat(collector.getResponseTimePercentile("node1", 0), equalTo(1000L));
+
+        collector.removeNode("node1");
+        assertThat(collector.getResponseTimePercentile("node1", 50), equalTo(-1L));
+    }
+
     /*
      * Test that concurrently adding values and removing nodes does not cause exceptions
      */
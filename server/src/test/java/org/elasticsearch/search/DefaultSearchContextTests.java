@@ -183,6 +183,7 @@ public class DefaultSearchContextTests extends MapperServiceTestCase {
                 null,
                 randomFrom(SearchService.ResultsType.values()),
                 randomBoolean(),
+                randomBoolean(),
                 randomInt()
             );
             contextWithoutScroll.from(300);
@@ -225,6 +226,7 @@ public class DefaultSearchContextTests extends MapperServiceTestCase {
                     null,
                     randomFrom(SearchService.ResultsType.values()),
                     randomBoolean(),
+                    randomBoolean(),
                     randomInt()
                 )
             ) {
@@ -304,6 +306,7 @@ public class DefaultSearchContextTests extends MapperServiceTestCase {
                     null,
                     randomFrom(SearchService.ResultsType.values()),
                     randomBoolean(),
+                    randomBoolean(),
                     randomInt()
                 )
             ) {
@@ -346,6 +349,7 @@ public class DefaultSearchContextTests extends MapperServiceTestCase {
                     null,
                     randomFrom(SearchService.ResultsType.values()),
                     randomBoolean(),
+                    randomBoolean(),
                     randomInt()
                 )
             ) {
@@ -377,6 +381,7 @@ public class DefaultSearchContextTests extends MapperServiceTestCase {
                     null,
                     randomFrom(SearchService.ResultsType.values()),
                     randomBoolean(),
+                    randomBoolean(),
                     randomInt()
                 )
             ) {
@@ -448,6 +453,7 @@ public class DefaultSearchContextTests extends MapperServiceTestCase {
                 null,
                 randomFrom(SearchService.ResultsType.values()),
                 randomBoolean(),
+                randomBoolean(),
                 randomInt()
             );
 
@@ -617,6 +623,30 @@ public class DefaultSearchContextTests extends MapperServiceTestCase {
         );
     }
 
+    public void testDetermineFetchPhaseExecutor() {
+        ThreadPoolExecutor threadPoolExecutor = EsExecutors.newFixed(
+            "test",
+            randomIntBetween(1, 100),
+            0,
+            Thread::new,
+            new ThreadContext(Settings.EMPTY),
+            EsExecutors.TaskTrackingConfig.DO_NOT_TRACK
+        );
+        assertSame(
+            threadPoolExecutor,
+            DefaultSearchContext.determineFetchPhaseExecutor(threadPoolExecutor, SearchService.ResultsType.FETCH, true)
+        );
+        assertNull(DefaultSearchContext.determineFetchPhaseExecutor(threadPoolExecutor, SearchService.ResultsType.FETCH, false));
+        assertNull(
+            DefaultSearchContext.determineFetchPhaseExecutor(
+                threadPoolExecutor,
+                randomFrom(SearchService.ResultsType.QUERY, SearchService.ResultsType.DFS, SearchService.ResultsType.NONE),
+                true
+            )
+        );
+        assertNull(DefaultSearchContext.determineFetchPhaseExecutor(null, SearchService.ResultsType.FETCH, true));
+    }
+
     public void testDetermineMaximumNumberOfSlicesSingleSortByField() {
         IndexShard indexShard = mock(IndexShard.class);
         when(indexShard.shardId()).thenReturn(new ShardId("index", "uuid", 0));
@@ -1050,6 +1080,7 @@ public class DefaultSearchContextTests extends MapperServiceTestCase {
                 null,
                 randomFrom(SearchService.ResultsType.values()),
                 randomBoolean(),
+                randomBoolean(),
                 randomInt()
             );
         }
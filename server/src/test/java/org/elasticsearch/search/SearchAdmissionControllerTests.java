@@ -0,0 +1,314 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.search;
+
+import org.elasticsearch.action.support.PlainActionFuture;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.DeterministicTaskQueue;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.core.Releasable;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.internal.AliasFilter;
+import org.elasticsearch.search.internal.ShardSearchRequest;
+import org.elasticsearch.tasks.CancellableTask;
+import org.elasticsearch.tasks.TaskCancelHelper;
+import org.elasticsearch.tasks.TaskCancelledException;
+import org.elasticsearch.tasks.TaskId;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
+
+public class SearchAdmissionControllerTests extends ESTestCase {
+
+    private static final Set<Setting<?>> SETTINGS = Set.of(
+        SearchAdmissionController.ENABLED_SETTING,
+        SearchAdmissionController.EXPENSIVE_THRESHOLD_SETTING,
+        SearchAdmissionController.MAX_EXPENSIVE_RATIO_SETTING,
+        SearchAdmissionController.MAX_DEFERRED_SETTING,
+        SearchAdmissionController.MAX_DEFER_TIME_SETTING
+    );
+
+    private static SearchAdmissionController controller(Settings settings, int searchThreads) {
+        return controller(settings, new DeterministicTaskQueue().getThreadPool(), searchThreads);
+    }
+
+    private static SearchAdmissionController controller(Settings settings, ThreadPool threadPool, int searchThreads) {
+        return new SearchAdmissionController(settings, new ClusterSettings(settings, SETTINGS), threadPool, searchThreads);
+    }
+
+    private static ShardSearchRequest request(String index, SearchSourceBuilder source) {
+        ShardSearchRequest request = new ShardSearchRequest(new ShardId(index, "_na_", 0), 0, AliasFilter.EMPTY);
+        request.source(source);
+        return request;
+    }
+
+    private static ShardSearchRequest request(QueryBuilder query) {
+        return request("index", new SearchSourceBuilder().query(query));
+    }
+
+    public void testShape() {
+        SearchAdmissionController.Shape shape = SearchAdmissionController.Shape.of(
+            request(
+                "index",
+                new SearchSourceBuilder().query(
+                    QueryBuilders.boolQuery()
+                        .filter(QueryBuilders.termQuery("field", "foo"))
+                        .should(QueryBuilders.constantScoreQuery(QueryBuilders.rangeQuery("number").gt(1)))
+                ).aggregation(AggregationBuilders.terms("terms").field("field"))
+            )
+        );
+        assertEquals(new SearchAdmissionController.Shape("index", "bool,constant_score,range,term+aggs", false), shape);
+        assertEquals(
+            SearchAdmissionController.Shape.of(request(QueryBuilders.termQuery("field", "foo"))),
+            SearchAdmissionController.Shape.of(request(QueryBuilders.termQuery("other", "bar")))
+        );
+        assertEquals("match_all", SearchAdmissionController.Shape.of(request("index", null)).description());
+        assertTrue(
+            SearchAdmissionController.Shape.of(request(QueryBuilders.boolQuery().must(QueryBuilders.wildcardQuery("field", "*foo"))))
+                .expensiveQueries()
+        );
+    }
+
+    public void testEstimate() {
+        SearchAdmissionController controller = controller(
+            Settings.builder().put(SearchAdmissionController.EXPENSIVE_THRESHOLD_SETTING.getKey(), "100ms").build(),
+            4
+        );
+        ShardSearchRequest slow = request(QueryBuilders.termQuery("field", "foo"));
+        ShardSearchRequest wildcard = request(QueryBuilders.wildcardQuery("field", "*foo"));
+
+        // without history the query types decide
+        assertFalse(controller.estimate(slow).expensive());
+        assertEquals(-1, controller.estimate(slow).estimatedNanos());
+        assertTrue(controller.estimate(wildcard).expensive());
+
+        for (int i = 0; i < SearchAdmissionController.MIN_SAMPLES; i++) {
+            controller.onQueryPhase(controller.estimate(slow), TimeValue.timeValueSeconds(1).nanos());
+            controller.onQueryPhase(controller.estimate(wildcard), TimeValue.timeValueMillis(1).nanos());
+        }
+        assertTrue(controller.estimate(slow).expensive());
+        assertThat(controller.estimate(slow).estimatedNanos(), greaterThan(TimeValue.timeValueMillis(900).nanos()));
+        assertFalse(controller.estimate(wildcard).expensive());
+        // other indices have their own history
+        assertFalse(controller.estimate(request("other", new SearchSourceBuilder().query(QueryBuilders.termQuery("f", "v")))).expensive());
+
+        SearchAdmissionStats stats = controller.stats();
+        assertThat(stats.estimates(), hasSize(2));
+        assertThat(stats.estimates().get(0).shape(), equalTo("term"));
+        assertThat(stats.estimates().get(0).samples(), equalTo((long) SearchAdmissionController.MIN_SAMPLES));
+    }
+
+    public void testAdmission() throws Exception {
+        SearchAdmissionController controller = controller(
+            Settings.builder()
+                .put(SearchAdmissionController.ENABLED_SETTING.getKey(), true)
+                .put(SearchAdmissionController.MAX_EXPENSIVE_RATIO_SETTING.getKey(), 0.25)
+                .put(SearchAdmissionController.MAX_DEFERRED_SETTING.getKey(), 1)
+                .build(),
+            8
+        );
+        SearchAdmissionController.CostEstimate cheap = controller.estimate(request(QueryBuilders.termQuery("field", "foo")));
+        SearchAdmissionController.CostEstimate expensive = controller.estimate(request(QueryBuilders.scriptQuery(mockScript("1"))));
+        assertTrue(expensive.expensive());
+
+        PlainActionFuture<Releasable> first = new PlainActionFuture<>();
+        controller.admit(expensive, null, first);
+        PlainActionFuture<Releasable> second = new PlainActionFuture<>();
+        controller.admit(expensive, null, second);
+        assertTrue(first.isDone());
+        assertTrue(second.isDone());
+
+        // both expensive slots are taken, the third expensive request has to wait and the fourth is rejected
+        PlainActionFuture<Releasable> third = new PlainActionFuture<>();
+        controller.admit(expensive, null, third);
+        assertFalse(third.isDone());
+        PlainActionFuture<Releasable> fourth = new PlainActionFuture<>();
+        controller.admit(expensive, null, fourth);
+        ExecutionException e = expectThrows(ExecutionException.class, fourth::get);
+        assertThat(e.getCause(), instanceOf(EsRejectedExecutionException.class));
+
+        // cheap requests are never held back
+        PlainActionFuture<Releasable> cheapFuture = new PlainActionFuture<>();
+        controller.admit(cheap, null, cheapFuture);
+        assertTrue(cheapFuture.isDone());
+
+        SearchAdmissionStats stats = controller.stats();
+        assertEquals(1, stats.admittedCheap());
+        assertEquals(2, stats.admittedExpensive());
+        assertEquals(1, stats.deferred());
+        assertEquals(1, stats.rejected());
+        assertEquals(2, stats.currentExpensive());
+        assertEquals(1, stats.currentDeferred());
+
+        first.get().close();
+        // releasing twice must not free another slot
+        first.get().close();
+        assertTrue(third.isDone());
+        stats = controller.stats();
+        assertEquals(2, stats.currentExpensive());
+        assertEquals(0, stats.currentDeferred());
+
+        second.get().close();
+        third.get().close();
+        assertEquals(0, controller.stats().currentExpensive());
+    }
+
+    public void testDisablingAdmitsDeferredRequests() {
+        ClusterSettings clusterSettings = new ClusterSettings(Settings.EMPTY, SETTINGS);
+        SearchAdmissionController controller = new SearchAdmissionController(
+            Settings.EMPTY,
+            clusterSettings,
+            new DeterministicTaskQueue().getThreadPool(),
+            1
+        );
+        clusterSettings.applySettings(Settings.builder().put(SearchAdmissionController.ENABLED_SETTING.getKey(), true).build());
+        assertTrue(controller.isEnabled());
+
+        SearchAdmissionController.CostEstimate expensive = controller.estimate(request(QueryBuilders.regexpQuery("field", ".*")));
+        PlainActionFuture<Releasable> running = new PlainActionFuture<>();
+        controller.admit(expensive, null, running);
+        PlainActionFuture<Releasable> waiting = new PlainActionFuture<>();
+        controller.admit(expensive, null, waiting);
+        assertTrue(running.isDone());
+        assertFalse(waiting.isDone());
+
+        clusterSettings.applySettings(Settings.EMPTY);
+        assertFalse(controller.isEnabled());
+        assertTrue(waiting.isDone());
+    }
+
+    public void testDeferredRequestTimesOut() {
+        DeterministicTaskQueue taskQueue = new DeterministicTaskQueue();
+        SearchAdmissionController controller = controller(
+            Settings.builder()
+                .put(SearchAdmissionController.ENABLED_SETTING.getKey(), true)
+                .put(SearchAdmissionController.MAX_DEFER_TIME_SETTING.getKey(), "10s")
+                .build(),
+            taskQueue.getThreadPool(),
+            1
+        );
+        SearchAdmissionController.CostEstimate expensive = controller.estimate(request(QueryBuilders.wildcardQuery("field", "*foo")));
+        PlainActionFuture<Releasable> running = new PlainActionFuture<>();
+        controller.admit(expensive, null, running);
+        PlainActionFuture<Releasable> waiting = new PlainActionFuture<>();
+        controller.admit(expensive, null, waiting);
+        assertFalse(waiting.isDone());
+
+        taskQueue.advanceTime();
+        taskQueue.runAllRunnableTasks();
+        assertThat(taskQueue.getCurrentTimeMillis(), equalTo(10_000L));
+        ExecutionException e = expectThrows(ExecutionException.class, waiting::get);
+        assertThat(e.getCause(), instanceOf(EsRejectedExecutionException.class));
+        assertThat(e.getCause().getMessage(), containsString("deferred for longer than [10s]"));
+        assertEquals(0, controller.stats().currentDeferred());
+        assertEquals(1, controller.stats().rejected());
+
+        // the slot of the running request is not handed over to the timed out one
+        running.actionGet().close();
+        assertEquals(0, controller.stats().currentExpensive());
+    }
+
+    public void testDeferredRequestIsCancelled() {
+        DeterministicTaskQueue taskQueue = new DeterministicTaskQueue();
+        SearchAdmissionController controller = controller(
+            Settings.builder().put(SearchAdmissionController.ENABLED_SETTING.getKey(), true).build(),
+            taskQueue.getThreadPool(),
+            1
+        );
+        SearchAdmissionController.CostEstimate expensive = controller.estimate(request(QueryBuilders.wildcardQuery("field", "*foo")));
+        PlainActionFuture<Releasable> running = new PlainActionFuture<>();
+        controller.admit(expensive, null, running);
+        CancellableTask task = new CancellableTask(1, "type", "action", "description", TaskId.EMPTY_TASK_ID, Map.of());
+        PlainActionFuture<Releasable> waiting = new PlainActionFuture<>();
+        controller.admit(expensive, task, waiting);
+        assertFalse(waiting.isDone());
+
+        TaskCancelHelper.cancel(task, "test");
+        ExecutionException e = expectThrows(ExecutionException.class, waiting::get);
+        assertThat(e.getCause(), instanceOf(TaskCancelledException.class));
+        assertEquals(0, controller.stats().currentDeferred());
+        // a cancelled request doesn't time out later on
+        taskQueue.runAllTasks();
+        assertEquals(0, controller.stats().rejected());
+
+        // an already cancelled task doesn't wait at all
+        PlainActionFuture<Releasable> cancelled = new PlainActionFuture<>();
+        controller.admit(expensive, task, cancelled);
+        e = expectThrows(ExecutionException.class, cancelled::get);
+        assertThat(e.getCause(), instanceOf(TaskCancelledException.class));
+        assertEquals(0, controller.stats().currentDeferred());
+
+        running.actionGet().close();
+        assertEquals(0, controller.stats().currentExpensive());
+    }
+
+    public void testShapeHistoryIsBounded() {
+        SearchAdmissionController controller = controller(Settings.EMPTY, 4);
+        for (int i = 0; i <= SearchAdmissionController.MAX_SHAPES; i++) {
+            SearchAdmissionController.CostEstimate estimate = controller.estimate(
+                request("index-" + i, new SearchSourceBuilder().query(QueryBuilders.termQuery("f", "v")))
+            );
+            for (int j = 0; j < SearchAdmissionController.MIN_SAMPLES; j++) {
+                controller.onQueryPhase(estimate, TimeValue.timeValueSeconds(1).nanos());
+            }
+        }
+        // the least recently used shape was forgotten, the newest one is still learned
+        ShardSearchRequest first = request("index-0", new SearchSourceBuilder().query(QueryBuilders.termQuery("f", "v")));
+        assertEquals(-1, controller.estimate(first).estimatedNanos());
+        ShardSearchRequest last = request(
+            "index-" + SearchAdmissionController.MAX_SHAPES,
+            new SearchSourceBuilder().query(QueryBuilders.termQuery("f", "v"))
+        );
+        assertThat(controller.estimate(last).estimatedNanos(), greaterThan(0L));
+    }
+
+    public void testIndexRemovalForgetsShapes() {
+        SearchAdmissionController controller = controller(Settings.EMPTY, 4);
+        ShardSearchRequest removed = request("removed", new SearchSourceBuilder().query(QueryBuilders.termQuery("f", "v")));
+        ShardSearchRequest kept = request("kept", new SearchSourceBuilder().query(QueryBuilders.termQuery("f", "v")));
+        for (int i = 0; i < SearchAdmissionController.MIN_SAMPLES; i++) {
+            controller.onQueryPhase(controller.estimate(removed), TimeValue.timeValueSeconds(1).nanos());
+            controller.onQueryPhase(controller.estimate(kept), TimeValue.timeValueSeconds(1).nanos());
+        }
+        controller.onIndexRemoved("removed");
+        assertEquals(-1, controller.estimate(removed).estimatedNanos());
+        assertThat(controller.estimate(kept).estimatedNanos(), greaterThan(0L));
+        assertThat(controller.stats().estimates(), hasSize(1));
+    }
+
+    public void testStatsSerialization() throws Exception {
+        SearchAdmissionStats stats = new SearchAdmissionStats(
+            randomNonNegativeLong(),
+            randomNonNegativeLong(),
+            randomNonNegativeLong(),
+            randomNonNegativeLong(),
+            randomNonNegativeInt(),
+            randomNonNegativeInt(),
+            randomList(0, 3, () -> new SearchAdmissionStats.ShapeEstimate(randomIdentifier(), "term", randomNonNegativeLong(), 5))
+        );
+        assertEquals(stats, copyWriteable(stats, writableRegistry(), SearchAdmissionStats::new));
+    }
+}
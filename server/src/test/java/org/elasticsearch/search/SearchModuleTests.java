@@ -17,6 +17,7 @@ import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.xcontent.LoggingDeprecationHandler;
 import org.elasticsearch.core.RestApiVersion;
+import org.elasticsearch.index.mapper.vectors.MultiDenseVectorFieldMapper;
 import org.elasticsearch.index.query.AbstractQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryRewriteContext;
@@ -54,6 +55,7 @@ import org.elasticsearch.search.suggest.SuggestionBuilder;
 import org.elasticsearch.search.suggest.SuggestionSearchContext;
 import org.elasticsearch.search.suggest.term.TermSuggestion;
 import org.elasticsearch.search.suggest.term.TermSuggestionBuilder;
+import org.elasticsearch.search.vectors.MaxSimQueryBuilder;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.xcontent.ConstructingObjectParser;
 import org.elasticsearch.xcontent.NamedXContentRegistry;
@@ -294,8 +296,12 @@ public class SearchModuleTests extends ESTestCase {
     }
 
     public void testRegisteredQueries() {
-        List<String> allSupportedQueries = new ArrayList<>();
-        Collections.addAll(allSupportedQueries, NON_DEPRECATED_QUERIES);
+        List<String> nonDeprecatedQueries = new ArrayList<>();
+        Collections.addAll(nonDeprecatedQueries, NON_DEPRECATED_QUERIES);
+        if (MultiDenseVectorFieldMapper.FEATURE_FLAG.isEnabled()) {
+            nonDeprecatedQueries.add(MaxSimQueryBuilder.NAME);
+        }
+        List<String> allSupportedQueries = new ArrayList<>(nonDeprecatedQueries);
         Collections.addAll(allSupportedQueries, DEPRECATED_QUERIES);
 
         SearchModule module = new SearchModule(Settings.EMPTY, emptyList());
@@ -313,7 +319,7 @@ public class SearchModuleTests extends ESTestCase {
             .flatMap(e -> Arrays.stream(e.name.getAllNamesIncludedDeprecated()))
             .collect(toSet());
 
-        assertThat(registeredNonDeprecated, containsInAnyOrder(NON_DEPRECATED_QUERIES));
+        assertThat(registeredNonDeprecated, containsInAnyOrder(nonDeprecatedQueries.toArray(new String[0])));
         assertThat(registeredAll, containsInAnyOrder(allSupportedQueries.toArray(new String[0])));
     }
 
@@ -0,0 +1,241 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.search;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.FloatPoint;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.sandbox.document.HalfFloatPoint;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.tests.index.RandomIndexWriter;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.action.OriginalIndices;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.cluster.metadata.IndexMetadata;
+import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
+import org.elasticsearch.index.mapper.KeywordFieldMapper;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.NumberFieldMapper;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.internal.AliasFilter;
+import org.elasticsearch.search.internal.ShardSearchRequest;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+public class ShardFieldSummaryTests extends ESTestCase {
+
+    private static IndexMetadata indexMetadata(boolean writeBlock, long settingsVersion, String... fields) {
+        return IndexMetadata.builder("test")
+            .settings(
+                indexSettings(1, 0).putList(ShardFieldSummary.FIELDS_SETTING.getKey(), fields)
+                    .put(IndexMetadata.INDEX_BLOCKS_WRITE_SETTING.getKey(), writeBlock)
+            )
+            .settingsVersion(settingsVersion)
+            .mappingVersion(1)
+            .build();
+    }
+
+    public void testBuild() throws IOException {
+        IndexMetadata indexMetadata = indexMetadata(true, 1, "status", "count", "empty", "unmapped");
+        Map<String, MappedFieldType> fieldTypes = Map.of(
+            "status",
+            new KeywordFieldMapper.KeywordFieldType("status"),
+            "count",
+            new NumberFieldMapper.NumberFieldType("count", NumberFieldMapper.NumberType.LONG),
+            "empty",
+            new KeywordFieldMapper.KeywordFieldType("empty")
+        );
+        ShardFieldSummary summary;
+        try (Directory dir = newDirectory(); RandomIndexWriter writer = new RandomIndexWriter(random(), dir)) {
+            for (int i = 0; i < 100; i++) {
+                Document doc = new Document();
+                doc.add(new StringField("status", i % 2 == 0 ? "active" : "deleted", StringField.Store.NO));
+                doc.add(new LongPoint("count", 10 + i));
+                writer.addDocument(doc);
+                if (rarely()) {
+                    writer.commit();
+                }
+            }
+            try (DirectoryReader reader = writer.getReader()) {
+                summary = ShardFieldSummary.build(indexMetadata, fieldTypes::get, reader);
+            }
+        }
+
+        assertFalse(summary.canMatch(QueryBuilders.termQuery("status", "pending")));
+        assertTrue(summary.canMatch(QueryBuilders.termQuery("status", "active")));
+        assertTrue(summary.canMatch(QueryBuilders.termQuery("status", "pending").caseInsensitive(true)));
+        assertFalse(summary.canMatch(QueryBuilders.termsQuery("status", "pending", "archived")));
+        assertTrue(summary.canMatch(QueryBuilders.termsQuery("status", "pending", "deleted")));
+        assertFalse(summary.canMatch(QueryBuilders.rangeQuery("status").gt("x")));
+
+        assertTrue(summary.canMatch(QueryBuilders.termQuery("count", 42)));
+        assertFalse(summary.canMatch(QueryBuilders.termQuery("count", 200)));
+        assertFalse(summary.canMatch(QueryBuilders.rangeQuery("count").gte(110)));
+        assertTrue(summary.canMatch(QueryBuilders.rangeQuery("count").gte(109)));
+        assertFalse(summary.canMatch(QueryBuilders.rangeQuery("count").lt("5")));
+        assertTrue(summary.canMatch(QueryBuilders.rangeQuery("count").lt("now").format("epoch_millis")));
+
+        assertFalse(summary.canMatch(QueryBuilders.existsQuery("empty")));
+        assertTrue(summary.canMatch(QueryBuilders.existsQuery("status")));
+        // unmapped fields may be objects with mapped sub-fields
+        assertTrue(summary.canMatch(QueryBuilders.existsQuery("unmapped")));
+        assertTrue(summary.canMatch(QueryBuilders.termQuery("other", "pending")));
+
+        assertFalse(
+            summary.canMatch(
+                QueryBuilders.boolQuery().filter(QueryBuilders.termQuery("status", "active")).must(QueryBuilders.termQuery("count", 5))
+            )
+        );
+        assertTrue(
+            summary.canMatch(
+                QueryBuilders.boolQuery().should(QueryBuilders.termQuery("status", "pending")).should(QueryBuilders.termQuery("count", 42))
+            )
+        );
+        assertFalse(summary.canMatch(QueryBuilders.constantScoreQuery(QueryBuilders.termQuery("status", "pending"))));
+    }
+
+    public void testFloatBounds() throws IOException {
+        IndexMetadata indexMetadata = indexMetadata(true, 1, "float", "half_float");
+        Map<String, MappedFieldType> fieldTypes = Map.of(
+            "float",
+            new NumberFieldMapper.NumberFieldType("float", NumberFieldMapper.NumberType.FLOAT),
+            "half_float",
+            new NumberFieldMapper.NumberFieldType("half_float", NumberFieldMapper.NumberType.HALF_FLOAT)
+        );
+        ShardFieldSummary summary;
+        try (Directory dir = newDirectory(); RandomIndexWriter writer = new RandomIndexWriter(random(), dir)) {
+            Document doc = new Document();
+            doc.add(new FloatPoint("float", 0.1f));
+            doc.add(new HalfFloatPoint("half_float", 0.1f));
+            writer.addDocument(doc);
+            try (DirectoryReader reader = writer.getReader()) {
+                summary = ShardFieldSummary.build(indexMetadata, fieldTypes::get, reader);
+            }
+        }
+
+        // 0.1 is neither 0.1f nor its half_float rounding when widened to a double, but matches both once rounded to the field
+        assertTrue(summary.canMatch(QueryBuilders.termQuery("float", 0.1)));
+        assertTrue(summary.canMatch(QueryBuilders.termQuery("float", "0.1")));
+        assertTrue(summary.canMatch(QueryBuilders.rangeQuery("float").gte(0.1)));
+        assertTrue(summary.canMatch(QueryBuilders.rangeQuery("float").lte(0.1)));
+        assertFalse(summary.canMatch(QueryBuilders.termQuery("float", 0.2)));
+        assertFalse(summary.canMatch(QueryBuilders.rangeQuery("float").gte(0.1000001)));
+
+        assertTrue(summary.canMatch(QueryBuilders.termQuery("half_float", 0.1)));
+        assertTrue(summary.canMatch(QueryBuilders.termQuery("half_float", "0.1")));
+        assertTrue(summary.canMatch(QueryBuilders.rangeQuery("half_float").gte(0.1)));
+        assertTrue(summary.canMatch(QueryBuilders.rangeQuery("half_float").lte(0.1)));
+        assertFalse(summary.canMatch(QueryBuilders.termQuery("half_float", 0.2)));
+        assertFalse(summary.canMatch(QueryBuilders.rangeQuery("half_float").gte(0.1002)));
+    }
+
+    public void testManyDistinctTerms() throws IOException {
+        IndexMetadata indexMetadata = indexMetadata(true, 1, "id");
+        ShardFieldSummary summary;
+        try (Directory dir = newDirectory(); RandomIndexWriter writer = new RandomIndexWriter(random(), dir)) {
+            for (int i = 0; i <= ShardFieldSummary.MAX_TERMS; i++) {
+                Document doc = new Document();
+                doc.add(new StringField("id", "b" + Integer.toString(100 + i), StringField.Store.NO));
+                writer.addDocument(doc);
+            }
+            try (DirectoryReader reader = writer.getReader()) {
+                summary = ShardFieldSummary.build(indexMetadata, Map.of("id", new KeywordFieldMapper.KeywordFieldType("id"))::get, reader);
+            }
+        }
+        // only the range of terms is known
+        assertTrue(summary.canMatch(QueryBuilders.termQuery("id", "b1000")));
+        assertFalse(summary.canMatch(QueryBuilders.termQuery("id", "a")));
+        assertFalse(summary.canMatch(QueryBuilders.termQuery("id", "c")));
+    }
+
+    public void testRuntimeFieldShadowsSummarizedField() {
+        ShardFieldSummary summary = new ShardFieldSummary(
+            1,
+            1,
+            Map.of(
+                "status",
+                new ShardFieldSummary.KeywordSummary(new BytesRef("active"), new BytesRef("deleted"), List.of(new BytesRef("active"))),
+                "obj.count",
+                new ShardFieldSummary.NumericSummary(10, 20)
+            )
+        );
+        SearchSourceBuilder source = new SearchSourceBuilder().query(
+            QueryBuilders.boolQuery().filter(QueryBuilders.termQuery("status", "pending")).filter(QueryBuilders.termQuery("obj.count", 5))
+        );
+        assertFalse(summary.canMatch(shardRequest(source)));
+
+        // a runtime field of the same name computes its values at search time, they are not covered by the summary
+        Map<String, Object> statusRuntimeField = Map.of("type", "keyword", "script", "emit('pending')");
+        source.runtimeMappings(Map.<String, Object>of("status", statusRuntimeField));
+        source.query(QueryBuilders.termQuery("status", "pending"));
+        assertTrue(summary.canMatch(shardRequest(source)));
+        // fields that are not shadowed are still looked up
+        source.query(QueryBuilders.termQuery("obj.count", 5));
+        assertFalse(summary.canMatch(shardRequest(source)));
+
+        // so do the sub-fields of composite runtime fields
+        source.runtimeMappings(
+            Map.<String, Object>of("obj", Map.of("type", "composite", "script", "emit(Map.of('count', 5))", "fields", Map.of()))
+        );
+        assertTrue(summary.canMatch(shardRequest(source)));
+    }
+
+    private static ShardSearchRequest shardRequest(SearchSourceBuilder source) {
+        return new ShardSearchRequest(
+            OriginalIndices.NONE,
+            new SearchRequest().source(source),
+            new ShardId("test", "_na_", 0),
+            0,
+            1,
+            AliasFilter.EMPTY,
+            1f,
+            0L,
+            null
+        );
+    }
+
+    public void testValidity() {
+        assertFalse(ShardFieldSummary.isEnabled(indexMetadata(false, 1, "field")));
+        assertFalse(ShardFieldSummary.isEnabled(indexMetadata(true, 1)));
+        assertTrue(ShardFieldSummary.isEnabled(indexMetadata(true, 1, "field")));
+
+        ShardFieldSummary summary = new ShardFieldSummary(2, 1, Map.of());
+        assertTrue(summary.isValidFor(indexMetadata(true, 2, "field")));
+        assertFalse(summary.isValidFor(indexMetadata(true, 3, "field")));
+        assertFalse(summary.isValidFor(indexMetadata(false, 2, "field")));
+    }
+
+    public void testSerialization() throws IOException {
+        ShardFieldSummary summary = new ShardFieldSummary(
+            randomNonNegativeLong(),
+            randomNonNegativeLong(),
+            Map.of(
+                "absent",
+                ShardFieldSummary.FieldSummary.ABSENT,
+                "numeric",
+                new ShardFieldSummary.NumericSummary(-1.5, 3),
+                "keyword",
+                new ShardFieldSummary.KeywordSummary(
+                    new BytesRef("a"),
+                    new BytesRef("c"),
+                    randomBoolean() ? null : List.of(new BytesRef("a"), new BytesRef("c"))
+                )
+            )
+        );
+        assertEquals(summary, copyWriteable(summary, new NamedWriteableRegistry(List.of()), ShardFieldSummary::new));
+    }
+}
@@ -66,6 +66,7 @@ public class CollapseBuilderTests extends AbstractXContentSerializingTestCase<Co
     public static CollapseBuilder randomCollapseBuilder(boolean multiInnerHits) {
         CollapseBuilder builder = new CollapseBuilder(randomAlphaOfLength(10));
         builder.setMaxConcurrentGroupRequests(randomIntBetween(1, 48));
+        builder.setBatchedExpansion(randomBoolean());
         int numInnerHits = randomIntBetween(0, multiInnerHits ? 5 : 1);
         if (numInnerHits == 1) {
             InnerHitBuilder innerHit = InnerHitBuilderTests.randomInnerHits();
@@ -95,16 +96,21 @@ public class CollapseBuilderTests extends AbstractXContentSerializingTestCase<Co
     @Override
     protected CollapseBuilder mutateInstance(CollapseBuilder instance) throws IOException {
         CollapseBuilder newBuilder;
-        switch (between(0, 2)) {
+        switch (between(0, 3)) {
             case 0 -> {
                 newBuilder = new CollapseBuilder(instance.getField() + randomAlphaOfLength(10));
                 newBuilder.setMaxConcurrentGroupRequests(instance.getMaxConcurrentGroupRequests());
+                newBuilder.setBatchedExpansion(instance.isBatchedExpansion());
                 newBuilder.setInnerHits(instance.getInnerHits());
             }
             case 1 -> {
                 newBuilder = copyInstance(instance);
                 newBuilder.setMaxConcurrentGroupRequests(instance.getMaxConcurrentGroupRequests() + between(1, 20));
             }
+            case 2 -> {
+                newBuilder = copyInstance(instance);
+                newBuilder.setBatchedExpansion(instance.isBatchedExpansion() == false);
+            }
             default -> {
                 newBuilder = copyInstance(instance);
                 List<InnerHitBuilder> innerHits = new ArrayList<>(newBuilder.getInnerHits());
@@ -14,15 +14,26 @@ import org.apache.lucene.document.Field;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.search.TaskExecutor;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.tests.index.RandomIndexWriter;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.test.ESTestCase;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
 
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
@@ -133,6 +144,138 @@ public class FetchPhaseDocsIteratorTests extends ESTestCase {
         directory.close();
     }
 
+    public void testConcurrentIteration() throws Exception {
+        int docCount = randomIntBetween(300, 400);
+        Directory directory = newDirectory();
+        RandomIndexWriter writer = new RandomIndexWriter(random(), directory);
+        for (int i = 0; i < docCount; i++) {
+            Document doc = new Document();
+            doc.add(new StringField("field", "foo", Field.Store.NO));
+            writer.addDocument(doc);
+            if (i % 50 == 0) {
+                writer.commit();
+            }
+        }
+        writer.commit();
+        IndexReader reader = writer.getReader();
+        writer.close();
+
+        int[] docs = randomDocIds(docCount - 1);
+        Set<Thread> threads = ConcurrentCollections.newConcurrentSet();
+        List<FetchPhaseDocsIterator> iterators = new CopyOnWriteArrayList<>();
+        Supplier<FetchPhaseDocsIterator> newIterator = () -> {
+            FetchPhaseDocsIterator iterator = new FetchPhaseDocsIterator() {
+
+                LeafReaderContext ctx = null;
+                int[] docsInLeaf = null;
+                int index = 0;
+
+                @Override
+                protected void setNextReader(LeafReaderContext ctx, int[] docsInLeaf) {
+                    this.ctx = ctx;
+                    this.docsInLeaf = docsInLeaf;
+                    this.index = 0;
+                }
+
+                @Override
+                protected SearchHit nextDoc(int doc) {
+                    threads.add(Thread.currentThread());
+                    assertThat(doc, equalTo(this.docsInLeaf[this.index] + this.ctx.docBase));
+                    index++;
+                    return new SearchHit(doc);
+                }
+            };
+            iterators.add(iterator);
+            return iterator;
+        };
+
+        ExecutorService executor = EsExecutors.newFixed(
+            "test",
+            4,
+            -1,
+            Thread::new,
+            new ThreadContext(Settings.EMPTY),
+            EsExecutors.TaskTrackingConfig.DO_NOT_TRACK
+        );
+        try {
+            SearchHit[] hits = newIterator.get()
+                .iterateConcurrently(null, reader, docs, randomBoolean(), new TaskExecutor(executor), 1, newIterator);
+            assertThat(hits.length, equalTo(docs.length));
+            for (int i = 0; i < hits.length; i++) {
+                assertThat(hits[i].docId(), equalTo(docs[i]));
+                hits[i].decRef();
+            }
+            // one iterator per slice, and every slice holds the docs of a single leaf since a slice holds at least one doc
+            Set<Integer> leaves = new HashSet<>();
+            for (int doc : docs) {
+                leaves.add(ReaderUtil.subIndex(doc, reader.leaves()));
+            }
+            assertThat(iterators.size(), equalTo(leaves.size()));
+            assertThat(threads.size(), greaterThan(0));
+        } finally {
+            terminate(executor);
+        }
+
+        reader.close();
+        directory.close();
+    }
+
+    public void testConcurrentExceptions() throws Exception {
+        int docCount = randomIntBetween(300, 400);
+        Directory directory = newDirectory();
+        RandomIndexWriter writer = new RandomIndexWriter(random(), directory);
+        for (int i = 0; i < docCount; i++) {
+            Document doc = new Document();
+            doc.add(new StringField("field", "foo", Field.Store.NO));
+            writer.addDocument(doc);
+            if (i % 50 == 0) {
+                writer.commit();
+            }
+        }
+        writer.commit();
+        IndexReader reader = writer.getReader();
+        writer.close();
+
+        int[] docs = randomDocIds(docCount - 1);
+        int badDoc = docs[randomInt(docs.length - 1)];
+        Supplier<FetchPhaseDocsIterator> newIterator = () -> new FetchPhaseDocsIterator() {
+            @Override
+            protected void setNextReader(LeafReaderContext ctx, int[] docsInLeaf) {
+
+            }
+
+            @Override
+            protected SearchHit nextDoc(int doc) {
+                if (doc == badDoc) {
+                    throw new IllegalArgumentException("Error processing doc");
+                }
+                return new SearchHit(doc);
+            }
+        };
+
+        ExecutorService executor = EsExecutors.newFixed(
+            "test",
+            4,
+            -1,
+            Thread::new,
+            new ThreadContext(Settings.EMPTY),
+            EsExecutors.TaskTrackingConfig.DO_NOT_TRACK
+        );
+        try {
+            Exception e = expectThrows(
+                FetchPhaseExecutionException.class,
+                () -> newIterator.get().iterateConcurrently(null, reader, docs, randomBoolean(), new TaskExecutor(executor), 1, newIterator)
+            );
+            assertThat(e.getMessage(), containsString("Error running fetch phase for doc [" + badDoc + "]"));
+            assertThat(e.getCause(), instanceOf(IllegalArgumentException.class));
+        } finally {
+            terminate(executor);
+        }
+
+        reader.close();
+        directory.close();
+    }
+
     private static int[] randomDocIds(int maxDoc) {
         List<Integer> integers = new ArrayList<>();
         int v = 0;
@@ -0,0 +1,190 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.search.fetch.subphase.highlight;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.tests.index.RandomIndexWriter;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.index.analysis.AnalyzerScope;
+import org.elasticsearch.index.analysis.NamedAnalyzer;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class HighlightOffsetsCacheTests extends ESTestCase {
+
+    private static List<String> tokens(Analyzer analyzer, String value) throws IOException {
+        List<String> tokens = new ArrayList<>();
+        try (TokenStream tokenStream = analyzer.tokenStream("field", value)) {
+            CharTermAttribute termAtt = tokenStream.addAttribute(CharTermAttribute.class);
+            OffsetAttribute offsetAtt = tokenStream.addAttribute(OffsetAttribute.class);
+            PositionIncrementAttribute posIncAtt = tokenStream.addAttribute(PositionIncrementAttribute.class);
+            tokenStream.reset();
+            while (tokenStream.incrementToken()) {
+                tokens.add(termAtt + "[" + offsetAtt.startOffset() + "-" + offsetAtt.endOffset() + "]+" + posIncAtt.getPositionIncrement());
+            }
+            tokenStream.end();
+            tokens.add("end[" + offsetAtt.endOffset() + "]+" + posIncAtt.getPositionIncrement());
+        }
+        return tokens;
+    }
+
+    public void testReplaysCachedTokens() throws IOException {
+        HighlightOffsetsCache cache = new HighlightOffsetsCache(
+            Settings.builder().put(HighlightOffsetsCache.SIZE_SETTING.getKey(), "1mb").build()
+        );
+        assertTrue(cache.isEnabled());
+        String first = "The quick brown fox jumps over the lazy dog";
+        String second = "the fox, again";
+        try (Directory dir = newDirectory(); Analyzer indexAnalyzer = new StandardAnalyzer()) {
+            try (RandomIndexWriter writer = new RandomIndexWriter(random(), dir)) {
+                for (int i = 0; i < 2; i++) {
+                    Document doc = new Document();
+                    doc.add(new TextField("field", first, TextField.Store.NO));
+                    writer.addDocument(doc);
+                }
+                try (DirectoryReader reader = writer.getReader()) {
+                    LeafReader leaf = reader.leaves().get(0).reader();
+                    List<String> expectedFirst = tokens(indexAnalyzer, first);
+                    List<String> expectedSecond = tokens(indexAnalyzer, second);
+
+                    Map<String, Object> highlighterCache = new HashMap<>();
+                    Analyzer analyzer = cache.analyzer(highlighterCache, "field", indexAnalyzer, f -> named("standard", indexAnalyzer));
+                    assertThat(
+                        cache.analyzer(highlighterCache, "field", indexAnalyzer, f -> named("standard", indexAnalyzer)),
+                        sameInstance(analyzer)
+                    );
+
+                    cache.setDocument(highlighterCache, "field", leaf, 0);
+                    assertEquals(expectedFirst, tokens(analyzer, first));
+                    assertEquals(expectedSecond, tokens(analyzer, second));
+                    assertEquals(2, cache.count());
+
+                    // replayed from the cache
+                    assertEquals(expectedFirst, tokens(analyzer, first));
+                    assertEquals(expectedSecond, tokens(analyzer, second));
+                    assertEquals(2, cache.count());
+
+                    // other documents have their own entries
+                    cache.setDocument(highlighterCache, "field", leaf, 1);
+                    assertEquals(expectedFirst, tokens(analyzer, first));
+                    assertEquals(3, cache.count());
+                }
+            }
+            // closing the segment invalidates its entries
+            assertEquals(0, cache.count());
+        }
+    }
+
+    public void testAnalyzersHaveTheirOwnEntries() throws IOException {
+        HighlightOffsetsCache cache = new HighlightOffsetsCache(
+            Settings.builder().put(HighlightOffsetsCache.SIZE_SETTING.getKey(), "1mb").build()
+        );
+        String value = "The Quick Fox";
+        try (Directory dir = newDirectory(); Analyzer standard = new StandardAnalyzer(); Analyzer whitespace = new WhitespaceAnalyzer()) {
+            try (RandomIndexWriter writer = new RandomIndexWriter(random(), dir)) {
+                Document doc = new Document();
+                doc.add(new TextField("field", value, TextField.Store.NO));
+                writer.addDocument(doc);
+                try (DirectoryReader reader = writer.getReader()) {
+                    LeafReader leaf = reader.leaves().get(0).reader();
+
+                    Map<String, Object> standardCache = new HashMap<>();
+                    Analyzer first = cache.analyzer(standardCache, "field", standard, f -> named("standard", standard));
+                    cache.setDocument(standardCache, "field", leaf, 0);
+                    assertEquals(tokens(standard, value), tokens(first, value));
+
+                    // the same field and document analyzed with another analyzer, for instance after the index was re-created
+                    Map<String, Object> whitespaceCache = new HashMap<>();
+                    Analyzer second = cache.analyzer(whitespaceCache, "field", whitespace, f -> named("whitespace", whitespace));
+                    cache.setDocument(whitespaceCache, "field", leaf, 0);
+                    assertEquals(tokens(whitespace, value), tokens(second, value));
+                    assertEquals(2, cache.count());
+                }
+            }
+        }
+    }
+
+    public void testCircuitBreaker() throws IOException {
+        HighlightOffsetsCache cache = new HighlightOffsetsCache(
+            Settings.builder().put(HighlightOffsetsCache.SIZE_SETTING.getKey(), "1mb").build()
+        );
+        CircuitBreaker breaker = newLimitedBreaker(ByteSizeValue.ofMb(1));
+        cache.setCircuitBreaker(breaker);
+        try (Directory dir = newDirectory(); Analyzer indexAnalyzer = new StandardAnalyzer()) {
+            try (RandomIndexWriter writer = new RandomIndexWriter(random(), dir)) {
+                Document doc = new Document();
+                doc.add(new TextField("field", "some value", TextField.Store.NO));
+                writer.addDocument(doc);
+                try (DirectoryReader reader = writer.getReader()) {
+                    LeafReader leaf = reader.leaves().get(0).reader();
+                    Map<String, Object> highlighterCache = new HashMap<>();
+                    Analyzer analyzer = cache.analyzer(highlighterCache, "field", indexAnalyzer, f -> named("standard", indexAnalyzer));
+                    cache.setDocument(highlighterCache, "field", leaf, 0);
+                    assertEquals(tokens(indexAnalyzer, "some value"), tokens(analyzer, "some value"));
+                    assertEquals(1, cache.count());
+                    assertThat(breaker.getUsed(), greaterThan(0L));
+
+                    // values are analyzed without being cached once the breaker trips
+                    breaker.addWithoutBreaking(ByteSizeValue.ofMb(1).getBytes());
+                    assertEquals(tokens(indexAnalyzer, "other value"), tokens(analyzer, "other value"));
+                    assertEquals(1, cache.count());
+                    breaker.addWithoutBreaking(-ByteSizeValue.ofMb(1).getBytes());
+                }
+            }
+            // invalidated entries are released
+            assertEquals(0, cache.count());
+            assertEquals(0L, breaker.getUsed());
+        }
+    }
+
+    private static NamedAnalyzer named(String name, Analyzer analyzer) {
+        return new NamedAnalyzer(name, AnalyzerScope.INDEX, analyzer);
+    }
+
+    public void testDisabled() {
+        HighlightOffsetsCache cache = new HighlightOffsetsCache(
+            Settings.builder().put(HighlightOffsetsCache.SIZE_SETTING.getKey(), "0b").build()
+        );
+        assertFalse(cache.isEnabled());
+        try (Analyzer indexAnalyzer = new StandardAnalyzer()) {
+            assertThat(
+                cache.analyzer(new HashMap<>(), "field", indexAnalyzer, f -> named("standard", indexAnalyzer)),
+                sameInstance(indexAnalyzer)
+            );
+        }
+    }
+
+    public void testHash() {
+        assertEquals(HighlightOffsetsCache.hash("value"), HighlightOffsetsCache.hash("value"));
+        // "Aa" and "BB" share a String#hashCode
+        assertNotEquals(HighlightOffsetsCache.hash("Aa"), HighlightOffsetsCache.hash("BB"));
+    }
+}
@@ -18,7 +18,9 @@ import org.elasticsearch.xcontent.XContentParser;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Predicate;
 
 import static org.elasticsearch.common.xcontent.XContentParserUtils.ensureExpectedToken;
@@ -37,7 +39,14 @@ public class QueryProfileShardResultTests extends AbstractXContentSerializingTes
         }
 
         Long vectorOperationsCount = randomBoolean() ? null : randomNonNegativeLong();
-        return new QueryProfileShardResult(queryProfileResults, rewriteTime, profileCollector, vectorOperationsCount);
+        Map<String, Long> knnFilterStrategies = null;
+        if (randomBoolean()) {
+            knnFilterStrategies = new HashMap<>();
+            for (String strategy : randomSubsetOf(List.of("exact", "filtered_graph", "post_filter"))) {
+                knnFilterStrategies.put(strategy, randomNonNegativeLong());
+            }
+        }
+        return new QueryProfileShardResult(queryProfileResults, rewriteTime, profileCollector, vectorOperationsCount, knnFilterStrategies);
     }
 
     @Override
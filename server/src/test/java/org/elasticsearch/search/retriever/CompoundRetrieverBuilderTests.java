@@ -0,0 +1,86 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.search.retriever;
+
+import org.apache.lucene.util.SetOnce;
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.action.ActionType;
+import org.elasticsearch.action.search.MultiSearchRequest;
+import org.elasticsearch.action.search.MultiSearchResponse;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.query.QueryRewriteContext;
+import org.elasticsearch.search.builder.PointInTimeBuilder;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.client.NoOpClient;
+import org.elasticsearch.xcontent.XContentParserConfiguration;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+
+public class CompoundRetrieverBuilderTests extends ESTestCase {
+
+    public void testIdenticalChildrenShareOneSearch() throws IOException {
+        TestCompoundRetrieverBuilder retriever = new TestCompoundRetrieverBuilder(10);
+        retriever.addChild(new StandardRetrieverBuilder(QueryBuilders.termQuery("field", "foo")));
+        retriever.addChild(new StandardRetrieverBuilder(QueryBuilders.termQuery("field", "bar")));
+        retriever.addChild(new StandardRetrieverBuilder(QueryBuilders.termQuery("field", "foo")));
+
+        List<MultiSearchRequest> requests = new ArrayList<>();
+        RuntimeException failure = new IllegalArgumentException("boom");
+        NoOpClient client = new NoOpClient(null) {
+            @Override
+            @SuppressWarnings("unchecked")
+            protected <Request extends ActionRequest, Response extends ActionResponse> void doExecute(
+                ActionType<Response> action,
+                Request request,
+                ActionListener<Response> listener
+            ) {
+                MultiSearchRequest multiSearchRequest = (MultiSearchRequest) request;
+                requests.add(multiSearchRequest);
+                MultiSearchResponse.Item[] items = new MultiSearchResponse.Item[multiSearchRequest.requests().size()];
+                for (int i = 0; i < items.length; i++) {
+                    items[i] = new MultiSearchResponse.Item(null, failure);
+                }
+                ActionListener.respondAndRelease((ActionListener<MultiSearchResponse>) listener, new MultiSearchResponse(items, 1L));
+            }
+        };
+        QueryRewriteContext ctx = new QueryRewriteContext(
+            XContentParserConfiguration.EMPTY,
+            client,
+            () -> 0L,
+            null,
+            new PointInTimeBuilder(new BytesArray("pit"))
+        );
+
+        // the first rewrite resolves the source of each child, the second one registers the search
+        RetrieverBuilder rewritten = retriever.rewrite(ctx);
+        assertThat(rewritten.rewrite(ctx), instanceOf(RankDocsRetrieverBuilder.class));
+        SetOnce<Exception> exception = new SetOnce<>();
+        ctx.executeAsyncActions(ActionListener.wrap(r -> fail("expected a failure"), exception::set));
+
+        assertThat(requests.size(), equalTo(1));
+        MultiSearchRequest multiSearchRequest = requests.get(0);
+        assertThat(multiSearchRequest.requests().size(), equalTo(2));
+
+        // every child is reported, but the shared failure is only attached once
+        assertThat(exception.get(), instanceOf(ElasticsearchStatusException.class));
+        assertThat(exception.get().getMessage(), containsString("[standard, standard, standard]"));
+        assertThat(exception.get().getSuppressed().length, equalTo(1));
+    }
+}
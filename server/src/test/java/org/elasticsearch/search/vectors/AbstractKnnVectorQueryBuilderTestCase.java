@@ -43,6 +43,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import static org.elasticsearch.search.SearchService.DEFAULT_SIZE;
+import static org.hamcrest.Matchers.anyOf;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasSize;
@@ -186,6 +187,30 @@ abstract class AbstractKnnVectorQueryBuilderTestCase extends AbstractQueryTestCa
         assertThat(e.getMessage(), containsString("[knn] queries are only supported on [dense_vector] fields"));
     }
 
+    public void testRescoreVector() throws IOException {
+        KnnVectorQueryBuilder query = createTestQueryBuilder();
+        query.rescoreVectorBuilder(new RescoreVectorBuilder(randomFloatBetween(1f, 10f, true)));
+        assertSerialization(query);
+        assertEquals(query, parseQuery(query));
+        TransportVersion beforeRescore = TransportVersionUtils.getPreviousVersion(TransportVersions.KNN_RESCORE_VECTOR);
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class, () -> assertSerialization(query, beforeRescore));
+        assertThat(e.getMessage(), containsString("cannot serialize [rescore_vector] to older node"));
+
+        SearchExecutionContext context = createSearchExecutionContext();
+        KnnVectorQueryBuilder rescoreQuery = createKnnVectorQueryBuilder(VECTOR_FIELD, 5, 10, null).rescoreVectorBuilder(
+            new RescoreVectorBuilder(3f)
+        );
+        Query luceneQuery = rescoreQuery.doToQuery(context);
+        // only float vectors that are indexed with the default int8_hnsw index type are rescored
+        if (elementType() == DenseVectorFieldMapper.ElementType.FLOAT
+            && context.indexVersionCreated().onOrAfter(DenseVectorFieldMapper.DEFAULT_TO_INT8)) {
+            assertThat(luceneQuery, instanceOf(RescoreKnnVectorQuery.class));
+            assertThat(((RescoreKnnVectorQuery) luceneQuery).k(), equalTo(5));
+        } else {
+            assertThat(luceneQuery, anyOf(instanceOf(ESKnnFloatVectorQuery.class), instanceOf(ESKnnByteVectorQuery.class)));
+        }
+    }
+
     public void testNumCandsLessThanK() {
         int k = 5;
         int numCands = 3;
@@ -0,0 +1,203 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.search.vectors;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.KnnFloatVectorField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.VectorSimilarityFunction;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.tests.index.RandomIndexWriter;
+import org.elasticsearch.search.profile.query.QueryProfiler;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.elasticsearch.search.vectors.FilteredKnnSearch.Strategy.EXACT;
+import static org.elasticsearch.search.vectors.FilteredKnnSearch.Strategy.FILTERED_GRAPH;
+import static org.elasticsearch.search.vectors.FilteredKnnSearch.Strategy.POST_FILTER;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.in;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class FilteredKnnSearchTests extends ESTestCase {
+
+    public void testPlan() {
+        // fewer matches than the number of candidates
+        assertEquals(EXACT, FilteredKnnSearch.plan(10, 1_000_000, 10));
+        assertEquals(EXACT, FilteredKnnSearch.plan(0, 1_000_000, 10));
+        // very selective filters are cheaper to brute-force than to search in the graph
+        assertEquals(EXACT, FilteredKnnSearch.plan(1_000, 1_000_000, 10));
+        assertEquals(FILTERED_GRAPH, FilteredKnnSearch.plan(100_000, 1_000_000, 10));
+        assertEquals(FILTERED_GRAPH, FilteredKnnSearch.plan(500_000, 1_000_000, 100));
+        // filters that match most of the vectors are applied after the graph search
+        assertEquals(POST_FILTER, FilteredKnnSearch.plan(750_000, 1_000_000, 100));
+        assertEquals(POST_FILTER, FilteredKnnSearch.plan(1_000_000, 1_000_000, 100));
+        // the cost of the filter is only an estimate
+        assertEquals(POST_FILTER, FilteredKnnSearch.plan(2_000_000, 1_000_000, 100));
+    }
+
+    public void testStrategyProfileNames() {
+        assertEquals("exact", EXACT.profileName());
+        assertEquals("filtered_graph", FILTERED_GRAPH.profileName());
+        assertEquals("post_filter", POST_FILTER.profileName());
+    }
+
+    public void testFilteredSearch() throws IOException {
+        int dims = randomIntBetween(2, 16);
+        int numDocs = randomIntBetween(500, 2000);
+        float[][] vectors = new float[numDocs][];
+        int[] tags = new int[numDocs];
+        try (Directory dir = newDirectory(); RandomIndexWriter w = new RandomIndexWriter(random(), dir)) {
+            for (int i = 0; i < numDocs; i++) {
+                vectors[i] = randomVector(dims);
+                // tag 0 matches ~1% of the docs, tag 1 ~10% and tag 2 ~89%, to exercise all strategies
+                int bucket = randomIntBetween(0, 99);
+                tags[i] = bucket < 1 ? 0 : bucket < 11 ? 1 : 2;
+                Document doc = new Document();
+                doc.add(new KnnFloatVectorField("vector", vectors[i], VectorSimilarityFunction.EUCLIDEAN));
+                doc.add(new StoredField("id", i));
+                doc.add(new StringField("tag", Integer.toString(tags[i]), Field.Store.NO));
+                w.addDocument(doc);
+            }
+            try (IndexReader reader = w.getReader()) {
+                IndexSearcher searcher = newSearcher(reader);
+                StoredFields storedFields = reader.storedFields();
+                float[] target = randomVector(dims);
+                int k = randomIntBetween(1, 10);
+                for (int tag = 0; tag < 3; tag++) {
+                    Query filter = new TermQuery(new Term("tag", Integer.toString(tag)));
+                    int numCands = randomIntBetween(k, 100);
+                    ESKnnFloatVectorQuery query = new ESKnnFloatVectorQuery("vector", target, k, numCands, filter);
+                    TopDocs topDocs = searcher.search(query, k);
+                    assertThat(topDocs.scoreDocs.length, equalTo(Math.min(k, searcher.count(filter))));
+                    for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                        int id = storedFields.document(scoreDoc.doc).getField("id").numericValue().intValue();
+                        assertEquals(tag, tags[id]);
+                        assertEquals(VectorSimilarityFunction.EUCLIDEAN.compare(target, vectors[id]), scoreDoc.score, 1e-5f);
+                    }
+
+                    QueryProfiler profiler = new QueryProfiler();
+                    query.profile(profiler);
+                    Map<String, Long> strategies = profiler.getKnnFilterStrategies();
+                    assertNotNull(strategies);
+                    assertThat(
+                        strategies.keySet(),
+                        everyItem(in(List.of(EXACT.profileName(), FILTERED_GRAPH.profileName(), POST_FILTER.profileName())))
+                    );
+                    long segments = strategies.values().stream().mapToLong(Long::longValue).sum();
+                    assertThat(segments, lessThanOrEqualTo((long) searcher.getIndexReader().leaves().size()));
+                }
+            }
+        }
+    }
+
+    public void testExactWhenAllDocsAreCandidates() throws IOException {
+        int numDocs = randomIntBetween(10, 200);
+        float[][] vectors = new float[numDocs][];
+        try (Directory dir = newDirectory(); RandomIndexWriter w = new RandomIndexWriter(random(), dir)) {
+            for (int i = 0; i < numDocs; i++) {
+                vectors[i] = randomVector(4);
+                Document doc = new Document();
+                doc.add(new KnnFloatVectorField("vector", vectors[i], VectorSimilarityFunction.EUCLIDEAN));
+                doc.add(new StoredField("id", i));
+                doc.add(new StringField("even", Boolean.toString(i % 2 == 0), Field.Store.NO));
+                w.addDocument(doc);
+            }
+            try (IndexReader reader = w.getReader()) {
+                IndexSearcher searcher = newSearcher(reader);
+                float[] target = randomVector(4);
+                int k = randomIntBetween(1, 5);
+                Query filter = new TermQuery(new Term("even", "true"));
+                ESKnnFloatVectorQuery query = new ESKnnFloatVectorQuery("vector", target, k, numDocs, filter);
+                TopDocs topDocs = searcher.search(query, k);
+
+                float[] expectedScores = new float[(numDocs + 1) / 2];
+                for (int i = 0; i < numDocs; i += 2) {
+                    expectedScores[i / 2] = VectorSimilarityFunction.EUCLIDEAN.compare(target, vectors[i]);
+                }
+                Arrays.sort(expectedScores);
+                assertEquals(k, topDocs.scoreDocs.length);
+                for (int i = 0; i < k; i++) {
+                    assertEquals(expectedScores[expectedScores.length - 1 - i], topDocs.scoreDocs[i].score, 1e-5f);
+                }
+
+                QueryProfiler profiler = new QueryProfiler();
+                query.profile(profiler);
+                assertEquals(Set.of(EXACT.profileName()), profiler.getKnnFilterStrategies().keySet());
+            }
+        }
+    }
+
+    public void testTimeoutStopsTheGraphSearch() throws IOException {
+        int numDocs = randomIntBetween(500, 1000);
+        try (Directory dir = newDirectory(); RandomIndexWriter w = new RandomIndexWriter(random(), dir)) {
+            for (int i = 0; i < numDocs; i++) {
+                Document doc = new Document();
+                doc.add(new KnnFloatVectorField("vector", randomVector(4), VectorSimilarityFunction.EUCLIDEAN));
+                doc.add(new StringField("tag", "all", Field.Store.NO));
+                w.addDocument(doc);
+            }
+            w.forceMerge(1);
+            try (IndexReader reader = w.getReader()) {
+                IndexSearcher searcher = newSearcher(reader);
+                searcher.setTimeout(() -> true);
+                int k = randomIntBetween(5, 10);
+                Query filter = new TermQuery(new Term("tag", "all"));
+                ESKnnFloatVectorQuery query = new ESKnnFloatVectorQuery("vector", randomVector(4), k, numDocs, filter);
+                // the search stops at the entry point of the graph and doesn't fall back to an exact search
+                TopDocs topDocs = searcher.search(query, k);
+                assertThat(topDocs.scoreDocs.length, lessThan(k));
+            }
+        }
+    }
+
+    public void testUnfilteredSearchIsNotProfiled() throws IOException {
+        try (Directory dir = newDirectory(); RandomIndexWriter w = new RandomIndexWriter(random(), dir)) {
+            for (int i = 0; i < 10; i++) {
+                Document doc = new Document();
+                doc.add(new KnnFloatVectorField("vector", randomVector(4), VectorSimilarityFunction.EUCLIDEAN));
+                w.addDocument(doc);
+            }
+            try (IndexReader reader = w.getReader()) {
+                IndexSearcher searcher = newSearcher(reader);
+                ESKnnFloatVectorQuery query = new ESKnnFloatVectorQuery("vector", randomVector(4), 5, 10, null);
+                assertEquals(5, searcher.search(query, 5).scoreDocs.length);
+                QueryProfiler profiler = new QueryProfiler();
+                query.profile(profiler);
+                assertNull(profiler.getKnnFilterStrategies());
+            }
+        }
+    }
+
+    private static float[] randomVector(int dims) {
+        float[] vector = new float[dims];
+        for (int i = 0; i < dims; i++) {
+            vector[i] = randomFloat();
+        }
+        return vector;
+    }
+}
@@ -172,6 +172,18 @@ public class KnnSearchBuilderTests extends AbstractXContentSerializingTestCase<K
         assertEquals(expected, builder.toQueryBuilder());
     }
 
+    public void testToQueryBuilderWithRescoreVector() {
+        String field = randomAlphaOfLength(6);
+        float[] vector = randomVector(randomIntBetween(2, 30));
+        int k = randomIntBetween(1, 100);
+        int numCands = randomIntBetween(k, 1000);
+        RescoreVectorBuilder rescoreVectorBuilder = new RescoreVectorBuilder(randomFloatBetween(1f, 10f, true));
+        KnnSearchBuilder builder = new KnnSearchBuilder(field, vector, k, numCands, null).rescoreVectorBuilder(rescoreVectorBuilder);
+
+        QueryBuilder expected = new KnnVectorQueryBuilder(field, vector, null, numCands, null).rescoreVectorBuilder(rescoreVectorBuilder);
+        assertEquals(expected, builder.toQueryBuilder());
+    }
+
     public void testNumCandsLessThanK() {
         IllegalArgumentException e = expectThrows(
             IllegalArgumentException.class,
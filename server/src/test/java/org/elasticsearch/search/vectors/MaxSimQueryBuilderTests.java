@@ -0,0 +1,130 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.search.vectors;
+
+import org.apache.lucene.search.Query;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.compress.CompressedXContent;
+import org.elasticsearch.index.mapper.MapperService;
+import org.elasticsearch.index.mapper.vectors.MultiDenseVectorFieldMapper;
+import org.elasticsearch.index.query.SearchExecutionContext;
+import org.elasticsearch.test.AbstractQueryTestCase;
+import org.elasticsearch.xcontent.XContentBuilder;
+import org.elasticsearch.xcontent.XContentFactory;
+import org.junit.BeforeClass;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.instanceOf;
+
+public class MaxSimQueryBuilderTests extends AbstractQueryTestCase<MaxSimQueryBuilder> {
+
+    private static final String VECTOR_FIELD = "vectors";
+    private static final int VECTOR_DIMENSION = 3;
+
+    @BeforeClass
+    public static void setup() {
+        assumeTrue("Requires multi-dense vector support", MultiDenseVectorFieldMapper.FEATURE_FLAG.isEnabled());
+    }
+
+    @Override
+    protected void initializeAdditionalMappings(MapperService mapperService) throws IOException {
+        XContentBuilder builder = XContentFactory.jsonBuilder()
+            .startObject()
+            .startObject("properties")
+            .startObject(VECTOR_FIELD)
+            .field("type", MultiDenseVectorFieldMapper.CONTENT_TYPE)
+            .field("dims", VECTOR_DIMENSION)
+            .endObject()
+            .endObject()
+            .endObject();
+        mapperService.merge(
+            MapperService.SINGLE_MAPPING_NAME,
+            new CompressedXContent(Strings.toString(builder)),
+            MapperService.MergeReason.MAPPING_UPDATE
+        );
+    }
+
+    @Override
+    protected MaxSimQueryBuilder doCreateTestQueryBuilder() {
+        int numVectors = randomIntBetween(1, 5);
+        List<VectorData> queryVectors = new ArrayList<>(numVectors);
+        for (int i = 0; i < numVectors; i++) {
+            float[] vector = new float[VECTOR_DIMENSION];
+            for (int d = 0; d < VECTOR_DIMENSION; d++) {
+                vector[d] = randomFloat();
+            }
+            queryVectors.add(VectorData.fromFloats(vector));
+        }
+        return new MaxSimQueryBuilder(VECTOR_FIELD, queryVectors);
+    }
+
+    @Override
+    protected void doAssertLuceneQuery(MaxSimQueryBuilder queryBuilder, Query query, SearchExecutionContext context) throws IOException {
+        assertThat(query, instanceOf(MaxSimQuery.Floats.class));
+        float[][] expected = new float[queryBuilder.getQueryVectors().size()][];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = queryBuilder.getQueryVectors().get(i).asFloatVector();
+        }
+        assertEquals(new MaxSimQuery.Floats(VECTOR_FIELD, expected), query);
+    }
+
+    @Override
+    public void testValidOutput() {
+        MaxSimQueryBuilder query = new MaxSimQueryBuilder(
+            "field",
+            List.of(VectorData.fromFloats(new float[] { 1.0f, 2.0f }), VectorData.fromFloats(new float[] { 3.0f, 4.0f }))
+        );
+        String expected = """
+            {
+              "max_sim" : {
+                "field" : "field",
+                "query_vectors" : [
+                  [
+                    1.0,
+                    2.0
+                  ],
+                  [
+                    3.0,
+                    4.0
+                  ]
+                ]
+              }
+            }""";
+        assertEquals(expected, query.toString());
+    }
+
+    public void testIllegalArguments() {
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class, () -> new MaxSimQueryBuilder(VECTOR_FIELD, List.of()));
+        assertThat(e.getMessage(), containsString("[query_vectors] must contain at least one vector"));
+        e = expectThrows(
+            IllegalArgumentException.class,
+            () -> new MaxSimQueryBuilder(null, List.of(VectorData.fromFloats(new float[] { 1.0f, 2.0f, 3.0f })))
+        );
+        assertThat(e.getMessage(), containsString("[field] must be provided"));
+    }
+
+    public void testWrongDimensions() {
+        SearchExecutionContext context = createSearchExecutionContext();
+        MaxSimQueryBuilder query = new MaxSimQueryBuilder(VECTOR_FIELD, List.of(VectorData.fromFloats(new float[] { 1.0f, 2.0f })));
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class, () -> query.doToQuery(context));
+        assertThat(e.getMessage(), containsString("different number of dimensions"));
+    }
+
+    public void testWrongFieldType() {
+        SearchExecutionContext context = createSearchExecutionContext();
+        MaxSimQueryBuilder query = new MaxSimQueryBuilder(TEXT_FIELD_NAME, List.of(VectorData.fromFloats(new float[] { 1.0f })));
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class, () -> query.doToQuery(context));
+        assertThat(e.getMessage(), containsString("[max_sim] queries are only supported on [multi_dense_vector] fields"));
+    }
+}
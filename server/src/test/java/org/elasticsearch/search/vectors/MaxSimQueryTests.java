@@ -0,0 +1,202 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.search.vectors;
+
+import org.apache.lucene.document.BinaryDocValuesField;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.search.Explanation;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.tests.index.RandomIndexWriter;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.VectorUtil;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+public class MaxSimQueryTests extends ESTestCase {
+
+    private static final String FIELD = "vectors";
+
+    public void testFloats() throws IOException {
+        int dims = randomIntBetween(1, 64);
+        int numDocs = randomIntBetween(1, 100);
+        float[][][] docVectors = new float[numDocs][][];
+        for (int i = 0; i < numDocs; i++) {
+            docVectors[i] = randomFloatVectors(randomIntBetween(1, 20), dims);
+        }
+        float[][] queryVectors = randomFloatVectors(randomIntBetween(1, 8), dims);
+
+        try (Directory dir = newDirectory(); RandomIndexWriter w = new RandomIndexWriter(random(), dir)) {
+            for (int i = 0; i < numDocs; i++) {
+                ByteBuffer buffer = ByteBuffer.allocate(docVectors[i].length * dims * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                for (float[] vector : docVectors[i]) {
+                    for (float v : vector) {
+                        buffer.putFloat(v);
+                    }
+                }
+                addDoc(w, i, buffer.array());
+            }
+            try (IndexReader reader = w.getReader()) {
+                assertScores(reader, new MaxSimQuery.Floats(FIELD, queryVectors), id -> {
+                    float sum = 0;
+                    for (float[] queryVector : queryVectors) {
+                        float max = Float.NEGATIVE_INFINITY;
+                        for (float[] docVector : docVectors[id]) {
+                            max = Math.max(max, VectorUtil.dotProduct(queryVector, docVector));
+                        }
+                        sum += max;
+                    }
+                    return sum;
+                });
+            }
+        }
+    }
+
+    public void testBytes() throws IOException {
+        int dims = randomIntBetween(1, 64);
+        int numDocs = randomIntBetween(1, 100);
+        byte[][][] docVectors = new byte[numDocs][][];
+        for (int i = 0; i < numDocs; i++) {
+            docVectors[i] = randomByteVectors(randomIntBetween(1, 20), dims);
+        }
+        byte[][] queryVectors = randomByteVectors(randomIntBetween(1, 8), dims);
+
+        try (Directory dir = newDirectory(); RandomIndexWriter w = new RandomIndexWriter(random(), dir)) {
+            for (int i = 0; i < numDocs; i++) {
+                addDoc(w, i, concat(docVectors[i]));
+            }
+            try (IndexReader reader = w.getReader()) {
+                assertScores(reader, new MaxSimQuery.Bytes(FIELD, queryVectors), id -> {
+                    float sum = 0;
+                    for (byte[] queryVector : queryVectors) {
+                        float max = Float.NEGATIVE_INFINITY;
+                        for (byte[] docVector : docVectors[id]) {
+                            max = Math.max(max, VectorUtil.dotProduct(queryVector, docVector));
+                        }
+                        sum += max;
+                    }
+                    return sum;
+                });
+            }
+        }
+    }
+
+    public void testBits() throws IOException {
+        int numBytes = randomIntBetween(1, 16);
+        int numDocs = randomIntBetween(1, 100);
+        byte[][][] docVectors = new byte[numDocs][][];
+        for (int i = 0; i < numDocs; i++) {
+            docVectors[i] = randomByteVectors(randomIntBetween(1, 20), numBytes);
+        }
+        byte[][] queryVectors = randomByteVectors(randomIntBetween(1, 8), numBytes);
+
+        try (Directory dir = newDirectory(); RandomIndexWriter w = new RandomIndexWriter(random(), dir)) {
+            for (int i = 0; i < numDocs; i++) {
+                addDoc(w, i, concat(docVectors[i]));
+            }
+            try (IndexReader reader = w.getReader()) {
+                assertScores(reader, new MaxSimQuery.Bits(FIELD, queryVectors), id -> {
+                    float numBits = numBytes * Byte.SIZE;
+                    float sum = 0;
+                    for (byte[] queryVector : queryVectors) {
+                        float max = 0;
+                        for (byte[] docVector : docVectors[id]) {
+                            max = Math.max(max, (numBits - xorBitCount(queryVector, docVector)) / numBits);
+                        }
+                        sum += max;
+                    }
+                    return sum;
+                });
+            }
+        }
+    }
+
+    public void testMissingField() throws IOException {
+        try (Directory dir = newDirectory(); RandomIndexWriter w = new RandomIndexWriter(random(), dir)) {
+            w.addDocument(new Document());
+            try (IndexReader reader = w.getReader()) {
+                IndexSearcher searcher = newSearcher(reader);
+                Query query = new MaxSimQuery.Floats(FIELD, new float[][] { { 1f, 2f } });
+                assertEquals(0, searcher.count(query));
+            }
+        }
+    }
+
+    private interface ExpectedMaxSim {
+        float maxSim(int id);
+    }
+
+    private static void assertScores(IndexReader reader, Query query, ExpectedMaxSim expected) throws IOException {
+        IndexSearcher searcher = newSearcher(reader);
+        StoredFields storedFields = reader.storedFields();
+        TopDocs topDocs = searcher.search(query, reader.maxDoc());
+        assertEquals(reader.numDocs(), topDocs.scoreDocs.length);
+        for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+            int id = storedFields.document(scoreDoc.doc).getField("id").numericValue().intValue();
+            float expectedScore = VectorUtil.scaleMaxInnerProductScore(expected.maxSim(id));
+            assertEquals(expectedScore, scoreDoc.score, expectedScore * 1e-5f);
+            assertTrue(scoreDoc.score >= 0);
+            Explanation explanation = searcher.explain(query, scoreDoc.doc);
+            assertTrue(explanation.isMatch());
+            assertEquals(scoreDoc.score, explanation.getValue().floatValue(), 0f);
+        }
+    }
+
+    private static void addDoc(RandomIndexWriter w, int id, byte[] vectors) throws IOException {
+        Document doc = new Document();
+        doc.add(new StoredField("id", id));
+        doc.add(new BinaryDocValuesField(FIELD, new BytesRef(vectors)));
+        w.addDocument(doc);
+    }
+
+    /** Returns the number of bits that differ, as a popcount of the xor of both vectors */
+    private static int xorBitCount(byte[] a, byte[] b) {
+        int count = 0;
+        for (int i = 0; i < a.length; i++) {
+            count += Integer.bitCount((a[i] ^ b[i]) & 0xFF);
+        }
+        return count;
+    }
+
+    private static byte[] concat(byte[][] vectors) {
+        byte[] bytes = new byte[vectors.length * vectors[0].length];
+        for (int i = 0; i < vectors.length; i++) {
+            System.arraycopy(vectors[i], 0, bytes, i * vectors[i].length, vectors[i].length);
+        }
+        return bytes;
+    }
+
+    private static float[][] randomFloatVectors(int numVectors, int dims) {
+        float[][] vectors = new float[numVectors][dims];
+        for (float[] vector : vectors) {
+            for (int d = 0; d < dims; d++) {
+                vector[d] = randomFloatBetween(-1f, 1f, true);
+            }
+        }
+        return vectors;
+    }
+
+    private static byte[][] randomByteVectors(int numVectors, int dims) {
+        byte[][] vectors = new byte[numVectors][dims];
+        for (byte[] vector : vectors) {
+            random().nextBytes(vector);
+        }
+        return vectors;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the "Elastic License
+ * 2.0", the "GNU Affero General Public License v3.0 only", and the "Server Side
+ * Public License v 1"; you may not use this file except in compliance with, at
+ * your election, the "Elastic License 2.0", the "GNU Affero General Public
+ * License v3.0 only", or the "Server Side Public License, v 1".
+ */
+
+package org.elasticsearch.search.vectors;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.KnnFloatVectorField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.VectorSimilarityFunction;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.tests.index.RandomIndexWriter;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+public class RescoreKnnVectorQueryTests extends ESTestCase {
+
+    private static final String FIELD = "vector";
+
+    public void testRescoreAllCandidates() throws IOException {
+        int dims = randomIntBetween(2, 16);
+        int numDocs = randomIntBetween(10, 500);
+        float[][] vectors = new float[numDocs][];
+        try (Directory dir = newDirectory(); RandomIndexWriter w = new RandomIndexWriter(random(), dir)) {
+            for (int i = 0; i < numDocs; i++) {
+                Document doc = new Document();
+                doc.add(new StoredField("id", i));
+                // some documents have no vector
+                if (rarely() == false) {
+                    vectors[i] = randomVector(dims);
+                    doc.add(new KnnFloatVectorField(FIELD, vectors[i], VectorSimilarityFunction.EUCLIDEAN));
+                }
+                w.addDocument(doc);
+            }
+            try (IndexReader reader = w.getReader()) {
+                IndexSearcher searcher = newSearcher(reader);
+                StoredFields storedFields = reader.storedFields();
+                float[] queryVector = randomVector(dims);
+                int k = randomIntBetween(1, 20);
+                // the candidates are all the documents, so the rescored hits are the exact nearest neighbors
+                Query query = new RescoreKnnVectorQuery(FIELD, queryVector, VectorSimilarityFunction.EUCLIDEAN, k, new MatchAllDocsQuery());
+                TopDocs topDocs = searcher.search(query, numDocs);
+
+                float[] expectedScores = new float[numDocs];
+                int numVectors = 0;
+                for (float[] vector : vectors) {
+                    if (vector != null) {
+                        expectedScores[numVectors++] = VectorSimilarityFunction.EUCLIDEAN.compare(queryVector, vector);
+                    }
+                }
+                expectedScores = Arrays.copyOf(expectedScores, numVectors);
+                Arrays.sort(expectedScores);
+                assertEquals(Math.min(k, numVectors), topDocs.scoreDocs.length);
+                for (int i = 0; i < topDocs.scoreDocs.length; i++) {
+                    ScoreDoc scoreDoc = topDocs.scoreDocs[i];
+                    int id = storedFields.document(scoreDoc.doc).getField("id").numericValue().intValue();
+                    assertNotNull(vectors[id]);
+                    assertEquals(VectorSimilarityFunction.EUCLIDEAN.compare(queryVector, vectors[id]), scoreDoc.score, 0f);
+                    assertEquals(expectedScores[numVectors - 1 - i], scoreDoc.score, 0f);
+                }
+            }
+        }
+    }
+
+    public void testRescoreKnnCandidates() throws IOException {
+        int dims = randomIntBetween(2, 16);
+        int numDocs = randomIntBetween(100, 500);
+        float[][] vectors = new float[numDocs][];
+        try (Directory dir = newDirectory(); RandomIndexWriter w = new RandomIndexWriter(random(), dir)) {
+            for (int i = 0; i < numDocs; i++) {
+                vectors[i] = randomVector(dims);
+                Document doc = new Document();
+                doc.add(new StoredField("id", i));
+                doc.add(new KnnFloatVectorField(FIELD, vectors[i], VectorSimilarityFunction.EUCLIDEAN));
+                w.addDocument(doc);
+            }
+            try (IndexReader reader = w.getReader()) {
+                IndexSearcher searcher = newSearcher(reader);
+                StoredFields storedFields = reader.storedFields();
+                float[] queryVector = randomVector(dims);
+                int k = randomIntBetween(1, 10);
+                Query candidates = new ESKnnFloatVectorQuery(FIELD, queryVector, k * 3, k * 3, null);
+                Set<Integer> candidateDocs = new HashSet<>();
+                for (ScoreDoc scoreDoc : searcher.search(candidates, numDocs).scoreDocs) {
+                    candidateDocs.add(scoreDoc.doc);
+                }
+
+                Query query = new RescoreKnnVectorQuery(FIELD, queryVector, VectorSimilarityFunction.EUCLIDEAN, k, candidates);
+                TopDocs topDocs = searcher.search(query, numDocs);
+                assertEquals(Math.min(k, candidateDocs.size()), topDocs.scoreDocs.length);
+                float previousScore = Float.POSITIVE_INFINITY;
+                for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                    // only the candidates are rescored, with the raw vectors
+                    assertTrue(candidateDocs.contains(scoreDoc.doc));
+                    int id = storedFields.document(scoreDoc.doc).getField("id").numericValue().intValue();
+                    assertEquals(VectorSimilarityFunction.EUCLIDEAN.compare(queryVector, vectors[id]), scoreDoc.score, 0f);
+                    assertTrue(scoreDoc.score <= previousScore);
+                    previousScore = scoreDoc.score;
+                }
+            }
+        }
+    }
+
+    private static float[] randomVector(int dims) {
+        float[] vector = new float[dims];
+        for (int i = 0; i < dims; i++) {
+            vector[i] = randomFloatBetween(-1f, 1f, true);
+        }
+        return vector;
+    }
+}
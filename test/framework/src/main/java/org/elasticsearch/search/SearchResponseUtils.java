@@ -537,6 +537,7 @@ public enum SearchResponseUtils {
         List<ProfileResult> queryProfileResults = new ArrayList<>();
         long rewriteTime = 0;
         Long vectorOperationsCount = null;
+        Map<String, Long> knnFilterStrategies = null;
         CollectorResult collector = null;
         while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
             if (token == XContentParser.Token.FIELD_NAME) {
@@ -561,11 +562,17 @@ public enum SearchResponseUtils {
                 } else {
                     parser.skipChildren();
                 }
+            } else if (token == XContentParser.Token.START_OBJECT) {
+                if (QueryProfileShardResult.KNN_FILTER_STRATEGIES.equals(currentFieldName)) {
+                    knnFilterStrategies = parser.map(HashMap::new, XContentParser::longValue);
+                } else {
+                    parser.skipChildren();
+                }
             } else {
                 parser.skipChildren();
             }
         }
-        return new QueryProfileShardResult(queryProfileResults, rewriteTime, collector, vectorOperationsCount);
+        return new QueryProfileShardResult(queryProfileResults, rewriteTime, collector, vectorOperationsCount, knnFilterStrategies);
     }
 
     public static SearchHits parseSearchHits(XContentParser parser) throws IOException {
@@ -57,7 +57,9 @@ import org.elasticsearch.xpack.inference.action.TransportInferenceAction;
 import org.elasticsearch.xpack.inference.action.TransportInferenceUsageAction;
 import org.elasticsearch.xpack.inference.action.TransportPutInferenceModelAction;
 import org.elasticsearch.xpack.inference.action.TransportUpdateInferenceModelAction;
+import org.elasticsearch.xpack.inference.action.filter.InferenceRequestBatcher;
 import org.elasticsearch.xpack.inference.action.filter.ShardBulkInferenceActionFilter;
+import org.elasticsearch.xpack.inference.common.EmbeddingCache;
 import org.elasticsearch.xpack.inference.common.Truncator;
 import org.elasticsearch.xpack.inference.external.amazonbedrock.AmazonBedrockRequestSender;
 import org.elasticsearch.xpack.inference.external.http.HttpClientManager;
@@ -232,13 +234,16 @@ public class InferencePlugin extends Plugin implements ActionPlugin, ExtensibleP
         }
         inferenceServiceRegistry.set(registry);
 
-        var actionFilter = new ShardBulkInferenceActionFilter(registry, modelRegistry);
+        var meterRegistry = services.telemetryProvider().getMeterRegistry();
+        var embeddingCache = new EmbeddingCache(settings, meterRegistry);
+
+        var requestBatcher = new InferenceRequestBatcher(settings, services.clusterService(), services.threadPool(), embeddingCache);
+        var actionFilter = new ShardBulkInferenceActionFilter(registry, modelRegistry, requestBatcher);
         shardBulkInferenceActionFilter.set(actionFilter);
 
-        var meterRegistry = services.telemetryProvider().getMeterRegistry();
         var stats = new PluginComponentBinding<>(InferenceStats.class, InferenceStats.create(meterRegistry));
 
-        return List.of(modelRegistry, registry, httpClientManager, stats);
+        return List.of(modelRegistry, registry, httpClientManager, stats, embeddingCache);
     }
 
     @Override
@@ -339,6 +344,8 @@ public class InferencePlugin extends Plugin implements ActionPlugin, ExtensibleP
             ElasticInferenceServiceSettings.getSettingsDefinitions(),
             Truncator.getSettingsDefinitions(),
             RequestExecutorServiceSettings.getSettingsDefinitions(),
+            InferenceRequestBatcher.getSettingsDefinitions(),
+            EmbeddingCache.getSettingsDefinitions(),
             List.of(SKIP_VALIDATE_AND_START)
         ).flatMap(Collection::stream).collect(Collectors.toList());
     }
@@ -29,6 +29,7 @@ import org.elasticsearch.transport.TransportService;
 import org.elasticsearch.xpack.core.inference.action.InferenceAction;
 import org.elasticsearch.xpack.inference.action.task.StreamingTaskManager;
 import org.elasticsearch.xpack.inference.common.DelegatingProcessor;
+import org.elasticsearch.xpack.inference.common.EmbeddingCache;
 import org.elasticsearch.xpack.inference.registry.ModelRegistry;
 import org.elasticsearch.xpack.inference.telemetry.InferenceStats;
 import org.elasticsearch.xpack.inference.telemetry.InferenceTimer;
@@ -48,6 +49,7 @@ public class TransportInferenceAction extends HandledTransportAction<InferenceAc
     private final InferenceServiceRegistry serviceRegistry;
     private final InferenceStats inferenceStats;
     private final StreamingTaskManager streamingTaskManager;
+    private final EmbeddingCache embeddingCache;
 
     @Inject
     public TransportInferenceAction(
@@ -56,13 +58,15 @@ public class TransportInferenceAction extends HandledTransportAction<InferenceAc
         ModelRegistry modelRegistry,
         InferenceServiceRegistry serviceRegistry,
         InferenceStats inferenceStats,
-        StreamingTaskManager streamingTaskManager
+        StreamingTaskManager streamingTaskManager,
+        EmbeddingCache embeddingCache
     ) {
         super(InferenceAction.NAME, transportService, actionFilters, InferenceAction.Request::new, EsExecutors.DIRECT_EXECUTOR_SERVICE);
         this.modelRegistry = modelRegistry;
         this.serviceRegistry = serviceRegistry;
         this.inferenceStats = inferenceStats;
         this.streamingTaskManager = streamingTaskManager;
+        this.embeddingCache = embeddingCache;
     }
 
     @Override
@@ -156,6 +160,18 @@ public class TransportInferenceAction extends HandledTransportAction<InferenceAc
         ActionListener<InferenceServiceResults> listener
     ) {
         if (request.isStreaming() == false || service.canStream(request.getTaskType())) {
+            if (isCacheable(model, request)) {
+                var key = embeddingCache.keys(model, request.getInputType(), request.getInput()).get(0);
+                var cached = embeddingCache.get(key);
+                if (cached != null) {
+                    listener.onResponse(cached);
+                    return;
+                }
+                listener = listener.delegateFailureAndWrap((l, results) -> {
+                    embeddingCache.put(key, results);
+                    l.onResponse(results);
+                });
+            }
             service.infer(
                 model,
                 request.getQuery(),
@@ -171,6 +187,19 @@ public class TransportInferenceAction extends HandledTransportAction<InferenceAc
         }
     }
 
+    /**
+     * Only embeddings of a single input, which are what the semantic query requests, are cached. The results of a request are
+     * cached as a whole, and the results of requests that override the task settings of the endpoint are never cached.
+     */
+    private boolean isCacheable(Model model, InferenceAction.Request request) {
+        return embeddingCache.isEnabled()
+            && request.isStreaming() == false
+            && (model.getTaskType() == TaskType.TEXT_EMBEDDING || model.getTaskType() == TaskType.SPARSE_EMBEDDING)
+            && request.getQuery() == null
+            && request.getInput().size() == 1
+            && (request.getTaskSettings() == null || request.getTaskSettings().isEmpty());
+    }
+
     private ElasticsearchStatusException unsupportedStreamingTaskException(InferenceAction.Request request, InferenceService service) {
         var supportedTasks = service.supportedStreamingTasks();
         if (supportedTasks.isEmpty()) {
@@ -0,0 +1,295 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+
+package org.elasticsearch.xpack.inference.action.filter;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.inference.ChunkedInferenceServiceResults;
+import org.elasticsearch.inference.ChunkingOptions;
+import org.elasticsearch.inference.InferenceService;
+import org.elasticsearch.inference.InputType;
+import org.elasticsearch.inference.Model;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.xpack.core.inference.results.ErrorChunkedInferenceResults;
+import org.elasticsearch.xpack.inference.common.EmbeddingCache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.elasticsearch.xpack.inference.InferencePlugin.UTILITY_THREAD_POOL_NAME;
+
+/**
+ * Node level micro-batcher for the ingest inference calls of the {@link ShardBulkInferenceActionFilter}.
+ * Bulk shard requests that are processed concurrently on the same node usually target the same inference endpoints
+ * with only a handful of inputs each. Instead of sending one request per bulk shard request, the inputs of all callers
+ * targeting the same inference endpoint are collected for up to {@link #LINGER_TIME_SETTING} or until
+ * {@link #MAX_BATCH_SIZE_SETTING} inputs are pending, and sent to the service as a single
+ * {@link InferenceService#chunkedInfer} call. The results are then split back to the callers in submission order.
+ * The service chunks the combined inputs with its own request chunker, so the requests sent to the endpoint are as full as
+ * the endpoint allows. If a batch that merges several callers fails as a whole, the inputs of each caller are sent again on
+ * their own, so that the inputs of one caller that the endpoint rejects do not fail the other callers.
+ * Batching is disabled by default, it is enabled by setting {@link #LINGER_TIME_SETTING} to a positive value.
+ * Inputs whose results are in the {@link EmbeddingCache} are answered from the cache and never sent to the service.
+ */
+public class InferenceRequestBatcher {
+
+    /**
+     * The time to wait for more inputs before sending a batch. A value of {@code 0} disables batching.
+     */
+    static final Setting<TimeValue> LINGER_TIME_SETTING = Setting.timeSetting(
+        "xpack.inference.bulk.batching.linger_time",
+        TimeValue.ZERO,
+        TimeValue.ZERO,
+        Setting.Property.NodeScope,
+        Setting.Property.Dynamic
+    );
+
+    /**
+     * The number of pending inputs for an inference endpoint that triggers sending the batch without waiting.
+     */
+    static final Setting<Integer> MAX_BATCH_SIZE_SETTING = Setting.intSetting(
+        "xpack.inference.bulk.batching.max_batch_size",
+        512,
+        1,
+        Setting.Property.NodeScope,
+        Setting.Property.Dynamic
+    );
+
+    public static List<Setting<?>> getSettingsDefinitions() {
+        return List.of(LINGER_TIME_SETTING, MAX_BATCH_SIZE_SETTING);
+    }
+
+    /**
+     * A batcher that sends every call to the service as is.
+     */
+    static final InferenceRequestBatcher DISABLED = new InferenceRequestBatcher(null, TimeValue.ZERO, 1);
+
+    private final ThreadPool threadPool;
+    private final EmbeddingCache embeddingCache;
+    private final Map<String, PendingBatch> pendingBatches = new HashMap<>();
+    private volatile TimeValue lingerTime;
+    private volatile int maxBatchSize;
+
+    public InferenceRequestBatcher(Settings settings, ClusterService clusterService, ThreadPool threadPool, EmbeddingCache embeddingCache) {
+        this(threadPool, LINGER_TIME_SETTING.get(settings), MAX_BATCH_SIZE_SETTING.get(settings), embeddingCache);
+
+        clusterService.getClusterSettings().addSettingsUpdateConsumer(LINGER_TIME_SETTING, this::setLingerTime);
+        clusterService.getClusterSettings().addSettingsUpdateConsumer(MAX_BATCH_SIZE_SETTING, this::setMaxBatchSize);
+    }
+
+    InferenceRequestBatcher(ThreadPool threadPool, TimeValue lingerTime, int maxBatchSize) {
+        this(threadPool, lingerTime, maxBatchSize, EmbeddingCache.DISABLED);
+    }
+
+    InferenceRequestBatcher(ThreadPool threadPool, TimeValue lingerTime, int maxBatchSize, EmbeddingCache embeddingCache) {
+        this.threadPool = threadPool;
+        this.embeddingCache = embeddingCache;
+        this.lingerTime = lingerTime;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    private void setLingerTime(TimeValue lingerTime) {
+        this.lingerTime = lingerTime;
+    }
+
+    private void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Runs ingest inference on the provided inputs, possibly together with the inputs of other callers that target the
+     * same inference endpoint. The listener receives exactly one result per input, in the order of the inputs.
+     */
+    public void chunkedInfer(
+        InferenceService service,
+        Model model,
+        List<String> inputs,
+        ActionListener<List<ChunkedInferenceServiceResults>> listener
+    ) {
+        if (embeddingCache.isEnabled() == false) {
+            submit(service, model, inputs, listener);
+            return;
+        }
+
+        List<String> keys = embeddingCache.keys(model, InputType.INGEST, inputs);
+        ChunkedInferenceServiceResults[] results = new ChunkedInferenceServiceResults[inputs.size()];
+        List<Integer> misses = new ArrayList<>();
+        List<String> missedInputs = new ArrayList<>();
+        for (int i = 0; i < inputs.size(); i++) {
+            if (embeddingCache.get(keys.get(i)) instanceof ChunkedInferenceServiceResults cached) {
+                results[i] = cached;
+            } else {
+                misses.add(i);
+                missedInputs.add(inputs.get(i));
+            }
+        }
+        if (misses.isEmpty()) {
+            listener.onResponse(Arrays.asList(results));
+            return;
+        }
+
+        submit(service, model, missedInputs, listener.delegateFailureAndWrap((l, missedResults) -> {
+            for (int i = 0; i < misses.size(); i++) {
+                int index = misses.get(i);
+                ChunkedInferenceServiceResults result = missedResults.get(i);
+                results[index] = result;
+                if (result instanceof ErrorChunkedInferenceResults == false) {
+                    embeddingCache.put(keys.get(index), result);
+                }
+            }
+            l.onResponse(Arrays.asList(results));
+        }));
+    }
+
+    private void submit(
+        InferenceService service,
+        Model model,
+        List<String> inputs,
+        ActionListener<List<ChunkedInferenceServiceResults>> listener
+    ) {
+        TimeValue lingerTime = this.lingerTime;
+        if (lingerTime.duration() == 0) {
+            sendAlone(service, model, inputs, listener);
+            return;
+        }
+
+        final String inferenceId = model.getInferenceEntityId();
+        final int maxBatchSize = this.maxBatchSize;
+        PendingBatch previous = null;
+        PendingBatch toSend = null;
+        PendingBatch toSchedule = null;
+        synchronized (pendingBatches) {
+            PendingBatch batch = pendingBatches.get(inferenceId);
+            if (batch != null && (batch.model.equals(model) == false || batch.numInputs + inputs.size() > maxBatchSize)) {
+                // the endpoint was updated or the inputs do not fit, the pending batch is sent as is
+                pendingBatches.remove(inferenceId);
+                previous = batch;
+                batch = null;
+            }
+            if (batch == null) {
+                batch = new PendingBatch(service, model);
+                pendingBatches.put(inferenceId, batch);
+                toSchedule = batch;
+            }
+            batch.add(inputs, listener);
+            if (batch.numInputs >= maxBatchSize) {
+                pendingBatches.remove(inferenceId);
+                toSend = batch;
+                toSchedule = null;
+            }
+        }
+
+        if (previous != null) {
+            previous.send();
+        }
+        if (toSend != null) {
+            toSend.send();
+        } else if (toSchedule != null) {
+            PendingBatch scheduled = toSchedule;
+            threadPool.schedule(() -> flush(inferenceId, scheduled), lingerTime, threadPool.executor(UTILITY_THREAD_POOL_NAME));
+        }
+    }
+
+    private void flush(String inferenceId, PendingBatch batch) {
+        synchronized (pendingBatches) {
+            if (pendingBatches.remove(inferenceId, batch) == false) {
+                // already sent because it was full
+                return;
+            }
+        }
+        batch.send();
+    }
+
+    private static void sendAlone(
+        InferenceService service,
+        Model model,
+        List<String> inputs,
+        ActionListener<List<ChunkedInferenceServiceResults>> listener
+    ) {
+        PendingBatch batch = new PendingBatch(service, model);
+        batch.add(inputs, listener);
+        batch.send();
+    }
+
+    private record Caller(List<String> inputs, ActionListener<List<ChunkedInferenceServiceResults>> listener) {
+        int numInputs() {
+            return inputs.size();
+        }
+    }
+
+    private static class PendingBatch {
+        private final InferenceService service;
+        private final Model model;
+        private final List<String> inputs = new ArrayList<>();
+        private final List<Caller> callers = new ArrayList<>();
+        private int numInputs;
+
+        private PendingBatch(InferenceService service, Model model) {
+            this.service = service;
+            this.model = model;
+        }
+
+        private void add(List<String> newInputs, ActionListener<List<ChunkedInferenceServiceResults>> listener) {
+            inputs.addAll(newInputs);
+            callers.add(new Caller(newInputs, ActionListener.notifyOnce(listener)));
+            numInputs += newInputs.size();
+        }
+
+        private void send() {
+            service.chunkedInfer(
+                model,
+                null,
+                inputs,
+                Map.of(),
+                InputType.INGEST,
+                new ChunkingOptions(null, null),
+                TimeValue.MAX_VALUE,
+                ActionListener.wrap(this::onResponse, this::onFailure)
+            );
+        }
+
+        private void onResponse(List<ChunkedInferenceServiceResults> results) {
+            if (results.size() != numInputs) {
+                onFailure(
+                    new IllegalStateException(
+                        Strings.format(
+                            "Inference endpoint [%s] returned [%d] results for [%d] inputs",
+                            model.getInferenceEntityId(),
+                            results.size(),
+                            numInputs
+                        )
+                    )
+                );
+                return;
+            }
+            int offset = 0;
+            for (Caller caller : callers) {
+                caller.listener().onResponse(results.subList(offset, offset + caller.numInputs()));
+                offset += caller.numInputs();
+            }
+        }
+
+        private void onFailure(Exception exc) {
+            if (callers.size() == 1) {
+                callers.get(0).listener().onFailure(exc);
+                return;
+            }
+            // the failure may be caused by the inputs of a single caller, each caller is retried on its own
+            for (Caller caller : callers) {
+                sendAlone(service, model, caller.inputs(), caller.listener());
+            }
+        }
+    }
+}
@@ -28,12 +28,9 @@ import org.elasticsearch.common.util.concurrent.AtomicArray;
 import org.elasticsearch.common.xcontent.support.XContentMapValues;
 import org.elasticsearch.core.Nullable;
 import org.elasticsearch.core.Releasable;
-import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.inference.ChunkedInferenceServiceResults;
-import org.elasticsearch.inference.ChunkingOptions;
 import org.elasticsearch.inference.InferenceService;
 import org.elasticsearch.inference.InferenceServiceRegistry;
-import org.elasticsearch.inference.InputType;
 import org.elasticsearch.inference.Model;
 import org.elasticsearch.inference.UnparsedModel;
 import org.elasticsearch.rest.RestStatus;
@@ -62,6 +59,8 @@ import static org.elasticsearch.xpack.inference.mapper.SemanticTextField.toSeman
  * name as a {@link SemanticTextField}.
  * This transformation happens on the bulk coordinator node, and the {@link SemanticTextFieldMapper} parses the
  * results during indexing on the shard.
+ * The inference calls are sent through the node level {@link InferenceRequestBatcher}, which merges the inputs of
+ * concurrent bulk shard requests that target the same inference endpoint.
  *
  * TODO: batchSize should be configurable via a cluster setting
  */
@@ -71,15 +70,30 @@ public class ShardBulkInferenceActionFilter implements MappedActionFilter {
     private final InferenceServiceRegistry inferenceServiceRegistry;
     private final ModelRegistry modelRegistry;
     private final int batchSize;
+    private final InferenceRequestBatcher requestBatcher;
 
-    public ShardBulkInferenceActionFilter(InferenceServiceRegistry inferenceServiceRegistry, ModelRegistry modelRegistry) {
-        this(inferenceServiceRegistry, modelRegistry, DEFAULT_BATCH_SIZE);
+    public ShardBulkInferenceActionFilter(
+        InferenceServiceRegistry inferenceServiceRegistry,
+        ModelRegistry modelRegistry,
+        InferenceRequestBatcher requestBatcher
+    ) {
+        this(inferenceServiceRegistry, modelRegistry, DEFAULT_BATCH_SIZE, requestBatcher);
     }
 
     public ShardBulkInferenceActionFilter(InferenceServiceRegistry inferenceServiceRegistry, ModelRegistry modelRegistry, int batchSize) {
+        this(inferenceServiceRegistry, modelRegistry, batchSize, InferenceRequestBatcher.DISABLED);
+    }
+
+    ShardBulkInferenceActionFilter(
+        InferenceServiceRegistry inferenceServiceRegistry,
+        ModelRegistry modelRegistry,
+        int batchSize,
+        InferenceRequestBatcher requestBatcher
+    ) {
         this.inferenceServiceRegistry = inferenceServiceRegistry;
         this.modelRegistry = modelRegistry;
         this.batchSize = batchSize;
+        this.requestBatcher = requestBatcher;
     }
 
     @Override
@@ -336,17 +350,7 @@ public class ShardBulkInferenceActionFilter implements MappedActionFilter {
                     }
                 }
             };
-            inferenceProvider.service()
-                .chunkedInfer(
-                    inferenceProvider.model(),
-                    null,
-                    inputs,
-                    Map.of(),
-                    InputType.INGEST,
-                    new ChunkingOptions(null, null),
-                    TimeValue.MAX_VALUE,
-                    completionListener
-                );
+            requestBatcher.chunkedInfer(inferenceProvider.service(), inferenceProvider.model(), inputs, completionListener);
         }
 
         private FieldInferenceResponseAccumulator ensureResponseAccumulatorSlot(int id) {
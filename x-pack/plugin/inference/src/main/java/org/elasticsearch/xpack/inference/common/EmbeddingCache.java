@@ -0,0 +1,208 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+
+package org.elasticsearch.xpack.inference.common;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.common.Numbers;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+import org.elasticsearch.common.hash.MessageDigests;
+import org.elasticsearch.common.io.stream.CountingStreamOutput;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.core.Nullable;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.inference.InferenceServiceResults;
+import org.elasticsearch.inference.InputType;
+import org.elasticsearch.inference.Model;
+import org.elasticsearch.inference.ModelConfigurations;
+import org.elasticsearch.telemetry.metric.LongWithAttributes;
+import org.elasticsearch.telemetry.metric.MeterRegistry;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Node level cache for the embeddings computed by the inference services.
+ * Entries are keyed on a SHA-256 hash of the inference endpoint id, the endpoint configuration, the input type and the
+ * input text, so updating an endpoint never returns stale embeddings, and are evicted in LRU order once the cache holds
+ * more than {@link #CACHE_SIZE_SETTING} bytes of results. The cache is disabled by default.
+ * The cache is consulted for the inputs of semantic_text fields before they are sent to the inference service, and for
+ * single input embedding requests of the inference API, such as the ones sent by the semantic query.
+ */
+public class EmbeddingCache {
+    private static final Logger logger = LogManager.getLogger(EmbeddingCache.class);
+
+    /**
+     * The maximum size of the cached results, {@code 0} disables the cache. Each cached result is serialized once to compute
+     * its size, so the cache is only worth enabling when the same inputs are embedded repeatedly.
+     */
+    static final Setting<ByteSizeValue> CACHE_SIZE_SETTING = Setting.memorySizeSetting(
+        "xpack.inference.embedding_cache.size",
+        "0b",
+        Setting.Property.NodeScope
+    );
+
+    /**
+     * Entries that are not accessed for this long are removed from the cache.
+     */
+    static final Setting<TimeValue> CACHE_EXPIRE_SETTING = Setting.positiveTimeSetting(
+        "xpack.inference.embedding_cache.expire_after_access",
+        TimeValue.timeValueHours(1),
+        Setting.Property.NodeScope
+    );
+
+    public static List<Setting<?>> getSettingsDefinitions() {
+        return List.of(CACHE_SIZE_SETTING, CACHE_EXPIRE_SETTING);
+    }
+
+    public static final EmbeddingCache DISABLED = new EmbeddingCache(ByteSizeValue.ZERO, TimeValue.MINUS_ONE);
+
+    @Nullable
+    private final Cache<String, Entry> cache;
+
+    private record Entry(InferenceServiceResults results, long sizeInBytes) {}
+
+    /**
+     * The hash of the configuration of an inference endpoint, reused as long as the configuration does not change.
+     */
+    private record EndpointHash(ModelConfigurations configurations, byte[] hash) {}
+
+    private final Map<String, EndpointHash> endpointHashes = ConcurrentCollections.newConcurrentMap();
+
+    public EmbeddingCache(Settings settings, MeterRegistry meterRegistry) {
+        this(CACHE_SIZE_SETTING.get(settings), CACHE_EXPIRE_SETTING.get(settings));
+        if (cache != null) {
+            meterRegistry.registerLongAsyncCounter(
+                "es.inference.embedding_cache.hits.total",
+                "Number of embeddings served from the embedding cache",
+                "operations",
+                () -> new LongWithAttributes(cache.stats().getHits())
+            );
+            meterRegistry.registerLongAsyncCounter(
+                "es.inference.embedding_cache.misses.total",
+                "Number of embeddings that were not found in the embedding cache",
+                "operations",
+                () -> new LongWithAttributes(cache.stats().getMisses())
+            );
+            meterRegistry.registerLongAsyncCounter(
+                "es.inference.embedding_cache.evictions.total",
+                "Number of embeddings evicted from the embedding cache",
+                "operations",
+                () -> new LongWithAttributes(cache.stats().getEvictions())
+            );
+            meterRegistry.registerLongGauge(
+                "es.inference.embedding_cache.size",
+                "Size of the embeddings held in the embedding cache",
+                "bytes",
+                () -> new LongWithAttributes(cache.weight())
+            );
+        }
+    }
+
+    EmbeddingCache(ByteSizeValue size, TimeValue expireAfterAccess) {
+        if (size.getBytes() > 0) {
+            CacheBuilder<String, Entry> builder = CacheBuilder.<String, Entry>builder()
+                .setMaximumWeight(size.getBytes())
+                .weigher((key, entry) -> 2L * key.length() + entry.sizeInBytes());
+            if (expireAfterAccess.nanos() > 0) {
+                builder.setExpireAfterAccess(expireAfterAccess);
+            }
+            this.cache = builder.build();
+        } else {
+            this.cache = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * Returns the cache key of each input.
+     */
+    public List<String> keys(Model model, InputType inputType, List<String> inputs) {
+        byte[] endpointHash = endpointHash(model.getConfigurations());
+        MessageDigest digest = MessageDigests.sha256();
+        List<String> keys = new ArrayList<>(inputs.size());
+        for (String input : inputs) {
+            digest.update(endpointHash);
+            update(digest, inputType.toString());
+            update(digest, input);
+            keys.add(MessageDigests.toHexString(digest.digest()));
+        }
+        return keys;
+    }
+
+    private byte[] endpointHash(ModelConfigurations configurations) {
+        EndpointHash endpointHash = endpointHashes.get(configurations.getInferenceEntityId());
+        if (endpointHash != null && endpointHash.configurations().equals(configurations)) {
+            return endpointHash.hash();
+        }
+        MessageDigest digest = MessageDigests.sha256();
+        update(digest, configurations.getInferenceEntityId());
+        update(digest, Strings.toString(configurations));
+        byte[] hash = digest.digest();
+        endpointHashes.put(configurations.getInferenceEntityId(), new EndpointHash(configurations, hash));
+        return hash;
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        // length prefixed so that the boundaries between the values are part of the hash
+        digest.update(Numbers.intToBytes(bytes.length));
+        digest.update(bytes);
+    }
+
+    /**
+     * Returns the cached results for the key, or {@code null} if they are not cached.
+     */
+    @Nullable
+    public InferenceServiceResults get(String key) {
+        if (cache == null) {
+            return null;
+        }
+        Entry entry = cache.get(key);
+        return entry == null ? null : entry.results();
+    }
+
+    public void put(String key, InferenceServiceResults results) {
+        if (cache == null) {
+            return;
+        }
+        long sizeInBytes = sizeInBytes(results);
+        if (sizeInBytes >= 0) {
+            cache.put(key, new Entry(results, sizeInBytes));
+        }
+    }
+
+    public Cache.CacheStats stats() {
+        return cache == null ? new Cache.CacheStats(0, 0, 0) : cache.stats();
+    }
+
+    /**
+     * Returns the serialized size of the results, or {@code -1} if they cannot be serialized.
+     */
+    private static long sizeInBytes(InferenceServiceResults results) {
+        try (CountingStreamOutput out = new CountingStreamOutput()) {
+            out.writeNamedWriteable(results);
+            return out.size();
+        } catch (IOException | UnsupportedOperationException e) {
+            logger.debug("failed to compute the size of the inference results", e);
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+
+package org.elasticsearch.xpack.inference.action.filter;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.support.PlainActionFuture;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.inference.ChunkedInferenceServiceResults;
+import org.elasticsearch.inference.InferenceService;
+import org.elasticsearch.inference.Model;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.xpack.inference.common.EmbeddingCache;
+import org.elasticsearch.xpack.inference.model.TestModel;
+import org.junit.After;
+import org.junit.Before;
+import org.mockito.stubbing.Answer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import static org.elasticsearch.xpack.inference.Utils.inferenceUtilityPool;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+public class InferenceRequestBatcherTests extends ESTestCase {
+    private static final TimeValue NEVER = TimeValue.timeValueHours(1);
+
+    private ThreadPool threadPool;
+
+    @Before
+    public void setupThreadPool() {
+        threadPool = createThreadPool(inferenceUtilityPool());
+    }
+
+    @After
+    public void tearDownThreadPool() throws IOException {
+        terminate(threadPool);
+    }
+
+    public void testMergesConcurrentRequests() throws Exception {
+        StubEndpoint endpoint = new StubEndpoint();
+        Model model = TestModel.createRandomInstance();
+        int numCallers = randomIntBetween(2, 8);
+        List<List<String>> inputs = new ArrayList<>();
+        int numInputs = 0;
+        for (int i = 0; i < numCallers; i++) {
+            inputs.add(randomInputs(i));
+            numInputs += inputs.get(i).size();
+        }
+        // the batch is sent as soon as all inputs are pending
+        var batcher = new InferenceRequestBatcher(threadPool, NEVER, numInputs);
+
+        List<PlainActionFuture<List<ChunkedInferenceServiceResults>>> futures = new ArrayList<>();
+        CyclicBarrier barrier = new CyclicBarrier(numCallers);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < numCallers; i++) {
+            var callerInputs = inputs.get(i);
+            var future = new PlainActionFuture<List<ChunkedInferenceServiceResults>>();
+            futures.add(future);
+            threads.add(new Thread(() -> {
+                safeAwait(barrier);
+                batcher.chunkedInfer(endpoint.service, model, callerInputs, future);
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        for (int i = 0; i < numCallers; i++) {
+            assertResults(endpoint, inputs.get(i), futures.get(i).get(10, TimeUnit.SECONDS));
+        }
+        assertThat(endpoint.requests.size(), equalTo(1));
+        assertThat(endpoint.requests.get(0).size(), equalTo(numInputs));
+    }
+
+    public void testSendsAfterLingerTime() throws Exception {
+        StubEndpoint endpoint = new StubEndpoint();
+        Model model = TestModel.createRandomInstance();
+        var batcher = new InferenceRequestBatcher(threadPool, TimeValue.timeValueMillis(randomIntBetween(1, 20)), 512);
+
+        List<String> inputs = randomInputs(0);
+        var future = new PlainActionFuture<List<ChunkedInferenceServiceResults>>();
+        batcher.chunkedInfer(endpoint.service, model, inputs, future);
+        assertResults(endpoint, inputs, future.get(10, TimeUnit.SECONDS));
+        assertThat(endpoint.requests, equalTo(List.of(inputs)));
+    }
+
+    public void testSendsPendingBatchWhenInputsDoNotFit() throws Exception {
+        StubEndpoint endpoint = new StubEndpoint();
+        Model model = TestModel.createRandomInstance();
+        var batcher = new InferenceRequestBatcher(threadPool, NEVER, 5);
+
+        List<String> first = List.of("a", "b", "c");
+        List<String> second = List.of("d", "e", "f");
+        List<String> third = List.of("g", "h");
+        var firstFuture = new PlainActionFuture<List<ChunkedInferenceServiceResults>>();
+        var secondFuture = new PlainActionFuture<List<ChunkedInferenceServiceResults>>();
+        var thirdFuture = new PlainActionFuture<List<ChunkedInferenceServiceResults>>();
+        batcher.chunkedInfer(endpoint.service, model, first, firstFuture);
+        batcher.chunkedInfer(endpoint.service, model, second, secondFuture);
+        batcher.chunkedInfer(endpoint.service, model, third, thirdFuture);
+
+        assertResults(endpoint, first, firstFuture.get(10, TimeUnit.SECONDS));
+        assertResults(endpoint, second, secondFuture.get(10, TimeUnit.SECONDS));
+        assertResults(endpoint, third, thirdFuture.get(10, TimeUnit.SECONDS));
+        assertThat(endpoint.requests, equalTo(List.of(first, List.of("d", "e", "f", "g", "h"))));
+    }
+
+    public void testBatchesPerEndpoint() throws Exception {
+        StubEndpoint endpoint = new StubEndpoint();
+        Model model1 = TestModel.createRandomInstance();
+        Model model2;
+        do {
+            model2 = TestModel.createRandomInstance();
+        } while (model2.getInferenceEntityId().equals(model1.getInferenceEntityId()));
+        var batcher = new InferenceRequestBatcher(threadPool, NEVER, 2);
+
+        List<PlainActionFuture<List<ChunkedInferenceServiceResults>>> futures = new ArrayList<>();
+        List<String> inputs = List.of("a", "b", "c", "d");
+        for (int i = 0; i < inputs.size(); i++) {
+            var future = new PlainActionFuture<List<ChunkedInferenceServiceResults>>();
+            futures.add(future);
+            batcher.chunkedInfer(endpoint.service, i % 2 == 0 ? model1 : model2, List.of(inputs.get(i)), future);
+        }
+        for (int i = 0; i < inputs.size(); i++) {
+            assertResults(endpoint, List.of(inputs.get(i)), futures.get(i).get(10, TimeUnit.SECONDS));
+        }
+        assertThat(endpoint.requests.size(), equalTo(2));
+        assertTrue(endpoint.requests.contains(List.of("a", "c")));
+        assertTrue(endpoint.requests.contains(List.of("b", "d")));
+    }
+
+    public void testFailureOfASingleCaller() {
+        StubEndpoint endpoint = new StubEndpoint();
+        endpoint.failure = new IllegalArgumentException("boom");
+        Model model = TestModel.createRandomInstance();
+        var batcher = new InferenceRequestBatcher(threadPool, NEVER, 2);
+
+        var future = new PlainActionFuture<List<ChunkedInferenceServiceResults>>();
+        batcher.chunkedInfer(endpoint.service, model, List.of("a", "b"), future);
+
+        var exc = expectThrows(IllegalArgumentException.class, () -> future.actionGet(TimeValue.timeValueSeconds(10)));
+        assertThat(exc.getMessage(), equalTo("boom"));
+        assertThat(endpoint.requests, equalTo(List.of(List.of("a", "b"))));
+    }
+
+    public void testBatchFailureIsRetriedPerCaller() throws Exception {
+        StubEndpoint endpoint = new StubEndpoint();
+        endpoint.failure = new IllegalArgumentException("boom");
+        endpoint.failingInput = "c";
+        Model model = TestModel.createRandomInstance();
+        var batcher = new InferenceRequestBatcher(threadPool, NEVER, 6);
+
+        var firstFuture = new PlainActionFuture<List<ChunkedInferenceServiceResults>>();
+        var secondFuture = new PlainActionFuture<List<ChunkedInferenceServiceResults>>();
+        var thirdFuture = new PlainActionFuture<List<ChunkedInferenceServiceResults>>();
+        batcher.chunkedInfer(endpoint.service, model, List.of("a", "b"), firstFuture);
+        batcher.chunkedInfer(endpoint.service, model, List.of("c", "d"), secondFuture);
+        batcher.chunkedInfer(endpoint.service, model, List.of("e", "f"), thirdFuture);
+
+        // only the caller whose inputs are rejected fails
+        assertResults(endpoint, List.of("a", "b"), firstFuture.get(10, TimeUnit.SECONDS));
+        var exc = expectThrows(IllegalArgumentException.class, () -> secondFuture.actionGet(TimeValue.timeValueSeconds(10)));
+        assertThat(exc.getMessage(), equalTo("boom"));
+        assertResults(endpoint, List.of("e", "f"), thirdFuture.get(10, TimeUnit.SECONDS));
+
+        assertThat(endpoint.requests.size(), equalTo(4));
+        assertThat(endpoint.requests.get(0), equalTo(List.of("a", "b", "c", "d", "e", "f")));
+        assertThat(
+            Set.copyOf(endpoint.requests.subList(1, 4)),
+            equalTo(Set.of(List.of("a", "b"), List.of("c", "d"), List.of("e", "f")))
+        );
+    }
+
+    public void testWrongNumberOfResults() {
+        StubEndpoint endpoint = new StubEndpoint();
+        endpoint.dropLastResult = true;
+        Model model = TestModel.createRandomInstance();
+        var batcher = new InferenceRequestBatcher(threadPool, NEVER, 3);
+
+        var firstFuture = new PlainActionFuture<List<ChunkedInferenceServiceResults>>();
+        var secondFuture = new PlainActionFuture<List<ChunkedInferenceServiceResults>>();
+        batcher.chunkedInfer(endpoint.service, model, List.of("a"), firstFuture);
+        batcher.chunkedInfer(endpoint.service, model, List.of("b", "c"), secondFuture);
+
+        // the batch is retried per caller, which fails again
+        var exc = expectThrows(Exception.class, () -> firstFuture.actionGet(TimeValue.timeValueSeconds(10)));
+        assertThat(exc, instanceOf(IllegalStateException.class));
+        assertThat(exc.getMessage(), containsString("returned [0] results for [1] inputs"));
+        exc = expectThrows(Exception.class, () -> secondFuture.actionGet(TimeValue.timeValueSeconds(10)));
+        assertThat(exc, instanceOf(IllegalStateException.class));
+        assertThat(exc.getMessage(), containsString("returned [1] results for [2] inputs"));
+        assertThat(endpoint.requests.size(), equalTo(3));
+    }
+
+    public void testDisabled() throws Exception {
+        StubEndpoint endpoint = new StubEndpoint();
+        Model model = TestModel.createRandomInstance();
+        var batcher = randomBoolean() ? InferenceRequestBatcher.DISABLED : new InferenceRequestBatcher(threadPool, TimeValue.ZERO, 512);
+
+        List<String> first = randomInputs(0);
+        List<String> second = randomInputs(1);
+        var firstFuture = new PlainActionFuture<List<ChunkedInferenceServiceResults>>();
+        var secondFuture = new PlainActionFuture<List<ChunkedInferenceServiceResults>>();
+        batcher.chunkedInfer(endpoint.service, model, first, firstFuture);
+        batcher.chunkedInfer(endpoint.service, model, second, secondFuture);
+
+        assertResults(endpoint, first, firstFuture.get(10, TimeUnit.SECONDS));
+        assertResults(endpoint, second, secondFuture.get(10, TimeUnit.SECONDS));
+        assertThat(endpoint.requests, equalTo(List.of(first, second)));
+    }
+
+    public void testCachedInputsAreNotSent() throws Exception {
+        StubEndpoint endpoint = new StubEndpoint();
+        Model model = TestModel.createRandomInstance();
+        var cache = new EmbeddingCache(ByteSizeValue.ofMb(1), TimeValue.MINUS_ONE);
+        var batcher = new InferenceRequestBatcher(threadPool, randomBoolean() ? TimeValue.ZERO : TimeValue.timeValueMillis(1), 512, cache);
+
+        var firstFuture = new PlainActionFuture<List<ChunkedInferenceServiceResults>>();
+        batcher.chunkedInfer(endpoint.service, model, List.of("a", "b"), firstFuture);
+        assertResults(endpoint, List.of("a", "b"), firstFuture.get(10, TimeUnit.SECONDS));
+
+        var secondFuture = new PlainActionFuture<List<ChunkedInferenceServiceResults>>();
+        batcher.chunkedInfer(endpoint.service, model, List.of("b", "c", "a"), secondFuture);
+        assertResults(endpoint, List.of("b", "c", "a"), secondFuture.get(10, TimeUnit.SECONDS));
+
+        var thirdFuture = new PlainActionFuture<List<ChunkedInferenceServiceResults>>();
+        batcher.chunkedInfer(endpoint.service, model, List.of("c", "a"), thirdFuture);
+        assertResults(endpoint, List.of("c", "a"), thirdFuture.get(10, TimeUnit.SECONDS));
+
+        assertThat(endpoint.requests, equalTo(List.of(List.of("a", "b"), List.of("c"))));
+        assertThat(cache.stats().getHits(), equalTo(4L));
+    }
+
+    private static List<String> randomInputs(int caller) {
+        int numInputs = randomIntBetween(1, 10);
+        List<String> inputs = new ArrayList<>();
+        for (int i = 0; i < numInputs; i++) {
+            inputs.add(caller + "_" + i + "_" + randomAlphaOfLength(5));
+        }
+        return inputs;
+    }
+
+    private static void assertResults(StubEndpoint endpoint, List<String> inputs, List<ChunkedInferenceServiceResults> results) {
+        assertThat(results.size(), equalTo(inputs.size()));
+        for (int i = 0; i < inputs.size(); i++) {
+            assertSame(endpoint.results.get(inputs.get(i)), results.get(i));
+        }
+    }
+
+    /**
+     * A local inference endpoint that returns a distinct result for each input and records the requests it receives.
+     */
+    private class StubEndpoint {
+        private final InferenceService service = mock(InferenceService.class);
+        private final Map<String, ChunkedInferenceServiceResults> results = new ConcurrentHashMap<>();
+        private final List<List<String>> requests = Collections.synchronizedList(new ArrayList<>());
+        private volatile Exception failure;
+        // when set, only the requests that contain this input fail
+        private volatile String failingInput;
+        private volatile boolean dropLastResult;
+        // the stub can be called from any thread, so the randomization is done upfront
+        private final boolean respondAsync = randomBoolean();
+
+        @SuppressWarnings("unchecked")
+        StubEndpoint() {
+            Answer<?> chunkedInferAnswer = invocationOnMock -> {
+                List<String> inputs = List.copyOf((List<String>) invocationOnMock.getArguments()[2]);
+                ActionListener<List<ChunkedInferenceServiceResults>> listener = (ActionListener<
+                    List<ChunkedInferenceServiceResults>>) invocationOnMock.getArguments()[7];
+                requests.add(inputs);
+                Runnable runnable = () -> {
+                    if (failure != null && (failingInput == null || inputs.contains(failingInput))) {
+                        listener.onFailure(failure);
+                        return;
+                    }
+                    List<ChunkedInferenceServiceResults> response = new ArrayList<>();
+                    for (String input : inputs) {
+                        response.add(results.computeIfAbsent(input, k -> mock(ChunkedInferenceServiceResults.class)));
+                    }
+                    listener.onResponse(dropLastResult ? response.subList(0, response.size() - 1) : response);
+                };
+                if (respondAsync) {
+                    threadPool.generic().execute(runnable);
+                } else {
+                    runnable.run();
+                }
+                return null;
+            };
+            doAnswer(chunkedInferAnswer).when(service).chunkedInfer(any(), any(), any(), any(), any(), any(), any(), any());
+        }
+    }
+}
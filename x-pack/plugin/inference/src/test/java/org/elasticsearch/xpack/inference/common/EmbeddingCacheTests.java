@@ -0,0 +1,133 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+
+package org.elasticsearch.xpack.inference.common;
+
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.inference.ChunkedInferenceServiceResults;
+import org.elasticsearch.inference.InputType;
+import org.elasticsearch.telemetry.metric.MeterRegistry;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.xpack.core.inference.results.InferenceChunkedTextEmbeddingFloatResults;
+import org.elasticsearch.xpack.inference.model.TestModel;
+
+import java.util.HashSet;
+import java.util.List;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Mockito.mock;
+
+public class EmbeddingCacheTests extends ESTestCase {
+
+    public void testKeys() {
+        var cache = new EmbeddingCache(ByteSizeValue.ofMb(1), TimeValue.MINUS_ONE);
+        var model = TestModel.createRandomInstance();
+        List<String> inputs = List.of("foo", "bar", "foo");
+
+        List<String> keys = cache.keys(model, InputType.INGEST, inputs);
+        assertThat(keys.size(), equalTo(3));
+        assertThat(keys.get(0), equalTo(keys.get(2)));
+        assertThat(keys.get(0), not(equalTo(keys.get(1))));
+        // the keys only depend on the content
+        assertThat(cache.keys(model, InputType.INGEST, List.of("bar")), equalTo(List.of(keys.get(1))));
+        var sameEndpoint = new TestModel(
+            model.getInferenceEntityId(),
+            model.getTaskType(),
+            model.getConfigurations().getService(),
+            model.getServiceSettings(),
+            model.getTaskSettings(),
+            model.getSecretSettings()
+        );
+        assertThat(cache.keys(sameEndpoint, InputType.INGEST, List.of("foo")), equalTo(List.of(keys.get(0))));
+
+        assertThat(cache.keys(model, InputType.SEARCH, List.of("foo")).get(0), not(equalTo(keys.get(0))));
+        var otherSettings = new TestModel(
+            model.getInferenceEntityId(),
+            model.getTaskType(),
+            model.getConfigurations().getService(),
+            model.getServiceSettings(),
+            new TestModel.TestTaskSettings(randomValueOtherThan(model.getTaskSettings().temperature(), () -> randomInt(100))),
+            model.getSecretSettings()
+        );
+        assertThat(cache.keys(otherSettings, InputType.INGEST, List.of("foo")).get(0), not(equalTo(keys.get(0))));
+        var otherEndpoint = new TestModel(
+            model.getInferenceEntityId() + "_other",
+            model.getTaskType(),
+            model.getConfigurations().getService(),
+            model.getServiceSettings(),
+            model.getTaskSettings(),
+            model.getSecretSettings()
+        );
+        assertThat(cache.keys(otherEndpoint, InputType.INGEST, List.of("foo")).get(0), not(equalTo(keys.get(0))));
+    }
+
+    public void testPutAndGet() {
+        var cache = new EmbeddingCache(ByteSizeValue.ofMb(1), TimeValue.MINUS_ONE);
+        assertTrue(cache.isEnabled());
+        String key = cache.keys(TestModel.createRandomInstance(), InputType.INGEST, List.of("foo")).get(0);
+        assertThat(cache.get(key), nullValue());
+
+        var results = randomResults(16);
+        cache.put(key, results);
+        assertThat(cache.get(key), sameInstance(results));
+        assertThat(cache.stats().getHits(), equalTo(1L));
+        assertThat(cache.stats().getMisses(), equalTo(1L));
+    }
+
+    public void testEviction() {
+        var cache = new EmbeddingCache(ByteSizeValue.ofKb(16), TimeValue.MINUS_ONE);
+        var model = TestModel.createRandomInstance();
+        List<String> inputs = randomList(64, 128, () -> randomAlphaOfLength(10));
+        List<String> keys = cache.keys(model, InputType.INGEST, inputs);
+        for (String key : keys) {
+            cache.put(key, randomResults(256));
+        }
+
+        int cached = 0;
+        for (String key : new HashSet<>(keys)) {
+            if (cache.get(key) != null) {
+                cached++;
+            }
+        }
+        // each entry takes more than 1kb
+        assertThat(cached, lessThanOrEqualTo(16));
+        assertThat(cache.stats().getEvictions(), greaterThan(0L));
+    }
+
+    public void testDisabled() {
+        var cache = switch (randomIntBetween(0, 2)) {
+            case 0 -> EmbeddingCache.DISABLED;
+            case 1 -> new EmbeddingCache(
+                Settings.builder().put("xpack.inference.embedding_cache.size", "0b").build(),
+                mock(MeterRegistry.class)
+            );
+            // the cache is disabled by default
+            default -> new EmbeddingCache(Settings.EMPTY, mock(MeterRegistry.class));
+        };
+        assertFalse(cache.isEnabled());
+        String key = cache.keys(TestModel.createRandomInstance(), InputType.INGEST, List.of("foo")).get(0);
+        cache.put(key, randomResults(16));
+        assertThat(cache.get(key), nullValue());
+    }
+
+    private static ChunkedInferenceServiceResults randomResults(int dims) {
+        float[] embedding = new float[dims];
+        for (int i = 0; i < dims; i++) {
+            embedding[i] = randomFloat();
+        }
+        return new InferenceChunkedTextEmbeddingFloatResults(
+            List.of(new InferenceChunkedTextEmbeddingFloatResults.InferenceFloatEmbeddingChunk(randomAlphaOfLength(10), embedding))
+        );
+    }
+}
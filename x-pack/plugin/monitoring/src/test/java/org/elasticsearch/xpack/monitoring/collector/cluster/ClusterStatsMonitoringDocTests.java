@@ -564,6 +564,7 @@ public class ClusterStatsMonitoringDocTests extends BaseMonitoringDocTestCase<Cl
                     "index_writer_memory_in_bytes": 0,
                     "version_map_memory_in_bytes": 0,
                     "fixed_bit_set_memory_in_bytes": 0,
+                    "id_filter_memory_in_bytes": 0,
                     "max_unsafe_auto_id_timestamp": -9223372036854775808,
                     "file_sizes": {}
                   },
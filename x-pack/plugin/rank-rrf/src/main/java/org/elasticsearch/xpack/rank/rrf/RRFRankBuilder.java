@@ -215,7 +215,8 @@ public class RRFRankBuilder extends RankBuilder {
                 knnSearchBuilder.getQueryVectorBuilder(),
                 knnSearchBuilder.k(),
                 knnSearchBuilder.getNumCands(),
-                knnSearchBuilder.getSimilarity()
+                knnSearchBuilder.getSimilarity(),
+                knnSearchBuilder.rescoreVectorBuilder()
             );
             knnRetriever.retrieverName(knnSearchBuilder.queryName());
             retrieverSources.add(new CompoundRetrieverBuilder.RetrieverSource(knnRetriever, null));